@@ -0,0 +1,333 @@
+package com.nukkitx.digraph;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Attributes of the nodes or the edges of a graph kept by key instead of by element, see
+ * {@link DiGraph#setColumnarAttributes}. Every element gets a dense ordinal when it is created and each attribute
+ * key a {@link Column} indexed by ordinal. The elements' {@link DiGraphElement#getAttributes()} maps are views of
+ * their row.
+ */
+public final class AttributeColumns {
+    private final Map<String, Column> columns = new LinkedHashMap<>();
+    private int size;
+
+    AttributeColumns() {
+    }
+
+    /**
+     * The attribute map of a new element, its ordinal is the next one.
+     */
+    Map<String, Object> newRow() {
+        return new Row(this, size++);
+    }
+
+    /**
+     * Number of ordinals handed out.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * The ordinal of {@code element}, -1 if its attributes are not kept here.
+     */
+    public int ordinal(DiGraphElement element) {
+        Map<String, Object> attributes = element.getAttributes();
+        return attributes instanceof Row && ((Row) attributes).columns == this ? ((Row) attributes).ordinal : -1;
+    }
+
+    public Set<String> keys() {
+        return Collections.unmodifiableSet(columns.keySet());
+    }
+
+    /**
+     * The column of {@code key}, {@code null} if no element has had the attribute.
+     */
+    public Column column(String key) {
+        return columns.get(key);
+    }
+
+    Column columnFor(String key) {
+        Column column = columns.get(key);
+        if (column == null) columns.put(key, column = new Column(key));
+        return column;
+    }
+
+    Iterable<Column> columns() {
+        return columns.values();
+    }
+
+    public enum Type {
+        /**
+         * Integral {@link NumberAttribute}s only, in a {@code long[]}.
+         */
+        LONG,
+        /**
+         * {@link NumberAttribute}s only, in a {@code double[]}.
+         */
+        DOUBLE,
+        /**
+         * Any values, in an {@code Object[]}. A column becomes one when a value that is not a number is set.
+         */
+        OBJECT
+    }
+
+    /**
+     * The values of one attribute key by element ordinal.
+     */
+    public static final class Column {
+        private static final long[] NO_LONGS = new long[0];
+
+        private final String key;
+        private final BitSet present = new BitSet();
+        private Type type = Type.LONG;
+        private long[] longs = NO_LONGS;
+        private double[] doubles;
+        private BitSet integral; // of a DOUBLE column, the values written without a decimal point
+        private Object[] objects;
+
+        Column(String key) {
+            this.key = key;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public Type getType() {
+            return type;
+        }
+
+        /**
+         * Whether the element with {@code ordinal} has the attribute.
+         */
+        public boolean has(int ordinal) {
+            return present.get(ordinal);
+        }
+
+        /**
+         * The value as the element's attribute map returns it, numbers as {@link NumberAttribute}s.
+         */
+        public Object get(int ordinal) {
+            if (!present.get(ordinal)) return null;
+            switch (type) {
+                case LONG:
+                    return NumberAttribute.of(longs[ordinal]);
+                case DOUBLE:
+                    return integral.get(ordinal) ? NumberAttribute.of((long) doubles[ordinal]) : NumberAttribute.of(doubles[ordinal]);
+                default:
+                    return objects[ordinal];
+            }
+        }
+
+        /**
+         * The value of a {@link Type#LONG} column, 0 for elements without the attribute.
+         */
+        public long getLong(int ordinal) {
+            if (type != Type.LONG) throw new IllegalStateException(key + " is a " + type + " column");
+            return ordinal < longs.length ? longs[ordinal] : 0;
+        }
+
+        /**
+         * The value of a {@link Type#LONG} or {@link Type#DOUBLE} column, 0 for elements without the attribute.
+         */
+        public double getDouble(int ordinal) {
+            if (type == Type.LONG) return ordinal < longs.length ? longs[ordinal] : 0;
+            if (type != Type.DOUBLE) throw new IllegalStateException(key + " is a " + type + " column");
+            return ordinal < doubles.length ? doubles[ordinal] : 0;
+        }
+
+        void set(int ordinal, Object value) {
+            if (value instanceof NumberAttribute && type != Type.OBJECT) {
+                NumberAttribute number = (NumberAttribute) value;
+                if (type == Type.LONG && number.isIntegral()) {
+                    longs = grow(longs, ordinal);
+                    longs[ordinal] = number.longValue();
+                    present.set(ordinal);
+                    return;
+                }
+                if (number.fitsDouble() && (type == Type.DOUBLE || toDoubles())) {
+                    doubles = grow(doubles, ordinal);
+                    doubles[ordinal] = number.doubleValue();
+                    integral.set(ordinal, number.isIntegral());
+                    present.set(ordinal);
+                    return;
+                }
+            }
+            if (type != Type.OBJECT) toObjects();
+            objects = grow(objects, ordinal);
+            objects[ordinal] = value;
+            present.set(ordinal);
+        }
+
+        void remove(int ordinal) {
+            present.clear(ordinal);
+            if (type == Type.LONG && ordinal < longs.length) longs[ordinal] = 0;
+            if (type == Type.DOUBLE && ordinal < doubles.length) doubles[ordinal] = 0;
+            if (type == Type.OBJECT && ordinal < objects.length) objects[ordinal] = null;
+        }
+
+        /*
+         * LONG to DOUBLE, false if one of the longs is too large for a double
+         */
+        private boolean toDoubles() {
+            for (int i = present.nextSetBit(0); i >= 0; i = present.nextSetBit(i + 1)) {
+                if (!NumberAttribute.of(longs[i]).fitsDouble()) return false;
+            }
+            doubles = new double[longs.length];
+            integral = new BitSet();
+            for (int i = present.nextSetBit(0); i >= 0; i = present.nextSetBit(i + 1)) {
+                doubles[i] = longs[i];
+                integral.set(i);
+            }
+            longs = null;
+            type = Type.DOUBLE;
+            return true;
+        }
+
+        private void toObjects() {
+            Object[] values = new Object[Math.max(present.length(), 4)];
+            for (int i = present.nextSetBit(0); i >= 0; i = present.nextSetBit(i + 1)) {
+                values[i] = get(i);
+            }
+            objects = values;
+            longs = null;
+            doubles = null;
+            integral = null;
+            type = Type.OBJECT;
+        }
+
+        private static long[] grow(long[] values, int ordinal) {
+            return ordinal < values.length ? values : Arrays.copyOf(values, capacity(values.length, ordinal));
+        }
+
+        private static double[] grow(double[] values, int ordinal) {
+            return ordinal < values.length ? values : Arrays.copyOf(values, capacity(values.length, ordinal));
+        }
+
+        private static Object[] grow(Object[] values, int ordinal) {
+            return ordinal < values.length ? values : Arrays.copyOf(values, capacity(values.length, ordinal));
+        }
+
+        private static int capacity(int length, int ordinal) {
+            return Math.max(ordinal + 1, Math.max(16, length + (length >> 1)));
+        }
+    }
+
+    /*
+     * Row - the attribute map of one element, a view of its ordinal in every column
+     */
+    private static final class Row extends AbstractMap<String, Object> {
+        final AttributeColumns columns;
+        final int ordinal;
+
+        Row(AttributeColumns columns, int ordinal) {
+            this.columns = columns;
+            this.ordinal = ordinal;
+        }
+
+        @Override
+        public Object get(Object key) {
+            Column column = columns.columns.get(key);
+            return column == null ? null : column.get(ordinal);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            Column column = columns.columns.get(key);
+            return column != null && column.has(ordinal);
+        }
+
+        @Override
+        public Object put(String key, Object value) {
+            Column column = columns.columnFor(key);
+            Object old = column.get(ordinal);
+            column.set(ordinal, value);
+            return old;
+        }
+
+        @Override
+        public Object remove(Object key) {
+            Column column = columns.columns.get(key);
+            if (column == null || !column.has(ordinal)) return null;
+            Object old = column.get(ordinal);
+            column.remove(ordinal);
+            return old;
+        }
+
+        @Override
+        public void clear() {
+            for (Column column : columns.columns()) {
+                column.remove(ordinal);
+            }
+        }
+
+        @Override
+        public Set<Entry<String, Object>> entrySet() {
+            return new AbstractSet<Entry<String, Object>>() {
+                @Override
+                public Iterator<Entry<String, Object>> iterator() {
+                    Iterator<Column> it = columns.columns.values().iterator();
+                    return new Iterator<Entry<String, Object>>() {
+                        private Column next = advance();
+                        private Column last;
+
+                        private Column advance() {
+                            while (it.hasNext()) {
+                                Column column = it.next();
+                                if (column.has(ordinal)) return column;
+                            }
+                            return null;
+                        }
+
+                        @Override
+                        public boolean hasNext() {
+                            return next != null;
+                        }
+
+                        @Override
+                        public Entry<String, Object> next() {
+                            if (next == null) throw new NoSuchElementException();
+                            last = next;
+                            next = advance();
+                            Column column = last;
+                            return new SimpleEntry<String, Object>(column.getKey(), column.get(ordinal)) {
+                                @Override
+                                public Object setValue(Object value) {
+                                    super.setValue(value);
+                                    return put(column.getKey(), value);
+                                }
+                            };
+                        }
+
+                        @Override
+                        public void remove() {
+                            if (last == null) throw new IllegalStateException();
+                            last.remove(ordinal);
+                            last = null;
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    int size = 0;
+                    for (Column column : columns.columns()) {
+                        if (column.has(ordinal)) size++;
+                    }
+                    return size;
+                }
+            };
+        }
+    }
+}
@@ -6,9 +6,24 @@ import java.util.Map;
 import java.util.TreeMap;
 
 public class DiGraph {
-    private final Map<String, DiGraphNode> nodes = new LinkedHashMap<>();
-    private final TreeMap<String, DiGraphEdge> edges = new TreeMap<>();
+    private final Map<String, DiGraphNode> nodes;
+    private final TreeMap<String, DiGraphEdge> edges;
     private String id;
+    private AttributeColumns nodeColumns;
+    private AttributeColumns edgeColumns;
+
+    public DiGraph() {
+        this(null, new LinkedHashMap<>(), new TreeMap<>());
+    }
+
+    /**
+     * For subclasses that bring their own maps, like read-only graphs.
+     */
+    protected DiGraph(String id, Map<String, DiGraphNode> nodes, TreeMap<String, DiGraphEdge> edges) {
+        this.id = id;
+        this.nodes = nodes;
+        this.edges = edges;
+    }
 
     public String getId() {
         return id;
@@ -41,4 +56,47 @@ public class DiGraph {
     public void setEdge(String id, DiGraphEdge edge) {
         this.edges.put(id, edge);
     }
+
+    /**
+     * Keep the attributes of nodes and edges created by {@link #newNode} and {@link #newEdge} from now on in
+     * {@link AttributeColumns}, one column per attribute key, instead of a map per element. Numbers the parser reads
+     * are stored in primitive arrays, see {@link NumberAttribute}. Only possible while the graph is empty.
+     */
+    public void setColumnarAttributes(boolean columnar) {
+        if (!nodes.isEmpty() || !edges.isEmpty()) throw new IllegalStateException("graph is not empty");
+        nodeColumns = columnar ? new AttributeColumns() : null;
+        edgeColumns = columnar ? new AttributeColumns() : null;
+    }
+
+    public boolean isColumnarAttributes() {
+        return nodeColumns != null;
+    }
+
+    /**
+     * The attribute columns of the nodes, {@code null} unless the attributes are columnar.
+     */
+    public AttributeColumns getNodeColumns() {
+        return nodeColumns;
+    }
+
+    /**
+     * The attribute columns of the edges, {@code null} unless the attributes are columnar.
+     */
+    public AttributeColumns getEdgeColumns() {
+        return edgeColumns;
+    }
+
+    /**
+     * A node for this graph, it is not added.
+     */
+    public DiGraphNode newNode(String id) {
+        return nodeColumns != null ? new DiGraphNode(id, nodeColumns.newRow()) : new DiGraphNode(id);
+    }
+
+    /**
+     * An edge for this graph, it is not added.
+     */
+    public DiGraphEdge newEdge(String id, DiGraphNode node1, DiGraphNode node2) {
+        return edgeColumns != null ? new DiGraphEdge(id, node1, node2, edgeColumns.newRow()) : new DiGraphEdge(id, node1, node2);
+    }
 }
@@ -31,6 +31,8 @@ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 */
 package com.nukkitx.digraph;
 
+import java.util.Map;
+
 public class DiGraphEdge extends DiGraphElement {
     protected final DiGraphNode mNode1;
     protected final DiGraphNode mNode2;
@@ -41,6 +43,15 @@ public class DiGraphEdge extends DiGraphElement {
         mNode2 = node2;
     }
 
+    /**
+     * An edge that keeps its attributes in {@code attributes}, the map is used as is.
+     */
+    public DiGraphEdge(String id, DiGraphNode node1, DiGraphNode node2, Map<String, Object> attributes) {
+        super(id, attributes);
+        mNode1 = node1;
+        mNode2 = node2;
+    }
+
     public DiGraphNode getNode1() {
         return mNode1;
     }
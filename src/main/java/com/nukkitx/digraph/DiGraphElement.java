@@ -36,10 +36,15 @@ import java.util.Map;
 
 public class DiGraphElement {
     protected String id;
-    protected final Map<String, Object> attributes = new HashMap<>();
+    protected final Map<String, Object> attributes;
 
     public DiGraphElement(String id) {
+        this(id, new HashMap<>());
+    }
+
+    protected DiGraphElement(String id, Map<String, Object> attributes) {
         this.id = id;
+        this.attributes = attributes;
     }
 
     public void setAttribute(String key, Object value) {
@@ -54,8 +59,12 @@ public class DiGraphElement {
         this.id = id;
     }
 
+    /**
+     * The value of the attribute, a {@link LazyAttribute} is decoded into its string.
+     */
     public Object getAttribute(String key) {
-        return attributes.get(key);
+        Object value = attributes.get(key);
+        return value instanceof LazyAttribute ? value.toString() : value;
     }
 
     public Map<String, Object> getAttributes() {
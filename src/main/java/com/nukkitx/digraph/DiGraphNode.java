@@ -31,11 +31,20 @@ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 */
 package com.nukkitx.digraph;
 
+import java.util.Map;
+
 public class DiGraphNode extends DiGraphElement {
     public DiGraphNode(String id) {
         super(id);
     }
 
+    /**
+     * A node that keeps its attributes in {@code attributes}, the map is used as is.
+     */
+    public DiGraphNode(String id, Map<String, Object> attributes) {
+        super(id, attributes);
+    }
+
     @Override
     public String toString() {
         return "Node-" + super.toString();
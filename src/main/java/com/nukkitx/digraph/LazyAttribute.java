@@ -0,0 +1,47 @@
+package com.nukkitx.digraph;
+
+/**
+ * Attribute value that is only turned into a {@code String} when it is read. {@link DiGraphElement#getAttribute}
+ * returns the decoded string, the map of {@link DiGraphElement#getAttributes()} holds the lazy value itself; its
+ * {@code toString()} decodes it. The string is decoded once and kept.
+ */
+public abstract class LazyAttribute implements CharSequence {
+    private String value;
+
+    protected abstract String decode();
+
+    @Override
+    public String toString() {
+        String value = this.value;
+        if (value == null) {
+            // racing threads decode the same string, either one may be kept
+            this.value = value = decode();
+        }
+        return value;
+    }
+
+    @Override
+    public int length() {
+        return toString().length();
+    }
+
+    @Override
+    public char charAt(int index) {
+        return toString().charAt(index);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return toString().subSequence(start, end);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof LazyAttribute && toString().equals(o.toString());
+    }
+
+    @Override
+    public int hashCode() {
+        return toString().hashCode();
+    }
+}
@@ -0,0 +1,74 @@
+package com.nukkitx.digraph;
+
+/**
+ * Attribute value the parser read from a DOT number, kept as a {@code long} or {@code double}. It reads as the
+ * text of the number: only numbers written the way {@link Long#toString(long)} or {@link Double#toString(double)}
+ * writes them are kept as numbers, the parser keeps others such as {@code 007} or {@code .5} as strings.
+ * {@link AttributeColumns} store these values in primitive arrays.
+ */
+public final class NumberAttribute extends LazyAttribute {
+    private static final long MAX_EXACT = 1L << 53; // longs a double holds exactly
+
+    private final long longValue;
+    private final double doubleValue;
+    private final boolean integral;
+
+    private NumberAttribute(long longValue, double doubleValue, boolean integral) {
+        this.longValue = longValue;
+        this.doubleValue = doubleValue;
+        this.integral = integral;
+    }
+
+    public static NumberAttribute of(long value) {
+        return new NumberAttribute(value, value, true);
+    }
+
+    public static NumberAttribute of(double value) {
+        return new NumberAttribute((long) value, value, false);
+    }
+
+    /**
+     * The number {@code text} stands for, or {@code text} itself if it is not a number in canonical form.
+     */
+    public static Object parse(String text) {
+        try {
+            if (text.indexOf('.') < 0) {
+                long value = Long.parseLong(text);
+                if (Long.toString(value).equals(text)) return of(value);
+            } else {
+                double value = Double.parseDouble(text);
+                if (Double.toString(value).equals(text)) return of(value);
+            }
+        } catch (NumberFormatException e) {
+            // not a number after all, or out of range
+        }
+        return text;
+    }
+
+    /**
+     * Whether the number was written without a decimal point.
+     */
+    public boolean isIntegral() {
+        return integral;
+    }
+
+    public long longValue() {
+        return longValue;
+    }
+
+    public double doubleValue() {
+        return doubleValue;
+    }
+
+    /*
+     * whether a double column can hold the value and give back the same text
+     */
+    boolean fitsDouble() {
+        return !integral || (longValue <= MAX_EXACT && longValue >= -MAX_EXACT);
+    }
+
+    @Override
+    protected String decode() {
+        return integral ? Long.toString(longValue) : Double.toString(doubleValue);
+    }
+}
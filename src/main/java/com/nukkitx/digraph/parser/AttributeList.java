@@ -0,0 +1,20 @@
+package com.nukkitx.digraph.parser;
+
+/**
+ * Attributes of a statement as reported to a {@link GraphEventHandler}. Keys are sorted, when a key occurs more
+ * than once in the statement the last value wins. Quoted values are unquoted and unescaped.
+ * <p>
+ * Instances are reused by the parser and are only valid for the duration of the callback they are passed to.
+ */
+public interface AttributeList {
+    int size();
+
+    String getKey(int index);
+
+    String getValue(int index);
+
+    /**
+     * Returns the value for the given key or {@code null} if the statement does not set it.
+     */
+    String getValue(String key);
+}
@@ -0,0 +1,43 @@
+package com.nukkitx.digraph.parser;
+
+import com.nukkitx.digraph.LazyAttribute;
+import com.nukkitx.digraph.parser.antlr.DOTParser;
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.UnbufferedCharStream;
+import org.antlr.v4.runtime.misc.Interval;
+
+/**
+ * Attribute value of a lazy parse, see {@link GraphParserOptions#setLazyAttributes}: the input and the range of
+ * the value token. The text is taken from the input, unquoted and unescaped on first use.
+ */
+final class AttributeSpan extends LazyAttribute {
+    private final CharStream input;
+    private final int start;
+    private final int stop;
+    private final boolean string;
+
+    private AttributeSpan(CharStream input, int start, int stop, boolean string) {
+        this.input = input;
+        this.start = start;
+        this.stop = stop;
+        this.string = string;
+    }
+
+    /**
+     * The value of an attribute token, a span if the input can still be read once parsing is done and the
+     * decoded text otherwise
+     */
+    static Object of(Token token, boolean lazy) {
+        CharStream input = token.getInputStream();
+        if (!lazy || input == null || input instanceof UnbufferedCharStream) {
+            return GraphParser.attributeText(token);
+        }
+        return new AttributeSpan(input, token.getStartIndex(), token.getStopIndex(), token.getType() == DOTParser.STRING);
+    }
+
+    @Override
+    protected String decode() {
+        return GraphParser.attributeText(input.getText(Interval.of(start, stop)), string);
+    }
+}
@@ -0,0 +1,601 @@
+package com.nukkitx.digraph.parser;
+
+import com.nukkitx.digraph.DiGraph;
+import com.nukkitx.digraph.DiGraphEdge;
+import com.nukkitx.digraph.DiGraphNode;
+
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * {@link DiGraph} that keeps the edges of large edge statements as bundles, see
+ * {@link GraphParserOptions#setMinBundleEdges}: the sources, the targets and the attributes of the statement. The
+ * edge map makes the edges of a bundle when they are read.
+ */
+final class BundledDiGraph extends DiGraph {
+    private final Edges edges;
+    private final long minBundleEdges;
+
+    BundledDiGraph(int minBundleEdges) {
+        this(new LinkedHashMap<>(), minBundleEdges);
+    }
+
+    private BundledDiGraph(Map<String, DiGraphNode> nodes, int minBundleEdges) {
+        this(nodes, new Edges(nodes), minBundleEdges);
+    }
+
+    private BundledDiGraph(Map<String, DiGraphNode> nodes, Edges edges, int minBundleEdges) {
+        super(null, nodes, edges);
+        this.edges = edges;
+        this.minBundleEdges = Math.max(2, minBundleEdges);
+    }
+
+    /**
+     * Adds the edges from every source to every target as one bundle, unless there are fewer of them than
+     * bundles are kept for; the caller adds those one by one. The nodes must be in the graph already.
+     */
+    boolean addBundle(Collection<String> sourceIds, Collection<String> targetIds, Map<String, Object> attributes) {
+        if ((long) sourceIds.size() * targetIds.size() < minBundleEdges) return false;
+        edges.addBundle(sourceIds, targetIds, attributes);
+        return true;
+    }
+
+    int bundles() {
+        return edges.bundles.size();
+    }
+
+    /* Bundle - one edge statement, sources and targets sorted */
+    private static final class Bundle {
+        final int index;
+        final String[] sources;
+        final String[] targets;
+        final Map<String, Object> attributes;
+
+        Bundle(int index, String[] sources, String[] targets, Map<String, Object> attributes) {
+            this.index = index;
+            this.sources = sources;
+            this.targets = targets;
+            this.attributes = attributes;
+        }
+    }
+
+    /*
+     * Cursor - the edges of one source of a bundle in key order, which is the order of the targets since all keys
+     * start with the same source
+     */
+    private static final class Cursor implements Comparable<Cursor> {
+        final Bundle bundle;
+        final String source;
+        int target = -1;
+        String key;
+
+        Cursor(Bundle bundle, String source) {
+            this.bundle = bundle;
+            this.source = source;
+        }
+
+        boolean advance() {
+            if (++target >= bundle.targets.length) return false;
+            key = source + "-" + bundle.targets[target];
+            return true;
+        }
+
+        @Override
+        public int compareTo(Cursor other) {
+            int c = key.compareTo(other.key);
+            return c != 0 ? c : Integer.compare(bundle.index, other.bundle.index);
+        }
+    }
+
+    /*
+     * Edges - the edge map. Edges added one by one and edges of bundles that have been looked up with get are kept
+     * in the tree, every bundle added later merges its attributes into the kept edges it covers. An edge that is
+     * only in bundles is made from them on each read, its attributes merged in statement order as if the edges had
+     * been added one by one. Iteration merges the kept edges and the bundles by key. Navigation, removal and the
+     * other changes expand all bundles into the tree first.
+     */
+    private static class Edges extends TreeMap<String, DiGraphEdge> {
+        private final Map<String, DiGraphNode> nodes;
+        private final List<Bundle> bundles = new ArrayList<>();
+        private final Map<String, List<Bundle>> bundlesBySource = new HashMap<>();
+        private int size = -1; // counted on demand while there are bundles
+
+        Edges(Map<String, DiGraphNode> nodes) {
+            this.nodes = nodes;
+        }
+
+        void addBundle(Collection<String> sourceIds, Collection<String> targetIds, Map<String, Object> attributes) {
+            String[] sources = new TreeSet<>(sourceIds).toArray(new String[0]);
+            String[] targets = new TreeSet<>(targetIds).toArray(new String[0]);
+            Map<String, Object> attrs = attributes.isEmpty() ? Collections.emptyMap() : new TreeMap<>(attributes);
+            Bundle bundle = new Bundle(bundles.size(), sources, targets, attrs);
+            for (String source : sources) {
+                // kept edges of this source, the key of an edge from source starts with source followed by '-'
+                for (Map.Entry<String, DiGraphEdge> entry : super.subMap(source + "-", true, source + ".", false).entrySet()) {
+                    if (Arrays.binarySearch(targets, entry.getKey().substring(source.length() + 1)) >= 0) {
+                        entry.getValue().setAttributes(attrs);
+                    }
+                }
+                bundlesBySource.computeIfAbsent(source, k -> new ArrayList<>(1)).add(bundle);
+            }
+            bundles.add(bundle);
+            size = -1;
+        }
+
+        /*
+         * the bundle edges with this key in statement order, null if there are none; a key can be split into source
+         * and target at any '-'
+         */
+        private List<Cursor> bundled(String key) {
+            List<Cursor> found = null;
+            for (int i = key.indexOf('-'); i >= 0; i = key.indexOf('-', i + 1)) {
+                List<Bundle> candidates = bundlesBySource.get(key.substring(0, i));
+                if (candidates == null) continue;
+                String target = key.substring(i + 1);
+                for (Bundle bundle : candidates) {
+                    int index = Arrays.binarySearch(bundle.targets, target);
+                    if (index < 0) continue;
+                    Cursor cursor = new Cursor(bundle, key.substring(0, i));
+                    cursor.target = index;
+                    cursor.key = key;
+                    if (found == null) found = new ArrayList<>(1);
+                    found.add(cursor);
+                }
+            }
+            if (found != null && found.size() > 1) Collections.sort(found);
+            return found;
+        }
+
+        /*
+         * the first statement made the edge and picked its nodes, the others merged their attributes into it
+         */
+        private DiGraphEdge edge(String key, List<Cursor> bundled) {
+            Cursor first = bundled.get(0);
+            DiGraphEdge edge = new DiGraphEdge(key, nodes.get(first.source), nodes.get(first.bundle.targets[first.target]));
+            for (Cursor cursor : bundled) {
+                edge.setAttributes(cursor.bundle.attributes);
+            }
+            return edge;
+        }
+
+        private void expandAll() {
+            if (bundles.isEmpty()) return;
+            List<Map.Entry<String, DiGraphEdge>> expanded = new ArrayList<>();
+            for (EntryIterator it = new EntryIterator(); it.hasNext(); ) {
+                Map.Entry<String, DiGraphEdge> entry = it.next();
+                if (!super.containsKey(entry.getKey())) expanded.add(entry);
+            }
+            bundles.clear();
+            bundlesBySource.clear();
+            size = -1;
+            for (Map.Entry<String, DiGraphEdge> entry : expanded) {
+                super.put(entry.getKey(), entry.getValue());
+            }
+        }
+
+        @Override
+        public DiGraphEdge get(Object key) {
+            DiGraphEdge edge = super.get(key);
+            if (edge != null || bundles.isEmpty() || !(key instanceof String)) return edge;
+            List<Cursor> bundled = bundled((String) key);
+            if (bundled == null) return null;
+            // kept from now on, so changes to it are not lost and later bundles merge into it
+            edge = edge((String) key, bundled);
+            super.put((String) key, edge);
+            return edge;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return super.containsKey(key) || !bundles.isEmpty() && key instanceof String && bundled((String) key) != null;
+        }
+
+        @Override
+        public DiGraphEdge put(String key, DiGraphEdge value) {
+            DiGraphEdge old = super.put(key, value);
+            if (old == null && !bundles.isEmpty()) {
+                List<Cursor> bundled = bundled(key);
+                if (bundled != null) return edge(key, bundled);
+            }
+            if (old == null) size = -1;
+            return old;
+        }
+
+        @Override
+        public int size() {
+            if (bundles.isEmpty()) return super.size();
+            if (size < 0) {
+                int count = 0;
+                for (EntryIterator it = new EntryIterator(); it.hasNext(); it.nextKey()) {
+                    count++;
+                }
+                size = count;
+            }
+            return size;
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return super.isEmpty() && bundles.isEmpty();
+        }
+
+        @Override
+        public void clear() {
+            super.clear();
+            bundles.clear();
+            bundlesBySource.clear();
+            size = -1;
+        }
+
+        @Override
+        public boolean containsValue(Object value) {
+            return values().contains(value);
+        }
+
+        @Override
+        public void forEach(BiConsumer<? super String, ? super DiGraphEdge> action) {
+            for (Map.Entry<String, DiGraphEdge> entry : entrySet()) {
+                action.accept(entry.getKey(), entry.getValue());
+            }
+        }
+
+        @Override
+        public Set<Map.Entry<String, DiGraphEdge>> entrySet() {
+            return new AbstractSet<Map.Entry<String, DiGraphEdge>>() {
+                @Override
+                public Iterator<Map.Entry<String, DiGraphEdge>> iterator() {
+                    return new EntryIterator();
+                }
+
+                @Override
+                public int size() {
+                    return Edges.this.size();
+                }
+            };
+        }
+
+        @Override
+        public Set<String> keySet() {
+            return new AbstractSet<String>() {
+                @Override
+                public Iterator<String> iterator() {
+                    EntryIterator entries = new EntryIterator();
+                    return new Iterator<String>() {
+                        @Override
+                        public boolean hasNext() {
+                            return entries.hasNext();
+                        }
+
+                        @Override
+                        public String next() {
+                            return entries.nextKey();
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return Edges.this.size();
+                }
+
+                @Override
+                public boolean contains(Object key) {
+                    return containsKey(key);
+                }
+            };
+        }
+
+        @Override
+        public Collection<DiGraphEdge> values() {
+            return new AbstractCollection<DiGraphEdge>() {
+                @Override
+                public Iterator<DiGraphEdge> iterator() {
+                    EntryIterator entries = new EntryIterator();
+                    return new Iterator<DiGraphEdge>() {
+                        @Override
+                        public boolean hasNext() {
+                            return entries.hasNext();
+                        }
+
+                        @Override
+                        public DiGraphEdge next() {
+                            return entries.next().getValue();
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return Edges.this.size();
+                }
+            };
+        }
+
+        @Override
+        public Map.Entry<String, DiGraphEdge> firstEntry() {
+            EntryIterator entries = new EntryIterator();
+            return entries.hasNext() ? entries.next() : null;
+        }
+
+        @Override
+        public String firstKey() {
+            EntryIterator entries = new EntryIterator();
+            return entries.nextKey();
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Object clone() {
+            // TreeMap.clone copies the tree only
+            return new TreeMap<>(this);
+        }
+
+        @Override
+        public DiGraphEdge remove(Object key) {
+            expandAll();
+            return super.remove(key);
+        }
+
+        @Override
+        public void putAll(Map<? extends String, ? extends DiGraphEdge> map) {
+            expandAll();
+            super.putAll(map);
+        }
+
+        @Override
+        public Map.Entry<String, DiGraphEdge> pollFirstEntry() {
+            expandAll();
+            return super.pollFirstEntry();
+        }
+
+        @Override
+        public Map.Entry<String, DiGraphEdge> pollLastEntry() {
+            expandAll();
+            return super.pollLastEntry();
+        }
+
+        @Override
+        public Map.Entry<String, DiGraphEdge> lastEntry() {
+            expandAll();
+            return super.lastEntry();
+        }
+
+        @Override
+        public String lastKey() {
+            expandAll();
+            return super.lastKey();
+        }
+
+        @Override
+        public Map.Entry<String, DiGraphEdge> lowerEntry(String key) {
+            expandAll();
+            return super.lowerEntry(key);
+        }
+
+        @Override
+        public String lowerKey(String key) {
+            expandAll();
+            return super.lowerKey(key);
+        }
+
+        @Override
+        public Map.Entry<String, DiGraphEdge> floorEntry(String key) {
+            expandAll();
+            return super.floorEntry(key);
+        }
+
+        @Override
+        public String floorKey(String key) {
+            expandAll();
+            return super.floorKey(key);
+        }
+
+        @Override
+        public Map.Entry<String, DiGraphEdge> ceilingEntry(String key) {
+            expandAll();
+            return super.ceilingEntry(key);
+        }
+
+        @Override
+        public String ceilingKey(String key) {
+            expandAll();
+            return super.ceilingKey(key);
+        }
+
+        @Override
+        public Map.Entry<String, DiGraphEdge> higherEntry(String key) {
+            expandAll();
+            return super.higherEntry(key);
+        }
+
+        @Override
+        public String higherKey(String key) {
+            expandAll();
+            return super.higherKey(key);
+        }
+
+        @Override
+        public NavigableSet<String> navigableKeySet() {
+            expandAll();
+            return super.navigableKeySet();
+        }
+
+        @Override
+        public NavigableSet<String> descendingKeySet() {
+            expandAll();
+            return super.descendingKeySet();
+        }
+
+        @Override
+        public NavigableMap<String, DiGraphEdge> descendingMap() {
+            expandAll();
+            return super.descendingMap();
+        }
+
+        @Override
+        public NavigableMap<String, DiGraphEdge> subMap(String fromKey, boolean fromInclusive, String toKey, boolean toInclusive) {
+            expandAll();
+            return super.subMap(fromKey, fromInclusive, toKey, toInclusive);
+        }
+
+        @Override
+        public NavigableMap<String, DiGraphEdge> headMap(String toKey, boolean inclusive) {
+            expandAll();
+            return super.headMap(toKey, inclusive);
+        }
+
+        @Override
+        public NavigableMap<String, DiGraphEdge> tailMap(String fromKey, boolean inclusive) {
+            expandAll();
+            return super.tailMap(fromKey, inclusive);
+        }
+
+        @Override
+        public SortedMap<String, DiGraphEdge> subMap(String fromKey, String toKey) {
+            return subMap(fromKey, true, toKey, false);
+        }
+
+        @Override
+        public SortedMap<String, DiGraphEdge> headMap(String toKey) {
+            return headMap(toKey, false);
+        }
+
+        @Override
+        public SortedMap<String, DiGraphEdge> tailMap(String fromKey) {
+            return tailMap(fromKey, true);
+        }
+
+        @Override
+        public DiGraphEdge putIfAbsent(String key, DiGraphEdge value) {
+            expandAll();
+            return super.putIfAbsent(key, value);
+        }
+
+        @Override
+        public boolean replace(String key, DiGraphEdge oldValue, DiGraphEdge newValue) {
+            expandAll();
+            return super.replace(key, oldValue, newValue);
+        }
+
+        @Override
+        public DiGraphEdge replace(String key, DiGraphEdge value) {
+            expandAll();
+            return super.replace(key, value);
+        }
+
+        @Override
+        public void replaceAll(BiFunction<? super String, ? super DiGraphEdge, ? extends DiGraphEdge> function) {
+            expandAll();
+            super.replaceAll(function);
+        }
+
+        @Override
+        public DiGraphEdge computeIfAbsent(String key, Function<? super String, ? extends DiGraphEdge> mappingFunction) {
+            expandAll();
+            return super.computeIfAbsent(key, mappingFunction);
+        }
+
+        @Override
+        public DiGraphEdge computeIfPresent(String key, BiFunction<? super String, ? super DiGraphEdge, ? extends DiGraphEdge> remappingFunction) {
+            expandAll();
+            return super.computeIfPresent(key, remappingFunction);
+        }
+
+        @Override
+        public DiGraphEdge compute(String key, BiFunction<? super String, ? super DiGraphEdge, ? extends DiGraphEdge> remappingFunction) {
+            expandAll();
+            return super.compute(key, remappingFunction);
+        }
+
+        @Override
+        public DiGraphEdge merge(String key, DiGraphEdge value, BiFunction<? super DiGraphEdge, ? super DiGraphEdge, ? extends DiGraphEdge> remappingFunction) {
+            expandAll();
+            return super.merge(key, value, remappingFunction);
+        }
+
+        /*
+         * EntryIterator - merges the kept edges and one cursor per source of each bundle by key. The kept edges are
+         * looked up by the last key instead of being iterated, a get while iterating may keep another edge. Edges
+         * only in bundles are made for each entry and not kept.
+         */
+        private class EntryIterator implements Iterator<Map.Entry<String, DiGraphEdge>> {
+            private final PriorityQueue<Cursor> cursors = new PriorityQueue<>();
+            private final List<Cursor> current = new ArrayList<>();
+            private String lastKey;
+
+            EntryIterator() {
+                for (Bundle bundle : bundles) {
+                    for (String source : bundle.sources) {
+                        Cursor cursor = new Cursor(bundle, source);
+                        if (cursor.advance()) cursors.add(cursor);
+                    }
+                }
+            }
+
+            private Map.Entry<String, DiGraphEdge> kept() {
+                return lastKey == null ? Edges.super.firstEntry() : Edges.super.higherEntry(lastKey);
+            }
+
+            @Override
+            public boolean hasNext() {
+                return !cursors.isEmpty() || kept() != null;
+            }
+
+            @Override
+            public Map.Entry<String, DiGraphEdge> next() {
+                String key = advance();
+                DiGraphEdge edge = Edges.super.get(key);
+                if (edge == null) edge = edge(key, current);
+                moveOn();
+                return new AbstractMap.SimpleImmutableEntry<>(key, edge);
+            }
+
+            String nextKey() {
+                String key = advance();
+                moveOn();
+                return key;
+            }
+
+            /* the next key, the cursors at it go to current in statement order */
+            private String advance() {
+                Map.Entry<String, DiGraphEdge> kept = kept();
+                Cursor first = cursors.peek();
+                if (first == null && kept == null) throw new NoSuchElementException();
+                String key = first == null || kept != null && kept.getKey().compareTo(first.key) < 0 ? kept.getKey() : first.key;
+                current.clear();
+                while (!cursors.isEmpty() && cursors.peek().key.equals(key)) {
+                    current.add(cursors.poll());
+                }
+                lastKey = key;
+                return key;
+            }
+
+            private void moveOn() {
+                for (Cursor cursor : current) {
+                    if (cursor.advance()) cursors.add(cursor);
+                }
+            }
+        }
+    }
+}
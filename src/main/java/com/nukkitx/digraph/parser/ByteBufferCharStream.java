@@ -0,0 +1,218 @@
+package com.nukkitx.digraph.parser;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.IntStream;
+import org.antlr.v4.runtime.misc.Interval;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * {@link CharStream} that reads characters straight from encoded bytes, without decoding the input into a
+ * {@code char[]} first. Works on heap buffers as well as on direct and memory-mapped ones.
+ * <p>
+ * Indexes are byte offsets relative to the buffer position, so they are not contiguous for multi-byte UTF-8
+ * sequences; the lexers only ever seek to indexes they have seen. A supplementary character is returned as a
+ * surrogate pair, the low surrogate is placed at the offset of the second byte. Malformed bytes read as U+FFFD,
+ * one per byte. Text is only decoded when {@link #getText(Interval)} is called.
+ */
+final class ByteBufferCharStream implements CharStream {
+    private static final int REPLACEMENT = 0xFFFD;
+
+    private final ByteBuffer buffer;
+    private final int base;
+    private final int size;
+    private final Charset charset;
+    private final boolean utf8;
+    private final boolean latin1;
+    private final String name;
+    private int p;
+
+    /**
+     * @param charset US-ASCII, ISO-8859-1 or UTF-8, see {@link #isSupported(Charset)}
+     */
+    ByteBufferCharStream(ByteBuffer buffer, Charset charset, String name) {
+        if (!isSupported(charset)) throw new IllegalArgumentException("unsupported charset " + charset);
+        this.buffer = buffer;
+        this.base = buffer.position();
+        this.size = buffer.remaining();
+        this.charset = charset;
+        this.utf8 = charset.equals(StandardCharsets.UTF_8);
+        this.latin1 = charset.equals(StandardCharsets.ISO_8859_1);
+        this.name = name;
+    }
+
+    static boolean isSupported(Charset charset) {
+        return charset.equals(StandardCharsets.UTF_8) || charset.equals(StandardCharsets.ISO_8859_1)
+                || charset.equals(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Stream over the indexes {@code start} to {@code end} (exclusive) of this one, indexes of the slice start at 0.
+     * Slices read the same buffer but have their own position, each can be used by a different thread.
+     */
+    ByteBufferCharStream slice(int start, int end) {
+        ByteBuffer slice = buffer.duplicate();
+        slice.limit(base + end);
+        slice.position(base + start);
+        return new ByteBufferCharStream(slice, charset, name);
+    }
+
+    @Override
+    public void consume() {
+        if (p >= size) throw new IllegalStateException("cannot consume EOF");
+        p = next(p);
+    }
+
+    @Override
+    public int LA(int i) {
+        if (i == 1) {
+            if (p >= size) return IntStream.EOF;
+            int b = buffer.get(base + p);
+            return b >= 0 ? b : charAt(p);
+        }
+        if (i == 0) return 0; // undefined
+        int index = p;
+        if (i > 0) {
+            for (int n = 1; n < i; n++) {
+                if (index >= size) return IntStream.EOF;
+                index = next(index);
+            }
+            return index < size ? charAt(index) : IntStream.EOF;
+        }
+        for (int n = 0; n < -i; n++) {
+            if (index <= 0) return IntStream.EOF;
+            index = previous(index);
+        }
+        return charAt(index);
+    }
+
+    @Override
+    public int mark() {
+        return -1;
+    }
+
+    @Override
+    public void release(int marker) {
+    }
+
+    @Override
+    public int index() {
+        return p;
+    }
+
+    @Override
+    public void seek(int index) {
+        p = Math.min(Math.max(index, 0), size);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public String getSourceName() {
+        return name != null ? name : IntStream.UNKNOWN_SOURCE_NAME;
+    }
+
+    @Override
+    public String getText(Interval interval) {
+        int start = interval.a;
+        int stop = Math.min(interval.b, size - 1);
+        if (start < 0 || stop < start) return "";
+        int end = utf8 ? stop + Math.max(sequenceLength(stop), 1) : stop + 1;
+        if (utf8 && isLowSurrogateAt(start)) start--;
+        int length = Math.min(end, size) - start;
+        if (buffer.hasArray()) {
+            return new String(buffer.array(), buffer.arrayOffset() + base + start, length, charset);
+        }
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = buffer.get(base + start + i);
+        }
+        return new String(bytes, charset);
+    }
+
+    @Override
+    public String toString() {
+        return getText(Interval.of(0, size - 1));
+    }
+
+    private int charAt(int index) {
+        int b = buffer.get(base + index);
+        if (b >= 0) return b;
+        if (!utf8) return latin1 ? b & 0xFF : REPLACEMENT;
+        if (isLowSurrogateAt(index)) return Character.lowSurrogate(codePoint(index - 1, 4));
+        int length = sequenceLength(index);
+        if (length == 0) return REPLACEMENT;
+        if (length == 4) return Character.highSurrogate(codePoint(index, 4));
+        return codePoint(index, length);
+    }
+
+    private int next(int index) {
+        if (!utf8 || buffer.get(base + index) >= 0) return index + 1;
+        if (isLowSurrogateAt(index)) return index + 3;
+        int length = sequenceLength(index);
+        return length == 0 || length == 4 ? index + 1 : index + length;
+    }
+
+    private int previous(int index) {
+        int prev = index - 1;
+        if (!utf8 || buffer.get(base + prev) >= 0) return prev;
+        for (int lead = prev; lead >= 0 && lead >= index - 4; lead--) {
+            int length = sequenceLength(lead);
+            if (length == 0) continue;
+            if (length == 4) {
+                if (lead + 4 == index) return lead + 1; // low surrogate
+                if (lead + 1 == index) return lead;     // high surrogate
+            } else if (lead + length == index) {
+                return lead;
+            }
+            break;
+        }
+        return prev;
+    }
+
+    private boolean isLowSurrogateAt(int index) {
+        return index > 0 && (buffer.get(base + index) & 0xC0) == 0x80 && sequenceLength(index - 1) == 4;
+    }
+
+    /*
+     * Length of the well-formed UTF-8 sequence starting at index, 0 if there is none
+     */
+    private int sequenceLength(int index) {
+        int b = buffer.get(base + index) & 0xFF;
+        if (b < 0x80) return 1;
+        int length;
+        int min;
+        if (b >= 0xC2 && b <= 0xDF) {
+            length = 2;
+            min = 0x80;
+        } else if (b >= 0xE0 && b <= 0xEF) {
+            length = 3;
+            min = 0x800;
+        } else if (b >= 0xF0 && b <= 0xF4) {
+            length = 4;
+            min = 0x10000;
+        } else {
+            return 0;
+        }
+        if (index + length > size) return 0;
+        for (int i = 1; i < length; i++) {
+            if ((buffer.get(base + index + i) & 0xC0) != 0x80) return 0;
+        }
+        int cp = codePoint(index, length);
+        if (cp < min || cp > Character.MAX_CODE_POINT || (cp >= 0xD800 && cp <= 0xDFFF)) return 0;
+        return length;
+    }
+
+    private int codePoint(int index, int length) {
+        int cp = buffer.get(base + index) & (0xFF >> (length + 1));
+        for (int i = 1; i < length; i++) {
+            cp = (cp << 6) | (buffer.get(base + index + i) & 0x3F);
+        }
+        return cp;
+    }
+}
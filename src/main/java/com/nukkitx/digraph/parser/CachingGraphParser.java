@@ -0,0 +1,159 @@
+package com.nukkitx.digraph.parser;
+
+import com.nukkitx.digraph.DiGraph;
+import com.nukkitx.digraph.DiGraphEdge;
+import com.nukkitx.digraph.DiGraphNode;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Parse cache for inputs that are seen again byte for byte. Inputs are looked up by a 64-bit hash of their bytes,
+ * a hit returns the graph of the first parse. All callers share that graph, so cached graphs are read-only: every
+ * setter and every map of the graph, its nodes and edges throws {@link UnsupportedOperationException}.
+ * <p>
+ * A hit compares the input with a copy of the bytes the graph was parsed from, a hash collision, accidental or
+ * crafted, never returns the graph of another input. The cache holds at most {@code maxRetainedBytes} of graphs
+ * and input copies, by an estimate of their heap size; the least recently used graphs are evicted first. Inputs
+ * that do not parse are not cached. Thread-safe, a miss parses outside the lock.
+ */
+public final class CachingGraphParser {
+    private final GraphParserOptions options;
+    private final long maxRetainedBytes;
+    private final LinkedHashMap<Long, Entry> entries = new LinkedHashMap<>(16, 0.75f, true); // least recently used first
+    private long retainedBytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public CachingGraphParser(long maxRetainedBytes) {
+        this(maxRetainedBytes, new GraphParserOptions());
+    }
+
+    /**
+     * @param maxRetainedBytes estimated heap size the cached graphs and input copies may take together
+     * @param options          options of the parses on a miss
+     */
+    public CachingGraphParser(long maxRetainedBytes, GraphParserOptions options) {
+        if (maxRetainedBytes < 0) throw new IllegalArgumentException("maxRetainedBytes < 0: " + maxRetainedBytes);
+        this.maxRetainedBytes = maxRetainedBytes;
+        this.options = options;
+    }
+
+    public DiGraph parse(byte[] bytes, int offset, int length) throws GraphParserException {
+        return parse(ByteBuffer.wrap(bytes, offset, length));
+    }
+
+    /**
+     * Returns the cached graph of the bytes between position and limit of {@code buffer}, or parses them and
+     * caches the result. The position and limit of the buffer are not changed.
+     */
+    public DiGraph parse(ByteBuffer buffer) throws GraphParserException {
+        long hash = hash(buffer);
+        synchronized (this) {
+            Entry entry = entries.get(hash);
+            if (entry != null && entry.bytes.equals(buffer)) {
+                hits++;
+                return entry.graph;
+            }
+            misses++;
+        }
+
+        // the copy is parsed, graphs of a lazy parse read their values from it
+        ByteBuffer bytes = ByteBuffer.allocate(buffer.remaining());
+        bytes.put(buffer.duplicate()).flip();
+        DiGraph graph = ImmutableDiGraph.of(GraphParser.parse(bytes, options));
+        long size = estimateRetainedBytes(graph) + 64 + bytes.capacity();
+        if (size > maxRetainedBytes) return graph;
+
+        synchronized (this) {
+            Entry previous = entries.put(hash, new Entry(bytes, graph, size));
+            if (previous != null) retainedBytes -= previous.size; // a collision or a parse that raced with this one
+            retainedBytes += size;
+            Iterator<Entry> iterator = entries.values().iterator();
+            while (retainedBytes > maxRetainedBytes) {
+                retainedBytes -= iterator.next().size;
+                iterator.remove();
+                evictions++;
+            }
+        }
+        return graph;
+    }
+
+    public synchronized GraphCacheStats getStats() {
+        return new GraphCacheStats(hits, misses, evictions, entries.size(), retainedBytes, maxRetainedBytes);
+    }
+
+    /**
+     * Drops all cached graphs, the counters keep counting.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        retainedBytes = 0;
+    }
+
+    /*
+     * 64-bit multiply-rotate hash over 8-byte words, with the murmur3 finalizer
+     */
+    static long hash(ByteBuffer buffer) {
+        ByteBuffer bytes = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        int i = bytes.position();
+        int end = bytes.limit();
+        long h = 0x9E3779B97F4A7C15L ^ (end - i);
+        for (; i + 8 <= end; i += 8) {
+            h = Long.rotateLeft(h ^ bytes.getLong(i) * 0xC2B2AE3D27D4EB4FL, 31) * 0x9E3779B97F4A7C15L;
+        }
+        long tail = 0;
+        for (int shift = 0; i < end; i++, shift += 8) {
+            tail |= (bytes.get(i) & 0xFFL) << shift;
+        }
+        h ^= tail * 0xC2B2AE3D27D4EB4FL;
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /*
+     * Shallow sizes of a 64-bit JVM with compressed oops: 48 bytes per HashMap, 40 per map entry with its table
+     * slot, 40 per string plus one byte per char, 32 per undecoded lazy value. Strings shared between maps are
+     * counted each time.
+     */
+    static long estimateRetainedBytes(DiGraph graph) {
+        long size = 128;
+        for (Map.Entry<String, DiGraphNode> entry : graph.getNodes().entrySet()) {
+            size += 40 + 40 + entry.getKey().length() + 24 + 64 + attributesSize(entry.getValue().getAttributes());
+        }
+        for (Map.Entry<String, DiGraphEdge> entry : graph.getEdges().entrySet()) {
+            size += 40 + 40 + entry.getKey().length() + 32 + 64 + attributesSize(entry.getValue().getAttributes());
+        }
+        return size;
+    }
+
+    private static long attributesSize(Map<String, Object> attributes) {
+        long size = 0;
+        for (Map.Entry<String, Object> entry : attributes.entrySet()) {
+            size += 40 + 40 + entry.getKey().length();
+            Object value = entry.getValue();
+            size += value instanceof String ? 40 + ((String) value).length() : value instanceof AttributeSpan ? 32 : 16;
+        }
+        return size;
+    }
+
+    private static class Entry {
+        final ByteBuffer bytes;
+        final DiGraph graph;
+        final long size;
+
+        Entry(ByteBuffer bytes, DiGraph graph, long size) {
+            this.bytes = bytes;
+            this.graph = graph;
+            this.size = size;
+        }
+    }
+}
@@ -0,0 +1,414 @@
+package com.nukkitx.digraph.parser;
+
+import com.nukkitx.digraph.parser.antlr.DOTLexer;
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.IntStream;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.misc.Interval;
+
+/**
+ * Hand-written scanner for the token set of {@code DOT.g4}.
+ * <p>
+ * Produces the same tokens as the generated {@link DOTLexer} without running the ATN simulator and without
+ * allocating per token: {@link #next()} advances to the next token and the accessors describe it as a span of
+ * indexes into the {@link CharStream}. Whitespace, comments and {@code #} preprocessor lines are skipped just
+ * like the grammar's skip rules do. Token types are the {@link DOTLexer} constants.
+ */
+public final class DOTScanner {
+    /*
+     * Literal token types, named after the grammar literals. DOTLexer only has T__n names for them.
+     */
+    public static final int RBRACKET = DOTLexer.T__9;   // ']'
+    public static final int ARROW = DOTLexer.T__8;      // '->'
+    public static final int LBRACE = DOTLexer.T__7;     // '{'
+    public static final int COMMA = DOTLexer.T__6;      // ','
+    public static final int LBRACKET = DOTLexer.T__5;   // '['
+    public static final int COLON = DOTLexer.T__4;      // ':'
+    public static final int DASHDASH = DOTLexer.T__3;   // '--'
+    public static final int EQUALS = DOTLexer.T__2;     // '='
+    public static final int RBRACE = DOTLexer.T__1;     // '}'
+    public static final int SEMICOLON = DOTLexer.T__0;  // ';'
+
+    private static final int NOT_ACCEPTED = -1;
+
+    private static final long KW_NODE = pack("node");
+    private static final long KW_EDGE = pack("edge");
+    private static final long KW_GRAPH = pack("graph");
+    private static final long KW_STRICT = pack("strict");
+    private static final long KW_DIGRAPH = pack("digraph");
+    private static final long KW_SUBGRAPH = pack("subgraph");
+
+    private final CharStream input;
+    private int line = 1;
+    private int charPositionInLine;
+
+    private int type = NOT_ACCEPTED;
+    private int start;
+    private int stop;
+    private int tokenLine;
+    private int tokenCharPositionInLine;
+    private boolean unterminated; // the last STRING ended at an escaped quote because the input ended
+
+    public DOTScanner(CharStream input) {
+        this.input = input;
+    }
+
+    public CharStream getInputStream() {
+        return input;
+    }
+
+    /**
+     * Advances to the next token and returns its type, {@link Token#EOF} at the end of the input.
+     *
+     * @throws GraphParserException if the input contains a character sequence that is not a DOT token
+     */
+    public int next() throws GraphParserException {
+        for (; ; ) {
+            start = input.index();
+            tokenLine = line;
+            tokenCharPositionInLine = charPositionInLine;
+
+            int c = input.LA(1);
+            switch (c) {
+                case IntStream.EOF:
+                    return accept(Token.EOF);
+                case ' ':
+                case '\t':
+                case '\n':
+                case '\r':
+                    do {
+                        consume(c);
+                        c = input.LA(1);
+                    } while (c == ' ' || c == '\t' || c == '\n' || c == '\r');
+                    continue;
+                case ']':
+                    return single(c, RBRACKET);
+                case '{':
+                    return single(c, LBRACE);
+                case ',':
+                    return single(c, COMMA);
+                case '[':
+                    return single(c, LBRACKET);
+                case ':':
+                    return single(c, COLON);
+                case '=':
+                    return single(c, EQUALS);
+                case '}':
+                    return single(c, RBRACE);
+                case ';':
+                    return single(c, SEMICOLON);
+                case '-': {
+                    int c2 = input.LA(2);
+                    if (c2 == '>' || c2 == '-') {
+                        consume(c);
+                        consume(c2);
+                        return accept(c2 == '>' ? ARROW : DASHDASH);
+                    }
+                    if (isDigit(c2) || c2 == '.' && isDigit(input.LA(3))) {
+                        consume(c);
+                        return number(c2);
+                    }
+                    throw recognitionError();
+                }
+                case '.':
+                    if (!isDigit(input.LA(2))) throw recognitionError();
+                    return number(c);
+                case '/': {
+                    int c2 = input.LA(2);
+                    if (c2 == '*') {
+                        skipBlockComment();
+                    } else if (c2 == '/') {
+                        skipToNewline(2);
+                    } else {
+                        throw recognitionError();
+                    }
+                    continue;
+                }
+                case '#':
+                    skipToNewline(1);
+                    continue;
+                case '"':
+                    return string();
+                case '<':
+                    return htmlString();
+                default:
+                    if (isDigit(c)) return number(c);
+                    if (isLetter(c)) return word(c);
+                    throw recognitionError();
+            }
+        }
+    }
+
+    /**
+     * Type of the current token, {@link Token#EOF} once the input is exhausted.
+     */
+    public int type() {
+        return type;
+    }
+
+    /**
+     * Index of the first character of the current token.
+     */
+    public int start() {
+        return start;
+    }
+
+    /**
+     * Index one past the last character of the current token.
+     */
+    public int end() {
+        return stop;
+    }
+
+    public int line() {
+        return tokenLine;
+    }
+
+    public int charPositionInLine() {
+        return tokenCharPositionInLine;
+    }
+
+    /**
+     * Line of the next character to be scanned.
+     */
+    public int currentLine() {
+        return line;
+    }
+
+    /**
+     * Position in line of the next character to be scanned.
+     */
+    public int currentCharPositionInLine() {
+        return charPositionInLine;
+    }
+
+    /**
+     * Text of the current token. Allocates, meant for the tokens that are actually kept.
+     */
+    public String text() {
+        return input.getText(Interval.of(start, stop - 1));
+    }
+
+    private int single(int c, int tokenType) {
+        consume(c);
+        return accept(tokenType);
+    }
+
+    private int accept(int tokenType) {
+        type = tokenType;
+        stop = input.index();
+        return tokenType;
+    }
+
+    private void consume(int c) {
+        if (c == '\n') {
+            line++;
+            charPositionInLine = 0;
+        } else {
+            charPositionInLine++;
+        }
+        input.consume();
+    }
+
+    /*
+     * NUMBER : '-'? ('.' DIGIT+ | DIGIT+ ('.' DIGIT*)?) ; the optional '-' has been consumed already
+     */
+    private int number(int c) {
+        if (c == '.') {
+            consume(c);
+            c = input.LA(1);
+            while (isDigit(c)) {
+                consume(c);
+                c = input.LA(1);
+            }
+            return accept(DOTLexer.NUMBER);
+        }
+        while (isDigit(c)) {
+            consume(c);
+            c = input.LA(1);
+        }
+        if (c == '.') {
+            consume(c);
+            c = input.LA(1);
+            while (isDigit(c)) {
+                consume(c);
+                c = input.LA(1);
+            }
+        }
+        return accept(DOTLexer.NUMBER);
+    }
+
+    /*
+     * ID : LETTER (LETTER|DIGIT)* ; keywords win over ID when the whole word matches one. The lower-cased
+     * characters of short ASCII words are packed into a long while scanning so no text is needed to tell.
+     */
+    private int word(int c) {
+        long packed = 0;
+        int length = 0;
+        do {
+            if (packed != -1 && length < 8 && c < 0x80) {
+                packed = (packed << 8) | (c | 0x20);
+            } else {
+                packed = -1;
+            }
+            length++;
+            consume(c);
+            c = input.LA(1);
+        } while (isLetter(c) || isDigit(c));
+        return accept(length > 8 ? DOTLexer.ID : keyword(packed));
+    }
+
+    private static long pack(String keyword) {
+        long packed = 0;
+        for (int i = 0; i < keyword.length(); i++) {
+            packed = (packed << 8) | keyword.charAt(i);
+        }
+        return packed;
+    }
+
+    private static int keyword(long packed) {
+        if (packed == KW_NODE) return DOTLexer.NODE;
+        if (packed == KW_EDGE) return DOTLexer.EDGE;
+        if (packed == KW_GRAPH) return DOTLexer.GRAPH;
+        if (packed == KW_STRICT) return DOTLexer.STRICT;
+        if (packed == KW_DIGRAPH) return DOTLexer.DIGRAPH;
+        if (packed == KW_SUBGRAPH) return DOTLexer.SUBGRAPH;
+        return DOTLexer.ID;
+    }
+
+    /*
+     * STRING : '"' ('\\"'|.)*? '"' ;
+     *
+     * The generated lexer keeps following the escape path past a \" and reports the longest match, so a
+     * string ends at the first quote that is not escaped. If the input ends before that quote the string
+     * ends at the last escaped quote instead, its backslash then counts as an ordinary character.
+     */
+    private int string() {
+        int length = NOT_ACCEPTED;
+        int lastEscapedQuote = NOT_ACCEPTED;
+        int i = 2;
+        for (; ; ) {
+            int c = input.LA(i);
+            if (c == IntStream.EOF) break;
+            if (c == '"') {
+                length = i;
+                break;
+            }
+            if (c == '\\' && input.LA(i + 1) == '"') {
+                lastEscapedQuote = i + 1;
+                i += 2;
+            } else {
+                i++;
+            }
+        }
+        unterminated = length == NOT_ACCEPTED;
+        if (length == NOT_ACCEPTED) length = lastEscapedQuote;
+        if (length == NOT_ACCEPTED) throw recognitionError();
+        consumeCount(length);
+        return accept(DOTLexer.STRING);
+    }
+
+    /*
+     * HTML_STRING : '<' (TAG|~[<>])* '>' ; TAG : '<' .*? '>' ;
+     */
+    private int htmlString() {
+        int i = 2;
+        for (; ; ) {
+            int c = input.LA(i++);
+            if (c == IntStream.EOF) throw recognitionError();
+            if (c == '>') break;
+            if (c == '<') {
+                do {
+                    c = input.LA(i++);
+                    if (c == IntStream.EOF) throw recognitionError();
+                } while (c != '>');
+            }
+        }
+        consumeCount(i - 1);
+        return accept(DOTLexer.HTML_STRING);
+    }
+
+    /*
+     * COMMENT : '/' '*' .*? '*' '/' -> skip ;
+     */
+    private void skipBlockComment() {
+        int i = 3;
+        int prev = 0;
+        int c = input.LA(i);
+        while (!(prev == '*' && c == '/')) {
+            if (c == IntStream.EOF) throw recognitionError();
+            prev = c;
+            c = input.LA(++i);
+        }
+        consumeCount(i);
+    }
+
+    /*
+     * LINE_COMMENT : '//' .*? '\r'? '\n' -> skip ; PREPROC : '#' .*? '\n' -> skip ;
+     * Both need the newline, at the end of the input they are not tokens.
+     */
+    private void skipToNewline(int prefix) {
+        int i = prefix + 1;
+        int c = input.LA(i);
+        while (c != '\n') {
+            if (c == IntStream.EOF) throw recognitionError();
+            c = input.LA(++i);
+        }
+        consumeCount(i);
+    }
+
+    private void consumeCount(int count) {
+        for (int n = 0; n < count; n++) {
+            consume(input.LA(1));
+        }
+    }
+
+    /**
+     * Whether the last token is a STRING without its closing quote, cut at an escaped quote by the end of the input.
+     * It would grow if the input went on.
+     */
+    boolean isUnterminated() {
+        return type == DOTLexer.STRING && unterminated;
+    }
+
+    /**
+     * After {@link #next()} failed: whether the text at the error could still become a token if the input went on,
+     * like an unterminated string or comment or a lone {@code '-'} at the end.
+     */
+    boolean isIncomplete() {
+        switch (input.LA(1)) {
+            case '"':
+            case '<':
+            case '#':
+                return true; // only fail at the end of the input
+            case '/': {
+                int c2 = input.LA(2);
+                return c2 == IntStream.EOF || c2 == '*' || c2 == '/';
+            }
+            case '-':
+                return input.LA(2) == IntStream.EOF || input.LA(2) == '.' && input.LA(3) == IntStream.EOF;
+            case '.':
+                return input.LA(2) == IntStream.EOF;
+            default:
+                return false;
+        }
+    }
+
+    private GraphParserException recognitionError() {
+        int c = input.LA(1);
+        String text = c == IntStream.EOF ? "<EOF>" : String.valueOf((char) c);
+        return new GraphParserException("at line " + line + ":" + charPositionInLine
+                + " token recognition error at: '" + text + "'");
+    }
+
+    private static boolean isDigit(int c) {
+        return c >= '0' && c <= '9';
+    }
+
+    /*
+     * LETTER : ASCII letters, '_' and the Latin-1 range 0x80-0xFF
+     */
+    private static boolean isLetter(int c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_' || (c >= 0x80 && c <= 0xFF);
+    }
+}
@@ -0,0 +1,68 @@
+package com.nukkitx.digraph.parser;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CommonTokenFactory;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.TokenFactory;
+import org.antlr.v4.runtime.TokenSource;
+import org.antlr.v4.runtime.misc.Pair;
+
+/**
+ * Adapts {@link DOTScanner} to the {@link TokenSource} interface so it can feed {@code DOTParser} in place of
+ * the generated lexer. The parser needs token objects, so one token is created per scanned token here; the
+ * token text is not copied and only read from the input when the parser asks for it.
+ */
+class DOTScannerTokenSource implements TokenSource {
+    private final DOTScanner scanner;
+    private final Pair<TokenSource, CharStream> source;
+    private TokenFactory<?> factory = CommonTokenFactory.DEFAULT;
+
+    DOTScannerTokenSource(CharStream input) {
+        this.scanner = new DOTScanner(input);
+        this.source = new Pair<TokenSource, CharStream>(this, input);
+    }
+
+    @Override
+    public Token nextToken() {
+        // keeps the token's characters in an unbuffered stream until the factory has copied them
+        CharStream input = scanner.getInputStream();
+        int marker = input.mark();
+        try {
+            int type = scanner.next();
+            return factory.create(source, type, null, Token.DEFAULT_CHANNEL, scanner.start(), scanner.end() - 1,
+                    scanner.line(), scanner.charPositionInLine());
+        } finally {
+            input.release(marker);
+        }
+    }
+
+    @Override
+    public int getLine() {
+        return scanner.currentLine();
+    }
+
+    @Override
+    public int getCharPositionInLine() {
+        return scanner.currentCharPositionInLine();
+    }
+
+    @Override
+    public CharStream getInputStream() {
+        return scanner.getInputStream();
+    }
+
+    @Override
+    public String getSourceName() {
+        return scanner.getInputStream().getSourceName();
+    }
+
+    @Override
+    public void setTokenFactory(TokenFactory<?> factory) {
+        this.factory = factory;
+    }
+
+    @Override
+    public TokenFactory<?> getTokenFactory() {
+        return factory;
+    }
+}
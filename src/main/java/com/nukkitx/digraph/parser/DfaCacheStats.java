@@ -0,0 +1,88 @@
+package com.nukkitx.digraph.parser;
+
+/**
+ * Size and effectiveness of the prediction caches, see {@link GraphParser#getDfaCacheStats()}. Sizes cover the
+ * shared DFAs and every stripe; hits, misses and clears count since JVM start.
+ */
+public final class DfaCacheStats {
+    private final int lexerStates;
+    private final int parserStates;
+    private final int contexts;
+    private final int stripes;
+    private final long hits;
+    private final long misses;
+    private final long clears;
+
+    DfaCacheStats(int lexerStates, int parserStates, int contexts, int stripes, long hits, long misses, long clears) {
+        this.lexerStates = lexerStates;
+        this.parserStates = parserStates;
+        this.contexts = contexts;
+        this.stripes = stripes;
+        this.hits = hits;
+        this.misses = misses;
+        this.clears = clears;
+    }
+
+    public int getLexerStates() {
+        return lexerStates;
+    }
+
+    public int getParserStates() {
+        return parserStates;
+    }
+
+    public int getStates() {
+        return lexerStates + parserStates;
+    }
+
+    /**
+     * Entries in the prediction context caches.
+     */
+    public int getContexts() {
+        return contexts;
+    }
+
+    /**
+     * Number of stripes in use, see {@link GraphParserOptions.DfaCache#STRIPED}.
+     */
+    public int getStripes() {
+        return stripes;
+    }
+
+    /**
+     * DFA transitions that were found in the cache.
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * DFA transitions that had to be computed from the ATN and were added to the cache. Parses with the
+     * {@link GraphParserOptions.Lexer#SCANNER scanner} only count parser transitions.
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Share of transitions found in the cache, 0 before the first parse. Close to 1 once the caches are warm; a
+     * rate that stays low while the state count keeps growing means the input rarely repeats itself.
+     */
+    public double getHitRate() {
+        long total = hits + misses;
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    /**
+     * Number of times the caches were cleared, by {@link GraphParser#clearDfaCache()} or the state limit.
+     */
+    public long getClears() {
+        return clears;
+    }
+
+    @Override
+    public String toString() {
+        return "DfaCacheStats{lexerStates=" + lexerStates + ", parserStates=" + parserStates + ", contexts=" + contexts
+                + ", stripes=" + stripes + ", hits=" + hits + ", misses=" + misses + ", clears=" + clears + '}';
+    }
+}
@@ -0,0 +1,117 @@
+package com.nukkitx.digraph.parser;
+
+import org.antlr.v4.runtime.dfa.DFA;
+import org.antlr.v4.runtime.dfa.DFAState;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Copy of the prediction DFAs the generated lexer and parser share between all instances (see
+ * {@link GraphParserOptions.DfaCache#SHARED}), taken with
+ * {@link GraphParser#snapshotDfa()} and put back with {@link GraphParser#restoreDfa(DfaSnapshot)}. A snapshot is
+ * not affected by later parses and can be restored any number of times.
+ * <p>
+ * DFA states refer to the runtime's ATN configurations, which cannot be serialized, so snapshots only live as long
+ * as the JVM. After a restart {@link GraphParser#warmUp()} builds the same states from its corpus.
+ */
+public final class DfaSnapshot {
+    private final DFA[] lexer;
+    private final DFA[] parser;
+
+    private DfaSnapshot(DFA[] lexer, DFA[] parser) {
+        this.lexer = lexer;
+        this.parser = parser;
+    }
+
+    static DfaSnapshot take() {
+        return new DfaSnapshot(copy(PredictionCache.SHARED.lexerDfa), copy(PredictionCache.SHARED.parserDfa));
+    }
+
+    void restore() {
+        restore(lexer, PredictionCache.SHARED.lexerDfa);
+        restore(parser, PredictionCache.SHARED.parserDfa);
+    }
+
+    DFA[] lexerDfa() {
+        return lexer;
+    }
+
+    DFA[] parserDfa() {
+        return parser;
+    }
+
+    /**
+     * Number of DFA states in the snapshot, lexer and parser together.
+     */
+    public int getStateCount() {
+        return stateCount(lexer) + stateCount(parser);
+    }
+
+    static int stateCount(DFA[] dfas) {
+        int count = 0;
+        for (DFA dfa : dfas) {
+            synchronized (dfa.states) {
+                count += dfa.states.size();
+            }
+        }
+        return count;
+    }
+
+    private static void restore(DFA[] snapshot, DFA[] target) {
+        DFA[] copy = copy(snapshot);
+        System.arraycopy(copy, 0, target, 0, copy.length);
+    }
+
+    private static DFA[] copy(DFA[] dfas) {
+        DFA[] copy = new DFA[dfas.length];
+        for (int i = 0; i < dfas.length; i++) {
+            copy[i] = copy(dfas[i]);
+        }
+        return copy;
+    }
+
+    /*
+     * Deep copy of the states and edges, the ATN configurations of a state are read-only once it is in a DFA and
+     * are shared
+     */
+    private static DFA copy(DFA dfa) {
+        DFA copy = new DFA(dfa.atnStartState, dfa.decision);
+        Map<DFAState, DFAState> copies = new IdentityHashMap<>();
+        synchronized (dfa.states) {
+            for (DFAState state : dfa.states.values()) {
+                copies.put(state, copyState(state));
+            }
+            DFAState s0 = dfa.s0;
+            if (s0 != null && !copies.containsKey(s0)) copies.put(s0, copyState(s0));
+            for (Map.Entry<DFAState, DFAState> entry : copies.entrySet()) {
+                DFAState[] edges = entry.getKey().edges;
+                if (edges == null) continue;
+                DFAState[] copiedEdges = new DFAState[edges.length];
+                for (int i = 0; i < edges.length; i++) {
+                    DFAState target = edges[i];
+                    if (target == null) continue;
+                    DFAState copiedTarget = copies.get(target);
+                    copiedEdges[i] = copiedTarget != null ? copiedTarget : target; // ERROR state is shared
+                }
+                entry.getValue().edges = copiedEdges;
+            }
+            for (DFAState state : copies.values()) {
+                copy.states.put(state, state);
+            }
+            if (s0 != null) copy.s0 = copies.get(s0);
+        }
+        return copy;
+    }
+
+    private static DFAState copyState(DFAState state) {
+        DFAState copy = new DFAState(state.configs);
+        copy.stateNumber = state.stateNumber;
+        copy.isAcceptState = state.isAcceptState;
+        copy.prediction = state.prediction;
+        copy.lexerActionExecutor = state.lexerActionExecutor;
+        copy.requiresFullContext = state.requiresFullContext;
+        copy.predicates = state.predicates;
+        return copy;
+    }
+}
@@ -0,0 +1,86 @@
+package com.nukkitx.digraph.parser;
+
+import com.nukkitx.digraph.DiGraph;
+import com.nukkitx.digraph.DiGraphEdge;
+import com.nukkitx.digraph.DiGraphElement;
+import com.nukkitx.digraph.DiGraphNode;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * {@link GraphEventHandler} that builds a {@link DiGraph}, the same graph {@link GraphParser#parse(java.io.InputStream)}
+ * returns. Can be wrapped by handlers that drop or rewrite events before the graph is built.
+ */
+public class DiGraphBuilder implements GraphEventHandler {
+    private final DiGraph graph;
+    private final Map<String, Object> attrs = new TreeMap<>();
+
+    public DiGraphBuilder() {
+        this(new DiGraph());
+    }
+
+    public DiGraphBuilder(DiGraph graph) {
+        this.graph = graph;
+    }
+
+    public DiGraph getGraph() {
+        return graph;
+    }
+
+    @Override
+    public void startGraph(String id) {
+        graph.setId(id);
+    }
+
+    @Override
+    public void node(String id, AttributeList attributes) {
+        DiGraphNode node = graph.getNode(id);
+        if (node == null) {
+            node = graph.newNode(id);
+            graph.setNode(id, node);
+        }
+        setAttributes(node, attributes);
+    }
+
+    @Override
+    public void edge(String sourceId, String targetId, AttributeList attributes) {
+        String edgeId = sourceId + "-" + targetId;
+        DiGraphEdge edge = graph.getEdge(edgeId);
+        if (edge == null) {
+            edge = graph.newEdge(edgeId, graph.getNode(sourceId), graph.getNode(targetId));
+            graph.setEdge(edgeId, edge);
+        }
+        setAttributes(edge, attributes);
+    }
+
+    @Override
+    public void edges(Collection<String> sourceIds, Collection<String> targetIds, AttributeList attributes) {
+        if (graph instanceof BundledDiGraph) {
+            putAttributes(attributes);
+            boolean bundled = ((BundledDiGraph) graph).addBundle(sourceIds, targetIds, attrs);
+            attrs.clear();
+            if (bundled) return;
+        }
+        GraphEventHandler.super.edges(sourceIds, targetIds, attributes);
+    }
+
+    /*
+     * goes through a map like the tree walk does, HashMap.putAll sizes the table differently than single puts
+     * and the attribute iteration order would not match otherwise; values of a lazy parse stay undecoded
+     */
+    private void setAttributes(DiGraphElement element, AttributeList attributes) {
+        if (attributes.size() == 0) return;
+        putAttributes(attributes);
+        element.setAttributes(attrs);
+        attrs.clear();
+    }
+
+    private void putAttributes(AttributeList attributes) {
+        boolean raw = attributes instanceof SortedAttributeList;
+        for (int i = 0; i < attributes.size(); i++) {
+            attrs.put(attributes.getKey(i), raw ? ((SortedAttributeList) attributes).getRawValue(i) : attributes.getValue(i));
+        }
+    }
+}
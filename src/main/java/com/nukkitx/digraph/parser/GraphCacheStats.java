@@ -0,0 +1,70 @@
+package com.nukkitx.digraph.parser;
+
+/**
+ * Counters and size of a {@link CachingGraphParser}, see {@link CachingGraphParser#getStats()}. Counters count
+ * since the cache was created.
+ */
+public final class GraphCacheStats {
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+    private final int entries;
+    private final long retainedBytes;
+    private final long maxRetainedBytes;
+
+    GraphCacheStats(long hits, long misses, long evictions, int entries, long retainedBytes, long maxRetainedBytes) {
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.entries = entries;
+        this.retainedBytes = retainedBytes;
+        this.maxRetainedBytes = maxRetainedBytes;
+    }
+
+    /**
+     * Parses answered with a cached graph.
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * Parses that had to run the parser, including the ones that failed and the ones too large to be cached.
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    public double getHitRate() {
+        long total = hits + misses;
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    /**
+     * Graphs dropped to stay within the size budget.
+     */
+    public long getEvictions() {
+        return evictions;
+    }
+
+    public int getEntries() {
+        return entries;
+    }
+
+    /**
+     * Estimated heap size of the cached graphs and input copies.
+     */
+    public long getRetainedBytes() {
+        return retainedBytes;
+    }
+
+    public long getMaxRetainedBytes() {
+        return maxRetainedBytes;
+    }
+
+    @Override
+    public String toString() {
+        return "GraphCacheStats{hits=" + hits + ", misses=" + misses + ", evictions=" + evictions + ", entries="
+                + entries + ", retainedBytes=" + retainedBytes + ", maxRetainedBytes=" + maxRetainedBytes + '}';
+    }
+}
@@ -0,0 +1,506 @@
+package com.nukkitx.digraph.parser;
+
+import com.nukkitx.digraph.DiGraph;
+import com.nukkitx.digraph.DiGraphNode;
+import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.CharStream;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * DOT text together with its parsed {@link DiGraph}, for editors that re-parse on every change.
+ * {@link #applyEdits(List)} re-parses only the top-level statements around the edits and patches the graph
+ * in place; the result is the graph a full parse of the new text returns, with the same node order and the same
+ * merged attributes.
+ * <p>
+ * The document keeps the events of every statement next to the graph, about as much memory again. Edits to the
+ * graph header or the closing brace, and edits that change how the text around them is split into statements
+ * (an unclosed quote, an extra brace), fall back to a full parse. The size, node and edge limits of the options
+ * apply to the whole text, a text that exceeds one is parsed in full to report it. Not thread-safe.
+ */
+public final class GraphDocument {
+    // statements are parsed in chunks of at least this many chars, an edit re-parses the chunks it touches
+    private static final int CHUNK_SIZE = 1 << 11;
+
+    private final GraphParserOptions options;
+    private final StringBuilder text;
+    private final DiGraph graph = new DiGraph();
+    private final Map<String, List<Chunk>> nodeRefs = new HashMap<>();
+    private final Map<String, List<Chunk>> edgeRefs = new HashMap<>();
+    private List<Chunk> chunks; // null if the text does not parse or cannot be split, every edit is a full parse then
+    private long edgeCount; // edges of all chunks, for the limits
+    private String graphId;
+
+    public GraphDocument(CharSequence text) throws GraphParserException {
+        this(text, new GraphParserOptions());
+    }
+
+    /**
+     * Parses {@code text}. Statements are parsed with the lexer and DFA cache of {@code options}, full parses use
+     * all of them.
+     *
+     * @throws IllegalArgumentException if {@code options} bundle edges, an edit replaces single edges, or ask for
+     * columnar attributes, an edit makes nodes and edges outside the graph
+     */
+    public GraphDocument(CharSequence text, GraphParserOptions options) throws GraphParserException {
+        if (options.getMinBundleEdges() != Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("a GraphDocument cannot bundle edges");
+        }
+        if (options.isColumnarAttributes()) {
+            throw new IllegalArgumentException("a GraphDocument cannot keep columnar attributes");
+        }
+        this.options = options;
+        this.text = new StringBuilder(text);
+        reparse();
+    }
+
+    /**
+     * The graph of the current text. The same instance for the life of the document, nodes and edges that an
+     * edit does not touch keep their identity.
+     */
+    public DiGraph getGraph() {
+        return graph;
+    }
+
+    public String getText() {
+        return text.toString();
+    }
+
+    /**
+     * Applies {@code edits} one after the other, offsets of an edit refer to the text after the edits before it.
+     * If the new text does not parse, the exception is thrown and the graph stays at the last text that did; the
+     * edits are kept and later edits are applied on top of them.
+     *
+     * @return the patched graph
+     * @throws IndexOutOfBoundsException if an edit lies outside the text, no edit is applied then
+     */
+    public DiGraph applyEdits(List<TextEdit> edits) throws GraphParserException {
+        int length = text.length();
+        for (TextEdit edit : edits) {
+            if (edit.getOffset() + edit.getRemovedLength() > length) {
+                throw new IndexOutOfBoundsException(edit + ", text length " + length);
+            }
+            length += edit.getInsertedText().length() - edit.getRemovedLength();
+        }
+        for (TextEdit edit : edits) {
+            int offset = edit.getOffset();
+            int end = offset + edit.getRemovedLength();
+            text.replace(offset, end, edit.getInsertedText());
+            if (chunks != null && !patch(offset, end, edit.getInsertedText().length())) chunks = null;
+        }
+        if (chunks == null) reparse();
+        return graph;
+    }
+
+    private void reparse() {
+        String source = text.toString();
+        CharStream input = new ANTLRInputStream(source);
+        StatementSplitter split = StatementSplitter.split(input, CHUNK_SIZE);
+        List<Chunk> parsed = split == null ? null : parseChunks(source, split, 0);
+        nodeRefs.clear();
+        edgeRefs.clear();
+        edgeCount = 0;
+        if (parsed != null) {
+            for (Chunk chunk : parsed) {
+                for (String id : chunk.nodes) {
+                    addRef(nodeRefs, id, chunk);
+                }
+                for (String id : chunk.edges.keySet()) {
+                    addRef(edgeRefs, id, chunk);
+                }
+                edgeCount += chunk.edgeCount;
+            }
+            if (exceedsLimits()) parsed = null;
+        }
+        if (parsed == null) {
+            // the parser reports the error or the exceeded limit, or the graph is one the splitter cannot handle
+            chunks = null;
+            nodeRefs.clear();
+            edgeRefs.clear();
+            DiGraph full = new GraphParser(options).parse(input);
+            graph.setId(full.getId());
+            graph.getNodes().clear();
+            graph.getNodes().putAll(full.getNodes());
+            graph.getEdges().clear();
+            graph.getEdges().putAll(full.getEdges());
+            return;
+        }
+        chunks = parsed;
+        graphId = split.graphId();
+        replayAll();
+    }
+
+    private List<Chunk> parseChunks(String source, StatementSplitter split, int base) {
+        List<Chunk> parsed = new ArrayList<>(split.chunks());
+        for (int i = 0; i < split.chunks(); i++) {
+            int start = split.start(i);
+            int end = split.end(i);
+            GraphParser.EventLog log = GraphParser.parseChunk(new ANTLRInputStream(source.substring(start, end)), options);
+            if (log == null) return null;
+            parsed.add(new Chunk(base + start, base + end, log));
+        }
+        return parsed;
+    }
+
+    /*
+     * Re-parses the chunks from the one before the edit to the one after it, so the statement boundaries at both
+     * ends of the re-parsed text are between unchanged tokens. False if the text has to be parsed whole.
+     */
+    private boolean patch(int offset, int end, int inserted) {
+        int last = chunks.size() - 1;
+        if (offset < chunks.get(0).start || end > chunks.get(last).end) return false;
+        int first = Math.max(0, firstEndingAtOrAfter(offset) - 1);
+        last = Math.min(last, lastStartingAtOrBefore(end) + 1);
+        int delta = inserted - (end - offset);
+        int start = chunks.get(first).start;
+        String region = text.substring(start, chunks.get(last).end + delta);
+        StatementSplitter split = StatementSplitter.splitStatements(new ANTLRInputStream(region), CHUNK_SIZE);
+        List<Chunk> added = split == null ? null : parseChunks(region, split, start);
+        if (added == null) return false;
+
+        List<Chunk> replaced = chunks.subList(first, last + 1);
+        List<Chunk> removed = new ArrayList<>(replaced);
+        replaced.clear();
+        chunks.addAll(first, added);
+        for (int i = first + added.size(); i < chunks.size(); i++) {
+            Chunk chunk = chunks.get(i);
+            chunk.start += delta;
+            chunk.end += delta;
+        }
+        return update(removed, added);
+    }
+
+    private int firstEndingAtOrAfter(int offset) {
+        int low = 0;
+        int high = chunks.size() - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (chunks.get(mid).end < offset) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+
+    private int lastStartingAtOrBefore(int offset) {
+        int low = 0;
+        int high = chunks.size() - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (chunks.get(mid).start > offset) high = mid - 1;
+            else low = mid;
+        }
+        return low;
+    }
+
+    /*
+     * Whether the totals of the chunks exceed a limit, each chunk is only parsed against the limits on its own
+     */
+    private boolean exceedsLimits() {
+        return text.length() > options.getMaxInputBytes() || nodeRefs.size() > options.getMaxNodes()
+                || edgeCount > options.getMaxEdges();
+    }
+
+    /*
+     * False if the new totals exceed a limit, the graph is not touched then and the text has to be parsed whole
+     */
+    private boolean update(List<Chunk> removed, List<Chunk> added) {
+        Map<String, Chunk> firstRefs = new LinkedHashMap<>(); // affected nodes, chunk of their first event before
+        Set<String> edges = new LinkedHashSet<>();
+        for (Chunk chunk : removed) {
+            for (String id : chunk.nodes) {
+                if (!firstRefs.containsKey(id)) firstRefs.put(id, nodeRefs.get(id).get(0));
+                removeRef(nodeRefs, id, chunk);
+            }
+            for (String id : chunk.edges.keySet()) {
+                edges.add(id);
+                removeRef(edgeRefs, id, chunk);
+            }
+            edgeCount -= chunk.edgeCount;
+        }
+        for (Chunk chunk : added) {
+            for (String id : chunk.nodes) {
+                if (!firstRefs.containsKey(id)) {
+                    List<Chunk> refs = nodeRefs.get(id);
+                    firstRefs.put(id, refs == null ? null : refs.get(0));
+                }
+                addRef(nodeRefs, id, chunk);
+            }
+            for (String id : chunk.edges.keySet()) {
+                edges.add(id);
+                addRef(edgeRefs, id, chunk);
+            }
+            edgeCount += chunk.edgeCount;
+        }
+        if (exceedsLimits()) return false;
+
+        // nodes are in the order of their first event, the nodes first seen in the re-parsed text are a run
+        List<String> oldRun = new ArrayList<>();
+        for (Chunk chunk : removed) {
+            for (String id : chunk.nodes) {
+                if (firstRefs.get(id) == chunk) oldRun.add(id);
+            }
+        }
+        List<String> newRun = new ArrayList<>();
+        for (Chunk chunk : added) {
+            for (String id : chunk.nodes) {
+                if (nodeRefs.get(id).get(0) == chunk) newRun.add(id);
+            }
+        }
+
+        Map<String, DiGraphNode> created = new HashMap<>();
+        if (!patchNodes(firstRefs.keySet(), created)) {
+            replayAll();
+            return true;
+        }
+        if (!oldRun.equals(newRun)) reorder(oldRun, newRun, created);
+        for (String id : edges) {
+            patchEdge(id);
+        }
+        return true;
+    }
+
+    /*
+     * False if a node has to be replaced to match a full parse, edges refer to nodes and would have to be
+     * replaced as well. New nodes go to created, they are added by reorder
+     */
+    private boolean patchNodes(Set<String> ids, Map<String, DiGraphNode> created) {
+        Map<String, DiGraphNode> nodes = graph.getNodes();
+        for (String id : ids) {
+            List<Chunk> refs = nodeRefs.get(id);
+            if (refs == null) {
+                nodes.remove(id);
+                continue;
+            }
+            DiGraphNode node = nodes.get(id);
+            DiGraphNode fresh = replayNode(id, refs, node);
+            if (node == null) {
+                created.put(id, fresh);
+            } else if (!sameOrder(node.getAttributes(), fresh.getAttributes())) {
+                // attributes were cleared and merged again, the map has to iterate like a new one
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /*
+     * Merges the attributes of a node into a new node and, if there is one, the cleared existing node; events
+     * without attributes only create the node
+     */
+    private DiGraphNode replayNode(String id, List<Chunk> refs, DiGraphNode node) {
+        DiGraph fresh = new DiGraph();
+        DiGraphBuilder freshBuilder = new DiGraphBuilder(fresh);
+        freshBuilder.node(id, SortedAttributeList.EMPTY);
+        DiGraphBuilder current = null;
+        if (node != null) {
+            node.getAttributes().clear();
+            DiGraph graph = new DiGraph();
+            graph.setNode(id, node);
+            current = new DiGraphBuilder(graph);
+        }
+        for (Chunk chunk : refs) {
+            List<AttributeList> attributes = chunk.nodeAttributes.get(id);
+            if (attributes == null) continue;
+            for (AttributeList list : attributes) {
+                freshBuilder.node(id, list);
+                if (current != null) current.node(id, list);
+            }
+        }
+        return fresh.getNode(id);
+    }
+
+    private static boolean sameOrder(Map<String, Object> a, Map<String, Object> b) {
+        if (a.size() != b.size()) return false;
+        Iterator<String> keys = b.keySet().iterator();
+        for (String key : a.keySet()) {
+            if (!key.equals(keys.next())) return false;
+        }
+        return true;
+    }
+
+    /*
+     * The new run takes the place of the old one. Nodes of the old run that are now first seen further down are
+     * merged in by the position of their first event, as are new runs where no old one was; if all of them go
+     * last they are appended, otherwise the map is refilled
+     */
+    private void reorder(List<String> oldRun, List<String> newRun, Map<String, DiGraphNode> created) {
+        Map<String, DiGraphNode> nodes = graph.getNodes();
+        Set<String> oldIds = new HashSet<>(oldRun);
+        Set<String> newIds = new HashSet<>(newRun);
+        List<String> moved = new ArrayList<>(newRun);
+        for (String id : oldRun) {
+            if (!newIds.contains(id) && nodes.containsKey(id)) moved.add(id);
+        }
+        Set<String> skip = new HashSet<>(oldIds);
+        skip.addAll(newIds);
+        List<DiGraphNode> order = new ArrayList<>(nodes.size() + created.size());
+
+        if (moved.size() == newRun.size()) {
+            boolean placed = false;
+            for (DiGraphNode node : nodes.values()) {
+                String id = node.getId();
+                if (!skip.contains(id)) {
+                    order.add(node);
+                } else if (!placed && oldIds.contains(id)) {
+                    placed = true;
+                    for (String newId : newRun) {
+                        order.add(node(newId, created));
+                    }
+                }
+            }
+            if (placed) {
+                refill(order);
+                return;
+            }
+            order.clear();
+        }
+
+        moved.sort(this::compareFirstEvents);
+        boolean append = true;
+        int next = 0;
+        for (DiGraphNode node : nodes.values()) {
+            if (skip.contains(node.getId())) continue;
+            while (next < moved.size() && compareFirstEvents(moved.get(next), node.getId()) < 0) {
+                append = false;
+                order.add(node(moved.get(next++), created));
+            }
+            order.add(node);
+        }
+        if (append) {
+            for (String id : moved) {
+                DiGraphNode node = node(id, created);
+                nodes.remove(id);
+                nodes.put(id, node);
+            }
+            return;
+        }
+        for (; next < moved.size(); next++) {
+            order.add(node(moved.get(next), created));
+        }
+        refill(order);
+    }
+
+    private DiGraphNode node(String id, Map<String, DiGraphNode> created) {
+        DiGraphNode node = graph.getNode(id);
+        return node != null ? node : created.get(id);
+    }
+
+    private void refill(List<DiGraphNode> order) {
+        Map<String, DiGraphNode> nodes = graph.getNodes();
+        nodes.clear();
+        for (DiGraphNode node : order) {
+            nodes.put(node.getId(), node);
+        }
+    }
+
+    private int compareFirstEvents(String a, String b) {
+        Chunk chunkA = nodeRefs.get(a).get(0);
+        Chunk chunkB = nodeRefs.get(b).get(0);
+        if (chunkA != chunkB) return Integer.compare(chunkA.start, chunkB.start);
+        return Integer.compare(chunkA.indexOf(a), chunkA.indexOf(b));
+    }
+
+    private void patchEdge(String id) {
+        List<Chunk> refs = edgeRefs.get(id);
+        if (refs == null) {
+            graph.getEdges().remove(id);
+            return;
+        }
+        // the nodes of the first event, ids like "a-b" + "c" and "a" + "b-c" are the same edge
+        String[] ends = refs.get(0).edges.get(id);
+        DiGraph edges = new DiGraph();
+        edges.setNode(ends[0], graph.getNode(ends[0]));
+        edges.setNode(ends[1], graph.getNode(ends[1]));
+        DiGraphBuilder builder = new DiGraphBuilder(edges);
+        builder.edge(ends[0], ends[1], SortedAttributeList.EMPTY);
+        for (Chunk chunk : refs) {
+            List<AttributeList> attributes = chunk.edgeAttributes.get(id);
+            if (attributes == null) continue;
+            for (AttributeList list : attributes) {
+                builder.edge(ends[0], ends[1], list);
+            }
+        }
+        graph.setEdge(id, edges.getEdge(id));
+    }
+
+    private void replayAll() {
+        graph.getNodes().clear();
+        graph.getEdges().clear();
+        DiGraphBuilder builder = new DiGraphBuilder(graph);
+        builder.startGraph(graphId);
+        for (Chunk chunk : chunks) {
+            chunk.log.replay(builder);
+        }
+        builder.endGraph();
+    }
+
+    private static void addRef(Map<String, List<Chunk>> refs, String id, Chunk chunk) {
+        List<Chunk> list = refs.computeIfAbsent(id, k -> new ArrayList<>(2));
+        int low = 0;
+        int high = list.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (list.get(mid).start < chunk.start) low = mid + 1;
+            else high = mid;
+        }
+        list.add(low, chunk);
+    }
+
+    private static void removeRef(Map<String, List<Chunk>> refs, String id, Chunk chunk) {
+        List<Chunk> list = refs.get(id);
+        list.remove(chunk);
+        if (list.isEmpty()) refs.remove(id);
+    }
+
+    /*
+     * Chunk - statements parsed together, with their node and edge ids and the attribute lists of each id
+     */
+    private static class Chunk {
+        int start;
+        int end;
+        final GraphParser.EventLog log;
+        final String[] nodes; // in order of their first event
+        final long edgeCount;
+        final Map<String, String[]> edges = new LinkedHashMap<>(); // source and target id of the first event
+        final Map<String, List<AttributeList>> nodeAttributes = new HashMap<>();
+        final Map<String, List<AttributeList>> edgeAttributes = new HashMap<>();
+
+        Chunk(int start, int end, GraphParser.EventLog log) {
+            this.start = start;
+            this.end = end;
+            this.log = log;
+            Set<String> nodes = new LinkedHashSet<>();
+            log.replay(new GraphEventHandler() {
+                @Override
+                public void node(String id, AttributeList attributes) {
+                    nodes.add(id);
+                    if (attributes.size() > 0) nodeAttributes.computeIfAbsent(id, k -> new ArrayList<>(1)).add(attributes);
+                }
+
+                @Override
+                public void edge(String sourceId, String targetId, AttributeList attributes) {
+                    String id = sourceId + "-" + targetId;
+                    edges.putIfAbsent(id, new String[]{sourceId, targetId});
+                    if (attributes.size() > 0) edgeAttributes.computeIfAbsent(id, k -> new ArrayList<>(1)).add(attributes);
+                }
+            });
+            this.nodes = nodes.toArray(new String[0]);
+            this.edgeCount = log.edgeCount();
+        }
+
+        int indexOf(String node) {
+            for (int i = 0; i < nodes.length; i++) {
+                if (nodes[i].equals(node)) return i;
+            }
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.nukkitx.digraph.parser;
+
+import java.util.Collection;
+
+/**
+ * Receives the content of a DOT graph while it is being parsed, see
+ * {@link GraphParser#parse(java.io.InputStream, GraphEventHandler)}.
+ * <p>
+ * Events follow the input with one exception: attribute lists come after the edges they belong to, so the edges
+ * of an edge statement are reported once the statement (including everything nested in its subgraphs) has been
+ * parsed. Nothing but the statement being parsed is kept, a handler that does not collect the events itself can
+ * process inputs of any size in constant memory. With {@link ParseMode#ITERATIVE} the edge statements nested in
+ * the first operand of an edge statement are reported when they end, before that operand's {@link #exitSubgraph}.
+ * <p>
+ * All methods have empty default implementations.
+ */
+public interface GraphEventHandler {
+    /**
+     * Start of the graph, {@code id} is the graph id as written (quotes included) or {@code null}.
+     */
+    default void startGraph(String id) {
+    }
+
+    default void endGraph() {
+    }
+
+    /**
+     * Start of a subgraph block, {@code id} is the subgraph id as written or {@code null}.
+     */
+    default void enterSubgraph(String id) {
+    }
+
+    default void exitSubgraph() {
+    }
+
+    /**
+     * A node id. Reported for node statements with the statement's attributes and for every node referenced
+     * by an edge statement with no attributes, so the same id is usually reported several times.
+     */
+    default void node(String id, AttributeList attributes) {
+    }
+
+    /**
+     * An edge. Edge statements with subgraph operands are reported through {@link #edges}, which expands them into
+     * one event per source and target pair unless it is overridden.
+     */
+    default void edge(String sourceId, String targetId, AttributeList attributes) {
+    }
+
+    /**
+     * The edges of an edge statement with a subgraph operand, from every source to every target; the collections
+     * are sorted and only valid during the call. Reports each pair to {@link #edge}, sources in the outer loop.
+     */
+    default void edges(Collection<String> sourceIds, Collection<String> targetIds, AttributeList attributes) {
+        for (String sourceId : sourceIds) {
+            for (String targetId : targetIds) {
+                edge(sourceId, targetId, attributes);
+            }
+        }
+    }
+
+    /**
+     * A graph attribute set by a {@code key = value} statement or a {@code graph [...]} statement, it applies to
+     * the innermost enclosing graph or subgraph. Defaults set by {@code node [...]} and {@code edge [...]}
+     * statements are not reported.
+     */
+    default void attribute(String key, String value) {
+    }
+}
@@ -0,0 +1,70 @@
+package com.nukkitx.digraph.parser;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.BiPredicate;
+import java.util.function.Predicate;
+
+/**
+ * The part of a graph a parse materializes, see {@link GraphParserOptions#setFilter}. The parser applies it while
+ * it reads the statements: nodes the node predicate rejects are not created and neither are edges from or to them,
+ * edges the edge predicate rejects are not created, and attributes whose key is not allowed are skipped before
+ * their value is read. Everything is kept by default.
+ */
+public class GraphFilter {
+    private Predicate<String> nodePredicate;
+    private BiPredicate<String, String> edgePredicate;
+    private Set<String> attributeKeys;
+
+    public Predicate<String> getNodePredicate() {
+        return nodePredicate;
+    }
+
+    /**
+     * Tested with the id of every node, {@code null} keeps all nodes.
+     */
+    public void setNodePredicate(Predicate<String> nodePredicate) {
+        this.nodePredicate = nodePredicate;
+    }
+
+    public BiPredicate<String, String> getEdgePredicate() {
+        return edgePredicate;
+    }
+
+    /**
+     * Tested with the source and target id of every edge between kept nodes, {@code null} keeps all of them. Edge
+     * statements between subgraphs are not bundled (see {@link GraphParserOptions#setMinBundleEdges}) while an edge
+     * predicate is set.
+     */
+    public void setEdgePredicate(BiPredicate<String, String> edgePredicate) {
+        this.edgePredicate = edgePredicate;
+    }
+
+    public Set<String> getAttributeKeys() {
+        return attributeKeys;
+    }
+
+    /**
+     * The attribute keys to keep on nodes, edges and the graph, {@code null} keeps all attributes.
+     */
+    public void setAttributeKeys(Collection<String> attributeKeys) {
+        this.attributeKeys = attributeKeys == null ? null : new HashSet<>(attributeKeys);
+    }
+
+    boolean keepsNode(String id) {
+        return nodePredicate == null || nodePredicate.test(id);
+    }
+
+    boolean keepsEdge(String sourceId, String targetId) {
+        return edgePredicate == null || edgePredicate.test(sourceId, targetId);
+    }
+
+    boolean keepsAllEdges() {
+        return edgePredicate == null;
+    }
+
+    boolean keepsAttribute(String key) {
+        return attributeKeys == null || attributeKeys.contains(key);
+    }
+}
@@ -0,0 +1,247 @@
+package com.nukkitx.digraph.parser;
+
+import com.nukkitx.digraph.DiGraph;
+import org.antlr.v4.runtime.ANTLRInputStream;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Follows a DOT file that is still being written, statements appended to its {@code stmt_list} are added to the
+ * graph as they arrive. The file is parsed once when the follower is created, every {@link #poll()} then reads only
+ * the bytes written since the last one and applies the statements they complete.
+ * <pre>
+ * try (GraphFollower follower = new GraphFollower(path)) {
+ *     while (!follower.isComplete()) {
+ *         if (follower.poll()) render(follower.getGraph());
+ *         Thread.sleep(1000);
+ *     }
+ * }
+ * </pre>
+ * A statement is applied once it ends with {@code ';'} or the next statement or the closing brace has started,
+ * until then it may still grow: {@code a -> b} can become {@code a -> b -> c [color=red]}. The graph always is
+ * the one a full parse of the applied statements returns. Only the statement being written is kept in memory, and
+ * the file has to grow by appending; one that shrinks is an error. The size, node and edge limits of the options
+ * apply to the whole file, once one is exceeded every later poll throws the same exception. Not thread-safe.
+ */
+public final class GraphFollower implements Closeable {
+    // bytes read per step, the statements they complete are applied before the next step
+    private static final int BLOCK_SIZE = 1 << 16;
+
+    private final Path path;
+    private final GraphParserOptions options;
+    private final FileChannel channel;
+    private final CharsetDecoder decoder;
+    private final ByteBuffer bytes = ByteBuffer.allocate(BLOCK_SIZE); // read but not decoded yet
+    private final CharBuffer chars;
+    private char[] pending = new char[BLOCK_SIZE]; // decoded but not applied yet
+    private int pendingLength;
+    private StatementSplitter scanned; // split of pending by the last apply when it found no statement, resumed from
+    private final DiGraph graph;
+    private final DiGraphBuilder builder;
+    private final ParseLimits limits; // totals of the whole file, each statement range is also parsed against them
+    private long offset;
+    private boolean complete;
+    private GraphParserException failure; // of the last poll, thrown again until more bytes arrive
+
+    // the header as written, with line and column of its end and of the start of pending, for error positions
+    private String header;
+    private int headerLine;
+    private int headerColumn;
+    private int line = 1;
+    private int column;
+
+    public GraphFollower(Path path) throws IOException, GraphParserException {
+        this(path, new GraphParserOptions());
+    }
+
+    /**
+     * Opens {@code path} and parses what it holds so far. Bytes are decoded with the charset of {@code options},
+     * statements parsed with its lexer and DFA cache, and the graph bundles edges like the parse methods do.
+     */
+    public GraphFollower(Path path, GraphParserOptions options) throws IOException, GraphParserException {
+        this.path = path;
+        this.options = options;
+        this.decoder = options.getCharset().newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.chars = CharBuffer.allocate((int) Math.ceil(BLOCK_SIZE * (double) decoder.maxCharsPerByte()));
+        this.graph = GraphParser.newGraph(options);
+        this.builder = new DiGraphBuilder(graph);
+        this.limits = ParseLimits.totals(options);
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            poll();
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * The graph of the statements applied so far, the same instance for the life of the follower.
+     */
+    public DiGraph getGraph() {
+        return graph;
+    }
+
+    /**
+     * Number of bytes of the file read so far. The last statement among them may not be applied yet.
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    /**
+     * Whether the closing brace of the graph has been read, the graph is final then and the file is not read again.
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * Reads what was appended to the file since the last poll and applies the statements it completes.
+     *
+     * @return whether the graph changed
+     * @throws GraphParserException if the new statements do not parse; they stay pending and later polls fail
+     * again
+     * @throws GraphParserLimitException if the file exceeds a limit of the options, the graph may hold the
+     * statements that did
+     */
+    public boolean poll() throws IOException, GraphParserException {
+        if (complete) return false;
+        if (limits.failure() != null) throw limits.failure();
+        if (failure != null && channel.size() == offset) throw failure;
+        long size = channel.size();
+        if (size < offset) throw new IOException(path + " shrank from " + offset + " to " + size + " bytes");
+        boolean changed = false;
+        try {
+            limits.checkInput(size);
+            while (offset < size && !complete) {
+                int read = channel.read(bytes, offset);
+                if (read <= 0) break;
+                offset += read;
+                bytes.flip();
+                decoder.decode(bytes, chars, false); // replaces malformed input, chars holds all of bytes decoded
+                bytes.compact();
+                chars.flip();
+                append(chars);
+                chars.clear();
+                changed |= apply();
+            }
+            failure = null;
+        } catch (GraphParserException e) {
+            failure = e;
+            throw e;
+        }
+        return changed;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /*
+     * Applies the header and the complete statements of pending and drops them from it
+     */
+    private boolean apply() {
+        // wraps pending without copying it, only the part after the last scan is scanned again
+        ANTLRInputStream input = new ANTLRInputStream(pending, pendingLength);
+        StatementSplitter split = scanned != null ? StatementSplitter.resumeAppended(input, scanned) : null;
+        if (split == null) split = StatementSplitter.splitAppended(input, header == null);
+        scanned = null;
+        if (split == null) {
+            // the parser reports the error
+            parseStatements(new String(pending, 0, pendingLength));
+            throw new GraphParserException("at line " + line + ":" + column + " not a graph");
+        }
+        int start = split.start(0);
+        boolean changed = false;
+        if (header == null) {
+            if (start == 0) return false;
+            header = new String(pending, 0, start);
+            consume(start);
+            headerLine = line;
+            headerColumn = column;
+            builder.startGraph(split.graphId());
+            changed = true;
+        }
+        if (split.chunks() > 0) {
+            String statements = new String(pending, 0, split.end(0) - start);
+            GraphParser.EventLog log = GraphParser.parseChunk(new ANTLRInputStream(statements), options);
+            if (log == null) log = parseStatements(statements);
+            limits.edges(log.edgeCount(), null);
+            log.replay(builder);
+            consume(statements.length());
+            limits.checkNodes(graph.getNodes().size());
+            changed = true;
+        }
+        if (split.closed()) {
+            builder.endGraph();
+            complete = true;
+            consume(pendingLength);
+        } else if (!changed) {
+            scanned = split;
+        }
+        return changed;
+    }
+
+    /*
+     * Parses statements at the start of pending behind the header with full LL prediction, padded so that error
+     * positions are the ones in the file
+     */
+    private GraphParser.EventLog parseStatements(String statements) {
+        StringBuilder source = new StringBuilder();
+        if (header != null) {
+            source.append(header);
+            if (line == headerLine) {
+                pad(source, ' ', column - headerColumn);
+            } else {
+                pad(source, '\n', line - headerLine);
+                pad(source, ' ', column);
+            }
+        }
+        source.append(statements);
+        if (header != null) source.append('}');
+        GraphParser.EventLog log = new GraphParser.EventLog();
+        new GraphParser(options).parse(new ANTLRInputStream(source.toString()), log);
+        return log;
+    }
+
+    private static void pad(StringBuilder source, char c, int count) {
+        for (int i = 0; i < count; i++) {
+            source.append(c);
+        }
+    }
+
+    private void append(CharBuffer chars) {
+        int length = chars.remaining();
+        if (pendingLength + length > pending.length) {
+            pending = Arrays.copyOf(pending, Math.max(pendingLength + length, pending.length * 2));
+        }
+        chars.get(pending, pendingLength, length);
+        pendingLength += length;
+    }
+
+    private void consume(int length) {
+        for (int i = 0; i < length; i++) {
+            if (pending[i] == '\n') {
+                line++;
+                column = 0;
+            } else {
+                column++;
+            }
+        }
+        System.arraycopy(pending, length, pending, 0, pendingLength - length);
+        pendingLength -= length;
+    }
+}
@@ -34,6 +34,7 @@ package com.nukkitx.digraph.parser;
 import com.nukkitx.digraph.DiGraph;
 import com.nukkitx.digraph.DiGraphEdge;
 import com.nukkitx.digraph.DiGraphNode;
+import com.nukkitx.digraph.NumberAttribute;
 import com.nukkitx.digraph.parser.antlr.DOTBaseListener;
 import com.nukkitx.digraph.parser.antlr.DOTLexer;
 import com.nukkitx.digraph.parser.antlr.DOTParser;
@@ -42,7 +43,9 @@ import com.nukkitx.digraph.parser.antlr.DOTParser.IdContext;
 import org.antlr.v4.runtime.InputMismatchException;
 import org.antlr.v4.runtime.*;
 import org.antlr.v4.runtime.atn.ATNConfigSet;
+import org.antlr.v4.runtime.atn.PredictionMode;
 import org.antlr.v4.runtime.dfa.DFA;
+import org.antlr.v4.runtime.misc.Interval;
 import org.antlr.v4.runtime.misc.IntervalSet;
 import org.antlr.v4.runtime.misc.NotNull;
 import org.antlr.v4.runtime.misc.Nullable;
@@ -50,41 +53,642 @@ import org.antlr.v4.runtime.tree.ParseTree;
 import org.antlr.v4.runtime.tree.ParseTreeWalker;
 import org.antlr.v4.runtime.tree.TerminalNode;
 
+import java.io.FilterInputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicReference;
 
+/**
+ * Parses graphs in DOT syntax. The static methods parse one input each. An instance keeps the lexer, parser and input
+ * buffer between parses, which saves their setup for many small inputs: set the input with
+ * {@link #setInputStream(InputStream)} or {@link #setInput(ByteBuffer)}, then call {@link #parse()}. Instances are not
+ * thread-safe, use one per thread.
+ */
 public class GraphParser {
+    /*
+     * smallest chunk of a parallel parse, in input indexes
+     */
+    private static final int MIN_CHUNK_SIZE = 1 << 15;
+    private static final CommonTokenFactory COPY_TEXT_FACTORY = new CommonTokenFactory(true);
+    private static final GraphFilter NO_FILTER = new GraphFilter();
+    private static final ParseResult FATAL = new ParseResult(null, null, null); // parseAll worker threw an Error
+
+    private final GraphParserOptions options;
+    private final ErrorListener errorListener = new ErrorListener();
+    private final ExceptionErrorStrategy errorStrategy = new ExceptionErrorStrategy();
+    private final BailErrorStrategy bailStrategy = new BailErrorStrategy();
+    private DOTLexer lexer;
+    private ReusableTokenStream tokens;
+    private DOTParser parser;
+    private byte[] buffer = new byte[0];
+    private CharStream input;
+
+    public GraphParser() {
+        this(new GraphParserOptions());
+    }
+
+    /**
+     * @param options read on every parse, changes apply to the next one
+     */
+    public GraphParser(GraphParserOptions options) {
+        this.options = options;
+    }
+
+    /**
+     * Parses a built-in corpus that covers the whole grammar with every lexer, parse mode and prediction. The first
+     * parse loads and deserializes the generated lexer and parser, the rest fills their shared prediction DFAs, so
+     * later parses do not pay for it. Meant to be called once at startup, calling it again is cheap.
+     */
+    public static void warmUp() {
+        WarmUp.run();
+    }
+
+    /**
+     * Copies the prediction DFAs the generated lexer and parser share, for example right after {@link #warmUp()}.
+     */
+    public static DfaSnapshot snapshotDfa() {
+        return DfaSnapshot.take();
+    }
+
+    /**
+     * Replaces the shared prediction DFAs with a copy of {@code snapshot}; states added since it was taken are
+     * dropped. Parses running at the same time keep using the DFAs they started with.
+     */
+    public static void restoreDfa(DfaSnapshot snapshot) {
+        snapshot.restore();
+    }
+
+    /**
+     * Current size of the prediction caches and how often parses found their transitions there.
+     */
+    public static DfaCacheStats getDfaCacheStats() {
+        return PredictionCache.stats();
+    }
+
+    /**
+     * Empties the prediction DFAs and context caches, shared and striped. They grow back as input is parsed; call
+     * {@link #warmUp()} or {@link #restoreDfa(DfaSnapshot)} to start from a known state instead.
+     */
+    public static void clearDfaCache() {
+        PredictionCache.clearAll();
+    }
+
+    /**
+     * Clears a set of prediction DFAs, the shared one or a stripe, when a parse leaves it with more than
+     * {@code maxStates} states. The DFAs otherwise grow with every new shape of input for the life of the JVM.
+     * A warmed-up set holds about a hundred states; 0, the default, means no limit.
+     */
+    public static void setDfaStateLimit(int maxStates) {
+        PredictionCache.setStateLimit(maxStates);
+    }
+
+    public static int getDfaStateLimit() {
+        return PredictionCache.getStateLimit();
+    }
+
+    /**
+     * Reads the stream to the end into the parser's buffer and closes nothing. The bytes are decoded with the charset
+     * of the options, like byte array inputs.
+     */
+    public void setInputStream(InputStream is) throws GraphParserException {
+        int length = 0;
+        is = limit(is, options);
+        try {
+            for (; ; ) {
+                if (length == buffer.length) buffer = Arrays.copyOf(buffer, Math.max(4096, length * 2));
+                int read = is.read(buffer, length, buffer.length - length);
+                if (read < 0) break;
+                length += read;
+            }
+        } catch (IOException e) {
+            throw new GraphParserException(e);
+        }
+        setInput(ByteBuffer.wrap(buffer, 0, length));
+    }
+
+    /**
+     * Sets the input of the next {@link #parse()}. The buffer is read in place and must not change until then.
+     */
+    public void setInput(ByteBuffer buffer) {
+        input = charStream(buffer, options.getCharset(), null);
+    }
+
+    /**
+     * Parses the input set last and {@link #reset() resets} the parser.
+     *
+     * @throws IllegalStateException if no input has been set since the last parse
+     */
+    public DiGraph parse() throws GraphParserException {
+        if (input == null) throw new IllegalStateException("no input");
+        try {
+            return parse(input);
+        } finally {
+            reset();
+        }
+    }
+
+    /**
+     * Drops the input and the tokens of the last parse, the lexer, parser and buffer are kept for the next input.
+     */
+    public void reset() {
+        input = null;
+        if (tokens != null) tokens.setTokenSource(null);
+        if (lexer != null) lexer.setInputStream(null);
+        if (parser != null) {
+            parser.removeParseListeners();
+            parser.setInputStream(tokens);
+        }
+    }
 
     public static DiGraph parse(InputStream is) throws GraphParserException {
-        DOTLexer lexer = null;
-        DOTParser parser;
+        return parse(is, ParseMode.TREE);
+    }
+
+    public static DiGraph parse(InputStream is, ParseMode mode) throws GraphParserException {
+        GraphParserOptions options = new GraphParserOptions();
+        options.setParseMode(mode);
+        return parse(is, options);
+    }
 
-        DiGraph graph = new DiGraph();
-        ErrorListener errorListener = new ErrorListener();
+    public static DiGraph parse(InputStream is, GraphParserOptions options) throws GraphParserException {
+        CharStream input;
         try {
-            lexer = new DOTLexer(new ANTLRInputStream(is));
-            lexer.addErrorListener(errorListener);
+            input = new ANTLRInputStream(limit(is, options));
+        } catch (IOException e) {
+            throw new GraphParserException(e);
+        }
+        return new GraphParser(options).parse(input);
+    }
 
-            parser = new DOTParser(new CommonTokenStream(lexer));
-            parser.setErrorHandler(new ExceptionErrorStrategy());
-            parser.addErrorListener(errorListener);
+    /**
+     * Parses encoded bytes without decoding them into a char buffer first, only the ids and attribute values
+     * that end up in the graph are turned into strings. The position and limit of the buffer are not changed.
+     */
+    public static DiGraph parse(ByteBuffer buffer) throws GraphParserException {
+        return parse(buffer, new GraphParserOptions());
+    }
+
+    public static DiGraph parse(ByteBuffer buffer, GraphParserOptions options) throws GraphParserException {
+        return new GraphParser(options).parse(charStream(buffer, options.getCharset(), null));
+    }
+
+    public static DiGraph parse(byte[] bytes, int offset, int length) throws GraphParserException {
+        return parse(bytes, offset, length, new GraphParserOptions());
+    }
+
+    public static DiGraph parse(byte[] bytes, int offset, int length, GraphParserOptions options) throws GraphParserException {
+        return parse(ByteBuffer.wrap(bytes, offset, length), options);
+    }
 
-            ParseTree tree = parser.graph();
-            ParseTreeWalker.DEFAULT.walk(new NodeListener(graph), tree);
-            ParseTreeWalker.DEFAULT.walk(new EdgeListener(graph), tree);
+    /**
+     * Parses a file through a read-only memory mapping. The text stays in the page cache, only tokens and the
+     * strings of the resulting graph are allocated on the heap. Files must be smaller than 2 GB, larger ones can
+     * be streamed with {@link #parse(InputStream, GraphEventHandler)}.
+     */
+    public static DiGraph parse(Path path) throws GraphParserException {
+        return parse(path, new GraphParserOptions());
+    }
+
+    public static DiGraph parse(Path path, GraphParserOptions options) throws GraphParserException {
+        ByteBuffer buffer;
+        long size;
+        long modified;
+        ParseLimits limits = ParseLimits.start(options);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            modified = Files.getLastModifiedTime(path).toMillis();
+            size = channel.size();
+            if (size > Integer.MAX_VALUE) throw new GraphParserException(path + " is too large to be mapped: " + size + " bytes");
+            limits.checkInput(size);
+            if (options.isLazyAttributes()) {
+                // spans read the file long after parsing, a mapping would show later writes
+                buffer = ByteBuffer.allocate((int) size);
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer) < 0) break;
+                }
+                buffer.flip();
+            } else {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            }
+        } catch (IOException e) {
+            throw new GraphParserException(e);
+        }
+        if (!usesSnapshots(options, limits)) {
+            return new GraphParser(options).parse(charStream(buffer, options.getCharset(), path.toString()));
+        }
+        Path snapshot = GraphSnapshot.pathFor(path);
+        DiGraph graph = GraphSnapshot.read(snapshot, size, modified, buffer, options.getCharset());
+        if (graph == null) {
+            graph = new GraphParser(options).parse(charStream(buffer, options.getCharset(), path.toString()));
+            GraphSnapshot.write(snapshot, size, modified, buffer, options.getCharset(), graph);
+        }
+        return graph;
+    }
+
+    /*
+     * a snapshot holds the graph of a parse that builds everything and checks nothing, options that change what a
+     * parse builds or checks bypass it
+     */
+    private static boolean usesSnapshots(GraphParserOptions options, ParseLimits limits) {
+        return options.isSnapshots()
+                && options.getFilter() == null
+                && options.getSymbolTable() == null
+                && !options.isLazyAttributes()
+                && !options.isColumnarAttributes()
+                && options.getMinBundleEdges() == Integer.MAX_VALUE
+                && !limits.checksParse();
+    }
+
+    /**
+     * Parses many files concurrently, on virtual threads when the JVM has them (Java 21 and later) and on the common
+     * {@code ForkJoinPool} otherwise. See {@link #parseAll(Collection, Executor, GraphParserOptions)}.
+     */
+    public static Iterator<ParseResult> parseAll(Collection<Path> paths) {
+        return parseAll(paths, DefaultExecutor.INSTANCE, new GraphParserOptions());
+    }
+
+    public static Iterator<ParseResult> parseAll(Collection<Path> paths, Executor executor) {
+        return parseAll(paths, executor, new GraphParserOptions());
+    }
+
+    /**
+     * Submits one {@link #parse(Path, GraphParserOptions)} per file to {@code executor} and returns the results in
+     * the order the files complete. {@code next()} of the returned iterator blocks until the next file is done. A file
+     * that fails does not stop the others, its {@link ParseResult} carries the exception. Errors other than
+     * {@link StackOverflowError} are not failures of a file: they are thrown by the worker, and every
+     * {@code next()} after that rethrows the first one.
+     */
+    public static Iterator<ParseResult> parseAll(Collection<Path> paths, Executor executor, GraphParserOptions options) {
+        BlockingQueue<ParseResult> results = new LinkedBlockingQueue<>();
+        AtomicReference<Error> fatal = new AtomicReference<>();
+        for (Path path : paths) {
+            executor.execute(() -> {
+                ParseResult result;
+                try {
+                    result = new ParseResult(path, parse(path, options), null);
+                } catch (GraphParserException e) {
+                    result = new ParseResult(path, null, e);
+                } catch (RuntimeException | StackOverflowError e) {
+                    result = new ParseResult(path, null, new GraphParserException(e));
+                } catch (Error e) {
+                    // wakes next(), no result of this file will come
+                    fatal.compareAndSet(null, e);
+                    results.add(FATAL);
+                    throw e;
+                }
+                results.add(result);
+            });
+        }
+        int count = paths.size();
+        return new Iterator<ParseResult>() {
+            private int returned;
+
+            @Override
+            public boolean hasNext() {
+                return returned < count;
+            }
+
+            @Override
+            public ParseResult next() {
+                if (returned == count) throw new NoSuchElementException();
+                try {
+                    ParseResult result = fatal.get() == null ? results.take() : FATAL;
+                    if (result == FATAL) throw fatal.get();
+                    returned++;
+                    return result;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new GraphParserException(e);
+                }
+            }
+        };
+    }
+
+    private static CharStream charStream(ByteBuffer buffer, Charset charset, String name) {
+        if (ByteBufferCharStream.isSupported(charset)) return new ByteBufferCharStream(buffer, charset, name);
+        CharBuffer chars = charset.decode(buffer.duplicate());
+        ANTLRInputStream input = new ANTLRInputStream(chars.array(), chars.limit());
+        input.name = name;
+        return input;
+    }
+
+    DiGraph parse(CharStream input) throws GraphParserException {
+        ParseLimits limits = ParseLimits.start(options);
+        limits.checkInput(input.size());
+        ForkJoinPool pool = options.getForkJoinPool();
+        if (pool != null && input.size() >= 2 * MIN_CHUNK_SIZE) {
+            int chunkSize = Math.max(MIN_CHUNK_SIZE, input.size() / (pool.getParallelism() * 4));
+            DiGraph graph = parseParallel(input, options, chunkSize, limits);
+            if (graph != null) return graph;
+        }
+        if (options.getPrediction() == GraphParserOptions.Prediction.TWO_STAGE && options.getParseMode() != ParseMode.ITERATIVE) {
+            int start = input.index();
+            try {
+                return parse(input, true, limits.restart());
+            } catch (GraphParserLimitException e) {
+                throw e;
+            } catch (GraphParserException e) {
+                // syntax error or a decision SLL cannot make, full LL decides which
+                input.seek(start);
+            }
+        }
+        return parse(input, false, limits.restart());
+    }
+
+    private DiGraph parse(CharStream input, boolean sll, ParseLimits limits) throws GraphParserException {
+        DiGraph graph = newGraph(options);
+        if (options.getParseMode() != ParseMode.TREE) {
+            parse(input, sll, new DiGraphBuilder(graph), null, limits);
+        } else {
+            parse(input, sll, null, graph, limits);
+        }
+        return graph;
+    }
+
+    private static GraphFilter filter(GraphParserOptions options) {
+        return options.getFilter() != null ? options.getFilter() : NO_FILTER;
+    }
+
+    /*
+     * the graph the options ask for, empty
+     */
+    static DiGraph newGraph(GraphParserOptions options) {
+        DiGraph graph = options.getMinBundleEdges() != Integer.MAX_VALUE ? new BundledDiGraph(options.getMinBundleEdges()) : new DiGraph();
+        graph.setColumnarAttributes(options.isColumnarAttributes());
+        return graph;
+    }
+
+    /*
+     * Parses the chunks of the top-level stmt_list on the pool and replays their node and edge events into one
+     * graph in input order, which is the order the listeners would have applied them in. Returns null when the
+     * input cannot be split or a chunk fails to parse, the sequential parse then reports the error.
+     */
+    static DiGraph parseParallel(CharStream input, GraphParserOptions options, int chunkSize) {
+        return parseParallel(input, options, chunkSize, ParseLimits.start(options));
+    }
+
+    /*
+     * Chunks count against limits of their own, the edges and nodes of all chunks are checked against limits as
+     * the chunks are applied
+     */
+    private static DiGraph parseParallel(CharStream input, GraphParserOptions options, int chunkSize, ParseLimits limits) {
+        StatementSplitter split = StatementSplitter.split(input, chunkSize);
+        if (split == null || split.chunks() < 2) return null;
+
+        List<ForkJoinTask<EventLog>> tasks = new ArrayList<>(split.chunks());
+        List<ParseLimits> chunkLimits = new ArrayList<>(split.chunks());
+        for (int i = 0; i < split.chunks(); i++) {
+            int start = split.start(i);
+            int end = split.end(i);
+            ParseLimits chunk = limits.restart();
+            chunkLimits.add(chunk);
+            tasks.add(options.getForkJoinPool().submit(() -> parseChunk(slice(input, start, end), options, chunk)));
+        }
+
+        DiGraph graph = newGraph(options);
+        DiGraphBuilder builder = new DiGraphBuilder(graph);
+        builder.startGraph(split.graphId());
+        for (int i = 0; i < tasks.size(); i++) {
+            EventLog log;
+            try {
+                log = join(tasks.get(i));
+                if (log != null) limits.add(chunkLimits.get(i));
+            } catch (GraphParserLimitException e) {
+                cancel(tasks, i + 1);
+                throw e;
+            }
+            tasks.set(i, null);
+            if (log == null) {
+                cancel(tasks, i + 1);
+                return null;
+            }
+            log.replay(builder);
+            limits.checkNodes(graph.getNodes().size());
+        }
+        builder.endGraph();
+        return graph;
+    }
+
+    /*
+     * The result of a chunk task; a limit the chunk exceeded is thrown as it is, ForkJoinTask.join would throw a copy
+     */
+    private static EventLog join(ForkJoinTask<EventLog> task) {
+        try {
+            return task.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof GraphParserLimitException) throw (GraphParserLimitException) e.getCause();
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GraphParserException(e);
+        }
+    }
+
+    private static void cancel(List<ForkJoinTask<EventLog>> tasks, int from) {
+        for (int j = from; j < tasks.size(); j++) {
+            tasks.get(j).cancel(false);
+        }
+    }
+
+    private static CharStream slice(CharStream input, int start, int end) {
+        if (input instanceof ByteBufferCharStream) return ((ByteBufferCharStream) input).slice(start, end);
+        return new ANTLRInputStream(input.getText(Interval.of(start, end - 1)));
+    }
+
+    /*
+     * Parses a chunk of statements with SLL prediction, null if it is not a complete stmt_list
+     */
+    static EventLog parseChunk(CharStream input, GraphParserOptions options) {
+        ParseLimits limits = ParseLimits.start(options);
+        limits.checkInput(input.size());
+        return parseChunk(input, options, limits);
+    }
+
+    private static EventLog parseChunk(CharStream input, GraphParserOptions options, ParseLimits limits) {
+        EventLog log = new EventLog();
+        PredictionCache cache = predictionCache(options);
+        TokenSource tokenSource = null;
+        DOTParser parser = null;
+        try {
+            if (options.getLexer() == GraphParserOptions.Lexer.SCANNER) {
+                tokenSource = new DOTScannerTokenSource(input);
+            } else {
+                DOTLexer lexer = new DOTLexer(input);
+                cache.install(lexer);
+                lexer.removeErrorListeners();
+                lexer.addErrorListener(new ErrorListener());
+                tokenSource = lexer;
+            }
+            if (options.getParseMode() == ParseMode.ITERATIVE) {
+                new IterativeParser(tokenSource, new StreamingListener(log, options, limits), limits).chunk();
+                return log;
+            }
+            parser = new DOTParser(new CommonTokenStream(tokenSource));
+            cache.install(parser);
+            parser.setBuildParseTree(false);
+            if (limits.checksTokens()) parser.addParseListener(new LimitListener(limits));
+            parser.addParseListener(new StreamingListener(log, options, limits));
+            parser.getInterpreter().setPredictionMode(PredictionMode.SLL);
+            parser.removeErrorListeners();
+            parser.setErrorHandler(new BailErrorStrategy());
+            parser.stmt_list();
+            return parser.getCurrentToken().getType() == Token.EOF ? log : null;
+        } catch (RuntimeException | StackOverflowError e) {
+            if (limits.failure() != null) throw limits.failure();
+            return null;
+        } finally {
+            cache.collect(tokenSource instanceof DOTLexer ? (DOTLexer) tokenSource : null, parser);
+        }
+    }
+
+    private static PredictionCache predictionCache(GraphParserOptions options) {
+        return options.getDfaCache() == GraphParserOptions.DfaCache.STRIPED ? PredictionCache.forCurrentThread() : PredictionCache.SHARED;
+    }
+
+    /**
+     * Parses the input and reports its content to {@code handler} while parsing, no {@link DiGraph} is built.
+     * The input is read incrementally, memory use does not grow with the input size.
+     */
+    public static void parse(InputStream is, GraphEventHandler handler) throws GraphParserException {
+        parse(is, handler, new GraphParserOptions());
+    }
+
+    /**
+     * Like {@link #parse(InputStream, GraphEventHandler)}. Events are streamed in every parse mode, with
+     * {@link ParseMode#ITERATIVE} the input is parsed without recursion. The prediction is ignored, events that
+     * were already reported cannot be taken back for a second stage.
+     */
+    public static void parse(InputStream is, GraphEventHandler handler, GraphParserOptions options) throws GraphParserException {
+        CharStream input;
+        try {
+            input = new UnbufferedCharStream(limit(is, options));
+        } catch (GraphParserLimitException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            throw new GraphParserException(e); // read errors while filling the first char
+        }
+        new GraphParser(options).parse(input, false, handler, null, ParseLimits.start(options));
+    }
+
+    private static InputStream limit(InputStream is, GraphParserOptions options) {
+        return options.getMaxInputBytes() == Long.MAX_VALUE ? is : new LimitedInputStream(is, ParseLimits.start(options));
+    }
+
+    /*
+     * Reports the content of input to handler, with full LL prediction and the error messages of a tree parse
+     */
+    void parse(CharStream input, GraphEventHandler handler) throws GraphParserException {
+        ParseLimits limits = ParseLimits.start(options);
+        limits.checkInput(input.size());
+        parse(input, false, handler, null, limits);
+    }
+
+    /*
+     * Either streams events to handler or, without a handler, builds the parse tree and walks it into graph.
+     * With sll the parser uses SLL prediction and bails out on the first error without reporting it. The
+     * ITERATIVE parse mode needs a handler and has no prediction.
+     */
+    private void parse(CharStream input, boolean sll, GraphEventHandler handler, DiGraph graph, ParseLimits limits) throws GraphParserException {
+        TokenSource tokenSource = null;
+        PredictionCache cache = null;
+
+        errorListener.errorMessage = null;
+        try {
+            cache = predictionCache(options);
+            if (options.getLexer() == GraphParserOptions.Lexer.SCANNER) {
+                tokenSource = new DOTScannerTokenSource(input);
+            } else if (lexer == null) {
+                lexer = new DOTLexer(input);
+                lexer.addErrorListener(errorListener);
+                tokenSource = lexer;
+            } else {
+                lexer.setInputStream(input);
+                tokenSource = lexer;
+            }
+            // before the token stream reads the first token
+            if (tokenSource == lexer) cache.install(lexer);
+            // tokens must carry their text, the characters are gone once the stream moves on
+            tokenSource.setTokenFactory(input instanceof UnbufferedCharStream ? COPY_TEXT_FACTORY : CommonTokenFactory.DEFAULT);
+
+            if (options.getParseMode() == ParseMode.ITERATIVE) {
+                new IterativeParser(tokenSource, new StreamingListener(handler, options, limits), limits).graph();
+            } else {
+                runParser(tokenSource, cache, sll, handler, graph, limits);
+            }
         } catch (Throwable t) {
+            // deep input can overflow the stack, other errors are not the input's fault
+            if (t instanceof Error && !(t instanceof StackOverflowError)) throw (Error) t;
+            if (limits.failure() != null) throw limits.failure();
             String mErrMsg = errorListener.errorMessage;
             if (mErrMsg != null) throw new GraphParserException(mErrMsg, t);
-            if (lexer != null) {
-                mErrMsg = "at line " + lexer.getLine() + ":" + lexer.getCharPositionInLine();
+            if (t instanceof GraphParserException) throw (GraphParserException) t;
+            if (tokenSource != null) {
+                mErrMsg = "at line " + tokenSource.getLine() + ":" + tokenSource.getCharPositionInLine();
                 throw new GraphParserException(mErrMsg, t);
             }
             throw new GraphParserException(t);
+        } finally {
+            if (cache != null) cache.collect(tokenSource == lexer ? lexer : null, parser);
         }
 
         String mErrMsg = errorListener.errorMessage;
         if (mErrMsg != null) throw new GraphParserException(mErrMsg);
-        return graph;
+    }
+
+    /*
+     * DOTParser over the tokens of the parse above, which handles its errors
+     */
+    private void runParser(TokenSource tokenSource, PredictionCache cache, boolean sll, GraphEventHandler handler, DiGraph graph, ParseLimits limits) {
+        TokenStream tokenStream;
+        if (handler != null) {
+            tokenStream = new LookaheadTokenStream(tokenSource);
+        } else if (tokens == null) {
+            tokenStream = tokens = new ReusableTokenStream(tokenSource);
+        } else {
+            tokens.setTokenSource(tokenSource);
+            tokenStream = tokens;
+        }
+        if (parser == null) {
+            parser = new DOTParser(tokenStream);
+        } else {
+            parser.setInputStream(tokenStream);
+        }
+        cache.install(parser);
+        parser.setBuildParseTree(handler == null);
+        parser.removeParseListeners();
+        if (limits.checksTokens()) parser.addParseListener(new LimitListener(limits));
+        if (handler != null) parser.addParseListener(new StreamingListener(handler, options, limits));
+        parser.removeErrorListeners();
+        if (sll) {
+            parser.getInterpreter().setPredictionMode(PredictionMode.SLL);
+            parser.setErrorHandler(bailStrategy);
+        } else {
+            parser.getInterpreter().setPredictionMode(PredictionMode.LL);
+            parser.setErrorHandler(errorStrategy);
+            parser.addErrorListener(ConsoleErrorListener.INSTANCE);
+            parser.addErrorListener(errorListener);
+        }
+
+        ParseTree tree = parser.graph();
+        if (handler == null) {
+            TokenText text = new TokenText(options);
+            GraphFilter filter = filter(options);
+            ParseTreeWalker.DEFAULT.walk(new NodeListener(graph, text, filter, limits), tree);
+            ParseTreeWalker.DEFAULT.walk(new EdgeListener(graph, text, filter, limits), tree);
+        }
     }
 
     private static String trimDoubleQuotes(String text) {
@@ -95,49 +699,96 @@ public class GraphParser {
         return text;
     }
 
+    static String attributeText(Token token) {
+        return attributeText(token.getText(), token.getType() == DOTParser.STRING);
+    }
+
+    static String attributeText(String text, boolean string) {
+        if (string) {
+            text = trimDoubleQuotes(text);
+            text = text.replace("\\\"", "\"");
+        }
+        return text;
+    }
+
     /*
      * populateAttributes helper
      */
-    private static void populateAttributes(DOTParser.Attr_listContext ctx, Map<String, Object> attrs) {
+    private static void populateAttributes(DOTParser.Attr_listContext ctx, Map<String, Object> attrs, TokenText text, GraphFilter filter) {
         attrs.clear();
         if (ctx == null) return;
 
         for (A_listContext listCtx : ctx.a_list()) {
-            String[] kv = {null, null};
-            int i = 0;
+            String key = null;
             for (IdContext idCtx : listCtx.id()) {
-                TerminalNode idObj = idCtx.ID();
-                if (idObj == null) idObj = idCtx.NUMBER();
-                if (idObj == null) idObj = idCtx.STRING();
-                if (idObj == null) idObj = idCtx.HTML_STRING();
-                String text = idObj.getText();
-                if (idObj.getSymbol().getType() == DOTParser.STRING) {
-                    text = trimDoubleQuotes(text);
-                    text = text.replace("\\\"", "\"");
-                }
-                kv[i++] = text;
-                if (i > 1) {
-                    attrs.put(kv[0], kv[1]);
-                    i = 0;
+                if (key == null) {
+                    key = text.key(idCtx.getStart());
+                } else {
+                    if (filter.keepsAttribute(key)) attrs.put(key, text.value(idCtx.getStart()));
+                    key = null;
                 }
             }
         }
     }
 
+    /*
+     * TokenText - strings of id tokens: node ids, attribute keys and unquoted values go through the symbol table
+     * of the options, quoted values are mostly free text and are left alone; values of a lazy parse stay spans,
+     * numbers of a columnar parse become NumberAttributes
+     */
+    private static class TokenText {
+        private final SymbolTable symbols;
+        private final boolean lazy;
+        private final boolean numbers;
+
+        TokenText(GraphParserOptions options) {
+            this.symbols = options.getSymbolTable();
+            this.lazy = options.isLazyAttributes();
+            this.numbers = options.isColumnarAttributes();
+        }
+
+        String id(Token token) {
+            String text = token.getText();
+            return symbols != null ? symbols.intern(text) : text;
+        }
+
+        String key(Token token) {
+            String text = attributeText(token);
+            return symbols != null ? symbols.intern(text) : text;
+        }
+
+        Object value(Token token) {
+            if (numbers && token.getType() == DOTParser.NUMBER) {
+                Object number = NumberAttribute.parse(token.getText());
+                if (number instanceof NumberAttribute) return number;
+            }
+            if (lazy || symbols == null || (token.getType() != DOTParser.ID && token.getType() != DOTParser.NUMBER)) {
+                return AttributeSpan.of(token, lazy);
+            }
+            return symbols.intern(token.getText());
+        }
+    }
+
     /*
      * NodeListener
      */
     private static class NodeListener extends DOTBaseListener {
         private final DiGraph graph;
+        private final TokenText text;
+        private final GraphFilter filter;
+        private final ParseLimits limits;
         Map<String, Object> nodeAttrs = new TreeMap<>();
 
-        private NodeListener(DiGraph graph) {
+        private NodeListener(DiGraph graph, TokenText text, GraphFilter filter, ParseLimits limits) {
             this.graph = graph;
+            this.text = text;
+            this.filter = filter;
+            this.limits = limits;
         }
 
         @Override
         public void enterGraph(@NotNull DOTParser.GraphContext ctx) {
-            if (ctx.id() != null) graph.setId(ctx.id().getText());
+            if (ctx.id() != null) graph.setId(ctx.id().getStart().getText());
         }
 
         @Override
@@ -147,10 +798,12 @@ public class GraphParser {
 
         @Override
         public void enterNode_id(@NotNull DOTParser.Node_idContext ctx) {
-            String nodeId = ctx.id().getText();
+            String nodeId = text.id(ctx.id().getStart());
+            if (!filter.keepsNode(nodeId)) return;
             DiGraphNode node = graph.getNode(nodeId);
             if (node == null) {
-                node = new DiGraphNode(nodeId);
+                limits.node(nodeId);
+                node = graph.newNode(nodeId);
                 graph.setNode(nodeId, node);
             }
             node.setAttributes(nodeAttrs);
@@ -163,7 +816,9 @@ public class GraphParser {
 
         @Override
         public void enterNode_stmt(@NotNull DOTParser.Node_stmtContext ctx) {
-            populateAttributes(ctx.attr_list(), nodeAttrs);
+            DOTParser.Attr_listContext attrList = ctx.attr_list();
+            if (attrList != null && !filter.keepsNode(text.id(ctx.node_id().getStart()))) attrList = null;
+            populateAttributes(attrList, nodeAttrs, text, filter);
         }
 
         @Override
@@ -177,17 +832,24 @@ public class GraphParser {
      */
     private static class EdgeListener extends DOTBaseListener {
         private final DiGraph graph;
-        GraphCtx graphCtx = new GraphCtx(null);
+        private final TokenText text;
+        private final GraphFilter filter;
+        private final ParseLimits limits;
+        private final List<String> nodeIds = new ArrayList<>(); // of the open GraphCtx chain
+        GraphCtx graphCtx; // null at top level, the graph itself never needs its node ids
         EdgeCtx edgeCtx;
 
-        private EdgeListener(DiGraph graph) {
+        private EdgeListener(DiGraph graph, TokenText text, GraphFilter filter, ParseLimits limits) {
             this.graph = graph;
+            this.text = text;
+            this.filter = filter;
+            this.limits = limits;
         }
 
         @Override
         public void enterNode_id(@NotNull DOTParser.Node_idContext ctx) {
-            String nodeId = ctx.id().getText();
-            graphCtx.addNode(nodeId);
+            String nodeId = text.id(ctx.id().getStart());
+            if (graphCtx != null && filter.keepsNode(nodeId)) nodeIds.add(nodeId);
         }
 
         @Override
@@ -198,43 +860,47 @@ public class GraphParser {
         @Override
         public void enterSubgraph(@NotNull DOTParser.SubgraphContext ctx) {
             // enter new nested subgraph ctx
-            graphCtx = new GraphCtx(graphCtx);
+            graphCtx = new GraphCtx(graphCtx, nodeIds).open();
         }
 
         @Override
         public void exitSubgraph(@NotNull DOTParser.SubgraphContext ctx) {
             // leave nested ctx, pop previous parent ctx
-            graphCtx = graphCtx.parent;
+            graphCtx = graphCtx.close();
+            if (graphCtx == null) nodeIds.clear();
         }
 
         @Override
         public void enterEdge_stmt(@NotNull DOTParser.Edge_stmtContext ctx) {
             // enter new nested edge ctx
-            edgeCtx = new EdgeCtx(edgeCtx, new GraphCtx(graphCtx), new GraphCtx(graphCtx), ctx.attr_list());
-            graphCtx = edgeCtx.src; // point to src, next node/subgraph populates it
+            edgeCtx = new EdgeCtx(edgeCtx, new GraphCtx(graphCtx, nodeIds), new GraphCtx(graphCtx, nodeIds), ctx.attr_list(), text, filter);
+            graphCtx = edgeCtx.src.open(); // point to src, next node/subgraph populates it
         }
 
         @Override
         public void exitEdge_stmt(@NotNull DOTParser.Edge_stmtContext ctx) {
-            addEdges(edgeCtx.src.graph, edgeCtx.dest.graph, edgeCtx.attrs);
+            graphCtx = edgeCtx.dest.close();
+            addEdges(edgeCtx.src.nodes(), edgeCtx.dest.nodes(), edgeCtx.attrs, ctx.getStart());
 
             // leave nested ctx, pop previous parent ctx
             edgeCtx = edgeCtx.parent;
-            graphCtx = graphCtx.parent;
+            if (graphCtx == null) nodeIds.clear();
         }
 
         @Override
         public void enterEdgeop(@NotNull DOTParser.EdgeopContext ctx) {
-            addEdges(edgeCtx.src.graph, edgeCtx.dest.graph, edgeCtx.attrs);
-
             if (edgeCtx.srcFlag) {
-                // pointing to src, shift to populate dest
-                graphCtx = edgeCtx.dest;
+                // pointing to src, shift to populate dest; nothing to connect yet
+                edgeCtx.src.close();
+                graphCtx = edgeCtx.dest.open();
                 edgeCtx.srcFlag = false;
             } else {
+                edgeCtx.dest.close();
+                addEdges(edgeCtx.src.nodes(), edgeCtx.dest.nodes(), edgeCtx.attrs, ctx.getStart());
+
                 // pointing to dest already, shift src/dest for next edgeop
                 edgeCtx.src = edgeCtx.dest;
-                edgeCtx.dest = new GraphCtx(graphCtx.parent);
+                edgeCtx.dest = new GraphCtx(graphCtx.parent, nodeIds).open();
                 graphCtx = edgeCtx.dest;
             }
         }
@@ -244,58 +910,783 @@ public class GraphParser {
             // no-op
         }
 
-        private void addEdges(NodeIdSet srcSet, NodeIdSet destSet, Map<String, Object> attrs) {
-            for (String src : srcSet) {
-                for (String dest : destSet) {
-                    addEdge(src, dest, attrs);
+        private void addEdges(List<String> srcSet, List<String> destSet, Map<String, Object> attrs, Token token) {
+            limits.edges((long) srcSet.size() * destSet.size(), token);
+            GraphParser.addEdges(graph, srcSet, destSet, attrs, filter);
+        }
+    }
+
+    /*
+     * addEdges helper
+     */
+    private static void addEdges(DiGraph graph, List<String> srcSet, List<String> destSet, Map<String, Object> attrs, GraphFilter filter) {
+        if (filter.keepsAllEdges() && graph instanceof BundledDiGraph && ((BundledDiGraph) graph).addBundle(srcSet, destSet, attrs)) return;
+        for (String src : srcSet) {
+            for (String dest : destSet) {
+                if (filter.keepsEdge(src, dest)) addEdge(graph, src, dest, attrs);
+            }
+        }
+    }
+
+    private static void addEdge(DiGraph graph, String nodeId1, String nodeId2, Map<String, Object> attrs) {
+        String edgeId = nodeId1 + "-" + nodeId2;
+        DiGraphEdge edge = graph.getEdge(edgeId);
+        if (edge == null) {
+            DiGraphNode node1 = graph.getNode(nodeId1);
+            DiGraphNode node2 = graph.getNode(nodeId2);
+            edge = graph.newEdge(edgeId, node1, node2);
+            graph.setEdge(edgeId, edge);
+        }
+        edge.setAttributes(attrs);
+    }
+
+    /*
+     * StreamingListener
+     *
+     * Combines NodeListener and EdgeListener into a parse listener that runs while DOTParser is still
+     * parsing and reports to a GraphEventHandler. Rule contexts are not attached to their parents in this
+     * mode, so everything is derived from enter/exit events and the start token of each id. Attribute lists
+     * follow the element they belong to, so node statements are reported on exitNode_stmt, and the edges of
+     * an edge statement are queued until its outermost edge statement has been left and all attribute lists
+     * are known. The queue is flushed in the same order EdgeListener would have added the edges, which keeps
+     * attribute merging identical.
+     */
+    private static class StreamingListener extends DOTBaseListener {
+        private final GraphEventHandler handler;
+        private final SortedAttributeList nodeAttrs = new SortedAttributeList();
+        private final SortedAttributeList graphAttrs = new SortedAttributeList();
+        private final List<PendingEdges> pendingEdges = new ArrayList<>();
+        private final List<String> nodeIds = new ArrayList<>(); // of the open GraphCtx chain
+        private GraphCtx graphCtx; // null at top level, the graph itself never needs its node ids
+        private StreamEdgeCtx edgeCtx;
+        private int edgeStmts; // open edge statements that are not tentative
+        private String nodeStmtId;
+        private String graphId; // id of the graph or subgraph whose stmt_list comes next
+        private String stmtKey; // key of an id '=' id statement
+        private final TokenText text;
+        private final GraphFilter filter;
+        private final ParseLimits limits;
+        private SortedAttributeList attrs;
+        private String attrKey;
+
+        private StreamingListener(GraphEventHandler handler, GraphParserOptions options, ParseLimits limits) {
+            this.handler = handler;
+            this.text = new TokenText(options);
+            this.filter = filter(options);
+            this.limits = limits;
+        }
+
+        @Override
+        public void visitTerminal(@NotNull TerminalNode node) {
+            // the parser still adds terminals to the current context, drop them so ';' separated statement
+            // lists do not keep every token alive; ids are read from the start token of their context
+            ((ParserRuleContext) node.getParent()).removeLastChild();
+        }
+
+        @Override
+        public void exitId(@NotNull DOTParser.IdContext ctx) {
+            ParserRuleContext parent = ctx.getParent();
+            if (parent instanceof DOTParser.Node_idContext) {
+                nodeId(ctx.getStart(), parent.getParent() instanceof DOTParser.Node_stmtContext);
+            } else if (parent instanceof A_listContext) {
+                attributeId(ctx.getStart());
+            } else if (parent instanceof DOTParser.StmtContext) {
+                stmtId(ctx.getStart());
+            } else if (parent instanceof DOTParser.GraphContext || parent instanceof DOTParser.SubgraphContext) {
+                graphId(ctx.getStart());
+            }
+        }
+
+        @Override
+        public void enterStmt_list(@NotNull DOTParser.Stmt_listContext ctx) {
+            if (ctx.getParent() instanceof DOTParser.GraphContext) {
+                startGraph();
+            } else if (ctx.getParent() != null) {
+                startSubgraph();
+            } // else a chunk of the top-level stmt_list parsed on its own
+        }
+
+        @Override
+        public void exitGraph(@NotNull DOTParser.GraphContext ctx) {
+            endGraph();
+        }
+
+        @Override
+        public void enterAttr_list(@NotNull DOTParser.Attr_listContext ctx) {
+            ParserRuleContext parent = ctx.getParent();
+            if (parent instanceof DOTParser.Node_stmtContext) {
+                startAttributes(nodeAttrs);
+            } else if (parent instanceof DOTParser.Edge_stmtContext) {
+                startAttributes(edgeCtx.attrs);
+            } else if (parent.getStart().getType() == DOTParser.GRAPH) {
+                startAttributes(graphAttrs);
+            } else {
+                startAttributes(null); // node and edge defaults are not applied
+            }
+        }
+
+        @Override
+        public void exitAttr_list(@NotNull DOTParser.Attr_listContext ctx) {
+            endAttributes();
+        }
+
+        @Override
+        public void enterA_list(@NotNull A_listContext ctx) {
+            startAList();
+        }
+
+        @Override
+        public void exitNode_stmt(@NotNull DOTParser.Node_stmtContext ctx) {
+            endNodeStmt();
+        }
+
+        @Override
+        public void enterSubgraph(@NotNull DOTParser.SubgraphContext ctx) {
+            enterSubgraph();
+        }
+
+        @Override
+        public void exitSubgraph(@NotNull DOTParser.SubgraphContext ctx) {
+            exitSubgraph();
+        }
+
+        @Override
+        public void enterEdge_stmt(@NotNull DOTParser.Edge_stmtContext ctx) {
+            enterEdgeStmt(ctx.getStart(), false);
+        }
+
+        @Override
+        public void exitEdge_stmt(@NotNull DOTParser.Edge_stmtContext ctx) {
+            exitEdgeStmt();
+        }
+
+        @Override
+        public void enterEdgeop(@NotNull DOTParser.EdgeopContext ctx) {
+            edgeop(ctx.getStart());
+        }
+
+        // the events in grammar terms, the parse events above and IterativeParser both report through these
+
+        void graphId(Token token) {
+            graphId = token.getText();
+        }
+
+        void startGraph() {
+            handler.startGraph(graphId);
+            graphId = null;
+        }
+
+        void startSubgraph() {
+            handler.enterSubgraph(graphId);
+            graphId = null;
+        }
+
+        void endGraph() {
+            handler.endGraph();
+        }
+
+        void nodeId(Token token, boolean nodeStmt) {
+            String nodeId = text.id(token);
+            if (!filter.keepsNode(nodeId)) {
+                if (nodeStmt) nodeStmtId = null;
+                return;
+            }
+            limits.node(nodeId);
+            if (nodeStmt) {
+                nodeStmtId = nodeId; // reported with its attributes by endNodeStmt
+            } else {
+                handler.node(nodeId, SortedAttributeList.EMPTY);
+            }
+            if (graphCtx != null) nodeIds.add(nodeId);
+        }
+
+        void endNodeStmt() {
+            if (nodeStmtId != null) handler.node(nodeStmtId, nodeAttrs);
+            nodeAttrs.clear();
+        }
+
+        void stmtId(Token token) {
+            String text = attributeText(token);
+            if (stmtKey == null) {
+                stmtKey = text;
+            } else {
+                if (filter.keepsAttribute(stmtKey)) handler.attribute(stmtKey, text);
+                stmtKey = null;
+            }
+        }
+
+        /*
+         * attrs is nodeAttrs, the attributes of the innermost edge statement, graphAttrs, or null for lists that
+         * are not applied
+         */
+        void startAttributes(SortedAttributeList attrs) {
+            this.attrs = attrs == nodeAttrs && nodeStmtId == null ? null : attrs; // of a node the filter dropped
+        }
+
+        void startAList() {
+            attrKey = null;
+        }
+
+        void attributeId(Token token) {
+            if (attrs == null) return;
+            if (attrKey == null) {
+                attrKey = text.key(token);
+            } else {
+                if (filter.keepsAttribute(attrKey)) attrs.put(attrKey, text.value(token));
+                attrKey = null;
+            }
+        }
+
+        void endAttributes() {
+            if (attrs == graphAttrs) {
+                for (int i = 0; i < graphAttrs.size(); i++) {
+                    handler.attribute(graphAttrs.getKey(i), graphAttrs.getValue(i));
+                }
+                graphAttrs.clear();
+            }
+            attrs = null;
+        }
+
+        void enterSubgraph() {
+            graphId = null;
+            graphCtx = new GraphCtx(graphCtx, nodeIds).open();
+        }
+
+        void exitSubgraph() {
+            handler.exitSubgraph();
+            graphCtx = graphCtx.close();
+            if (graphCtx == null) nodeIds.clear();
+        }
+
+        /*
+         * a tentative edge statement starts with a subgraph that may turn out to be a statement of its own, it
+         * becomes an edge statement on its first edgeop and is dropped by dropEdgeStmt otherwise
+         */
+        void enterEdgeStmt(Token start, boolean tentative) {
+            edgeCtx = new StreamEdgeCtx(edgeCtx, new GraphCtx(graphCtx, nodeIds), new GraphCtx(graphCtx, nodeIds), start);
+            edgeCtx.tentative = tentative;
+            if (!tentative) edgeStmts++;
+            graphCtx = edgeCtx.src.open();
+        }
+
+        void exitEdgeStmt() {
+            graphCtx = edgeCtx.dest.close();
+            pendEdges(edgeCtx.start);
+            edgeCtx = edgeCtx.parent;
+
+            // edges of statements nested in a tentative one are not held back by it, it has none of its own yet
+            if (--edgeStmts == 0) {
+                for (PendingEdges pending : pendingEdges) {
+                    if (pending.src.size() == 1 && pending.dest.size() == 1) {
+                        edge(pending.src.get(0), pending.dest.get(0), pending.attrs);
+                    } else if (!filter.keepsAllEdges()) {
+                        for (String src : pending.src) {
+                            for (String dest : pending.dest) {
+                                edge(src, dest, pending.attrs);
+                            }
+                        }
+                    } else if (!pending.src.isEmpty() && !pending.dest.isEmpty()) {
+                        handler.edges(pending.src, pending.dest, pending.attrs);
+                    }
+                }
+                pendingEdges.clear();
+            }
+            if (graphCtx == null) nodeIds.clear();
+        }
+
+        void dropEdgeStmt() {
+            graphCtx = edgeCtx.src.close();
+            edgeCtx = edgeCtx.parent;
+            if (graphCtx == null) nodeIds.clear();
+        }
+
+        void edgeop(Token token) {
+            if (edgeCtx.srcFlag) {
+                // nothing to connect yet, dest is still empty
+                edgeCtx.src.close();
+                graphCtx = edgeCtx.dest.open();
+                edgeCtx.srcFlag = false;
+                if (edgeCtx.tentative) {
+                    edgeCtx.tentative = false;
+                    edgeStmts++;
+                }
+            } else {
+                edgeCtx.dest.close();
+                pendEdges(token);
+                edgeCtx.src = edgeCtx.dest;
+                edgeCtx.dest = new GraphCtx(graphCtx.parent, nodeIds).open();
+                graphCtx = edgeCtx.dest;
+            }
+        }
+
+        private void edge(String src, String dest, AttributeList attrs) {
+            if (filter.keepsEdge(src, dest)) handler.edge(src, dest, attrs);
+        }
+
+        /*
+         * the node ids are resolved now, nodeIds is cleared before the queue is flushed when the statement is
+         * nested in a subgraph
+         */
+        private void pendEdges(Token token) {
+            List<String> src = edgeCtx.src.nodes();
+            List<String> dest = edgeCtx.dest.nodes();
+            limits.edges((long) src.size() * dest.size(), token);
+            pendingEdges.add(new PendingEdges(src, dest, edgeCtx.attrs));
+        }
+    }
+
+    /*
+     * IterativeParser - parser of ParseMode.ITERATIVE. Descends the DOT grammar like DOTParser but keeps the open
+     * subgraphs in a bit set instead of on the call stack, nesting depth and edge chains cost no stack. Reports
+     * to a StreamingListener in the order of DOTParser's parse events. Whether a statement that starts with a
+     * subgraph is an edge statement is known only once the subgraph is closed, it is entered as a tentative edge
+     * statement and dropped if no edgeop follows. The first syntax error ends the parse.
+     */
+    private static class IterativeParser {
+        private static final String ID_TOKENS = "{NUMBER, STRING, ID, HTML_STRING}";
+
+        private final TokenSource tokenSource;
+        private final StreamingListener listener;
+        private final ParseLimits limits;
+        private final boolean checkTokens;
+        private final Token[] lookahead = new Token[2];
+        private int buffered;
+        private final BitSet operands = new BitSet(); // per open subgraph, whether it is an edge operand
+        private int depth;
+
+        IterativeParser(TokenSource tokenSource, StreamingListener listener, ParseLimits limits) {
+            this.tokenSource = tokenSource;
+            this.listener = listener;
+            this.limits = limits;
+            this.checkTokens = limits.checksTokens();
+        }
+
+        void graph() {
+            if (type(1) == DOTParser.STRICT) consume();
+            if (type(1) != DOTParser.GRAPH && type(1) != DOTParser.DIGRAPH) throw mismatch("{STRICT, GRAPH, DIGRAPH}");
+            consume();
+            if (isId(type(1))) listener.graphId(consume());
+            match(DOTScanner.LBRACE);
+            listener.startGraph();
+            statements();
+            match(DOTScanner.RBRACE);
+            listener.endGraph();
+        }
+
+        /*
+         * a chunk of the top-level stmt_list, up to the end of the input
+         */
+        void chunk() {
+            statements();
+            match(Token.EOF);
+        }
+
+        /*
+         * the statements of the stmt_list and of all subgraphs nested in it, up to the token after the list
+         */
+        private void statements() {
+            for (;;) {
+                int type = type(1);
+                if (type == DOTScanner.RBRACE && depth > 0) {
+                    consume();
+                    listener.exitSubgraph();
+                    limits.exitSubgraph();
+                    if (operands.get(--depth) || isEdgeop(type(1))) {
+                        edgeRHS();
+                    } else {
+                        listener.dropEdgeStmt();
+                        endStmt();
+                    }
+                } else if (type == DOTParser.SUBGRAPH || type == DOTScanner.LBRACE) {
+                    listener.enterEdgeStmt(token(1), true);
+                    subgraph(false);
+                } else if (type == DOTParser.GRAPH || type == DOTParser.NODE || type == DOTParser.EDGE) {
+                    consume();
+                    attrList(type == DOTParser.GRAPH ? listener.graphAttrs : null);
+                    endStmt();
+                } else if (isId(type) && type(2) == DOTScanner.EQUALS) {
+                    listener.stmtId(consume());
+                    consume();
+                    listener.stmtId(matchId());
+                    endStmt();
+                } else if (isId(type)) {
+                    Token id = nodeId();
+                    if (isEdgeop(type(1))) {
+                        listener.enterEdgeStmt(id, false);
+                        listener.nodeId(id, false);
+                        edgeRHS();
+                    } else {
+                        listener.nodeId(id, true);
+                        if (type(1) == DOTScanner.LBRACKET) attrList(listener.nodeAttrs);
+                        listener.endNodeStmt();
+                        endStmt();
+                    }
+                } else if (depth > 0) {
+                    throw mismatch(DOTParser.tokenNames[DOTScanner.RBRACE]);
+                } else {
+                    return;
+                }
+            }
+        }
+
+        /*
+         * the rest of the innermost edge statement, up to a subgraph operand; the statement goes on when that
+         * subgraph is closed
+         */
+        private void edgeRHS() {
+            while (isEdgeop(type(1))) {
+                listener.edgeop(consume());
+                int type = type(1);
+                if (type == DOTParser.SUBGRAPH || type == DOTScanner.LBRACE) {
+                    subgraph(true);
+                    return;
+                }
+                if (!isId(type)) throw mismatch("{SUBGRAPH, '{', NUMBER, STRING, ID, HTML_STRING}");
+                listener.nodeId(nodeId(), false);
+            }
+            if (type(1) == DOTScanner.LBRACKET) attrList(listener.edgeCtx.attrs);
+            listener.exitEdgeStmt();
+            endStmt();
+        }
+
+        /*
+         * opens the subgraph, its statements follow in statements()
+         */
+        private void subgraph(boolean operand) {
+            limits.enterSubgraph(token(1));
+            listener.enterSubgraph();
+            if (type(1) == DOTParser.SUBGRAPH) {
+                consume();
+                if (isId(type(1))) listener.graphId(consume());
+            }
+            match(DOTScanner.LBRACE);
+            listener.startSubgraph();
+            operands.set(depth++, operand);
+        }
+
+        /*
+         * the id of a node_id, its port is skipped
+         */
+        private Token nodeId() {
+            Token id = matchId();
+            if (type(1) == DOTScanner.COLON) {
+                consume();
+                matchId();
+                if (type(1) == DOTScanner.COLON) {
+                    consume();
+                    matchId();
                 }
             }
+            return id;
+        }
+
+        private void attrList(SortedAttributeList attrs) {
+            listener.startAttributes(attrs);
+            do {
+                match(DOTScanner.LBRACKET);
+                if (isId(type(1))) {
+                    listener.startAList();
+                    do {
+                        listener.attributeId(consume());
+                        if (type(1) == DOTScanner.EQUALS) {
+                            consume();
+                            listener.attributeId(matchId());
+                        }
+                        if (type(1) == DOTScanner.COMMA) consume();
+                    } while (isId(type(1)));
+                }
+                match(DOTScanner.RBRACKET);
+            } while (type(1) == DOTScanner.LBRACKET);
+            listener.endAttributes();
+        }
+
+        private void endStmt() {
+            if (type(1) == DOTScanner.SEMICOLON) consume();
+        }
+
+        private static boolean isId(int type) {
+            return type == DOTParser.ID || type == DOTParser.STRING || type == DOTParser.NUMBER || type == DOTParser.HTML_STRING;
+        }
+
+        private static boolean isEdgeop(int type) {
+            return type == DOTScanner.ARROW || type == DOTScanner.DASHDASH;
+        }
+
+        private Token token(int i) {
+            while (buffered < i) lookahead[buffered++] = tokenSource.nextToken();
+            return lookahead[i - 1];
+        }
+
+        private int type(int i) {
+            return token(i).getType();
+        }
+
+        private Token consume() {
+            Token token = token(1);
+            lookahead[0] = lookahead[1];
+            lookahead[1] = null;
+            buffered--;
+            if (checkTokens) limits.checkToken(token);
+            return token;
+        }
+
+        private void match(int type) {
+            if (type(1) != type) throw mismatch(type == Token.EOF ? "<EOF>" : DOTParser.tokenNames[type]);
+            consume();
+        }
+
+        private Token matchId() {
+            if (!isId(type(1))) throw mismatch(ID_TOKENS);
+            return consume();
+        }
+
+        private GraphParserException mismatch(String expecting) {
+            Token token = token(1);
+            String input = token.getType() == Token.EOF ? "<EOF>" : token.getText();
+            return new GraphParserException("at line " + token.getLine() + ":" + token.getCharPositionInLine()
+                    + " mismatched input '" + input + "' expecting " + expecting);
         }
+    }
 
-        private void addEdge(String nodeId1, String nodeId2, Map<String, Object> attrs) {
-            String edgeId = nodeId1 + "-" + nodeId2;
-            DiGraphEdge edge = graph.getEdge(edgeId);
-            if (edge == null) {
-                DiGraphNode node1 = graph.getNode(nodeId1);
-                DiGraphNode node2 = graph.getNode(nodeId2);
-                edge = new DiGraphEdge(edgeId, node1, node2);
-                graph.setEdge(edgeId, edge);
+    /*
+     * DefaultExecutor - Executors.newVirtualThreadPerTaskExecutor() is looked up reflectively, the library is built for
+     * Java 8
+     */
+    private static class DefaultExecutor {
+        static final Executor INSTANCE = create();
+
+        private static Executor create() {
+            try {
+                return (Executor) java.util.concurrent.Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (ReflectiveOperationException e) {
+                return ForkJoinPool.commonPool();
             }
-            edge.setAttributes(attrs);
         }
     }
 
     /*
-     * NodeIdSet
+     * EventLog - node and edge events of a chunk, kept until the chunks before it have been applied, or by a
+     * GraphDocument for as long as the chunk is part of the document
+     */
+    static class EventLog implements GraphEventHandler {
+        private final List<String> ids = new ArrayList<>(); // node id, or source and target id of an edge
+        private final List<AttributeList> attributes = new ArrayList<>(); // one per event
+        private final BitSet edges = new BitSet();
+        private final BitSet bundles = new BitSet(); // edge events of a whole statement
+        private final List<List<String>> bundleIds = new ArrayList<>(); // sources and targets of each bundle
+        private AttributeList edgeAttributes;
+        private AttributeList edgeAttributesCopy;
+
+        @Override
+        public void node(String id, AttributeList attributes) {
+            ids.add(id);
+            this.attributes.add(attributes.size() == 0 ? SortedAttributeList.EMPTY : ((SortedAttributeList) attributes).copy());
+        }
+
+        @Override
+        public void edge(String sourceId, String targetId, AttributeList attributes) {
+            edges.set(this.attributes.size());
+            ids.add(sourceId);
+            ids.add(targetId);
+            this.attributes.add(copy(attributes));
+        }
+
+        @Override
+        public void edges(Collection<String> sourceIds, Collection<String> targetIds, AttributeList attributes) {
+            bundles.set(this.attributes.size());
+            bundleIds.add(new ArrayList<>(sourceIds));
+            bundleIds.add(new ArrayList<>(targetIds));
+            this.attributes.add(copy(attributes));
+        }
+
+        private AttributeList copy(AttributeList attributes) {
+            // all edges of an edge statement are reported with the same list, copy it once
+            if (attributes != edgeAttributes) {
+                edgeAttributes = attributes;
+                edgeAttributesCopy = ((SortedAttributeList) attributes).copy();
+            }
+            return edgeAttributesCopy;
+        }
+
+        /**
+         * Number of edges, a bundle counts its sources times its targets like {@link ParseLimits#edges} does
+         */
+        long edgeCount() {
+            long count = edges.cardinality();
+            for (int i = 0; i < bundleIds.size(); i += 2) {
+                count += (long) bundleIds.get(i).size() * bundleIds.get(i + 1).size();
+            }
+            return count;
+        }
+
+        void replay(GraphEventHandler handler) {
+            int id = 0;
+            int bundle = 0;
+            for (int i = 0; i < attributes.size(); i++) {
+                if (bundles.get(i)) {
+                    handler.edges(bundleIds.get(bundle), bundleIds.get(bundle + 1), attributes.get(i));
+                    bundle += 2;
+                } else if (edges.get(i)) {
+                    handler.edge(ids.get(id), ids.get(id + 1), attributes.get(i));
+                    id += 2;
+                } else {
+                    handler.node(ids.get(id++), attributes.get(i));
+                }
+            }
+        }
+    }
+
+    /*
+     * LimitListener - parse listener that checks tokens, nesting and time while the parser runs, in both modes
+     */
+    private static class LimitListener extends DOTBaseListener {
+        private final ParseLimits limits;
+
+        LimitListener(ParseLimits limits) {
+            this.limits = limits;
+        }
+
+        @Override
+        public void visitTerminal(@NotNull TerminalNode node) {
+            limits.checkToken(node.getSymbol());
+        }
+
+        @Override
+        public void enterSubgraph(@NotNull DOTParser.SubgraphContext ctx) {
+            limits.enterSubgraph(ctx.getStart());
+        }
+
+        @Override
+        public void exitSubgraph(@NotNull DOTParser.SubgraphContext ctx) {
+            limits.exitSubgraph();
+        }
+    }
+
+    /*
+     * LimitedInputStream - fails once more than the input limit has been read
      */
-    private static class NodeIdSet extends TreeSet<String> {
-        public NodeIdSet() {
-            super();
+    private static class LimitedInputStream extends FilterInputStream {
+        private final ParseLimits limits;
+        private long count;
+
+        LimitedInputStream(InputStream in, ParseLimits limits) {
+            super(in);
+            this.limits = limits;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) limits.checkInput(++count);
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if (read > 0) limits.checkInput(count += read);
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            limits.checkInput(count += skipped);
+            return skipped;
         }
+    }
+
+    /*
+     * PendingEdges
+     */
+    private static class PendingEdges {
+        final List<String> src;
+        final List<String> dest;
+        final AttributeList attrs;
 
-        public NodeIdSet(NodeIdSet other) {
-            super(other);
+        PendingEdges(List<String> src, List<String> dest, AttributeList attrs) {
+            this.src = src;
+            this.dest = dest;
+            this.attrs = attrs;
         }
     }
 
     /*
-     * GraphCtx
+     * StreamEdgeCtx - EdgeCtx of StreamingListener, the attribute list is filled in when the parser gets to it
+     */
+    private static class StreamEdgeCtx {
+        StreamEdgeCtx parent;
+        GraphCtx src;
+        GraphCtx dest;
+        boolean srcFlag = true;
+        boolean tentative;
+        final Token start;
+        final SortedAttributeList attrs = new SortedAttributeList();
+
+        StreamEdgeCtx(StreamEdgeCtx parent, GraphCtx src, GraphCtx dest, Token start) {
+            this.parent = parent;
+            this.src = src;
+            this.dest = dest;
+            this.start = start;
+        }
+    }
+
+    /*
+     * GraphCtx - a subgraph or edge operand. Node ids go once into the listener's list, the nodes of a context
+     * are the range of the list added while it was open, which includes the ranges of the contexts nested in it.
+     * The range is sorted and deduplicated when the nodes are needed.
      */
     private static class GraphCtx {
-        GraphCtx parent;
-        NodeIdSet graph = new NodeIdSet();
+        final GraphCtx parent;
+        private final List<String> nodeIds;
+        private int start = -1;
+        private int end = -1;
+        private List<String> nodes;
 
-        GraphCtx(GraphCtx parent) {
+        GraphCtx(GraphCtx parent, List<String> nodeIds) {
             this.parent = parent;
+            this.nodeIds = nodeIds;
+        }
+
+        /*
+         * becomes the innermost context, the ids added from now on are its nodes
+         */
+        GraphCtx open() {
+            start = nodeIds.size();
+            return this;
         }
 
-        void addNode(String nodeId) {
-            graph.add(nodeId);
-            if (parent != null) parent.addNode(nodeId);
+        GraphCtx close() {
+            end = nodeIds.size();
+            return parent;
+        }
+
+        /*
+         * sorted node ids without duplicates
+         */
+        List<String> nodes() {
+            if (nodes != null) return nodes;
+            int to = end < 0 ? nodeIds.size() : end;
+            List<String> result;
+            if (start < 0 || start == to) {
+                result = Collections.emptyList();
+            } else if (to - start == 1) {
+                result = Collections.singletonList(nodeIds.get(start));
+            } else {
+                String[] ids = nodeIds.subList(start, to).toArray(new String[0]);
+                Arrays.sort(ids);
+                int n = 1;
+                for (int i = 1; i < ids.length; i++) {
+                    if (!ids[i].equals(ids[n - 1])) ids[n++] = ids[i];
+                }
+                result = Arrays.asList(n == ids.length ? ids : Arrays.copyOf(ids, n));
+            }
+            if (end >= 0) nodes = result;
+            return result;
         }
 
         public String toString() {
-            return graph.toString();
+            return nodes().toString();
         }
     }
 
@@ -309,11 +1700,11 @@ public class GraphParser {
         boolean srcFlag = true;
         Map<String, Object> attrs = new TreeMap<>();
 
-        EdgeCtx(EdgeCtx parent, GraphCtx src, GraphCtx dest, DOTParser.Attr_listContext ctx) {
+        EdgeCtx(EdgeCtx parent, GraphCtx src, GraphCtx dest, DOTParser.Attr_listContext ctx, TokenText text, GraphFilter filter) {
             this.parent = parent;
             this.src = src;
             this.dest = dest;
-            populateAttributes(ctx, attrs);
+            populateAttributes(ctx, attrs, text, filter);
         }
 
         public String toString() {
@@ -321,6 +1712,43 @@ public class GraphParser {
         }
     }
 
+    /*
+     * ReusableTokenStream - setTokenSource of the 4.2 runtime keeps the fetchedEOF flag of the previous source
+     */
+    private static class ReusableTokenStream extends CommonTokenStream {
+        ReusableTokenStream(TokenSource tokenSource) {
+            super(tokenSource);
+        }
+
+        @Override
+        public void setTokenSource(TokenSource tokenSource) {
+            super.setTokenSource(tokenSource);
+            fetchedEOF = false;
+        }
+    }
+
+    /*
+     * LookaheadTokenStream - UnbufferedTokenStream moves the tokens still ahead to the start of its buffer on every
+     * release. Deciding whether a top-level subgraph is an edge operand looks ahead to its closing brace, every
+     * statement inside it would then move the rest of the subgraph. The consumed tokens are dropped once they are at
+     * least as many as the tokens ahead, which keeps the moves linear in the input.
+     */
+    private static class LookaheadTokenStream extends UnbufferedTokenStream<Token> {
+        LookaheadTokenStream(TokenSource tokenSource) {
+            super(tokenSource);
+        }
+
+        @Override
+        public void release(int marker) {
+            if (numMarkers == 1 && marker == -1 && p > 0 && p < n - p) {
+                numMarkers = 0;
+                lastTokenBufferStart = lastToken;
+                return;
+            }
+            super.release(marker);
+        }
+    }
+
     /*
      * ErrorListener
      */
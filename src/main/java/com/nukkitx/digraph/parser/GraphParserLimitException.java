@@ -0,0 +1,57 @@
+package com.nukkitx.digraph.parser;
+
+/**
+ * Thrown as soon as a parse goes beyond one of the limits set in {@link GraphParserOptions}; nothing more of the
+ * input is read.
+ */
+public class GraphParserLimitException extends GraphParserException {
+    private final Limit limit;
+    private final long maxValue;
+
+    public GraphParserLimitException(String msg, Limit limit, long maxValue) {
+        super(msg);
+        this.limit = limit;
+        this.maxValue = maxValue;
+    }
+
+    /**
+     * The limit that was exceeded.
+     */
+    public Limit getLimit() {
+        return limit;
+    }
+
+    /**
+     * The value the limit was set to.
+     */
+    public long getMaxValue() {
+        return maxValue;
+    }
+
+    public enum Limit {
+        /**
+         * {@link GraphParserOptions#setMaxInputBytes}
+         */
+        INPUT_BYTES,
+        /**
+         * {@link GraphParserOptions#setMaxNodes}
+         */
+        NODES,
+        /**
+         * {@link GraphParserOptions#setMaxEdges}
+         */
+        EDGES,
+        /**
+         * {@link GraphParserOptions#setMaxNestingDepth}
+         */
+        NESTING_DEPTH,
+        /**
+         * {@link GraphParserOptions#setMaxStringLength}
+         */
+        STRING_LENGTH,
+        /**
+         * {@link GraphParserOptions#setTimeoutMillis}
+         */
+        TIME
+    }
+}
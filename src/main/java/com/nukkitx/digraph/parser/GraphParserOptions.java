@@ -0,0 +1,295 @@
+package com.nukkitx.digraph.parser;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Options for {@link GraphParser#parse(java.io.InputStream, GraphParserOptions)}. The defaults match
+ * {@link GraphParser#parse(java.io.InputStream)}.
+ */
+public class GraphParserOptions {
+    private ParseMode parseMode = ParseMode.TREE;
+    private Lexer lexer = Lexer.ANTLR;
+    private Charset charset = StandardCharsets.UTF_8;
+    private Prediction prediction = Prediction.LL;
+    private ForkJoinPool forkJoinPool;
+    private DfaCache dfaCache = DfaCache.SHARED;
+    private boolean snapshots;
+    private boolean lazyAttributes;
+    private SymbolTable symbolTable;
+    private GraphFilter filter;
+    private boolean columnarAttributes;
+    private long maxInputBytes = Long.MAX_VALUE;
+    private int maxNodes = Integer.MAX_VALUE;
+    private long maxEdges = Long.MAX_VALUE;
+    private int maxNestingDepth = Integer.MAX_VALUE;
+    private int maxStringLength = Integer.MAX_VALUE;
+    private long timeoutMillis = Long.MAX_VALUE;
+    private int minBundleEdges = Integer.MAX_VALUE;
+
+    public ParseMode getParseMode() {
+        return parseMode;
+    }
+
+    public void setParseMode(ParseMode parseMode) {
+        this.parseMode = parseMode;
+    }
+
+    public Lexer getLexer() {
+        return lexer;
+    }
+
+    public void setLexer(Lexer lexer) {
+        this.lexer = lexer;
+    }
+
+    public Charset getCharset() {
+        return charset;
+    }
+
+    /**
+     * Charset of file, byte array and buffer inputs, UTF-8 by default. US-ASCII, ISO-8859-1 and UTF-8 are read directly from
+     * the bytes, other charsets are decoded up front. {@code InputStream}s are read with the platform charset.
+     */
+    public void setCharset(Charset charset) {
+        this.charset = charset;
+    }
+
+    public Prediction getPrediction() {
+        return prediction;
+    }
+
+    public void setPrediction(Prediction prediction) {
+        this.prediction = prediction;
+    }
+
+    public ForkJoinPool getForkJoinPool() {
+        return forkJoinPool;
+    }
+
+    /**
+     * Pool to parse large graphs on, {@code null} (the default) parses on the calling thread. The top-level statements are
+     * split into chunks that are parsed in parallel and applied to the graph in input order, the result is the same as
+     * with the parse mode set. Only the methods returning a {@code DiGraph} use the pool. Inputs that cannot be split, and
+     * inputs with errors, are parsed on the calling thread; errors are reported as without a pool.
+     */
+    public void setForkJoinPool(ForkJoinPool forkJoinPool) {
+        this.forkJoinPool = forkJoinPool;
+    }
+
+    public DfaCache getDfaCache() {
+        return dfaCache;
+    }
+
+    public void setDfaCache(DfaCache dfaCache) {
+        this.dfaCache = dfaCache;
+    }
+
+    public boolean isSnapshots() {
+        return snapshots;
+    }
+
+    /**
+     * Whether {@link GraphParser#parse(java.nio.file.Path, GraphParserOptions)} keeps a binary snapshot of the graph
+     * next to the file, named like the file with {@code .snapshot} appended. A snapshot that matches the size,
+     * modification time and content hash of the file is loaded instead of parsing it; otherwise the file is parsed
+     * and the snapshot written. Snapshots that cannot be written, in a read-only directory for example, are skipped.
+     * Parses with limits other than {@link #setMaxInputBytes} neither read nor write snapshots.
+     */
+    public void setSnapshots(boolean snapshots) {
+        this.snapshots = snapshots;
+    }
+
+    public boolean isLazyAttributes() {
+        return lazyAttributes;
+    }
+
+    /**
+     * Whether attribute values are kept as spans of the input and only decoded, unquoted and unescaped when
+     * {@link com.nukkitx.digraph.DiGraphElement#getAttribute} reads them. The attribute maps hold
+     * {@link com.nukkitx.digraph.LazyAttribute}s in that mode, and the graph keeps the input alive: byte arrays and
+     * buffers must not be changed while it is in use, files are read into the heap instead of being mapped.
+     * Streaming parses from an {@code InputStream} decode values eagerly. Lazy parses of files neither read nor
+     * write snapshots.
+     */
+    public void setLazyAttributes(boolean lazyAttributes) {
+        this.lazyAttributes = lazyAttributes;
+    }
+
+    public SymbolTable getSymbolTable() {
+        return symbolTable;
+    }
+
+    /**
+     * Table the node ids, attribute keys and unquoted attribute values of parsed graphs are interned in, so each
+     * distinct string is kept once; share one table between parses to share the strings between their graphs.
+     * {@code null} (the default) interns nothing. Values of a lazy parse are not interned. Parses of files with a
+     * table neither read nor write snapshots.
+     */
+    public void setSymbolTable(SymbolTable symbolTable) {
+        this.symbolTable = symbolTable;
+    }
+
+    public GraphFilter getFilter() {
+        return filter;
+    }
+
+    /**
+     * Nodes, edges and attribute keys to materialize, the parser drops the rest as it reads them. {@code null} (the
+     * default) keeps everything. Filtered parses of files neither read nor write snapshots.
+     */
+    public void setFilter(GraphFilter filter) {
+        this.filter = filter;
+    }
+
+    public boolean isColumnarAttributes() {
+        return columnarAttributes;
+    }
+
+    /**
+     * Whether parsed graphs keep their attributes in columns, see
+     * {@link com.nukkitx.digraph.DiGraph#setColumnarAttributes}. Numbers are read into
+     * {@link com.nukkitx.digraph.NumberAttribute}s; edges kept in bundles (see {@link #setMinBundleEdges}) keep
+     * their attributes in the bundle. Columnar parses of files neither read nor write snapshots. A
+     * {@link GraphFollower} keeps columnar attributes too, a {@link GraphDocument} rejects the option.
+     */
+    public void setColumnarAttributes(boolean columnarAttributes) {
+        this.columnarAttributes = columnarAttributes;
+    }
+
+    public long getMaxInputBytes() {
+        return maxInputBytes;
+    }
+
+    /**
+     * Largest input a parse accepts; streams are read no further than that. Decoded inputs count characters. The
+     * limits below are unset by default; a parse that exceeds one fails with a {@link GraphParserLimitException}.
+     * They apply to the {@code GraphParser} parse methods. A {@link GraphDocument} or {@link GraphFollower} checks the
+     * input size, node and edge limits against its whole text or file, the others against each statement range it
+     * parses.
+     */
+    public void setMaxInputBytes(long maxInputBytes) {
+        this.maxInputBytes = maxInputBytes;
+    }
+
+    public int getMaxNodes() {
+        return maxNodes;
+    }
+
+    /**
+     * Most distinct node ids a graph may have.
+     */
+    public void setMaxNodes(int maxNodes) {
+        this.maxNodes = maxNodes;
+    }
+
+    public long getMaxEdges() {
+        return maxEdges;
+    }
+
+    /**
+     * Most edges the statements of a graph may describe, an edge stated twice counts twice. Edge statements between
+     * subgraphs are checked before their edges are made, {@code {a1 ... a5000} -> {b1 ... b5000}} fails without
+     * creating any of the 25 million.
+     */
+    public void setMaxEdges(long maxEdges) {
+        this.maxEdges = maxEdges;
+    }
+
+    public int getMaxNestingDepth() {
+        return maxNestingDepth;
+    }
+
+    /**
+     * Deepest nesting of subgraphs, the statements of the graph itself are at depth 0.
+     */
+    public void setMaxNestingDepth(int maxNestingDepth) {
+        this.maxNestingDepth = maxNestingDepth;
+    }
+
+    public int getMaxStringLength() {
+        return maxStringLength;
+    }
+
+    /**
+     * Longest id, number or quoted string, quotes included. Counted in characters, in bytes for UTF-8 inputs read
+     * from bytes.
+     */
+    public void setMaxStringLength(int maxStringLength) {
+        this.maxStringLength = maxStringLength;
+    }
+
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    /**
+     * Wall-clock time a parse may take, checked while it runs.
+     */
+    public void setTimeoutMillis(long timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    public int getMinBundleEdges() {
+        return minBundleEdges;
+    }
+
+    /**
+     * Edge statements between subgraphs that make at least this many edges, like {@code {a b c} -> {d e f}}, are
+     * kept as one bundle of their sources, targets and attributes; the {@code GraphParser} parse methods return a
+     * graph whose edge map makes the edges of a bundle when they are read. Iterating the edges makes new edge
+     * objects each time, {@code get} keeps the edge it made; removals and navigation other than iteration expand
+     * all bundles. Unset by default, values below 2 count as 2. Parses of files that bundle edges neither read nor
+     * write snapshots. A {@link GraphFollower} bundles edges too, a {@link GraphDocument} rejects the option.
+     */
+    public void setMinBundleEdges(int minBundleEdges) {
+        this.minBundleEdges = minBundleEdges;
+    }
+
+    /**
+     * Tokenizer that feeds the parser.
+     */
+    public enum Lexer {
+        /**
+         * The lexer generated from {@code DOT.g4}.
+         */
+        ANTLR,
+        /**
+         * The hand-written {@link DOTScanner}, same tokens without the ATN simulation.
+         */
+        SCANNER
+    }
+
+    /**
+     * Adaptive prediction strategy of the generated parser.
+     */
+    public enum Prediction {
+        /**
+         * Full LL prediction, always correct, slowest.
+         */
+        LL,
+        /**
+         * Parse with the faster SLL prediction and a bail-out error strategy first, parse again with full LL only
+         * if that fails. Valid input is normally accepted in the first stage; invalid input is parsed twice so the error
+         * message is the one full LL reports.
+         */
+        TWO_STAGE
+    }
+
+    /**
+     * Where the generated lexer and parser keep the prediction DFAs they build while parsing.
+     */
+    public enum DfaCache {
+        /**
+         * One set of DFAs for all threads, as generated. ANTLR locks a DFA while it adds states to it, threads parsing
+         * unfamiliar input at the same time wait for each other.
+         */
+        SHARED,
+        /**
+         * A fixed number of DFA sets, about one per processor, each thread uses the one its id maps to. Less contention
+         * at the cost of warming up every stripe; stripes start as a copy of the shared DFAs.
+         */
+        STRIPED
+    }
+}
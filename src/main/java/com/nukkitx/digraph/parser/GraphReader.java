@@ -0,0 +1,651 @@
+package com.nukkitx.digraph.parser;
+
+import com.nukkitx.digraph.parser.antlr.DOTParser;
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.UnbufferedCharStream;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Pull parser for DOT input, the cursor counterpart of {@link GraphEventHandler}.
+ * <p>
+ * Each call to {@link #next()} reads just enough input to produce the next event and returns its type, the
+ * accessors then describe the current event. The events and their order are the same as the ones
+ * {@link GraphParser#parse(InputStream, GraphEventHandler)} reports, including edges being held back until their
+ * outermost edge statement is complete.
+ * <pre>
+ * try (GraphReader reader = new GraphReader(stream)) {
+ *     while (reader.next() != GraphReader.EventType.END_DOCUMENT) {
+ *         if (reader.currentType() == GraphReader.EventType.NODE) {
+ *             batch.add(reader.nodeId(), reader.attribute("label"));
+ *         }
+ *     }
+ * }
+ * </pre>
+ * The parser uses {@link DOTScanner} and does not recurse, nesting depth is only limited by the heap. Memory use
+ * is bounded by the largest statement: the events of a subgraph statement are held until the token after its
+ * closing brace shows whether it starts an edge statement, just like the generated parser holds its tokens for
+ * the same decision. Input after the closing brace of the graph is not read.
+ */
+public class GraphReader implements Closeable {
+
+    public enum EventType {
+        START_GRAPH, END_GRAPH, ENTER_SUBGRAPH, EXIT_SUBGRAPH, NODE, EDGE, ATTRIBUTE, END_DOCUMENT
+    }
+
+    private static final int S_START = 0;
+    private static final int S_STMT = 1;                 // in a block, next is a statement or '}'
+    private static final int S_STMT_END = 2;             // a statement ended, an optional ';' may follow
+    private static final int S_AFTER_SUBGRAPH_STMT = 3;  // a subgraph statement ended, it may be an edge source
+    private static final int S_AFTER_OPERAND = 4;        // an edge operand ended, next is an edgeop or the end
+    private static final int S_DONE = 5;
+
+    private final InputStream is;
+    private final CharStream input;
+    private final DOTScanner scanner;
+
+    // lookahead token
+    private int la;
+    private String laText;
+
+    // current event
+    private EventType type;
+    private String id;
+    private String targetId;
+    private AttributeList attributes = SortedAttributeList.EMPTY;
+
+    private int state = S_START;
+    private Block block;
+    private EdgeStmt edgeStmt;
+    private Block closedSubgraph;
+    private final SortedAttributeList nodeAttrs = new SortedAttributeList();
+    private final SortedAttributeList graphAttrs = new SortedAttributeList();
+    private final List<PendingEdges> pendingEdges = new ArrayList<>();
+    private final List<String> nodeIds = new ArrayList<>(); // node ids of the open operands, see Operand
+
+    // events produced but not returned yet; while a subgraph statement is open at top level its events are
+    // logged instead, until the token after it tells whether it is the source of an edge statement
+    private final ArrayDeque<Event> ready = new ArrayDeque<>();
+    private final List<Event> log = new ArrayList<>();
+    private int logDepth;
+
+    // edges of a finished outermost edge statement, returned one event at a time
+    private Iterator<PendingEdges> pendingIterator;
+    private PendingEdges pending;
+    private Iterator<String> srcIterator;
+    private Iterator<String> destIterator;
+    private String src;
+
+    public GraphReader(InputStream is) {
+        this.is = is;
+        this.input = new UnbufferedCharStream(is);
+        this.scanner = new DOTScanner(input);
+    }
+
+    /**
+     * Advances to the next event and returns its type. Once {@link EventType#END_DOCUMENT} has been returned
+     * further calls keep returning it.
+     *
+     * @throws GraphParserException if the input is not a valid DOT graph
+     */
+    public EventType next() throws GraphParserException {
+        attributes = SortedAttributeList.EMPTY;
+        nodeAttrs.clear();
+        type = null;
+        for (; ; ) {
+            if (nextEdge()) return type;
+            Event event = ready.poll();
+            if (event != null) {
+                if (event.edges != null) {
+                    pendingIterator = event.edges.iterator();
+                    continue;
+                }
+                type = event.type;
+                id = event.id;
+                targetId = null;
+                attributes = event.attributes;
+                return type;
+            }
+            step();
+            if (type != null) return type;
+        }
+    }
+
+    public EventType currentType() {
+        return type;
+    }
+
+    /**
+     * Id of the graph or subgraph for {@link EventType#START_GRAPH} and {@link EventType#ENTER_SUBGRAPH} as
+     * written, quotes included, or {@code null} if it has none.
+     */
+    public String graphId() {
+        return type == EventType.START_GRAPH || type == EventType.ENTER_SUBGRAPH ? id : null;
+    }
+
+    /**
+     * Node id of a {@link EventType#NODE} event.
+     */
+    public String nodeId() {
+        return type == EventType.NODE ? id : null;
+    }
+
+    /**
+     * Source node id of an {@link EventType#EDGE} event.
+     */
+    public String sourceId() {
+        return type == EventType.EDGE ? id : null;
+    }
+
+    /**
+     * Target node id of an {@link EventType#EDGE} event.
+     */
+    public String targetId() {
+        return type == EventType.EDGE ? targetId : null;
+    }
+
+    /**
+     * Attributes of the current {@link EventType#NODE} or {@link EventType#EDGE} event; for an
+     * {@link EventType#ATTRIBUTE} event the single graph attribute. Valid until the next call to {@link #next()}.
+     */
+    public AttributeList attributes() {
+        return attributes;
+    }
+
+    public int attributeCount() {
+        return attributes.size();
+    }
+
+    public String attributeKey(int index) {
+        return attributes.getKey(index);
+    }
+
+    public String attribute(int index) {
+        return attributes.getValue(index);
+    }
+
+    public String attribute(String key) {
+        return attributes.getValue(key);
+    }
+
+    @Override
+    public void close() throws IOException {
+        state = S_DONE;
+        is.close();
+    }
+
+    /*
+     * Runs the parser until it has either set an event or changed state
+     */
+    private void step() {
+        switch (state) {
+            case S_START:
+                advance();
+                if (la == DOTParser.STRICT) advance();
+                if (la != DOTParser.GRAPH && la != DOTParser.DIGRAPH) throw mismatch("{'graph', 'digraph'}");
+                advance();
+                String graphId = null;
+                if (isId(la)) {
+                    graphId = laText;
+                    advance();
+                }
+                expect(DOTScanner.LBRACE);
+                block = new Block(null, true, false, null, -1);
+                emit(EventType.START_GRAPH, graphId);
+                state = S_STMT;
+                return;
+            case S_STMT:
+                if (block.ctx == null) nodeIds.clear(); // no operand is open at graph level
+                statement();
+                return;
+            case S_STMT_END:
+                if (la == DOTScanner.SEMICOLON) advance();
+                state = S_STMT;
+                return;
+            case S_AFTER_SUBGRAPH_STMT: {
+                Block closed = closedSubgraph;
+                closedSubgraph = null;
+                boolean edgeSource = la == DOTScanner.ARROW || la == DOTScanner.DASHDASH;
+                if (closed.logStart >= 0) closeLog(closed.logStart, edgeSource);
+                if (edgeSource) {
+                    edgeStmt = new EdgeStmt(edgeStmt, closed.ctx);
+                    state = S_AFTER_OPERAND;
+                } else {
+                    state = S_STMT_END;
+                }
+                return;
+            }
+            case S_AFTER_OPERAND:
+                edgeOperand();
+                return;
+            default:
+                emit(EventType.END_DOCUMENT, null);
+        }
+    }
+
+    private void statement() {
+        switch (la) {
+            case DOTScanner.RBRACE: {
+                advanceIfOpen();
+                Block closed = block;
+                block = closed.parent;
+                if (closed.ctx != null) closed.ctx.close();
+                if (closed.graph) {
+                    emit(EventType.END_GRAPH, null);
+                    state = S_DONE;
+                    return;
+                }
+                emit(EventType.EXIT_SUBGRAPH, null);
+                if (closed.operand) {
+                    state = S_AFTER_OPERAND;
+                } else {
+                    closedSubgraph = closed;
+                    state = S_AFTER_SUBGRAPH_STMT;
+                }
+                return;
+            }
+            case DOTScanner.LBRACE:
+            case DOTParser.SUBGRAPH:
+                openSubgraph(false, new Operand(block.ctx, nodeIds));
+                return;
+            case DOTParser.GRAPH:
+            case DOTParser.NODE:
+            case DOTParser.EDGE: {
+                boolean graphDefaults = la == DOTParser.GRAPH;
+                advance();
+                if (la != DOTScanner.LBRACKET) throw mismatch("'['");
+                attrList(graphDefaults ? graphAttrs : null);
+                for (int i = 0; i < graphAttrs.size(); i++) {
+                    queue(new Event(EventType.ATTRIBUTE, null, pair(graphAttrs.getKey(i), graphAttrs.getValue(i))));
+                }
+                graphAttrs.clear();
+                state = S_STMT_END;
+                return;
+            }
+            default:
+                if (!isId(la)) throw mismatch("{'}', '{', 'subgraph', 'graph', 'node', 'edge', ID, STRING, HTML_STRING, NUMBER}");
+        }
+
+        int textType = la;
+        String text = laText;
+        advance();
+        if (la == DOTScanner.EQUALS) {
+            advance();
+            if (!isId(la)) throw mismatch("{ID, STRING, HTML_STRING, NUMBER}");
+            String value = attributeText(la, laText);
+            advance();
+            queue(new Event(EventType.ATTRIBUTE, null, pair(attributeText(textType, text), value)));
+            state = S_STMT_END;
+            return;
+        }
+        port();
+        if (la == DOTScanner.ARROW || la == DOTScanner.DASHDASH) {
+            edgeStmt = new EdgeStmt(edgeStmt, new Operand(block.ctx, nodeIds));
+            nodeIds.add(text);
+            emit(EventType.NODE, text);
+            state = S_AFTER_OPERAND;
+            return;
+        }
+        if (block.ctx != null) nodeIds.add(text);
+        nodeAttrs.clear(); // a logged subgraph runs many node statements in one next()
+        if (la == DOTScanner.LBRACKET) attrList(nodeAttrs);
+        emit(EventType.NODE, text);
+        attributes = nodeAttrs;
+        state = S_STMT_END;
+        if (logDepth > 0) log.get(log.size() - 1).attributes = nodeAttrs.copy();
+    }
+
+    private void edgeOperand() {
+        EdgeStmt e = edgeStmt;
+        if (la == DOTScanner.ARROW || la == DOTScanner.DASHDASH) {
+            advance();
+            if (e.dest == null) {
+                // nothing to connect yet
+                e.src.close();
+            } else {
+                e.dest.close();
+                pendingEdges.add(new PendingEdges(e.src.nodes(), e.dest.nodes(), e.attrs));
+                e.src = e.dest;
+            }
+            e.dest = new Operand(e.src.parent, nodeIds);
+            if (isId(la)) {
+                String text = laText;
+                advance();
+                port();
+                nodeIds.add(text);
+                emit(EventType.NODE, text);
+            } else if (la == DOTScanner.LBRACE || la == DOTParser.SUBGRAPH) {
+                openSubgraph(true, e.dest);
+            } else {
+                throw mismatch("{'{', 'subgraph', ID, STRING, HTML_STRING, NUMBER}");
+            }
+            return;
+        }
+
+        if (la == DOTScanner.LBRACKET) attrList(e.attrs);
+        e.dest.close();
+        pendingEdges.add(new PendingEdges(e.src.nodes(), e.dest.nodes(), e.attrs));
+        edgeStmt = e.parent;
+        state = S_STMT_END;
+        if (edgeStmt == null) {
+            queue(new Event(new ArrayList<>(pendingEdges)));
+            pendingEdges.clear();
+        }
+    }
+
+    private void openSubgraph(boolean operand, Operand ctx) {
+        String graphId = null;
+        if (la == DOTParser.SUBGRAPH) {
+            advance();
+            if (isId(la)) {
+                graphId = laText;
+                advance();
+            }
+        }
+        expect(DOTScanner.LBRACE);
+        int logStart = -1;
+        if (!operand && edgeStmt == null) {
+            logStart = log.size();
+            logDepth++;
+        }
+        block = new Block(block, false, operand, ctx, logStart);
+        emit(EventType.ENTER_SUBGRAPH, graphId);
+        state = S_STMT;
+    }
+
+    /*
+     * port : ':' id (':' id)? ; port ids are not kept
+     */
+    private void port() {
+        if (la != DOTScanner.COLON) return;
+        advance();
+        if (!isId(la)) throw mismatch("{ID, STRING, HTML_STRING, NUMBER}");
+        advance();
+        if (la != DOTScanner.COLON) return;
+        advance();
+        if (!isId(la)) throw mismatch("{ID, STRING, HTML_STRING, NUMBER}");
+        advance();
+    }
+
+    /*
+     * attr_list : ('[' a_list? ']')+ ; a_list : (id ('=' id)? ','?)+ ;
+     * Ids are paired up in order within each bracket, like GraphParser does. attrs may be null to discard.
+     */
+    private void attrList(SortedAttributeList attrs) {
+        do {
+            advance();
+            String key = null;
+            while (la != DOTScanner.RBRACKET) {
+                key = attrId(attrs, key);
+                if (la == DOTScanner.EQUALS) {
+                    advance();
+                    key = attrId(attrs, key);
+                }
+                if (la == DOTScanner.COMMA) advance();
+            }
+            advance();
+        } while (la == DOTScanner.LBRACKET);
+    }
+
+    /*
+     * Reads an id of an a_list, returns the key still waiting for its value
+     */
+    private String attrId(SortedAttributeList attrs, String key) {
+        if (!isId(la)) throw mismatch("{']', ID, STRING, HTML_STRING, NUMBER}");
+        String text = attributeText(la, laText);
+        advance();
+        if (key == null) return text;
+        if (attrs != null) attrs.put(key, text);
+        return null;
+    }
+
+    /*
+     * Ends the log of a subgraph statement. Edges it flushed are put back if the subgraph turns out to be the
+     * source of an edge statement, they then belong to that statement.
+     */
+    private void closeLog(int logStart, boolean edgeSource) {
+        if (edgeSource) {
+            for (int i = logStart; i < log.size(); ) {
+                Event event = log.get(i);
+                if (event.edges != null) {
+                    pendingEdges.addAll(event.edges);
+                    log.remove(i);
+                } else {
+                    i++;
+                }
+            }
+        }
+        if (--logDepth == 0) {
+            ready.addAll(log);
+            log.clear();
+        }
+    }
+
+    private boolean nextEdge() {
+        for (; ; ) {
+            if (destIterator != null && destIterator.hasNext()) {
+                type = EventType.EDGE;
+                id = src;
+                targetId = destIterator.next();
+                attributes = pending.attrs;
+                return true;
+            }
+            if (srcIterator != null && srcIterator.hasNext() && !pending.dest.isEmpty()) {
+                src = srcIterator.next();
+                destIterator = pending.dest.iterator();
+                continue;
+            }
+            if (pendingIterator == null || !pendingIterator.hasNext()) {
+                pendingIterator = null;
+                srcIterator = null;
+                destIterator = null;
+                return false;
+            }
+            pending = pendingIterator.next();
+            srcIterator = pending.src.iterator();
+            destIterator = null;
+        }
+    }
+
+    private void emit(EventType eventType, String eventId) {
+        if (logDepth > 0) {
+            log.add(new Event(eventType, eventId, SortedAttributeList.EMPTY));
+            return;
+        }
+        type = eventType;
+        id = eventId;
+        targetId = null;
+    }
+
+    private void queue(Event event) {
+        if (logDepth > 0) {
+            log.add(event);
+        } else {
+            ready.add(event);
+        }
+    }
+
+    private static SortedAttributeList pair(String key, String value) {
+        SortedAttributeList list = new SortedAttributeList();
+        list.put(key, value);
+        return list;
+    }
+
+    private static String attributeText(int tokenType, String text) {
+        if (tokenType == DOTParser.STRING) {
+            int length = text.length();
+            if (length >= 2 && text.charAt(0) == '"' && text.charAt(length - 1) == '"') {
+                text = text.substring(1, length - 1);
+            }
+            text = text.replace("\\\"", "\"");
+        }
+        return text;
+    }
+
+    private static boolean isId(int tokenType) {
+        return tokenType == DOTParser.ID || tokenType == DOTParser.STRING
+                || tokenType == DOTParser.HTML_STRING || tokenType == DOTParser.NUMBER;
+    }
+
+    private void expect(int tokenType) {
+        if (la != tokenType) throw mismatch(DOTParser.tokenNames[tokenType]);
+        advanceIfOpen();
+    }
+
+    /*
+     * The closing brace of the graph is the last token read
+     */
+    private void advanceIfOpen() {
+        if (block != null && block.graph && la == DOTScanner.RBRACE) {
+            la = Token.INVALID_TYPE;
+            laText = null;
+            return;
+        }
+        advance();
+    }
+
+    private void advance() {
+        int marker = input.mark();
+        try {
+            la = scanner.next();
+            laText = la == Token.EOF || DOTParser.tokenNames[la].charAt(0) == '\'' ? null : scanner.text();
+        } finally {
+            input.release(marker);
+        }
+    }
+
+    private GraphParserException mismatch(String expected) {
+        String display;
+        if (la == Token.EOF) {
+            display = "<EOF>";
+        } else if (laText != null) {
+            display = "'" + laText + "'";
+        } else {
+            display = DOTParser.tokenNames[la];
+        }
+        return new GraphParserException("at line " + scanner.line() + ":" + scanner.charPositionInLine()
+                + " mismatched input " + display + " expecting " + expected);
+    }
+
+    /*
+     * Block - graph or subgraph body
+     */
+    private static class Block {
+        final Block parent;
+        final boolean graph;
+        final boolean operand;
+        final Operand ctx; // collects the ids of the block, null for the graph itself
+        final int logStart; // first log entry of a subgraph statement at top level, -1 otherwise
+
+        Block(Block parent, boolean graph, boolean operand, Operand ctx, int logStart) {
+            this.parent = parent;
+            this.graph = graph;
+            this.operand = operand;
+            this.ctx = ctx;
+            this.logStart = logStart;
+        }
+    }
+
+    /*
+     * Operand - node ids of an edge operand, or of a subgraph statement that may still turn out to be one. Node ids
+     * go once into the reader's list, the ids of an operand are the range of the list added while it was open, which
+     * includes the ranges of the operands nested in it. The range is sorted and deduplicated when the edges of the
+     * operand are queued, the list is cleared at the next statement of the graph itself.
+     */
+    private static class Operand {
+        final Operand parent;
+        private final List<String> nodeIds;
+        private final int start;
+        private int end = -1;
+        private List<String> nodes;
+
+        Operand(Operand parent, List<String> nodeIds) {
+            this.parent = parent;
+            this.nodeIds = nodeIds;
+            this.start = nodeIds.size();
+        }
+
+        void close() {
+            if (end < 0) end = nodeIds.size();
+        }
+
+        /*
+         * the sorted, distinct ids of the closed operand
+         */
+        List<String> nodes() {
+            if (nodes != null) return nodes;
+            if (end - start <= 1) {
+                return nodes = end == start ? Collections.<String>emptyList() : Collections.singletonList(nodeIds.get(start));
+            }
+            String[] ids = nodeIds.subList(start, end).toArray(new String[0]);
+            Arrays.sort(ids);
+            int n = 1;
+            for (int i = 1; i < ids.length; i++) {
+                if (!ids[i].equals(ids[n - 1])) ids[n++] = ids[i];
+            }
+            return nodes = Arrays.asList(ids).subList(0, n);
+        }
+    }
+
+    /*
+     * EdgeStmt
+     */
+    private static class EdgeStmt {
+        final EdgeStmt parent;
+        Operand src;
+        Operand dest; // null until the first edge operator
+        final SortedAttributeList attrs = new SortedAttributeList();
+
+        EdgeStmt(EdgeStmt parent, Operand src) {
+            this.parent = parent;
+            this.src = src;
+        }
+    }
+
+    /*
+     * Event - a logged or queued event, or the edges of an outermost edge statement
+     */
+    private static class Event {
+        final EventType type;
+        final String id;
+        AttributeList attributes;
+        final List<PendingEdges> edges;
+
+        Event(EventType type, String id, AttributeList attributes) {
+            this.type = type;
+            this.id = id;
+            this.attributes = attributes;
+            this.edges = null;
+        }
+
+        Event(List<PendingEdges> edges) {
+            this.type = EventType.EDGE;
+            this.id = null;
+            this.edges = edges;
+        }
+    }
+
+    /*
+     * PendingEdges
+     */
+    private static class PendingEdges {
+        final List<String> src;
+        final List<String> dest;
+        final AttributeList attrs;
+
+        PendingEdges(List<String> src, List<String> dest, AttributeList attrs) {
+            this.src = src;
+            this.dest = dest;
+            this.attrs = attrs;
+        }
+    }
+}
@@ -0,0 +1,293 @@
+package com.nukkitx.digraph.parser;
+
+import com.nukkitx.digraph.DiGraph;
+import com.nukkitx.digraph.DiGraphEdge;
+import com.nukkitx.digraph.DiGraphNode;
+import com.nukkitx.digraph.LazyAttribute;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Binary snapshot of a parsed graph, kept next to its source file, see {@link GraphParserOptions#setSnapshots}.
+ * <p>
+ * Layout: magic, then the key (source size, modification time, content hash, charset name), a table of all
+ * distinct strings, and the graph as indexes into the table. Nodes are in graph order, edges in key order;
+ * every attribute map is written in its iteration order together with the smallest table size that iterates
+ * in that order, so a loaded graph has the attribute order of a parsed one. Counts and indexes are varints, a
+ * CRC-32 of everything before it ends the file.
+ */
+final class GraphSnapshot {
+    static final String SUFFIX = ".snapshot";
+    private static final int MAGIC = 0x44475301; // "DGS" 1
+
+    private GraphSnapshot() {
+    }
+
+    static Path pathFor(Path source) {
+        return source.resolveSibling(source.getFileName() + SUFFIX);
+    }
+
+    /**
+     * The graph of the snapshot if it exists and its key matches, {@code null} otherwise. The content hash is only
+     * computed once size and modification time match.
+     */
+    static DiGraph read(Path snapshot, long size, long modified, ByteBuffer source, Charset charset) {
+        ByteBuffer in;
+        try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+            in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            return null;
+        }
+        try {
+            CRC32 crc = new CRC32();
+            crc.update((ByteBuffer) in.duplicate().limit(in.limit() - 4));
+            if (in.getInt(in.limit() - 4) != (int) crc.getValue()) return null;
+            in.limit(in.limit() - 4);
+            if (in.getInt() != MAGIC || in.getLong() != size || in.getLong() != modified) return null;
+            if (in.getLong() != CachingGraphParser.hash(source) || !readString(in).equals(charset.name())) return null;
+
+            String[] strings = new String[readCount(in)];
+            for (int i = 0; i < strings.length; i++) {
+                strings[i] = readString(in);
+            }
+            DiGraph graph = new DiGraph();
+            graph.setId(string(strings, readVarInt(in) - 1));
+            int nodes = readCount(in);
+            for (int i = 0; i < nodes; i++) {
+                String id = strings[readVarInt(in)];
+                graph.setNode(id, new DiGraphNode(id, readAttributes(in, strings)));
+            }
+            int edges = readCount(in);
+            for (int i = 0; i < edges; i++) {
+                String id = strings[readVarInt(in)];
+                DiGraphNode node1 = graph.getNode(string(strings, readVarInt(in) - 1));
+                DiGraphNode node2 = graph.getNode(string(strings, readVarInt(in) - 1));
+                graph.setEdge(id, new DiGraphEdge(id, node1, node2, readAttributes(in, strings)));
+            }
+            return graph;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            return null; // truncated or damaged, parsed and written again
+        }
+    }
+
+    /**
+     * Writes the snapshot through a temporary file, readers see the old snapshot or the new one. Graphs the
+     * format cannot hold exactly, and I/O errors, leave the snapshot as it was.
+     */
+    static void write(Path snapshot, long size, long modified, ByteBuffer source, Charset charset, DiGraph graph) {
+        Writer out = new Writer();
+        out.buffer.putInt(MAGIC).putLong(size).putLong(modified).putLong(CachingGraphParser.hash(source));
+        out.string(charset.name());
+        if (!out.graph(graph)) return;
+        CRC32 crc = new CRC32();
+        crc.update(out.buffer.array(), 0, out.buffer.position());
+        out.ensure(4);
+        out.buffer.putInt((int) crc.getValue());
+
+        Path temp = null;
+        try {
+            temp = Files.createTempFile(snapshot.toAbsolutePath().getParent(), snapshot.getFileName().toString(), ".tmp");
+            Files.write(temp, Arrays.copyOf(out.buffer.array(), out.buffer.position()));
+            Files.move(temp, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            temp = null;
+        } catch (IOException | UnsupportedOperationException e) {
+            // no snapshot, the file is parsed again next time
+        } finally {
+            if (temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    private static Map<String, Object> readAttributes(ByteBuffer in, String[] strings) {
+        int count = readCount(in);
+        if (count == 0) return new HashMap<>();
+        int bits = in.get();
+        if (bits < 1 || 1 << bits > maxTable(count)) throw new IllegalArgumentException("table size " + bits);
+        Map<String, Object> attributes = new HashMap<>(1 << bits);
+        for (int i = 0; i < count; i++) {
+            attributes.put(strings[readVarInt(in)], strings[readVarInt(in)]);
+        }
+        return attributes;
+    }
+
+    private static String string(String[] strings, int index) {
+        return index < 0 ? null : strings[index];
+    }
+
+    private static String readString(ByteBuffer in) {
+        byte[] bytes = new byte[readCount(in)];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /*
+     * A count or length, every element takes at least one byte; a damaged count fails here instead of allocating
+     */
+    private static int readCount(ByteBuffer in) {
+        int count = readVarInt(in);
+        if (count < 0 || count > in.remaining()) throw new BufferUnderflowException();
+        return count;
+    }
+
+    private static int readVarInt(ByteBuffer in) {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = in.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) return value;
+        }
+        throw new IllegalArgumentException("varint too long");
+    }
+
+    /*
+     * Log2 of the smallest HashMap table that holds the map without resizing and iterates it in the same order,
+     * -1 if there is none (a bin that turned into a tree)
+     */
+    static int tableBits(Map<String, Object> map) {
+        int size = map.size();
+        for (int bits = 1; 1 << bits <= maxTable(size); bits++) {
+            int capacity = 1 << bits;
+            if (size > (int) (capacity * 0.75f)) continue;
+            int previous = 0;
+            boolean ordered = true;
+            for (String key : map.keySet()) {
+                int h = key.hashCode();
+                int bin = (h ^ (h >>> 16)) & (capacity - 1);
+                if (bin < previous) {
+                    ordered = false;
+                    break;
+                }
+                previous = bin;
+            }
+            if (ordered) return bits;
+        }
+        return -1;
+    }
+
+    /*
+     * Tables of parsed graphs are at most twice the size a map needs, or the default 16
+     */
+    private static int maxTable(int size) {
+        return Math.max(16, size * 8);
+    }
+
+    /*
+     * Writer - string table and graph body are collected first, the table goes in front of the body
+     */
+    private static class Writer {
+        private ByteBuffer buffer = ByteBuffer.allocate(1 << 12);
+        private final Map<String, Integer> indexes = new HashMap<>();
+        private ByteBuffer body = ByteBuffer.allocate(1 << 12);
+
+        boolean graph(DiGraph graph) {
+            ByteBuffer header = buffer;
+            buffer = body;
+            varInt(graph.getId() == null ? 0 : index(graph.getId()) + 1);
+            varInt(graph.getNodes().size());
+            for (Map.Entry<String, DiGraphNode> entry : graph.getNodes().entrySet()) {
+                DiGraphNode node = entry.getValue();
+                if (!entry.getKey().equals(node.getId())) return false;
+                varInt(index(entry.getKey()));
+                if (!attributes(node.getAttributes())) return false;
+            }
+            varInt(graph.getEdges().size());
+            for (Map.Entry<String, DiGraphEdge> entry : graph.getEdges().entrySet()) {
+                DiGraphEdge edge = entry.getValue();
+                if (!entry.getKey().equals(edge.getId()) || !isGraphNode(graph, edge.getNode1())
+                        || !isGraphNode(graph, edge.getNode2())) {
+                    return false;
+                }
+                varInt(index(entry.getKey()));
+                varInt(edge.getNode1() == null ? 0 : index(edge.getNode1().getId()) + 1);
+                varInt(edge.getNode2() == null ? 0 : index(edge.getNode2().getId()) + 1);
+                if (!attributes(edge.getAttributes())) return false;
+            }
+            body = buffer;
+
+            buffer = header;
+            String[] strings = new String[indexes.size()];
+            for (Map.Entry<String, Integer> entry : indexes.entrySet()) {
+                strings[entry.getValue()] = entry.getKey();
+            }
+            varInt(strings.length);
+            for (String s : strings) {
+                string(s);
+            }
+            body.flip();
+            ensure(body.remaining());
+            buffer.put(body);
+            return true;
+        }
+
+        private static boolean isGraphNode(DiGraph graph, DiGraphNode node) {
+            return node == null || graph.getNode(node.getId()) == node;
+        }
+
+        private boolean attributes(Map<String, Object> attributes) {
+            varInt(attributes.size());
+            if (attributes.isEmpty()) return true;
+            int bits = tableBits(attributes);
+            if (bits < 0) return false;
+            ensure(1);
+            buffer.put((byte) bits);
+            for (Map.Entry<String, Object> entry : attributes.entrySet()) {
+                Object value = entry.getValue();
+                if (value instanceof LazyAttribute) value = value.toString();
+                if (!(value instanceof String)) return false;
+                varInt(index(entry.getKey()));
+                varInt(index((String) value));
+            }
+            return true;
+        }
+
+        private int index(String s) {
+            Integer index = indexes.get(s);
+            if (index == null) {
+                index = indexes.size();
+                indexes.put(s, index);
+            }
+            return index;
+        }
+
+        void string(String s) {
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            varInt(bytes.length);
+            ensure(bytes.length);
+            buffer.put(bytes);
+        }
+
+        private void varInt(int value) {
+            ensure(5);
+            while ((value & ~0x7F) != 0) {
+                buffer.put((byte) (value & 0x7F | 0x80));
+                value >>>= 7;
+            }
+            buffer.put((byte) value);
+        }
+
+        void ensure(int bytes) {
+            if (buffer.remaining() < bytes) {
+                ByteBuffer grown = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+                buffer.flip();
+                buffer = grown.put(buffer);
+            }
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package com.nukkitx.digraph.parser;
+
+import com.nukkitx.digraph.DiGraph;
+import com.nukkitx.digraph.DiGraphEdge;
+import com.nukkitx.digraph.DiGraphNode;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Read-only {@link DiGraph} that can be shared between threads and callers, see {@link CachingGraphParser}. Setters
+ * and the maps of the graph, its nodes and edges throw {@link UnsupportedOperationException} on any change.
+ */
+final class ImmutableDiGraph extends DiGraph {
+    private ImmutableDiGraph(String id, Map<String, DiGraphNode> nodes, TreeMap<String, DiGraphEdge> edges) {
+        super(id, nodes, edges);
+    }
+
+    /**
+     * Read-only copy of {@code graph}. The attribute maps are wrapped, not copied, so their iteration order stays
+     * the same; {@code graph} must not be changed afterwards.
+     */
+    static ImmutableDiGraph of(DiGraph graph) {
+        Map<String, DiGraphNode> nodes = new LinkedHashMap<>(graph.getNodes().size() * 4 / 3 + 1);
+        for (Map.Entry<String, DiGraphNode> entry : graph.getNodes().entrySet()) {
+            DiGraphNode node = entry.getValue();
+            nodes.put(entry.getKey(), new Node(node.getId(), node.getAttributes()));
+        }
+        TreeMap<String, DiGraphEdge> edges = new TreeMap<>();
+        for (Map.Entry<String, DiGraphEdge> entry : graph.getEdges().entrySet()) {
+            DiGraphEdge edge = entry.getValue();
+            edges.put(entry.getKey(), new Edge(edge.getId(), node(nodes, edge.getNode1()), node(nodes, edge.getNode2()),
+                    edge.getAttributes()));
+        }
+        return new ImmutableDiGraph(graph.getId(), Collections.unmodifiableMap(nodes), new ReadOnlyTreeMap<>(edges));
+    }
+
+    private static DiGraphNode node(Map<String, DiGraphNode> nodes, DiGraphNode node) {
+        return node == null ? null : nodes.get(node.getId());
+    }
+
+    @Override
+    public void setId(String id) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setNode(String id, DiGraphNode node) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setEdge(String id, DiGraphEdge edge) {
+        throw new UnsupportedOperationException();
+    }
+
+    private static class Node extends DiGraphNode {
+        Node(String id, Map<String, Object> attributes) {
+            super(id, Collections.unmodifiableMap(attributes));
+        }
+
+        @Override
+        public void setId(String id) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private static class Edge extends DiGraphEdge {
+        Edge(String id, DiGraphNode node1, DiGraphNode node2, Map<String, Object> attributes) {
+            super(id, node1, node2, Collections.unmodifiableMap(attributes));
+        }
+
+        @Override
+        public void setId(String id) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /*
+     * ReadOnlyTreeMap - DiGraph.getEdges() is typed TreeMap, so the edges cannot be an unmodifiable wrapper. The
+     * copy constructor does not go through put, every mutator and every view that could write through is overridden.
+     */
+    private static class ReadOnlyTreeMap<K, V> extends TreeMap<K, V> {
+        ReadOnlyTreeMap(SortedMap<K, ? extends V> map) {
+            super(map);
+        }
+
+        @Override
+        public V put(K key, V value) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void putAll(Map<? extends K, ? extends V> map) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public V remove(Object key) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void clear() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Map.Entry<K, V> pollFirstEntry() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Map.Entry<K, V> pollLastEntry() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public V putIfAbsent(K key, V value) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean replace(K key, V oldValue, V newValue) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public V replace(K key, V value) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void replaceAll(BiFunction<? super K, ? super V, ? extends V> function) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public V computeIfPresent(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public V compute(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Set<Map.Entry<K, V>> entrySet() {
+            // a view of the whole map that does not call back into this class, the wrapper makes its entries read-only
+            return Collections.unmodifiableNavigableMap(super.descendingMap().descendingMap()).entrySet();
+        }
+
+        @Override
+        public Set<K> keySet() {
+            return navigableKeySet();
+        }
+
+        @Override
+        public NavigableSet<K> navigableKeySet() {
+            return Collections.unmodifiableNavigableSet(super.navigableKeySet());
+        }
+
+        @Override
+        public NavigableSet<K> descendingKeySet() {
+            return Collections.unmodifiableNavigableSet(super.descendingKeySet());
+        }
+
+        @Override
+        public Collection<V> values() {
+            return Collections.unmodifiableCollection(super.values());
+        }
+
+        @Override
+        public NavigableMap<K, V> descendingMap() {
+            return Collections.unmodifiableNavigableMap(super.descendingMap());
+        }
+
+        @Override
+        public NavigableMap<K, V> subMap(K fromKey, boolean fromInclusive, K toKey, boolean toInclusive) {
+            return Collections.unmodifiableNavigableMap(super.subMap(fromKey, fromInclusive, toKey, toInclusive));
+        }
+
+        @Override
+        public NavigableMap<K, V> headMap(K toKey, boolean inclusive) {
+            return Collections.unmodifiableNavigableMap(super.headMap(toKey, inclusive));
+        }
+
+        @Override
+        public NavigableMap<K, V> tailMap(K fromKey, boolean inclusive) {
+            return Collections.unmodifiableNavigableMap(super.tailMap(fromKey, inclusive));
+        }
+
+        @Override
+        public SortedMap<K, V> subMap(K fromKey, K toKey) {
+            return subMap(fromKey, true, toKey, false);
+        }
+
+        @Override
+        public SortedMap<K, V> headMap(K toKey) {
+            return headMap(toKey, false);
+        }
+
+        @Override
+        public SortedMap<K, V> tailMap(K fromKey) {
+            return tailMap(fromKey, true);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.nukkitx.digraph.parser;
+
+import com.nukkitx.digraph.parser.GraphParserLimitException.Limit;
+import com.nukkitx.digraph.parser.antlr.DOTParser;
+import org.antlr.v4.runtime.Token;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits of one parse and what it has used of them so far. Once a limit is exceeded every later check throws the
+ * same exception; listeners still run while the parser unwinds, whatever they throw the parse reports
+ * {@link #failure()}.
+ */
+final class ParseLimits {
+    private static final int TIME_CHECK_INTERVAL = 256; // tokens
+
+    private final GraphParserOptions options;
+    private final long maxInputBytes;
+    private final int maxNodes;
+    private final long maxEdges;
+    private final int maxNestingDepth;
+    private final int maxStringLength;
+    private final long timeoutMillis;
+    private final long deadline;
+    private final Set<String> nodes;
+    private long edges;
+    private int depth;
+    private int tokens;
+    private GraphParserLimitException failure;
+
+    private ParseLimits(GraphParserOptions options, long deadline) {
+        this.options = options;
+        this.maxInputBytes = options.getMaxInputBytes();
+        this.maxNodes = options.getMaxNodes();
+        this.maxEdges = options.getMaxEdges();
+        this.maxNestingDepth = options.getMaxNestingDepth();
+        this.maxStringLength = options.getMaxStringLength();
+        this.timeoutMillis = options.getTimeoutMillis();
+        this.deadline = deadline;
+        this.nodes = maxNodes < Integer.MAX_VALUE ? new HashSet<>() : null;
+    }
+
+    /**
+     * Limits of a parse that starts now
+     */
+    static ParseLimits start(GraphParserOptions options) {
+        long timeout = TimeUnit.MILLISECONDS.toNanos(options.getTimeoutMillis());
+        return new ParseLimits(options, timeout >= Long.MAX_VALUE / 2 ? Long.MAX_VALUE : System.nanoTime() + timeout);
+    }
+
+    /**
+     * Limits on the totals of a graph that many parses add to, without a deadline since each parse has its own
+     */
+    static ParseLimits totals(GraphParserOptions options) {
+        return new ParseLimits(options, Long.MAX_VALUE);
+    }
+
+    /**
+     * Fresh counts with the same limits and deadline, for a second attempt or a chunk of this parse
+     */
+    ParseLimits restart() {
+        return new ParseLimits(options, deadline);
+    }
+
+    /**
+     * Whether tokens and subgraphs have to be checked while parsing, without such limits the parser runs without
+     * the listener
+     */
+    boolean checksTokens() {
+        return maxNestingDepth != Integer.MAX_VALUE || maxStringLength != Integer.MAX_VALUE || deadline != Long.MAX_VALUE;
+    }
+
+    /**
+     * Whether a limit other than the input size applies, a graph loaded from a snapshot cannot be checked against
+     * them
+     */
+    boolean checksParse() {
+        return maxNodes != Integer.MAX_VALUE || maxEdges != Long.MAX_VALUE || checksTokens();
+    }
+
+    void checkInput(long bytes) {
+        if (bytes > maxInputBytes) fail(Limit.INPUT_BYTES, maxInputBytes, "input of " + bytes + " bytes is larger than", null);
+    }
+
+    void checkToken(Token token) {
+        if (failure != null) throw failure;
+        int type = token.getType();
+        if (type == DOTParser.ID || type == DOTParser.STRING || type == DOTParser.HTML_STRING || type == DOTParser.NUMBER) {
+            int length = token.getStopIndex() - token.getStartIndex() + 1;
+            if (length > maxStringLength) fail(Limit.STRING_LENGTH, maxStringLength, "string of " + length + " characters is longer than", token);
+        }
+        if (++tokens % TIME_CHECK_INTERVAL == 0) checkTime(token);
+    }
+
+    void enterSubgraph(Token token) {
+        if (++depth > maxNestingDepth) fail(Limit.NESTING_DEPTH, maxNestingDepth, "subgraphs nested deeper than", token);
+    }
+
+    void exitSubgraph() {
+        depth--;
+    }
+
+    void node(String id) {
+        if (nodes != null && nodes.add(id) && nodes.size() > maxNodes) fail(Limit.NODES, maxNodes, "more nodes than", null);
+    }
+
+    /**
+     * Nodes of a graph put together from chunks
+     */
+    void checkNodes(int count) {
+        if (count > maxNodes) fail(Limit.NODES, maxNodes, "more nodes than", null);
+    }
+
+    /**
+     * Called before the edges of a statement are added, repeated edges count again
+     */
+    void edges(long count, Token token) {
+        edges += count;
+        if (edges > maxEdges || edges < 0) fail(Limit.EDGES, maxEdges, "more edges than", token);
+        checkTime(token);
+    }
+
+    /**
+     * Adds the edges of a chunk of this parse
+     */
+    void add(ParseLimits chunk) {
+        edges(chunk.edges, null);
+    }
+
+    /**
+     * The exceeded limit, {@code null} while all are kept
+     */
+    GraphParserLimitException failure() {
+        return failure;
+    }
+
+    void checkTime(Token token) {
+        if (failure != null) throw failure;
+        if (deadline != Long.MAX_VALUE && System.nanoTime() - deadline > 0) {
+            fail(Limit.TIME, timeoutMillis, "parse took longer than", token);
+        }
+    }
+
+    private void fail(Limit limit, long maxValue, String what, Token token) {
+        if (failure == null) {
+            String at = token == null ? "" : "at line " + token.getLine() + ":" + token.getCharPositionInLine() + " ";
+            String unit = limit == Limit.TIME ? " ms" : "";
+            failure = new GraphParserLimitException(at + what + " the limit of " + maxValue + unit, limit, maxValue);
+        }
+        throw failure;
+    }
+}
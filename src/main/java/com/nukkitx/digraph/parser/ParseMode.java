@@ -0,0 +1,26 @@
+package com.nukkitx.digraph.parser;
+
+/**
+ * Strategy used by {@link GraphParser} to turn the token stream into a {@link com.nukkitx.digraph.DiGraph}.
+ */
+public enum ParseMode {
+    /**
+     * Build the complete parse tree first and walk it afterwards. Simple, but the tree for the whole
+     * input stays on the heap until parsing has finished.
+     */
+    TREE,
+    /**
+     * Build nodes and edges from parse events while the input is being parsed. No parse tree is kept and
+     * tokens are buffered only as far as the parser needs to look ahead, so memory is bounded by the
+     * size of the largest statement rather than by the size of the input.
+     */
+    SINGLE_PASS,
+    /**
+     * Like {@link #SINGLE_PASS}, with a parser that keeps the open subgraphs in its own stack instead of
+     * recursing. Nesting depth and edge chains of any length parse in constant stack space, where the other
+     * modes run out of stack at a few thousand nested subgraphs. The parser stops at the first syntax error
+     * and words it itself. A subgraph that starts a statement is only known to be an edge operand once it is
+     * closed, edge statements inside it are reported as they end (see {@link GraphEventHandler}).
+     */
+    ITERATIVE
+}
@@ -0,0 +1,51 @@
+package com.nukkitx.digraph.parser;
+
+import com.nukkitx.digraph.DiGraph;
+
+import java.nio.file.Path;
+
+/**
+ * Outcome of parsing one file of a {@link GraphParser#parseAll(java.util.Collection) batch}: either the graph or
+ * the exception the parse failed with.
+ */
+public final class ParseResult {
+    private final Path path;
+    private final DiGraph graph;
+    private final GraphParserException exception;
+
+    ParseResult(Path path, DiGraph graph, GraphParserException exception) {
+        this.path = path;
+        this.graph = graph;
+        this.exception = exception;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public boolean isSuccess() {
+        return exception == null;
+    }
+
+    /**
+     * The parsed graph.
+     *
+     * @throws GraphParserException the exception the file failed with
+     */
+    public DiGraph getGraph() throws GraphParserException {
+        if (exception != null) throw exception;
+        return graph;
+    }
+
+    /**
+     * The exception the file failed with, {@code null} if it was parsed.
+     */
+    public GraphParserException getException() {
+        return exception;
+    }
+
+    @Override
+    public String toString() {
+        return path + (exception == null ? " parsed" : " failed: " + exception.getMessage());
+    }
+}
@@ -0,0 +1,246 @@
+package com.nukkitx.digraph.parser;
+
+import com.nukkitx.digraph.parser.antlr.DOTLexer;
+import com.nukkitx.digraph.parser.antlr.DOTParser;
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.atn.ATN;
+import org.antlr.v4.runtime.atn.LexerATNSimulator;
+import org.antlr.v4.runtime.atn.ParserATNSimulator;
+import org.antlr.v4.runtime.atn.PredictionContext;
+import org.antlr.v4.runtime.atn.PredictionContextCache;
+import org.antlr.v4.runtime.dfa.DFA;
+import org.antlr.v4.runtime.dfa.DFAState;
+
+import java.util.IdentityHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * DFAs and prediction context cache of one lexer/parser pair. The generated classes create their interpreters over
+ * static instances shared by every thread, see {@link #SHARED}; ANTLR locks a DFA while adding states or edges to it,
+ * so threads that parse unfamiliar input at the same time wait for each other. {@link #forCurrentThread()} hands
+ * out one of a fixed set of stripes instead, each stripe is only contended by the threads that map to it.
+ * <p>
+ * Parsers get counting interpreters on {@link #install}, their DFA hits and misses are added to the totals by
+ * {@link #collect} after every parse.
+ */
+final class PredictionCache {
+    private static final ATN LEXER_ATN;
+    private static final ATN PARSER_ATN;
+    static final PredictionCache SHARED;
+
+    static {
+        DOTLexer lexer = new DOTLexer(null);
+        DOTParser parser = new DOTParser(null);
+        LEXER_ATN = lexer.getATN();
+        PARSER_ATN = parser.getATN();
+        // the generated context cache is replaced along with the interpreters, it could not be cleared
+        SHARED = new PredictionCache(lexer.getInterpreter().decisionToDFA, parser.getInterpreter().decisionToDFA);
+    }
+
+    private static final AtomicReferenceArray<PredictionCache> STRIPES = new AtomicReferenceArray<>(stripeCount());
+    private static final LongAdder HITS = new LongAdder();
+    private static final LongAdder MISSES = new LongAdder();
+    private static final AtomicLong CLEARS = new AtomicLong();
+    private static volatile int stateLimit;
+
+    final DFA[] lexerDfa;
+    final DFA[] parserDfa;
+    private volatile PredictionContextCache contexts = new PredictionContextCache();
+
+    private PredictionCache(DFA[] lexerDfa, DFA[] parserDfa) {
+        this.lexerDfa = lexerDfa;
+        this.parserDfa = parserDfa;
+    }
+
+    /**
+     * The stripe of the calling thread. Stripes are created on first use as a copy of the shared DFAs, so a
+     * {@link GraphParser#warmUp()} at startup warms them as well.
+     */
+    static PredictionCache forCurrentThread() {
+        long id = Thread.currentThread().getId();
+        int index = (int) (id ^ (id >>> 32)) & (STRIPES.length() - 1);
+        PredictionCache stripe = STRIPES.get(index);
+        if (stripe == null) {
+            DfaSnapshot copy = DfaSnapshot.take();
+            stripe = new PredictionCache(copy.lexerDfa(), copy.parserDfa());
+            if (!STRIPES.compareAndSet(index, null, stripe)) stripe = STRIPES.get(index);
+        }
+        return stripe;
+    }
+
+    void install(DOTLexer lexer) {
+        LexerATNSimulator interpreter = lexer.getInterpreter();
+        if (!(interpreter instanceof CountingLexerSimulator) || ((CountingLexerSimulator) interpreter).cache != this) {
+            lexer.setInterpreter(new CountingLexerSimulator(lexer, this));
+        }
+    }
+
+    void install(DOTParser parser) {
+        ParserATNSimulator interpreter = parser.getInterpreter();
+        if (!(interpreter instanceof CountingParserSimulator) || ((CountingParserSimulator) interpreter).cache != this) {
+            parser.setInterpreter(new CountingParserSimulator(parser, this));
+        }
+    }
+
+    /**
+     * Adds the counts of a finished parse to the totals and applies the state limit. Either argument may be null.
+     */
+    void collect(DOTLexer lexer, DOTParser parser) {
+        long hits = 0;
+        long misses = 0;
+        if (lexer != null && lexer.getInterpreter() instanceof CountingLexerSimulator) {
+            CountingLexerSimulator interpreter = (CountingLexerSimulator) lexer.getInterpreter();
+            hits += interpreter.hits;
+            misses += interpreter.misses;
+            interpreter.hits = interpreter.misses = 0;
+        }
+        if (parser != null && parser.getInterpreter() instanceof CountingParserSimulator) {
+            CountingParserSimulator interpreter = (CountingParserSimulator) parser.getInterpreter();
+            hits += interpreter.hits;
+            misses += interpreter.misses;
+            interpreter.hits = interpreter.misses = 0;
+        }
+        HITS.add(hits);
+        MISSES.add(misses);
+        // only a miss adds states
+        int limit = stateLimit;
+        if (misses > 0 && limit > 0 && stateCount() > limit) {
+            clear();
+        }
+    }
+
+    int stateCount() {
+        return DfaSnapshot.stateCount(lexerDfa) + DfaSnapshot.stateCount(parserDfa);
+    }
+
+    int contextCount() {
+        PredictionContextCache contexts = this.contexts;
+        synchronized (contexts) {
+            return contexts.size();
+        }
+    }
+
+    /*
+     * Parses running at the same time finish on the DFAs they started with
+     */
+    private void clear() {
+        for (int i = 0; i < lexerDfa.length; i++) {
+            lexerDfa[i] = new DFA(LEXER_ATN.getDecisionState(i), i);
+        }
+        for (int i = 0; i < parserDfa.length; i++) {
+            parserDfa[i] = new DFA(PARSER_ATN.getDecisionState(i), i);
+        }
+        contexts = new PredictionContextCache();
+        CLEARS.incrementAndGet();
+    }
+
+    /**
+     * Empties the shared DFAs and drops the stripes, new stripes start from the emptied shared DFAs.
+     */
+    static void clearAll() {
+        SHARED.clear();
+        for (int i = 0; i < STRIPES.length(); i++) {
+            STRIPES.set(i, null);
+        }
+    }
+
+    static void setStateLimit(int limit) {
+        if (limit < 0) throw new IllegalArgumentException("limit < 0: " + limit);
+        stateLimit = limit;
+    }
+
+    static int getStateLimit() {
+        return stateLimit;
+    }
+
+    static DfaCacheStats stats() {
+        int lexerStates = DfaSnapshot.stateCount(SHARED.lexerDfa);
+        int parserStates = DfaSnapshot.stateCount(SHARED.parserDfa);
+        int contexts = SHARED.contextCount();
+        int stripes = 0;
+        for (int i = 0; i < STRIPES.length(); i++) {
+            PredictionCache stripe = STRIPES.get(i);
+            if (stripe == null) continue;
+            stripes++;
+            lexerStates += DfaSnapshot.stateCount(stripe.lexerDfa);
+            parserStates += DfaSnapshot.stateCount(stripe.parserDfa);
+            contexts += stripe.contextCount();
+        }
+        return new DfaCacheStats(lexerStates, parserStates, contexts, stripes, HITS.sum(), MISSES.sum(), CLEARS.get());
+    }
+
+    private static int stripeCount() {
+        int processors = Runtime.getRuntime().availableProcessors();
+        return processors <= 1 ? 1 : Integer.highestOneBit(processors - 1) << 1;
+    }
+
+    private static PredictionContext cachedContext(PredictionCache cache, PredictionContext context) {
+        PredictionContextCache contexts = cache.contexts;
+        synchronized (contexts) {
+            return PredictionContext.getCachedContext(context, contexts, new IdentityHashMap<PredictionContext, PredictionContext>());
+        }
+    }
+
+    /*
+     * The counters are plain fields, an interpreter belongs to one lexer or parser and so to one thread at a time
+     */
+    private static class CountingLexerSimulator extends LexerATNSimulator {
+        private final PredictionCache cache;
+        private long hits;
+        private long misses;
+
+        CountingLexerSimulator(DOTLexer lexer, PredictionCache cache) {
+            super(lexer, LEXER_ATN, cache.lexerDfa, null);
+            this.cache = cache;
+        }
+
+        @Override
+        protected DFAState getExistingTargetState(DFAState s, int t) {
+            DFAState target = super.getExistingTargetState(s, t);
+            if (target != null) hits++;
+            return target;
+        }
+
+        @Override
+        protected DFAState computeTargetState(CharStream input, DFAState s, int t) {
+            misses++;
+            return super.computeTargetState(input, s, t);
+        }
+
+        @Override
+        public PredictionContext getCachedContext(PredictionContext context) {
+            return cachedContext(cache, context);
+        }
+    }
+
+    private static class CountingParserSimulator extends ParserATNSimulator {
+        private final PredictionCache cache;
+        private long hits;
+        private long misses;
+
+        CountingParserSimulator(DOTParser parser, PredictionCache cache) {
+            super(parser, PARSER_ATN, cache.parserDfa, null);
+            this.cache = cache;
+        }
+
+        @Override
+        protected DFAState getExistingTargetState(DFAState previousD, int t) {
+            DFAState target = super.getExistingTargetState(previousD, t);
+            if (target != null) hits++;
+            return target;
+        }
+
+        @Override
+        protected DFAState computeTargetState(DFA dfa, DFAState previousD, int t) {
+            misses++;
+            return super.computeTargetState(dfa, previousD, t);
+        }
+
+        @Override
+        public PredictionContext getCachedContext(PredictionContext context) {
+            return cachedContext(cache, context);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.nukkitx.digraph.parser;
+
+import java.util.Arrays;
+
+/**
+ * Array backed {@link AttributeList} kept in key order, the parser's replacement for a {@code TreeMap}. Values
+ * are strings or, in a lazy parse, {@link AttributeSpan}s that {@code getValue} decodes.
+ */
+class SortedAttributeList implements AttributeList {
+    static final SortedAttributeList EMPTY = new SortedAttributeList();
+
+    private String[] keys = new String[4];
+    private Object[] values = new Object[4];
+    private int size;
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public String getKey(int index) {
+        if (index >= size) throw new IndexOutOfBoundsException("index " + index + ", size " + size);
+        return keys[index];
+    }
+
+    @Override
+    public String getValue(int index) {
+        return getRawValue(index).toString();
+    }
+
+    @Override
+    public String getValue(String key) {
+        int index = Arrays.binarySearch(keys, 0, size, key);
+        return index >= 0 ? values[index].toString() : null;
+    }
+
+    /*
+     * The value as the parser stored it, without decoding a span
+     */
+    Object getRawValue(int index) {
+        if (index >= size) throw new IndexOutOfBoundsException("index " + index + ", size " + size);
+        return values[index];
+    }
+
+    void put(String key, Object value) {
+        int index = Arrays.binarySearch(keys, 0, size, key);
+        if (index >= 0) {
+            values[index] = value;
+            return;
+        }
+        index = -index - 1;
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            values = Arrays.copyOf(values, size * 2);
+        }
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        System.arraycopy(values, index, values, index + 1, size - index);
+        keys[index] = key;
+        values[index] = value;
+        size++;
+    }
+
+    SortedAttributeList copy() {
+        SortedAttributeList copy = new SortedAttributeList();
+        copy.keys = Arrays.copyOf(keys, Math.max(size, 1));
+        copy.values = Arrays.copyOf(values, Math.max(size, 1));
+        copy.size = size;
+        return copy;
+    }
+
+    void clear() {
+        Arrays.fill(keys, 0, size, null);
+        Arrays.fill(values, 0, size, null);
+        size = 0;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("{");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) sb.append(", ");
+            sb.append(keys[i]).append('=').append(values[i]);
+        }
+        return sb.append('}').toString();
+    }
+}
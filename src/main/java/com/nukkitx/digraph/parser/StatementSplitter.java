@@ -0,0 +1,310 @@
+package com.nukkitx.digraph.parser;
+
+import com.nukkitx.digraph.parser.antlr.DOTLexer;
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.Token;
+
+import java.util.Arrays;
+
+/**
+ * Pre-scan for parallel parsing: finds the graph id and splits the top-level {@code stmt_list} into chunks of
+ * whole statements that can be parsed on their own.
+ * <p>
+ * The input is tokenized with {@link DOTScanner}, so strings, HTML strings and comments are skipped exactly the
+ * way the lexers do, but no parser runs. A chunk ends after a top-level {@code ';'} or between two tokens that
+ * cannot belong to the same statement, like the end of one id and the start of the next. Every chunk then is a
+ * valid {@code stmt_list} exactly when the whole one is, and parses to the same statements.
+ */
+final class StatementSplitter {
+    private final String graphId;
+    private final int[] bounds;
+    private final int chunks;
+    private final boolean closed;
+    // where splitAppended can go on: after the last token that cannot grow, with the scan state there
+    private int resumeIndex = -1;
+    private int resumeDepth;
+    private int resumePrev;
+    private int resumePrevPrev;
+
+    private StatementSplitter(String graphId, int[] bounds, int chunks, boolean closed) {
+        this.graphId = graphId;
+        this.bounds = bounds;
+        this.chunks = chunks;
+        this.closed = closed;
+    }
+
+    /**
+     * Scans {@code input} from its current index and seeks back to it when done.
+     *
+     * @param chunkSize minimum number of indexes per chunk, the last chunk may be smaller
+     * @return the split, or {@code null} if the input does not have the shape of a graph or cannot be tokenized;
+     * the parser has to report the error then
+     */
+    static StatementSplitter split(CharStream input, int chunkSize) {
+        int start = input.index();
+        try {
+            return scan(new DOTScanner(input), chunkSize);
+        } catch (GraphParserException e) {
+            return null;
+        } finally {
+            input.seek(start);
+        }
+    }
+
+    /**
+     * Like {@link #split}, for input that is only a {@code stmt_list}, without the graph header and closing brace.
+     * The last chunk ends at the end of the input.
+     */
+    static StatementSplitter splitStatements(CharStream input, int chunkSize) {
+        int start = input.index();
+        try {
+            return scanStatements(new DOTScanner(input), null, start, Token.INVALID_TYPE, chunkSize);
+        } catch (GraphParserException e) {
+            return null;
+        } finally {
+            input.seek(start);
+        }
+    }
+
+    /**
+     * Like {@link #split}, for a graph that is still being written. The result has at most one chunk, it ends after
+     * the last statement known to be complete: one that ends with {@code ';'} or is followed by the start of another
+     * statement or by the closing brace. A token at the end of the input may still grow and does not count.
+     * {@link #start(int) start(0)} is where the statements begin, the input index if the header is not complete.
+     *
+     * @param header whether the input starts with the graph header, otherwise it starts inside the stmt_list
+     * @return the split, or {@code null} if the input cannot be the start of a graph
+     */
+    static StatementSplitter splitAppended(CharStream input, boolean header) {
+        int start = input.index();
+        DOTScanner scanner = new DOTScanner(input);
+        try {
+            String graphId = null;
+            int statements = start;
+            int prev = Token.INVALID_TYPE;
+            if (header) {
+                int type = headerToken(scanner);
+                if (type == DOTLexer.STRICT) type = headerToken(scanner);
+                if (type != DOTLexer.GRAPH && type != DOTLexer.DIGRAPH) return incomplete(type, start);
+                type = headerToken(scanner);
+                if (isId(type)) {
+                    graphId = scanner.text();
+                    type = headerToken(scanner);
+                }
+                if (type != DOTScanner.LBRACE) return incomplete(type, start);
+                statements = scanner.end();
+                prev = type;
+            }
+            return scanAppended(scanner, graphId, statements, 0, prev, Token.INVALID_TYPE);
+        } catch (GraphParserException e) {
+            return null;
+        } finally {
+            input.seek(start);
+        }
+    }
+
+    /**
+     * Continues {@link #splitAppended} from where {@code previous} stopped on the same input, which may have grown
+     * since; only the characters after the last token known to be complete are scanned again. {@code previous}
+     * must have found no complete statement, and the input must still start where it did.
+     *
+     * @return the split like {@link #splitAppended} returns it for the whole input, {@code null} if it cannot
+     * resume from {@code previous}
+     */
+    static StatementSplitter resumeAppended(CharStream input, StatementSplitter previous) {
+        if (previous.resumeIndex < 0 || previous.chunks > 0 || previous.closed) return null;
+        int start = input.index();
+        input.seek(previous.resumeIndex);
+        try {
+            return scanAppended(new DOTScanner(input), previous.graphId, previous.bounds[0], previous.resumeDepth,
+                    previous.resumePrev, previous.resumePrevPrev);
+        } catch (GraphParserException e) {
+            return null;
+        } finally {
+            input.seek(start);
+        }
+    }
+
+    /*
+     * The statements of splitAppended from the scanner's position on, with depth and the two tokens before it
+     */
+    private static StatementSplitter scanAppended(DOTScanner scanner, String graphId, int statements, int depth, int prev, int prevPrev) {
+        int size = scanner.getInputStream().size();
+        int complete = statements;
+        boolean closed = false;
+        int resumeIndex = -1;
+        int resumeDepth = 0;
+        int resumePrev = Token.INVALID_TYPE;
+        int resumePrevPrev = Token.INVALID_TYPE;
+        for (; ; ) {
+            int type;
+            try {
+                type = scanner.next();
+            } catch (GraphParserException e) {
+                if (scanner.isIncomplete()) break;
+                return null;
+            }
+            // a string cut off by the end of the input may still end anywhere after it
+            if (type == Token.EOF || scanner.isUnterminated()) break;
+            if (depth == 0) {
+                if (type == DOTScanner.RBRACE) {
+                    complete = scanner.start();
+                    closed = true;
+                    break;
+                }
+                if (isBoundary(prevPrev, prev, type)) complete = scanner.start();
+            }
+            if (type == DOTScanner.LBRACE || type == DOTScanner.LBRACKET) {
+                depth++;
+            } else if (type == DOTScanner.RBRACE || type == DOTScanner.RBRACKET) {
+                if (--depth < 0) return null;
+            } else if (type == DOTScanner.SEMICOLON && depth == 0) {
+                complete = scanner.end();
+            }
+            prevPrev = prev;
+            prev = type;
+            if (scanner.end() < size) {
+                // the scanner has seen the character after the token, it cannot grow any more
+                resumeIndex = scanner.end();
+                resumeDepth = depth;
+                resumePrev = prev;
+                resumePrevPrev = prevPrev;
+            }
+        }
+        StatementSplitter split = new StatementSplitter(graphId, new int[]{statements, complete}, complete > statements ? 1 : 0, closed);
+        split.resumeIndex = resumeIndex;
+        split.resumeDepth = resumeDepth;
+        split.resumePrev = resumePrev;
+        split.resumePrevPrev = resumePrevPrev;
+        return split;
+    }
+
+    /*
+     * Next header token, EOF if it is cut off by the end of the input or may still grow
+     */
+    private static int headerToken(DOTScanner scanner) {
+        int type;
+        try {
+            type = scanner.next();
+        } catch (GraphParserException e) {
+            if (scanner.isIncomplete()) return Token.EOF;
+            throw e;
+        }
+        if (type != Token.EOF && (scanner.end() == scanner.getInputStream().size() || scanner.isUnterminated())) return Token.EOF;
+        return type;
+    }
+
+    /*
+     * The split of an incomplete header, null if the header is wrong
+     */
+    private static StatementSplitter incomplete(int type, int start) {
+        return type == Token.EOF ? new StatementSplitter(null, new int[]{start, start}, 0, false) : null;
+    }
+
+    private static StatementSplitter scan(DOTScanner scanner, int chunkSize) {
+        // graph : STRICT? (GRAPH | DIGRAPH) id? '{' stmt_list '}' ;
+        int type = scanner.next();
+        if (type == DOTLexer.STRICT) type = scanner.next();
+        if (type != DOTLexer.GRAPH && type != DOTLexer.DIGRAPH) return null;
+        type = scanner.next();
+        String graphId = null;
+        if (isId(type)) {
+            graphId = scanner.text();
+            type = scanner.next();
+        }
+        if (type != DOTScanner.LBRACE) return null;
+        return scanStatements(scanner, graphId, scanner.end(), type, chunkSize);
+    }
+
+    /*
+     * With prev LBRACE the stmt_list ends at the closing brace, otherwise at the end of the input
+     */
+    private static StatementSplitter scanStatements(DOTScanner scanner, String graphId, int start, int prev, int chunkSize) {
+        boolean braced = prev == DOTScanner.LBRACE;
+        int[] bounds = new int[16];
+        int chunks = 0;
+        bounds[0] = start;
+        int depth = 0; // of braces and brackets inside the stmt_list
+        int prevPrev = Token.INVALID_TYPE;
+        for (; ; ) {
+            int type = scanner.next();
+            if (type == Token.EOF) {
+                if (braced || depth != 0) return null;
+                break;
+            }
+            if (depth == 0) {
+                if (type == DOTScanner.RBRACE) {
+                    if (!braced) return null;
+                    break;
+                }
+                if (scanner.start() - bounds[chunks] >= chunkSize && isBoundary(prevPrev, prev, type)) {
+                    if (++chunks == bounds.length) bounds = Arrays.copyOf(bounds, chunks * 2);
+                    bounds[chunks] = scanner.start();
+                }
+            }
+            if (type == DOTScanner.LBRACE || type == DOTScanner.LBRACKET) {
+                depth++;
+            } else if (type == DOTScanner.RBRACE || type == DOTScanner.RBRACKET) {
+                if (--depth < 0) return null;
+            }
+            prevPrev = prev;
+            prev = type;
+        }
+        if (++chunks == bounds.length) bounds = Arrays.copyOf(bounds, chunks + 1);
+        bounds[chunks] = scanner.start();
+
+        // the parser reads one token past the closing brace, it has to be a valid one
+        if (braced) scanner.next();
+        return new StatementSplitter(graphId, bounds, chunks, false);
+    }
+
+    /*
+     * Whether a statement can end with the tokens prevPrev prev and the next one start with type. Within a
+     * statement an id is only followed by another id or a brace in the subgraph header, ']' and '}' only by an
+     * edge operator or another attribute list.
+     */
+    private static boolean isBoundary(int prevPrev, int prev, int type) {
+        if (prev == DOTScanner.SEMICOLON) return true;
+        if (!isId(prev) && prev != DOTScanner.RBRACKET && prev != DOTScanner.RBRACE) return false;
+        if (type == DOTScanner.LBRACE) return !(isId(prev) && prevPrev == DOTLexer.SUBGRAPH);
+        return isId(type) || type == DOTLexer.NODE || type == DOTLexer.EDGE || type == DOTLexer.GRAPH
+                || type == DOTLexer.SUBGRAPH;
+    }
+
+    private static boolean isId(int type) {
+        return type == DOTLexer.ID || type == DOTLexer.STRING || type == DOTLexer.HTML_STRING
+                || type == DOTLexer.NUMBER;
+    }
+
+    /**
+     * Raw text of the graph id, {@code null} if the graph has none.
+     */
+    String graphId() {
+        return graphId;
+    }
+
+    /**
+     * Whether the closing brace of the graph was reached, only set by {@link #splitAppended}.
+     */
+    boolean closed() {
+        return closed;
+    }
+
+    int chunks() {
+        return chunks;
+    }
+
+    /**
+     * Index of the first character of chunk {@code i}.
+     */
+    int start(int i) {
+        return bounds[i];
+    }
+
+    /**
+     * Index one past the last character of chunk {@code i}.
+     */
+    int end(int i) {
+        return bounds[i + 1];
+    }
+}
@@ -0,0 +1,51 @@
+package com.nukkitx.digraph.parser;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Interns the strings of parsed graphs, see {@link GraphParserOptions#setSymbolTable}: node ids, attribute keys and
+ * unquoted attribute values (identifiers and numbers such as {@code dotted} or {@code 3}) exist once per table, so
+ * graphs parsed with the same table share them. Quoted values are mostly free text and are not interned.
+ * <p>
+ * A table can be shared by any number of parses on any number of threads. Once it holds {@code maxSymbols}
+ * strings it takes no new ones, strings seen after that are used as they are; {@link #clear()} starts over.
+ */
+public final class SymbolTable {
+    private final ConcurrentHashMap<String, String> symbols = new ConcurrentHashMap<>();
+    private final int maxSymbols;
+
+    public SymbolTable() {
+        this(1 << 20);
+    }
+
+    public SymbolTable(int maxSymbols) {
+        if (maxSymbols < 0) throw new IllegalArgumentException("maxSymbols " + maxSymbols);
+        this.maxSymbols = maxSymbols;
+    }
+
+    /**
+     * The string of the table equal to {@code s}, {@code s} itself if the table did not hold one yet and is full.
+     */
+    public String intern(String s) {
+        String symbol = symbols.get(s);
+        if (symbol != null) return symbol;
+        if (symbols.size() >= maxSymbols) return s;
+        symbol = symbols.putIfAbsent(s, s);
+        return symbol != null ? symbol : s;
+    }
+
+    public int size() {
+        return symbols.size();
+    }
+
+    public int getMaxSymbols() {
+        return maxSymbols;
+    }
+
+    /**
+     * Drops all strings, graphs parsed before keep theirs.
+     */
+    public void clear() {
+        symbols.clear();
+    }
+}
@@ -0,0 +1,45 @@
+package com.nukkitx.digraph.parser;
+
+/**
+ * Replacement of {@code removedLength} characters at {@code offset} by {@code insertedText}, see
+ * {@link GraphDocument#applyEdits(java.util.List)}. Offsets count UTF-16 chars, like {@link String} indexes.
+ */
+public final class TextEdit {
+    private final int offset;
+    private final int removedLength;
+    private final String insertedText;
+
+    public TextEdit(int offset, int removedLength, String insertedText) {
+        if (offset < 0 || removedLength < 0) {
+            throw new IllegalArgumentException("offset " + offset + ", removed length " + removedLength);
+        }
+        this.offset = offset;
+        this.removedLength = removedLength;
+        this.insertedText = insertedText == null ? "" : insertedText;
+    }
+
+    public static TextEdit insert(int offset, String text) {
+        return new TextEdit(offset, 0, text);
+    }
+
+    public static TextEdit delete(int offset, int length) {
+        return new TextEdit(offset, length, "");
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public int getRemovedLength() {
+        return removedLength;
+    }
+
+    public String getInsertedText() {
+        return insertedText;
+    }
+
+    @Override
+    public String toString() {
+        return "TextEdit{offset=" + offset + ", removedLength=" + removedLength + ", insertedText='" + insertedText + "'}";
+    }
+}
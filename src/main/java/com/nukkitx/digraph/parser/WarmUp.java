@@ -0,0 +1,62 @@
+package com.nukkitx.digraph.parser;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Built-in corpus for {@link GraphParser#warmUp()}. The documents use every rule of the grammar with each kind of
+ * id in each position, so the lexer and parser DFAs get the states ordinary graphs need.
+ */
+final class WarmUp {
+    private static final String[] CORPUS = {
+            "digraph G {\n"
+                    + " graph [rankdir=LR, label=\"warm up\"]; node [shape=box]; edge [color=red]\n"
+                    + " size = \"4,4\"; ratio = 0.5\n"
+                    + " a; b [label=B]; \"c d\" [label=\"say \\\"hi\\\"\", weight=2.5]\n"
+                    + " n1 [a=1] [b=-2]; n2 [k1=v1, k2=v2 k3=v3]; 42 [x=.5 y=1.]\n"
+                    + " <<b>html</b>> [label=<<i>l</i>>]\n"
+                    + " a -> b; a -> b -> c [k=v]; \"c d\" -> 42 -> <<b>h</b>> [w=3]\n"
+                    + " port:n:s -> other:e [weight=2]; a:p -> b\n"
+                    + " a -> {b c} [fan=out]; {a b} -> {c d}; {x -> y} -> z\n"
+                    + " subgraph cluster_0 { c; d -> e [label=ce] } -> { f g } [fan=out]\n"
+                    + " subgraph { h } subgraph \"s 1\" { i -> j } { k l }\n"
+                    + " a -> b -> {a -> b [k=inner]} [k=outer]\n"
+                    + " {{{x -> y} -> z}}\n"
+                    + "}\n",
+            "strict graph \"quoted graph\" {\n"
+                    + " /* comment */ # 1 \"preprocessor line\"\n"
+                    + " a -- b -- c [undirected=yes] // line comment\n"
+                    + " node [color=blue] edge [style=dotted] graph [bgcolor=white]\n"
+                    + " subgraph s { a -- {b c}; d } -- e\n"
+                    + " 1 -- 2; -3 -- .4; x = y\n"
+                    + "}\n",
+            "digraph { }\n",
+            "digraph 7 { a b c; d -> e; f [g=h] }\n",
+            "graph <<i>g</i>> { subgraph { subgraph { a } } }\n"
+    };
+
+    private WarmUp() {
+    }
+
+    static void run() {
+        GraphEventHandler ignore = new GraphEventHandler() {
+        };
+        for (String text : CORPUS) {
+            byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+            for (GraphParserOptions.Lexer lexer : GraphParserOptions.Lexer.values()) {
+                for (ParseMode mode : ParseMode.values()) {
+                    for (GraphParserOptions.Prediction prediction : GraphParserOptions.Prediction.values()) {
+                        GraphParserOptions options = new GraphParserOptions();
+                        options.setLexer(lexer);
+                        options.setParseMode(mode);
+                        options.setPrediction(prediction);
+                        GraphParser.parse(bytes, 0, bytes.length, options);
+                    }
+                }
+                GraphParserOptions options = new GraphParserOptions();
+                options.setLexer(lexer);
+                GraphParser.parse(new ByteArrayInputStream(bytes), ignore, options);
+            }
+        }
+    }
+}
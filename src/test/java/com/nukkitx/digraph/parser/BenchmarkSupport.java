@@ -0,0 +1,125 @@
+package com.nukkitx.digraph.parser;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.Random;
+import java.util.concurrent.Callable;
+
+/**
+ * Input generator and measurement helpers shared by the benchmark mains in this package. The benchmarks are
+ * plain programs rather than unit tests, run them with the test classpath.
+ */
+public class BenchmarkSupport {
+
+    /**
+     * Generates a digraph with roughly {@code statements} top-level statements: node statements with attributes,
+     * edge chains, subgraph fan-outs and repeated nodes so attribute merging is exercised.
+     */
+    public static String generateGraph(int statements, long seed) {
+        Random random = new Random(seed);
+        int nodes = Math.max(16, statements / 2);
+        StringBuilder sb = new StringBuilder(statements * 48);
+        sb.append("digraph generated {\n");
+        for (int i = 0; i < statements; i++) {
+            switch (random.nextInt(5)) {
+                case 0:
+                    sb.append(" n").append(random.nextInt(nodes))
+                            .append(" [label=\"Node ").append(i).append("\" weight=").append(random.nextInt(100))
+                            .append("]\n");
+                    break;
+                case 1:
+                case 2:
+                    sb.append(" n").append(random.nextInt(nodes));
+                    int hops = 1 + random.nextInt(3);
+                    for (int h = 0; h < hops; h++) {
+                        sb.append(" -> n").append(random.nextInt(nodes));
+                    }
+                    sb.append(" [color=c").append(random.nextInt(8)).append("]\n");
+                    break;
+                case 3:
+                    sb.append(" n").append(random.nextInt(nodes)).append(" -> { n").append(random.nextInt(nodes))
+                            .append(" n").append(random.nextInt(nodes)).append(" } [style=dotted]\n");
+                    break;
+                default:
+                    sb.append(" subgraph s").append(i).append(" { n").append(random.nextInt(nodes))
+                            .append(" -> n").append(random.nextInt(nodes)).append(" }\n");
+                    break;
+            }
+        }
+        sb.append("}\n");
+        return sb.toString();
+    }
+
+    /**
+     * Runs the task {@code iterations} times after {@code warmup} untimed runs and returns the best wall-clock
+     * time in milliseconds.
+     */
+    public static double bestMillis(int warmup, int iterations, Callable<?> task) throws Exception {
+        for (int i = 0; i < warmup; i++) {
+            task.call();
+        }
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < iterations; i++) {
+            long start = System.nanoTime();
+            task.call();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best / 1_000_000.0;
+    }
+
+    /**
+     * Runs the task once and returns the peak heap usage in bytes observed by the JVM's heap memory pools.
+     * Pool peaks include garbage that was not collected yet, the figure is meant for relative comparisons only.
+     */
+    public static long peakHeapBytes(Callable<?> task) throws Exception {
+        System.gc();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) pool.resetPeakUsage();
+        }
+        task.call();
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) peak += pool.getPeakUsage().getUsed();
+        }
+        return peak;
+    }
+
+    /**
+     * Runs the task once and returns how much the heap, measured after full collections, grew while the result is
+     * still reachable: roughly the retained size of the result.
+     */
+    public static long retainedBytes(Callable<?> task) throws Exception {
+        long before = usedHeapBytes();
+        sink = task.call();
+        long after = usedHeapBytes();
+        sink = null;
+        return after - before;
+    }
+
+    private static volatile Object sink;
+
+    private static long usedHeapBytes() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * Runs the task once on the calling thread and returns the bytes it allocated, as reported by the JVM's
+     * thread allocation counter.
+     */
+    public static long allocatedBytes(Callable<?> task) throws Exception {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(threadId);
+        task.call();
+        return threads.getThreadAllocatedBytes(threadId) - before;
+    }
+
+    public static void log(Object o) {
+        System.out.println(o);
+    }
+}
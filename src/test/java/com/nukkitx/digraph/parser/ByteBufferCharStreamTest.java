@@ -0,0 +1,165 @@
+package com.nukkitx.digraph.parser;
+
+import com.nukkitx.digraph.DiGraph;
+import com.nukkitx.digraph.parser.antlr.DOTLexer;
+import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.IntStream;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.misc.Interval;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.FileInputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+
+public class ByteBufferCharStreamTest {
+    private static final String UNICODE = "digraph {\n \"gr\u00fc\u00dfe \ud83d\ude00\" -> \u00e9t\u00e9 [label=\"\u4e2d\u6587 \ud83c\udf89!\"]\n"
+            + " /* \ud83d\ude00 in a comment */ x [k=<<b>\u00fc</b>>]\n}\n";
+
+    @Test
+    public void testChars() {
+        Random random = new Random(5);
+        for (int n = 0; n < 2000; n++) {
+            String text = randomText(random, random.nextInt(20));
+            assertSameChars(text, new ByteBufferCharStream(utf8(text), StandardCharsets.UTF_8, null));
+        }
+        String latin1 = "caf\u00e9 \u00ff\u00a0";
+        assertSameChars(latin1, new ByteBufferCharStream(ByteBuffer.wrap(latin1.getBytes(StandardCharsets.ISO_8859_1)),
+                StandardCharsets.ISO_8859_1, null));
+    }
+
+    @Test
+    public void testMalformed() {
+        // stray continuation byte, truncated sequence, overlong encoding
+        byte[] bytes = {'a', (byte) 0x80, 'b', (byte) 0xE4, (byte) 0xB8, 'c', (byte) 0xC0, (byte) 0xAF};
+        CharStream input = new ByteBufferCharStream(ByteBuffer.wrap(bytes), StandardCharsets.UTF_8, null);
+        StringBuilder sb = new StringBuilder();
+        for (int c = input.LA(1); c != IntStream.EOF; input.consume(), c = input.LA(1)) {
+            sb.append((char) c);
+        }
+        Assert.assertEquals("a\ufffdb\ufffd\ufffdc\ufffd\ufffd", sb.toString());
+    }
+
+    @Test
+    public void testTokens() {
+        Random random = new Random(6);
+        for (int n = 0; n < 2000; n++) {
+            String text = randomText(random, random.nextInt(30));
+            DOTLexer expected = new DOTLexer(new ANTLRInputStream(text));
+            DOTLexer actual = new DOTLexer(new ByteBufferCharStream(utf8(text), StandardCharsets.UTF_8, null));
+            expected.removeErrorListeners();
+            actual.removeErrorListeners();
+            for (; ; ) {
+                Token e = expected.nextToken();
+                Token a = actual.nextToken();
+                Assert.assertEquals(text, e.getType(), a.getType());
+                Assert.assertEquals(text, e.getText(), a.getText());
+                Assert.assertEquals(text, e.getLine(), a.getLine());
+                // DOTLexer places EOF by index arithmetic, which counts bytes here
+                if (e.getType() == Token.EOF) break;
+                Assert.assertEquals(text, e.getCharPositionInLine(), a.getCharPositionInLine());
+            }
+        }
+    }
+
+    @Test
+    public void testParsePath() throws Exception {
+        for (String fname : ParserTest.RESOURCES) {
+            DiGraph expected;
+            try (FileInputStream stream = new FileInputStream(fname)) {
+                expected = GraphParser.parse(stream);
+            }
+            ParserTest.assertSameGraph(expected, GraphParser.parse(Paths.get(fname)));
+        }
+    }
+
+    @Test
+    public void testParseBytes() throws Exception {
+        for (String fname : ParserTest.RESOURCES) {
+            DiGraph expected;
+            try (FileInputStream stream = new FileInputStream(fname)) {
+                expected = GraphParser.parse(stream);
+            }
+            byte[] bytes = Files.readAllBytes(Paths.get(fname));
+            byte[] padded = new byte[bytes.length + 8];
+            System.arraycopy(bytes, 0, padded, 3, bytes.length);
+            padded[bytes.length + 3] = '!'; // not part of the input
+            for (ParseMode mode : ParseMode.values()) {
+                GraphParserOptions options = new GraphParserOptions();
+                options.setParseMode(mode);
+                ParserTest.assertSameGraph(expected, GraphParser.parse(padded, 3, bytes.length, options));
+
+                ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+                direct.put(bytes).flip();
+                ParserTest.assertSameGraph(expected, GraphParser.parse(direct, options));
+                Assert.assertEquals(0, direct.position());
+            }
+        }
+    }
+
+    @Test
+    public void testParseUnicodePath() throws Exception {
+        Path path = Files.createTempFile("unicode", ".dg");
+        try {
+            Files.write(path, UNICODE.getBytes(StandardCharsets.UTF_8));
+            for (ParseMode mode : ParseMode.values()) {
+                GraphParserOptions options = new GraphParserOptions();
+                options.setParseMode(mode);
+                DiGraph graph = GraphParser.parse(path, options);
+                Assert.assertEquals("[\"gr\u00fc\u00dfe \ud83d\ude00\", \u00e9t\u00e9, x]", graph.getNodes().keySet().toString());
+                Assert.assertEquals("\u4e2d\u6587 \ud83c\udf89!",
+                        graph.getEdge("\"gr\u00fc\u00dfe \ud83d\ude00\"-\u00e9t\u00e9").getAttribute("label"));
+                Assert.assertEquals("<<b>\u00fc</b>>", graph.getNode("x").getAttribute("k"));
+            }
+
+            // decoded up front
+            Files.write(path, UNICODE.getBytes(StandardCharsets.UTF_16));
+            GraphParserOptions options = new GraphParserOptions();
+            options.setCharset(StandardCharsets.UTF_16);
+            Assert.assertEquals(3, GraphParser.parse(path, options).getNodes().size());
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    private static void assertSameChars(String text, CharStream actual) {
+        CharStream expected = new ANTLRInputStream(text);
+        for (; ; ) {
+            for (int i = 1; i <= 3; i++) {
+                Assert.assertEquals(text, expected.LA(i), actual.LA(i));
+            }
+            if (expected.index() > 0) Assert.assertEquals(text, expected.LA(-1), actual.LA(-1));
+            if (expected.LA(1) == IntStream.EOF) break;
+            int start = actual.index();
+            expected.consume();
+            actual.consume();
+            if (!Character.isHighSurrogate((char) expected.LA(-1))) {
+                // text ending between the halves of a pair includes the whole character
+                Assert.assertEquals(text, expected.getText(Interval.of(0, expected.index() - 1)),
+                        actual.getText(Interval.of(0, actual.index() - 1)));
+            }
+            Assert.assertTrue(actual.index() > start);
+        }
+    }
+
+    private static String randomText(Random random, int length) {
+        String[] pieces = {"a", "b1", " ", "\n", "->", "{", "}", "[", "]", "=", "\"", "\\\"", "<", ">", "/*", "*/",
+                "\u00e9", "\u00ff", "\u0100", "\u4e2d", "\ud83d\ude00", "\u00e9t\u00e9", "-1.5", "//", "#"};
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            sb.append(pieces[random.nextInt(pieces.length)]);
+        }
+        return sb.toString();
+    }
+
+    private static ByteBuffer utf8(String text) {
+        return ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+    }
+}
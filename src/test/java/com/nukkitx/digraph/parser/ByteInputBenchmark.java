@@ -0,0 +1,33 @@
+package com.nukkitx.digraph.parser;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Callable;
+
+import static com.nukkitx.digraph.parser.BenchmarkSupport.*;
+
+/**
+ * Compares parsing a {@code byte[]} through an {@code InputStream} with parsing it directly.
+ * Usage: {@code ByteInputBenchmark [statements]}
+ */
+public class ByteInputBenchmark {
+    public static void main(String[] args) throws Exception {
+        int statements = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        byte[] input = generateGraph(statements, 42).getBytes(StandardCharsets.UTF_8);
+        log("input: " + statements + " statements, " + input.length / 1024 + " KiB");
+
+        for (ParseMode mode : ParseMode.values()) {
+            GraphParserOptions options = new GraphParserOptions();
+            options.setParseMode(mode);
+            options.setLexer(GraphParserOptions.Lexer.SCANNER);
+            run(mode + " stream", () -> GraphParser.parse(new ByteArrayInputStream(input), options));
+            run(mode + " bytes", () -> GraphParser.parse(input, 0, input.length, options));
+        }
+    }
+
+    private static void run(String name, Callable<?> task) throws Exception {
+        double millis = bestMillis(2, 5, task);
+        long allocated = allocatedBytes(task);
+        log(String.format("%-18s %10.1f ms %10d MiB allocated", name, millis, allocated / (1024 * 1024)));
+    }
+}
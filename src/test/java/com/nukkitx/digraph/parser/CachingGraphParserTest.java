@@ -0,0 +1,108 @@
+package com.nukkitx.digraph.parser;
+
+import com.nukkitx.digraph.DiGraph;
+import com.nukkitx.digraph.DiGraphNode;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Map;
+
+public class CachingGraphParserTest {
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testHits() {
+        CachingGraphParser cache = new CachingGraphParser(1 << 20);
+        byte[] text = bytes("xx digraph G { a [x=1] a -> b [w=2] } yy");
+        DiGraph graph = cache.parse(text, 3, text.length - 6);
+        ParserTest.assertSameGraph(GraphParser.parse(text, 3, text.length - 6), graph);
+
+        // the same bytes anywhere hit, other bytes miss
+        Assert.assertSame(graph, cache.parse(ByteBuffer.wrap(bytes("digraph G { a [x=1] a -> b [w=2] }"))));
+        Assert.assertNotSame(graph, cache.parse(ByteBuffer.wrap(bytes("digraph G { a [x=1] a -> b [w=3] }"))));
+        try {
+            cache.parse(ByteBuffer.wrap(bytes("digraph G { a -> }")));
+            Assert.fail();
+        } catch (GraphParserException expected) {
+        }
+
+        GraphCacheStats stats = cache.getStats();
+        Assert.assertEquals(1, stats.getHits());
+        Assert.assertEquals(3, stats.getMisses());
+        Assert.assertEquals(2, stats.getEntries());
+        Assert.assertTrue(stats.toString(), stats.getRetainedBytes() > 2 * 34);
+
+        cache.clear();
+        Assert.assertNotSame(graph, cache.parse(text, 3, text.length - 6));
+        Assert.assertEquals(1, cache.getStats().getEntries());
+    }
+
+    @Test
+    public void testImmutable() {
+        DiGraph graph = new CachingGraphParser(1 << 20).parse(ByteBuffer.wrap(bytes("digraph { a [x=1] a -> b [w=2] }")));
+        DiGraphNode a = graph.getNode("a");
+        Assert.assertSame(a, graph.getEdge("a-b").getNode1());
+        Runnable[] changes = {
+                () -> graph.setId("G"),
+                () -> graph.setNode("c", new DiGraphNode("c")),
+                () -> graph.getNodes().remove("a"),
+                () -> graph.getEdges().remove("a-b"),
+                () -> graph.getEdges().pollFirstEntry(),
+                () -> graph.getEdges().keySet().clear(),
+                () -> graph.getEdges().values().clear(),
+                () -> graph.getEdges().headMap("z").clear(),
+                () -> graph.getEdges().firstEntry().setValue(null),
+                () -> graph.getEdges().entrySet().iterator().next().setValue(null),
+                () -> {
+                    Iterator<? extends Map.Entry<String, ?>> iterator = graph.getEdges().entrySet().iterator();
+                    iterator.next();
+                    iterator.remove();
+                },
+                () -> a.setAttribute("x", "2"),
+                () -> a.getAttributes().clear(),
+                () -> a.setId("b"),
+                () -> graph.getEdge("a-b").setAttribute("w", "3"),
+        };
+        for (Runnable change : changes) {
+            try {
+                change.run();
+                Assert.fail();
+            } catch (UnsupportedOperationException expected) {
+            }
+        }
+        Assert.assertEquals("1", a.getAttribute("x"));
+        Assert.assertEquals("[a-b]", graph.getEdges().keySet().toString());
+    }
+
+    @Test
+    public void testEviction() {
+        byte[][] inputs = new byte[4][];
+        for (int i = 0; i < inputs.length; i++) {
+            inputs[i] = bytes(BenchmarkSupport.generateGraph(200, i));
+        }
+        long size = CachingGraphParser.estimateRetainedBytes(GraphParser.parse(inputs[0], 0, inputs[0].length));
+        // room for two of the graphs
+        CachingGraphParser cache = new CachingGraphParser(size * 5 / 2 + 2 * inputs[0].length);
+        DiGraph first = cache.parse(inputs[0], 0, inputs[0].length);
+        cache.parse(inputs[1], 0, inputs[1].length);
+        Assert.assertSame(first, cache.parse(inputs[0], 0, inputs[0].length));
+        cache.parse(inputs[2], 0, inputs[2].length); // evicts inputs[1], the least recently used
+        Assert.assertSame(first, cache.parse(inputs[0], 0, inputs[0].length));
+
+        GraphCacheStats stats = cache.getStats();
+        Assert.assertEquals(1, stats.getEvictions());
+        Assert.assertEquals(2, stats.getEntries());
+        Assert.assertTrue(stats.toString(), stats.getRetainedBytes() <= stats.getMaxRetainedBytes());
+
+        // too large for the budget, parsed but not cached
+        CachingGraphParser small = new CachingGraphParser(1000);
+        DiGraph graph = small.parse(inputs[3], 0, inputs[3].length);
+        Assert.assertNotSame(graph, small.parse(inputs[3], 0, inputs[3].length));
+        Assert.assertEquals(0, small.getStats().getEntries());
+    }
+}
@@ -0,0 +1,83 @@
+package com.nukkitx.digraph.parser;
+
+import com.nukkitx.digraph.AttributeColumns;
+import com.nukkitx.digraph.DiGraph;
+import com.nukkitx.digraph.DiGraphNode;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.Callable;
+
+import static com.nukkitx.digraph.parser.BenchmarkSupport.*;
+
+/**
+ * Attribute maps against {@link GraphParserOptions#setColumnarAttributes columnar} attributes for a graph whose
+ * nodes carry numeric layout attributes, with a consumer that sums one of them over all nodes: through
+ * {@code getAttribute} and {@code Double.parseDouble} for the maps, through the column for the columnar graph.
+ * Usage: {@code ColumnarAttributeBenchmark [statements]}
+ */
+public class ColumnarAttributeBenchmark {
+    public static void main(String[] args) throws Exception {
+        int statements = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        byte[] input = numericGraph(statements).getBytes(StandardCharsets.UTF_8);
+        log("input: " + input.length / 1024 + " KiB");
+        for (ParseMode mode : ParseMode.values()) {
+            for (boolean columnar : new boolean[]{false, true}) {
+                GraphParserOptions options = new GraphParserOptions();
+                options.setParseMode(mode);
+                options.setLexer(GraphParserOptions.Lexer.SCANNER);
+                options.setColumnarAttributes(columnar);
+                run(mode + (columnar ? " columnar" : " maps"), () -> GraphParser.parse(input, 0, input.length, options));
+                DiGraph graph = GraphParser.parse(input, 0, input.length, options);
+                double millis = bestMillis(5, 20, () -> sum(graph, "x"));
+                log(String.format("%-18s %10.2f ms sum of x", "", millis));
+            }
+        }
+    }
+
+    private static double sum(DiGraph graph, String key) {
+        double sum = 0;
+        AttributeColumns columns = graph.getNodeColumns();
+        if (columns != null) {
+            AttributeColumns.Column column = columns.column(key);
+            for (int i = 0; i < columns.size(); i++) {
+                sum += column.getDouble(i);
+            }
+            return sum;
+        }
+        for (DiGraphNode node : graph.getNodes().values()) {
+            Object value = node.getAttribute(key);
+            if (value != null) sum += Double.parseDouble((String) value);
+        }
+        return sum;
+    }
+
+    /*
+     * node statements with a position, a size and a weight, and plain edges
+     */
+    private static String numericGraph(int statements) {
+        Random random = new Random(42);
+        int nodes = Math.max(16, statements / 2);
+        StringBuilder sb = new StringBuilder(statements * 80);
+        sb.append("digraph numeric {\n");
+        for (int i = 0; i < statements; i++) {
+            if (random.nextBoolean()) {
+                sb.append(" n").append(random.nextInt(nodes)).append(" [x=").append(random.nextInt(10_000) / 4.0)
+                        .append(" y=").append(random.nextInt(10_000) / 4.0).append(" width=").append(1 + random.nextInt(4))
+                        .append(" weight=").append(random.nextInt(100)).append("]\n");
+            } else {
+                sb.append(" n").append(random.nextInt(nodes)).append(" -> n").append(random.nextInt(nodes)).append('\n');
+            }
+        }
+        sb.append("}\n");
+        return sb.toString();
+    }
+
+    private static void run(String name, Callable<?> task) throws Exception {
+        double millis = bestMillis(2, 5, task);
+        long allocated = allocatedBytes(task);
+        long retained = retainedBytes(task);
+        log(String.format("%-18s %10.1f ms %10d MiB allocated %10d MiB retained", name, millis,
+                allocated / (1024 * 1024), retained / (1024 * 1024)));
+    }
+}
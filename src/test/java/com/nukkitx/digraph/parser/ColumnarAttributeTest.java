@@ -0,0 +1,156 @@
+package com.nukkitx.digraph.parser;
+
+import com.nukkitx.digraph.AttributeColumns;
+import com.nukkitx.digraph.DiGraph;
+import com.nukkitx.digraph.DiGraphElement;
+import com.nukkitx.digraph.DiGraphNode;
+import com.nukkitx.digraph.NumberAttribute;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+public class ColumnarAttributeTest {
+    private static GraphParserOptions options(ParseMode mode) {
+        GraphParserOptions options = new GraphParserOptions();
+        options.setParseMode(mode);
+        options.setColumnarAttributes(true);
+        return options;
+    }
+
+    private static DiGraph parse(String text, GraphParserOptions options) throws GraphParserException {
+        byte[] input = text.getBytes(StandardCharsets.UTF_8);
+        return GraphParser.parse(input, 0, input.length, options);
+    }
+
+    private static Map<String, String> strings(DiGraphElement element) {
+        Map<String, String> attrs = new HashMap<>();
+        for (String key : element.getAttributes().keySet()) {
+            attrs.put(key, (String) element.getAttribute(key));
+        }
+        return attrs;
+    }
+
+    private static void assertSameAttributes(DiGraph expected, DiGraph actual) {
+        Assert.assertEquals(expected.getNodes().keySet(), actual.getNodes().keySet());
+        Assert.assertEquals(expected.getEdges().keySet(), actual.getEdges().keySet());
+        for (DiGraphNode node : expected.getNodes().values()) {
+            Assert.assertEquals(strings(node), strings(actual.getNode(node.getId())));
+        }
+        for (DiGraphElement edge : expected.getEdges().values()) {
+            Assert.assertEquals(strings(edge), strings(actual.getEdge(edge.getId())));
+        }
+    }
+
+    @Test
+    public void testSameAttributes() throws Exception {
+        String text = BenchmarkSupport.generateGraph(2000, 3);
+        for (ParseMode mode : ParseMode.values()) {
+            DiGraph graph = parse(text, options(mode));
+            assertSameAttributes(parse(text, new GraphParserOptions()), graph);
+            Assert.assertEquals(AttributeColumns.Type.LONG, graph.getNodeColumns().column("weight").getType());
+            Assert.assertEquals(AttributeColumns.Type.OBJECT, graph.getNodeColumns().column("label").getType());
+            Assert.assertEquals(graph.getNodes().size(), graph.getNodeColumns().size());
+            for (String fname : ParserTest.RESOURCES) {
+                assertSameAttributes(GraphParser.parse(Paths.get(fname)), GraphParser.parse(Paths.get(fname), options(mode)));
+            }
+        }
+    }
+
+    @Test
+    public void testNumbers() throws Exception {
+        String text = "digraph { a [w=1 x=-2.5 y=007 z=.5] b [w=9223372036854775807 x=3] c [w=2 x=\"4\"] a -> b [w=1.5] }";
+        for (ParseMode mode : ParseMode.values()) {
+            DiGraph graph = parse(text, options(mode));
+            AttributeColumns nodes = graph.getNodeColumns();
+            int a = nodes.ordinal(graph.getNode("a"));
+            int b = nodes.ordinal(graph.getNode("b"));
+            Assert.assertEquals(0, a);
+            Assert.assertEquals(1, b);
+            Assert.assertEquals(NumberAttribute.of(1L), graph.getNode("a").getAttributes().get("w"));
+            Assert.assertEquals("-2.5", graph.getNode("a").getAttribute("x"));
+            Assert.assertEquals("007", graph.getNode("a").getAttribute("y"));
+            Assert.assertEquals(".5", graph.getNode("a").getAttribute("z"));
+            Assert.assertEquals(AttributeColumns.Type.OBJECT, nodes.column("y").getType());
+            // w only has integral values, the largest long is kept exactly
+            Assert.assertEquals(AttributeColumns.Type.LONG, nodes.column("w").getType());
+            Assert.assertEquals(Long.MAX_VALUE, nodes.column("w").getLong(b));
+            Assert.assertEquals("9223372036854775807", graph.getNode("b").getAttribute("w"));
+            Assert.assertEquals("3", graph.getNode("b").getAttribute("x"));
+            // quoted numbers are strings
+            Assert.assertEquals(AttributeColumns.Type.OBJECT, nodes.column("x").getType());
+            Assert.assertEquals("4", graph.getNode("c").getAttribute("x"));
+            Assert.assertEquals(1.5, graph.getEdgeColumns().column("w").getDouble(0), 0);
+            Assert.assertEquals("1.5", graph.getEdge("a-b").getAttribute("w"));
+        }
+    }
+
+    @Test
+    public void testPromotion() {
+        DiGraph graph = new DiGraph();
+        graph.setColumnarAttributes(true);
+        DiGraphNode a = graph.newNode("a");
+        DiGraphNode b = graph.newNode("b");
+        AttributeColumns.Column column;
+
+        a.setAttribute("w", NumberAttribute.of(3L));
+        column = graph.getNodeColumns().column("w");
+        Assert.assertEquals(AttributeColumns.Type.LONG, column.getType());
+        b.setAttribute("w", NumberAttribute.of(0.25));
+        Assert.assertEquals(AttributeColumns.Type.DOUBLE, column.getType());
+        Assert.assertEquals(3.0, column.getDouble(0), 0);
+        Assert.assertEquals("3", a.getAttribute("w"));
+        Assert.assertEquals("0.25", b.getAttribute("w"));
+        try {
+            column.getLong(0);
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            // expected
+        }
+
+        a.setAttribute("w", NumberAttribute.of(1L << 60));
+        Assert.assertEquals(AttributeColumns.Type.OBJECT, column.getType());
+        Assert.assertEquals(Long.toString(1L << 60), a.getAttribute("w"));
+        Assert.assertEquals("0.25", b.getAttribute("w"));
+        b.setAttribute("w", "heavy");
+        Assert.assertEquals("heavy", b.getAttribute("w"));
+    }
+
+    @Test
+    public void testMapView() {
+        DiGraph graph = new DiGraph();
+        graph.setColumnarAttributes(true);
+        DiGraphNode a = graph.newNode("a");
+        DiGraphNode b = graph.newNode("b");
+        Map<String, Object> attrs = a.getAttributes();
+        Assert.assertTrue(attrs.isEmpty());
+
+        Assert.assertNull(attrs.put("k", "v"));
+        Assert.assertEquals("v", attrs.put("k", "v2"));
+        attrs.put("n", NumberAttribute.of(7L));
+        b.setAttribute("k", "other");
+        Map<String, Object> expected = new HashMap<>();
+        expected.put("k", "v2");
+        expected.put("n", NumberAttribute.of(7L));
+        Assert.assertEquals(expected, attrs);
+        Assert.assertEquals(expected.hashCode(), attrs.hashCode());
+        Assert.assertFalse(b.getAttributes().containsKey("n"));
+
+        Iterator<Map.Entry<String, Object>> it = attrs.entrySet().iterator();
+        Assert.assertEquals("k", it.next().getKey());
+        it.remove();
+        Assert.assertEquals(1, attrs.size());
+        Assert.assertEquals("other", b.getAttribute("k"));
+        Assert.assertEquals(NumberAttribute.of(7L), attrs.remove("n"));
+        Assert.assertTrue(attrs.isEmpty());
+
+        b.getAttributes().clear();
+        Assert.assertTrue(b.getAttributes().isEmpty());
+        Assert.assertEquals(2, graph.getNodeColumns().size());
+        Assert.assertEquals(-1, graph.getNodeColumns().ordinal(new DiGraphNode("c")));
+    }
+}
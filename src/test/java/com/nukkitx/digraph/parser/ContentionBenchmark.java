@@ -0,0 +1,64 @@
+package com.nukkitx.digraph.parser;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static com.nukkitx.digraph.parser.BenchmarkSupport.*;
+
+/**
+ * Throughput of many threads parsing small graphs at the same time, with the shared DFAs and with
+ * {@link GraphParserOptions.DfaCache#STRIPED}. Every thread count runs the same total number of parses.
+ * Usage: {@code ContentionBenchmark [parses] [max threads]}
+ */
+public class ContentionBenchmark {
+    public static void main(String[] args) throws Exception {
+        int parses = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        int maxThreads = args.length > 1 ? Integer.parseInt(args[1]) : 4 * Runtime.getRuntime().availableProcessors();
+        List<byte[]> inputs = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            inputs.add(generateGraph(20, i).getBytes(StandardCharsets.UTF_8));
+        }
+        log("graphs of 20 statements, " + parses + " parses per run, "
+                + Runtime.getRuntime().availableProcessors() + " processors");
+
+        for (int n = 1; n <= maxThreads; n *= 2) {
+            int threads = n;
+            for (GraphParserOptions.DfaCache cache : GraphParserOptions.DfaCache.values()) {
+                GraphParserOptions options = new GraphParserOptions();
+                options.setDfaCache(cache);
+                ExecutorService pool = Executors.newFixedThreadPool(threads);
+                double millis = bestMillis(2, 5, () -> run(pool, threads, parses, inputs, options));
+                pool.shutdown();
+                log(String.format("%2d threads %-8s %10.1f ms %10.0f parses/s", threads, cache, millis,
+                        parses * 1000 / millis));
+            }
+        }
+    }
+
+    private static Object run(ExecutorService pool, int threads, int parses, List<byte[]> inputs,
+                              GraphParserOptions options) throws Exception {
+        List<Future<?>> futures = new ArrayList<>(threads);
+        for (int t = 0; t < threads; t++) {
+            int first = t;
+            futures.add(pool.submit((Callable<Object>) () -> {
+                GraphParser parser = new GraphParser(options);
+                for (int i = first; i < parses; i += threads) {
+                    byte[] input = inputs.get(i % inputs.size());
+                    parser.setInput(ByteBuffer.wrap(input));
+                    parser.parse();
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        return null;
+    }
+}
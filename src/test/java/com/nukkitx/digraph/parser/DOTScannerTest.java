@@ -0,0 +1,126 @@
+package com.nukkitx.digraph.parser;
+
+import com.nukkitx.digraph.parser.antlr.DOTLexer;
+import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.BaseErrorListener;
+import org.antlr.v4.runtime.RecognitionException;
+import org.antlr.v4.runtime.Recognizer;
+import org.antlr.v4.runtime.Token;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Differential tests of {@link DOTScanner} against the generated {@link DOTLexer}.
+ */
+public class DOTScannerTest {
+    private static final String[] SNIPPETS = {
+            "", " \t\r\n", "digraph", "DiGraph", "digraphs", "subgraph1", "STRICT graph NODE Edge",
+            "a->b", "a--b", "a -> b -> c", "-1 -.5 1. 1.5 .5 -1.5.6 1abc", "- 1", "-.", ".", "--1", "-->",
+            "\"\"", "\"a\"", "\"a b\"", "\"a\\\"b\"", "\"a\\\\\"", "\"a\\\\\" b \"c\"", "\"abc\\\"", "\"a\\\" b \\\"",
+            "\"unterminated", "\"multi\nline\"",
+            "<>", "<a>", "<<b>x</b>>", "<a<b<c>d>", "<a<b>c>d>", "<a", "<a<b",
+            "/* comment */ a", "/**/a", "/*/ a */", "/* unterminated", "a // line\nb", "a // no newline",
+            "a // crlf\r\nb", "# 1 \"file\"\na", "x # preproc at end", "\u00e9 \u00f1 \u00ff _x", "\u4e2d",
+            "[k=v, k2=v2; k3=v3]", "a:p:s", "{ a b } -> { c }", "@", "a @"
+    };
+
+    @Test
+    public void testResources() throws Exception {
+        for (String fname : ParserTest.RESOURCES) {
+            String text = ParserTest.readResource(fname);
+            assertSameTokens(text);
+        }
+    }
+
+    @Test
+    public void testSnippets() {
+        for (String snippet : SNIPPETS) {
+            assertSameTokens(snippet);
+        }
+    }
+
+    @Test
+    public void testRandomInputs() {
+        String[] alphabet = {
+                "a", "b", "Z", "_", "\u00e9", "0", "1", ".", "-", ">", "<", "\"", "\\", "/", "*", "#",
+                "\n", "\r", " ", "\t", "[", "]", "{", "}", "=", ";", ",", ":", "node", "graph", "->"
+        };
+        Random random = new Random(1);
+        for (int i = 0; i < 20000; i++) {
+            StringBuilder sb = new StringBuilder();
+            int length = random.nextInt(24);
+            for (int j = 0; j < length; j++) {
+                sb.append(alphabet[random.nextInt(alphabet.length)]);
+            }
+            assertSameTokens(sb.toString());
+        }
+    }
+
+    @Test
+    public void testGraphParserWithScanner() throws Exception {
+        GraphParserOptions options = new GraphParserOptions();
+        options.setLexer(GraphParserOptions.Lexer.SCANNER);
+        for (ParseMode mode : ParseMode.values()) {
+            options.setParseMode(mode);
+            for (String fname : ParserTest.RESOURCES) {
+                try (InputStream expected = new FileInputStream(fname); InputStream actual = new FileInputStream(fname)) {
+                    ParserTest.assertSameGraph(GraphParser.parse(expected), GraphParser.parse(actual, options));
+                }
+            }
+        }
+    }
+
+    private static void assertSameTokens(String text) {
+        List<String> expected = new ArrayList<>();
+        boolean expectedError = false;
+        DOTLexer lexer = new DOTLexer(new ANTLRInputStream(text));
+        lexer.removeErrorListeners();
+        lexer.addErrorListener(new BaseErrorListener() {
+            @Override
+            public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol, int line,
+                                    int charPositionInLine, String msg, RecognitionException e) {
+                throw new IllegalStateException(msg);
+            }
+        });
+        try {
+            for (Token token = lexer.nextToken(); ; token = lexer.nextToken()) {
+                expected.add(describe(token.getType(), token.getStartIndex(), token.getStopIndex() + 1,
+                        token.getLine(), token.getCharPositionInLine()));
+                if (token.getType() == Token.EOF) break;
+            }
+        } catch (IllegalStateException e) {
+            expectedError = true;
+        }
+
+        List<String> actual = new ArrayList<>();
+        boolean actualError = false;
+        DOTScanner scanner = new DOTScanner(new ANTLRInputStream(text));
+        try {
+            for (int type = scanner.next(); ; type = scanner.next()) {
+                actual.add(describe(type, scanner.start(), scanner.end(), scanner.line(), scanner.charPositionInLine()));
+                if (type == Token.EOF) break;
+            }
+        } catch (GraphParserException e) {
+            actualError = true;
+        }
+
+        String message = "input: '" + text.replace("\n", "\\n").replace("\r", "\\r") + "'";
+        Assert.assertEquals(message, expected, actual);
+        Assert.assertEquals(message, expectedError, actualError);
+    }
+
+    private static String describe(int type, int start, int end, int line, int charPositionInLine) {
+        if (type == Token.EOF) {
+            // DOTLexer reports a wrong EOF column when the input ends right after a multi-line STRING or
+            // HTML_STRING (the token's length is added to its start column), so only the line is compared
+            return "EOF[" + start + "," + end + ")@" + line;
+        }
+        return DOTLexer.tokenNames[type] + "[" + start + "," + end + ")@" + line + ":" + charPositionInLine;
+    }
+}
@@ -0,0 +1,68 @@
+package com.nukkitx.digraph.parser;
+
+import com.nukkitx.digraph.DiGraph;
+import com.nukkitx.digraph.DiGraphEdge;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.Callable;
+
+import static com.nukkitx.digraph.parser.BenchmarkSupport.*;
+
+/**
+ * Parsing a dense fan-out graph, statements between two subgraphs of up to {@code width} nodes each, with every
+ * edge made against {@link GraphParserOptions#setMinBundleEdges edge bundles}; also times one pass over all edges
+ * of the parsed graph. Usage: {@code EdgeBundleBenchmark [statements] [width]}
+ */
+public class EdgeBundleBenchmark {
+    public static void main(String[] args) throws Exception {
+        int statements = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int width = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        byte[] input = fanOutGraph(statements, width).getBytes(StandardCharsets.UTF_8);
+        log("fan-out: " + input.length / 1024 + " KiB");
+        for (ParseMode mode : ParseMode.values()) {
+            for (int min : new int[]{Integer.MAX_VALUE, 16}) {
+                GraphParserOptions options = new GraphParserOptions();
+                options.setParseMode(mode);
+                options.setLexer(GraphParserOptions.Lexer.SCANNER);
+                options.setMinBundleEdges(min);
+                String name = mode + (min == Integer.MAX_VALUE ? " edges" : " bundles");
+                Callable<DiGraph> parse = () -> GraphParser.parse(input, 0, input.length, options);
+                DiGraph graph = parse.call();
+                run(name, parse, () -> iterate(graph));
+            }
+        }
+    }
+
+    private static long iterate(DiGraph graph) {
+        long count = 0;
+        for (DiGraphEdge edge : graph.getEdges().values()) {
+            if (edge.getAttribute("color") != null) count++;
+        }
+        return count;
+    }
+
+    private static String fanOutGraph(int statements, int width) {
+        Random random = new Random(42);
+        int nodes = width * 20;
+        StringBuilder sb = new StringBuilder(statements * width * 12);
+        sb.append("digraph fan {\n");
+        for (int i = 0; i < statements; i++) {
+            sb.append(" {");
+            for (int n = width / 2 + random.nextInt(width / 2 + 1); n > 0; n--) sb.append(" n").append(random.nextInt(nodes));
+            sb.append(" } -> {");
+            for (int n = width / 2 + random.nextInt(width / 2 + 1); n > 0; n--) sb.append(" n").append(random.nextInt(nodes));
+            sb.append(" } [color=c").append(random.nextInt(8)).append(" weight=").append(i).append("]\n");
+        }
+        sb.append("}\n");
+        return sb.toString();
+    }
+
+    private static void run(String name, Callable<DiGraph> parse, Callable<?> iterate) throws Exception {
+        double millis = bestMillis(1, 3, parse);
+        double iterateMillis = bestMillis(1, 3, iterate);
+        long retained = retainedBytes(parse);
+        log(String.format("%-20s %10.1f ms parse %10.1f ms iterate %10d MiB retained", name, millis, iterateMillis,
+                retained / (1024 * 1024)));
+    }
+}
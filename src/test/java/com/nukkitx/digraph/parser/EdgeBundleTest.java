@@ -0,0 +1,157 @@
+package com.nukkitx.digraph.parser;
+
+import com.nukkitx.digraph.DiGraph;
+import com.nukkitx.digraph.DiGraphEdge;
+import org.antlr.v4.runtime.ANTLRInputStream;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+
+public class EdgeBundleTest {
+    private static GraphParserOptions options(ParseMode mode, int minBundleEdges) {
+        GraphParserOptions options = new GraphParserOptions();
+        options.setParseMode(mode);
+        options.setMinBundleEdges(minBundleEdges);
+        return options;
+    }
+
+    private static DiGraph parse(String text, GraphParserOptions options) throws GraphParserException {
+        byte[] input = text.getBytes(StandardCharsets.UTF_8);
+        return GraphParser.parse(input, 0, input.length, options);
+    }
+
+    /*
+     * overlapping statements between subgraphs, single edges before and after them on the same pairs, and ids
+     * with '-' whose edge keys can be split in more than one place
+     */
+    private static String fanOutGraph(int statements, long seed) {
+        Random random = new Random(seed);
+        StringBuilder sb = new StringBuilder("digraph fan {\n \"n1-n2\" -> n3 [w=0]\n");
+        for (int i = 0; i < statements; i++) {
+            if (random.nextInt(3) == 0) {
+                sb.append(" n").append(random.nextInt(12)).append(" -> n").append(random.nextInt(12))
+                        .append(" [w=").append(i).append(" s").append(i % 3).append("=x]\n");
+                continue;
+            }
+            sb.append(" {");
+            for (int n = random.nextInt(4); n >= 0; n--) sb.append(" n").append(random.nextInt(12));
+            sb.append(" } -> {");
+            for (int n = random.nextInt(4); n >= 0; n--) sb.append(" n").append(random.nextInt(12));
+            if (random.nextBoolean()) sb.append(" \"n2-n3\"");
+            sb.append(" }");
+            if (random.nextBoolean()) sb.append(" -> { n1 n").append(random.nextInt(12)).append(" }");
+            if (random.nextBoolean()) sb.append(" [w=").append(i).append(" c").append(i % 5).append("=y]");
+            sb.append("\n");
+        }
+        return sb.append("}\n").toString();
+    }
+
+    @Test
+    public void testSameGraphs() throws Exception {
+        for (String fname : ParserTest.RESOURCES) {
+            DiGraph expected = GraphParser.parse(Paths.get(fname));
+            for (ParseMode mode : ParseMode.values()) {
+                ParserTest.assertSameGraph(expected, GraphParser.parse(Paths.get(fname), options(mode, 2)));
+            }
+        }
+        for (long seed = 0; seed < 20; seed++) {
+            String text = fanOutGraph(60, seed);
+            DiGraph expected = parse(text, new GraphParserOptions());
+            for (ParseMode mode : ParseMode.values()) {
+                for (int min : new int[]{2, 4}) {
+                    DiGraph actual = parse(text, options(mode, min));
+                    Assert.assertTrue(((BundledDiGraph) actual).bundles() > 0);
+                    ParserTest.assertSameGraph(expected, actual);
+                    Assert.assertEquals(expected.getEdges().size(), actual.getEdges().size());
+                    for (String key : expected.getEdges().keySet()) {
+                        Assert.assertEquals(expected.getEdge(key).toString(), actual.getEdges().get(key).toString());
+                    }
+                    // again, now that get has kept every edge
+                    ParserTest.assertSameGraph(expected, actual);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testParallel() throws Exception {
+        String text = fanOutGraph(2000, 7);
+        DiGraph expected = parse(text, new GraphParserOptions());
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            GraphParserOptions options = options(ParseMode.TREE, 2);
+            options.setForkJoinPool(pool);
+            DiGraph actual = GraphParser.parseParallel(new ANTLRInputStream(text), options, 4096);
+            Assert.assertNotNull(actual);
+            Assert.assertTrue(((BundledDiGraph) actual).bundles() > 0);
+            ParserTest.assertSameGraph(expected, actual);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testBundle() throws Exception {
+        for (ParseMode mode : ParseMode.values()) {
+            DiGraph graph = parse("digraph { {a b c} -> {d e f} [k=v] a -> d [w=1] }", options(mode, 4));
+            Assert.assertEquals(1, ((BundledDiGraph) graph).bundles());
+            Map<String, DiGraphEdge> edges = graph.getEdges();
+            Assert.assertEquals(9, edges.size());
+            Assert.assertEquals("[a-d, a-e, a-f, b-d, b-e, b-f, c-d, c-e, c-f]", edges.keySet().toString());
+            Assert.assertEquals("1", graph.getEdge("a-d").getAttribute("w"));
+            Assert.assertEquals("v", graph.getEdge("a-d").getAttribute("k"));
+            Assert.assertNull(graph.getEdge("d-a"));
+            Assert.assertFalse(edges.containsKey("a-a"));
+            Assert.assertTrue(edges.containsKey("c-f"));
+
+            // an edge that was looked up is kept, changes to it stay
+            DiGraphEdge edge = graph.getEdge("b-e");
+            Assert.assertSame(graph.getNode("b"), edge.getNode1());
+            edge.setAttribute("k", "changed");
+            Assert.assertSame(edge, graph.getEdge("b-e"));
+            List<String> values = new ArrayList<>();
+            for (DiGraphEdge e : edges.values()) {
+                values.add((String) e.getAttribute("k"));
+            }
+            Assert.assertEquals("[v, v, v, v, changed, v, v, v, v]", values.toString());
+
+            Assert.assertNotNull(graph.getEdges().remove("c-d"));
+            Assert.assertEquals(0, ((BundledDiGraph) graph).bundles());
+            Assert.assertEquals(8, edges.size());
+            Assert.assertEquals("changed", graph.getEdge("b-e").getAttribute("k"));
+            Assert.assertEquals("c-f", graph.getEdges().lastKey());
+        }
+    }
+
+    @Test
+    public void testSmallStatements() throws Exception {
+        DiGraph graph = parse("digraph { a -> {b c} {a b} -> {c d e} }", options(ParseMode.SINGLE_PASS, 6));
+        Assert.assertEquals(1, ((BundledDiGraph) graph).bundles());
+        Assert.assertEquals(7, graph.getEdges().size());
+        Assert.assertEquals(new TreeMap<>(graph.getEdges()).toString(), graph.getEdges().toString());
+    }
+
+    @Test
+    public void testLargeFanOut() throws Exception {
+        StringBuilder sb = new StringBuilder("digraph { {");
+        for (int i = 0; i < 1000; i++) sb.append(" s").append(i);
+        sb.append(" } -> {");
+        for (int i = 0; i < 1000; i++) sb.append(" t").append(i);
+        sb.append(" } [color=red] }");
+        for (ParseMode mode : ParseMode.values()) {
+            DiGraph graph = parse(sb.toString(), options(mode, 2));
+            Assert.assertEquals(1, ((BundledDiGraph) graph).bundles());
+            Assert.assertEquals(1_000_000, graph.getEdges().size());
+            Assert.assertEquals("s0-t0", graph.getEdges().firstKey());
+            Assert.assertEquals("red", graph.getEdge("s999-t999").getAttribute("color"));
+        }
+    }
+}
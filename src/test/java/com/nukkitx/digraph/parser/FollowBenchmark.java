@@ -0,0 +1,73 @@
+package com.nukkitx.digraph.parser;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static com.nukkitx.digraph.parser.BenchmarkSupport.*;
+
+/**
+ * A DOT file growing by small batches of statements: {@link GraphFollower#poll()} after every batch against
+ * parsing the whole file again. Usage: {@code FollowBenchmark [statements] [batches] [statements per batch]}
+ */
+public class FollowBenchmark {
+    public static void main(String[] args) throws Exception {
+        int statements = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int batches = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        int batchSize = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        // the generated statements without the closing brace, and more of them to append
+        String text = generateGraph(statements, 42);
+        String initial = text.substring(0, text.lastIndexOf('}'));
+        String more = generateGraph(batches * batchSize, 7);
+        String[] lines = more.substring(more.indexOf('\n') + 1, more.lastIndexOf('}')).split("\n");
+
+        Path path = Files.createTempFile("follow", ".dg");
+        try {
+            Files.write(path, initial.getBytes(StandardCharsets.UTF_8));
+            log("input: " + statements + " statements, " + initial.length() + " chars, " + batches + " batches of "
+                    + batchSize + " statements");
+            log(String.format("%-20s %10.1f ms", "initial parse", bestMillis(2, 3, () -> {
+                try (GraphFollower follower = new GraphFollower(path)) {
+                    return follower.getGraph();
+                }
+            })));
+
+            List<Long> pollMicros = new ArrayList<>(batches);
+            List<Long> parseMicros = new ArrayList<>(batches);
+            try (GraphFollower follower = new GraphFollower(path)) {
+                for (int b = 0; b < batches; b++) {
+                    StringBuilder batch = new StringBuilder();
+                    for (int i = 0; i < batchSize; i++) {
+                        batch.append(lines[b * batchSize + i]).append('\n');
+                    }
+                    Files.write(path, batch.toString().getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+                    long start = System.nanoTime();
+                    follower.poll();
+                    pollMicros.add((System.nanoTime() - start) / 1000);
+                    // what a poller without follow mode does, every 20th batch to keep the run short
+                    if (b % 20 == 0) {
+                        start = System.nanoTime();
+                        new GraphFollower(path).close();
+                        parseMicros.add((System.nanoTime() - start) / 1000);
+                    }
+                }
+            }
+            report("poll", pollMicros);
+            report("parse whole file", parseMicros);
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    private static void report(String name, List<Long> micros) {
+        Collections.sort(micros);
+        int n = micros.size();
+        log(String.format("%-20s p50 %8d us  p90 %8d us  max %8d us", name, micros.get(n / 2), micros.get(n * 9 / 10),
+                micros.get(n - 1)));
+    }
+}
@@ -0,0 +1,173 @@
+package com.nukkitx.digraph.parser;
+
+import com.nukkitx.digraph.DiGraph;
+import com.nukkitx.digraph.DiGraphNode;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+
+public class GraphDocumentTest {
+    private static final String[] SNIPPETS = {
+            " n1", " n3", " n9999", " -> n2", " -> {n4 n5}", " [label=x]", " [color=blue weight=3]",
+            " [a=1 b=2 c=3 d=4 e=5 f=6 g=7 h=8 i=9 j=10 k=11 l=12 m=13]", ";", "\n", "\"", "{", "}", "=",
+            " subgraph { n2 -> n6 }", " # comment\n", "/* x */", " n1 [label=first]\n"
+    };
+
+    private static DiGraph parse(String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        return GraphParser.parse(bytes, 0, bytes.length);
+    }
+
+    @Test
+    public void testEdits() {
+        String text = "digraph G {\n a [x=1]\n b -> c [w=2]\n a -> b\n d\n}\n";
+        GraphDocument document = new GraphDocument(text);
+        DiGraph graph = document.getGraph();
+        DiGraphNode b = graph.getNode("b");
+        ParserTest.assertSameGraph(parse(text), graph);
+
+        // attribute changes, untouched nodes keep their identity
+        int offset = text.indexOf("x=1") + 2;
+        document.applyEdits(Collections.singletonList(new TextEdit(offset, 1, "2 y=3")));
+        ParserTest.assertSameGraph(parse(document.getText()), graph);
+        Assert.assertSame(graph, document.getGraph());
+        Assert.assertSame(b, graph.getNode("b"));
+        Assert.assertEquals("3", graph.getNode("a").getAttribute("y"));
+
+        // a new node before existing ones, a removed edge; the second offset is after the first edit
+        text = document.getText();
+        document.applyEdits(Arrays.asList(TextEdit.insert(text.indexOf(" a [") + 1, "z "),
+                TextEdit.delete(text.indexOf(" a -> b") + 4, 5)));
+        Assert.assertEquals("digraph G {\n z a [x=2 y=3]\n b -> c [w=2]\n a\n d\n}\n", document.getText());
+        ParserTest.assertSameGraph(parse(document.getText()), graph);
+        Assert.assertEquals("[z, a, b, c, d]", graph.getNodes().keySet().toString());
+
+        // joining two statements
+        text = document.getText();
+        document.applyEdits(Collections.singletonList(TextEdit.insert(text.indexOf("\n d"), " ->")));
+        ParserTest.assertSameGraph(parse(document.getText()), graph);
+        Assert.assertNotNull(graph.getEdge("a-d"));
+
+        // header edits parse the whole text
+        document.applyEdits(Collections.singletonList(new TextEdit(8, 1, "H")));
+        Assert.assertEquals("H", graph.getId());
+        ParserTest.assertSameGraph(parse(document.getText()), graph);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBundlesRejected() {
+        GraphParserOptions options = new GraphParserOptions();
+        options.setMinBundleEdges(4);
+        new GraphDocument("digraph { {a b} -> {c d} }", options);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testColumnarAttributesRejected() {
+        GraphParserOptions options = new GraphParserOptions();
+        options.setColumnarAttributes(true);
+        new GraphDocument("digraph { a [w=1] }", options);
+    }
+
+    @Test
+    public void testErrors() {
+        GraphDocument document = new GraphDocument("digraph { a -> b }");
+        DiGraph graph = document.getGraph();
+        try {
+            document.applyEdits(Collections.singletonList(TextEdit.delete(15, 1)));
+            Assert.fail();
+        } catch (GraphParserException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().startsWith("at line 1:"));
+        }
+        Assert.assertEquals("digraph { a ->  }", document.getText());
+        Assert.assertNotNull(graph.getEdge("a-b"));
+
+        document.applyEdits(Collections.singletonList(TextEdit.insert(15, "c")));
+        ParserTest.assertSameGraph(parse("digraph { a -> c }"), graph);
+
+        try {
+            document.applyEdits(Arrays.asList(TextEdit.insert(0, " "), TextEdit.delete(10, 100)));
+            Assert.fail();
+        } catch (IndexOutOfBoundsException expected) {
+        }
+        Assert.assertEquals("digraph { a -> c }", document.getText());
+    }
+
+    @Test
+    public void testLimits() {
+        // the text is parsed in many chunks, the limits apply to the whole text
+        StringBuilder sb = new StringBuilder("digraph {\n");
+        for (int i = 0; i < 1000; i++) {
+            sb.append(" n").append(i).append(" -> n").append(i + 1).append(";\n");
+        }
+        String text = sb.append("}\n").toString();
+        GraphParserOptions options = new GraphParserOptions();
+        options.setMaxNodes(1001);
+        options.setMaxEdges(1000);
+        GraphDocument document = new GraphDocument(text, options);
+        DiGraph graph = document.getGraph();
+        Assert.assertEquals(1001, graph.getNodes().size());
+
+        int offset = text.indexOf("n500 ->");
+        try {
+            document.applyEdits(Collections.singletonList(TextEdit.insert(offset, "x; ")));
+            Assert.fail();
+        } catch (GraphParserLimitException e) {
+            Assert.assertEquals(GraphParserLimitException.Limit.NODES, e.getLimit());
+        }
+        Assert.assertNull(graph.getNode("x"));
+        try {
+            document.applyEdits(Collections.singletonList(new TextEdit(offset, 3, "n1 -> n2; ")));
+            Assert.fail();
+        } catch (GraphParserLimitException e) {
+            Assert.assertEquals(GraphParserLimitException.Limit.EDGES, e.getLimit());
+        }
+        Assert.assertEquals(1000, graph.getEdges().size());
+
+        options.setMaxInputBytes(text.length());
+        try {
+            new GraphDocument(text + " ", options);
+            Assert.fail();
+        } catch (GraphParserLimitException e) {
+            Assert.assertEquals(GraphParserLimitException.Limit.INPUT_BYTES, e.getLimit());
+        }
+    }
+
+    @Test
+    public void testRandomEdits() {
+        for (long seed = 0; seed < 2; seed++) {
+            Random random = new Random(seed);
+            GraphDocument document = new GraphDocument(BenchmarkSupport.generateGraph(400, seed));
+            for (int i = 0; i < 150; i++) {
+                String text = document.getText();
+                int offset = random.nextInt(text.length());
+                int removed = random.nextInt(4) == 0 ? Math.min(random.nextInt(30), text.length() - offset) : 0;
+                String inserted = removed > 0 && random.nextBoolean() ? "" : SNIPPETS[random.nextInt(SNIPPETS.length)];
+                TextEdit edit = new TextEdit(offset, removed, inserted);
+
+                String expectedText = text.substring(0, offset) + inserted + text.substring(offset + removed);
+                DiGraph expected;
+                try {
+                    expected = parse(expectedText);
+                } catch (GraphParserException e) {
+                    expected = null;
+                }
+                try {
+                    document.applyEdits(Collections.singletonList(edit));
+                    Assert.assertNotNull(edit + " should fail", expected);
+                    ParserTest.assertSameGraph(expected, document.getGraph());
+                } catch (GraphParserException e) {
+                    Assert.assertNull(edit + " should parse", expected);
+                    // undo, the document has to come back to the graph it had
+                    document.applyEdits(Collections.singletonList(
+                            new TextEdit(offset, inserted.length(), text.substring(offset, offset + removed))));
+                    Assert.assertEquals(text, document.getText());
+                    ParserTest.assertSameGraph(parse(text), document.getGraph());
+                }
+            }
+        }
+    }
+}
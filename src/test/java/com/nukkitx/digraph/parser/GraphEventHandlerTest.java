@@ -0,0 +1,186 @@
+package com.nukkitx.digraph.parser;
+
+import com.nukkitx.digraph.DiGraph;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class GraphEventHandlerTest {
+
+    @Test
+    public void testDiGraphBuilder() throws Exception {
+        for (GraphParserOptions.Lexer lexer : GraphParserOptions.Lexer.values()) {
+            GraphParserOptions options = new GraphParserOptions();
+            options.setLexer(lexer);
+            for (String fname : ParserTest.RESOURCES) {
+                DiGraph expected;
+                try (FileInputStream stream = new FileInputStream(fname)) {
+                    expected = GraphParser.parse(stream);
+                }
+                DiGraphBuilder builder = new DiGraphBuilder();
+                try (FileInputStream stream = new FileInputStream(fname)) {
+                    GraphParser.parse(stream, builder, options);
+                }
+                ParserTest.assertSameGraph(expected, builder.getGraph());
+            }
+        }
+    }
+
+    @Test
+    public void testEvents() {
+        String text = "strict digraph \"g\" {\n"
+                + "  rankdir = LR; graph [size=\"4,4\" ratio=fill]\n"
+                + "  node [shape=box]\n"
+                + "  a [label=\"A\" color=red label=\"\\\"A\\\"\"]\n"
+                + "  a -> b -> { c d } [k=v]\n"
+                + "  subgraph cluster_x { label = X; e }\n"
+                + "  { f }\n"
+                + "}";
+        List<String> events = record(text);
+        Assert.assertEquals(Arrays.asList(
+                "startGraph \"g\"",
+                "attribute rankdir=LR",
+                "attribute ratio=fill",
+                "attribute size=4,4",
+                "node a {color=red, label=\"A\"}",
+                "node a {}",
+                "node b {}",
+                "enterSubgraph null",
+                "node c {}",
+                "node d {}",
+                "exitSubgraph",
+                "edge a b {k=v}",
+                "edge b c {k=v}",
+                "edge b d {k=v}",
+                "enterSubgraph cluster_x",
+                "attribute label=X",
+                "node e {}",
+                "exitSubgraph",
+                "enterSubgraph null",
+                "node f {}",
+                "exitSubgraph",
+                "endGraph"), events);
+    }
+
+    @Test
+    public void testNestedEdgeOrder() {
+        // edges are held back until the outermost edge statement ends, inner edges come first
+        List<String> events = record("digraph { a -> { b -> c [k=inner] } [k=outer] }");
+        Assert.assertEquals(Arrays.asList(
+                "startGraph null",
+                "node a {}",
+                "enterSubgraph null",
+                "node b {}",
+                "node c {}",
+                "exitSubgraph",
+                "edge b c {k=inner}",
+                "edge a b {k=outer}",
+                "edge a c {k=outer}",
+                "endGraph"), events);
+    }
+
+    @Test(expected = GraphParserException.class)
+    public void testError() {
+        record("digraph { a -> }");
+    }
+
+    @Test
+    public void testLongStream() {
+        // generated on the fly, the input is never held in memory as a whole
+        final int statements = 200_000;
+        final int[] counts = new int[2];
+        GraphParser.parse(new GeneratedInputStream(statements), new GraphEventHandler() {
+            @Override
+            public void node(String id, AttributeList attributes) {
+                counts[0]++;
+            }
+
+            @Override
+            public void edge(String sourceId, String targetId, AttributeList attributes) {
+                Assert.assertEquals("1", attributes.getValue("w"));
+                counts[1]++;
+            }
+        });
+        Assert.assertEquals(statements * 2, counts[0]);
+        Assert.assertEquals(statements, counts[1]);
+    }
+
+    static List<String> record(String text) {
+        return record(text, new GraphParserOptions());
+    }
+
+    static List<String> record(String text, GraphParserOptions options) {
+        final List<String> events = new ArrayList<>();
+        GraphParser.parse(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)), new GraphEventHandler() {
+            @Override
+            public void startGraph(String id) {
+                events.add("startGraph " + id);
+            }
+
+            @Override
+            public void endGraph() {
+                events.add("endGraph");
+            }
+
+            @Override
+            public void enterSubgraph(String id) {
+                events.add("enterSubgraph " + id);
+            }
+
+            @Override
+            public void exitSubgraph() {
+                events.add("exitSubgraph");
+            }
+
+            @Override
+            public void node(String id, AttributeList attributes) {
+                events.add("node " + id + " " + attributes);
+            }
+
+            @Override
+            public void edge(String sourceId, String targetId, AttributeList attributes) {
+                events.add("edge " + sourceId + " " + targetId + " " + attributes);
+            }
+
+            @Override
+            public void attribute(String key, String value) {
+                events.add("attribute " + key + "=" + value);
+            }
+        }, options);
+        return events;
+    }
+
+    /*
+     * "digraph { n0 -> n1 [w=1]; n1 -> n2 [w=1]; ... }" produced statement by statement
+     */
+    private static class GeneratedInputStream extends InputStream {
+        private final int statements;
+        private int statement = -1;
+        private byte[] chunk = "digraph {\n".getBytes(StandardCharsets.US_ASCII);
+        private int pos;
+
+        GeneratedInputStream(int statements) {
+            this.statements = statements;
+        }
+
+        @Override
+        public int read() throws IOException {
+            while (pos == chunk.length) {
+                if (statement == statements) return -1;
+                statement++;
+                String text = statement < statements ? " n" + statement + " -> n" + (statement + 1) + " [w=1];\n" : "}\n";
+                chunk = text.getBytes(StandardCharsets.US_ASCII);
+                pos = 0;
+            }
+            return chunk[pos++];
+        }
+    }
+}
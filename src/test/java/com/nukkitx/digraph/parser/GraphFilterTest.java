@@ -0,0 +1,151 @@
+package com.nukkitx.digraph.parser;
+
+import com.nukkitx.digraph.DiGraph;
+import com.nukkitx.digraph.DiGraphEdge;
+import com.nukkitx.digraph.DiGraphElement;
+import com.nukkitx.digraph.DiGraphNode;
+import org.antlr.v4.runtime.ANTLRInputStream;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+public class GraphFilterTest {
+    private static List<GraphFilter> filters() {
+        List<GraphFilter> filters = new ArrayList<>();
+        GraphFilter nodes = new GraphFilter();
+        nodes.setNodePredicate(id -> id.hashCode() % 3 != 0);
+        filters.add(nodes);
+        GraphFilter edges = new GraphFilter();
+        edges.setEdgePredicate((source, target) -> source.compareTo(target) < 0);
+        filters.add(edges);
+        GraphFilter keys = new GraphFilter();
+        keys.setAttributeKeys(Arrays.asList("weight", "label", "color"));
+        filters.add(keys);
+        GraphFilter all = new GraphFilter();
+        all.setNodePredicate(nodes.getNodePredicate());
+        all.setEdgePredicate(edges.getEdgePredicate());
+        all.setAttributeKeys(Arrays.asList("weight", "label"));
+        filters.add(all);
+        return filters;
+    }
+
+    private static GraphParserOptions options(ParseMode mode, GraphFilter filter) {
+        GraphParserOptions options = new GraphParserOptions();
+        options.setParseMode(mode);
+        options.setFilter(filter);
+        return options;
+    }
+
+    private static DiGraph parse(String text, GraphParserOptions options) throws GraphParserException {
+        byte[] input = text.getBytes(StandardCharsets.UTF_8);
+        return GraphParser.parse(input, 0, input.length, options);
+    }
+
+    /*
+     * filtered is full without the nodes, edges and attributes the filter rejects, in the same order
+     */
+    private static void assertProjection(DiGraph full, DiGraph filtered, GraphFilter filter) {
+        Assert.assertEquals(full.getId(), filtered.getId());
+        Iterator<DiGraphNode> nodes = filtered.getNodes().values().iterator();
+        for (DiGraphNode node : full.getNodes().values()) {
+            if (!filter.keepsNode(node.getId())) continue;
+            assertProjection(node, nodes.next(), filter);
+        }
+        Assert.assertFalse(nodes.hasNext());
+        Iterator<DiGraphEdge> edges = filtered.getEdges().values().iterator();
+        for (DiGraphEdge edge : full.getEdges().values()) {
+            String source = edge.getNode1().getId();
+            String target = edge.getNode2().getId();
+            if (!filter.keepsNode(source) || !filter.keepsNode(target) || !filter.keepsEdge(source, target)) continue;
+            DiGraphEdge actual = edges.next();
+            assertProjection(edge, actual, filter);
+            Assert.assertSame(filtered.getNode(source), actual.getNode1());
+            Assert.assertSame(filtered.getNode(target), actual.getNode2());
+        }
+        Assert.assertFalse(edges.hasNext());
+    }
+
+    private static void assertProjection(DiGraphElement expected, DiGraphElement actual, GraphFilter filter) {
+        Assert.assertEquals(expected.getId(), actual.getId());
+        Map<String, Object> attrs = new HashMap<>();
+        for (Map.Entry<String, Object> entry : expected.getAttributes().entrySet()) {
+            if (filter.keepsAttribute(entry.getKey())) attrs.put(entry.getKey(), entry.getValue());
+        }
+        Assert.assertEquals(attrs, actual.getAttributes());
+    }
+
+    @Test
+    public void testProjection() throws Exception {
+        String text = BenchmarkSupport.generateGraph(2000, 3);
+        for (ParseMode mode : ParseMode.values()) {
+            DiGraph full = parse(text, options(mode, null));
+            for (GraphFilter filter : filters()) {
+                assertProjection(full, parse(text, options(mode, filter)), filter);
+                for (String fname : ParserTest.RESOURCES) {
+                    assertProjection(GraphParser.parse(Paths.get(fname)), GraphParser.parse(Paths.get(fname), options(mode, filter)), filter);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testBundles() throws Exception {
+        String text = "digraph { {a b c} -> {d e f} [k=v w=1] }";
+        for (ParseMode mode : ParseMode.values()) {
+            for (GraphFilter filter : filters()) {
+                GraphParserOptions options = options(mode, filter);
+                options.setMinBundleEdges(2);
+                DiGraph graph = parse(text, options);
+                Assert.assertEquals(filter.keepsAllEdges() ? 1 : 0, ((BundledDiGraph) graph).bundles());
+                assertProjection(parse(text, options(mode, null)), graph, filter);
+            }
+        }
+    }
+
+    @Test
+    public void testEvents() {
+        GraphFilter filter = new GraphFilter();
+        filter.setNodePredicate(id -> !id.equals("b"));
+        filter.setAttributeKeys(Arrays.asList("x", "rankdir"));
+        for (ParseMode mode : ParseMode.values()) {
+            Assert.assertEquals(Arrays.asList(
+                    "startGraph null",
+                    "attribute rankdir=LR",
+                    "node a {x=1}",
+                    "node a {}",
+                    "enterSubgraph null",
+                    "node c {}",
+                    "exitSubgraph",
+                    "edge a c {x=3}",
+                    "node c {}",
+                    "endGraph"), GraphEventHandlerTest.record("digraph { rankdir=LR; size=4; a [x=1 y=2] b [x=2]; "
+                    + "a -> { b c } [x=3 y=4] b -> c }", options(mode, filter)));
+        }
+    }
+
+    @Test
+    public void testParallel() throws Exception {
+        String text = BenchmarkSupport.generateGraph(4000, 5);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (GraphFilter filter : filters()) {
+                GraphParserOptions options = options(ParseMode.TREE, filter);
+                options.setForkJoinPool(pool);
+                DiGraph actual = GraphParser.parseParallel(new ANTLRInputStream(text), options, 4096);
+                Assert.assertNotNull(actual);
+                assertProjection(parse(text, options(ParseMode.TREE, null)), actual, filter);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,309 @@
+package com.nukkitx.digraph.parser;
+
+import com.nukkitx.digraph.AttributeColumns;
+import com.nukkitx.digraph.DiGraph;
+import com.nukkitx.digraph.DiGraphNode;
+import org.antlr.v4.runtime.ANTLRInputStream;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Random;
+
+public class GraphFollowerTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static void append(Path path, String text) throws IOException {
+        append(path, text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void append(Path path, byte[] bytes) throws IOException {
+        Files.write(path, bytes, StandardOpenOption.APPEND);
+    }
+
+    private static DiGraph parse(String text) {
+        return parse(text, new GraphParserOptions());
+    }
+
+    private static DiGraph parse(String text, GraphParserOptions options) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        return GraphParser.parse(bytes, 0, bytes.length, options);
+    }
+
+    @Test
+    public void testFollow() throws Exception {
+        Path path = folder.newFile("log.dg").toPath();
+        append(path, "digr");
+        try (GraphFollower follower = new GraphFollower(path)) {
+            DiGraph graph = follower.getGraph();
+            Assert.assertEquals(4, follower.getOffset());
+            Assert.assertFalse(follower.poll());
+
+            // the last statement may still grow
+            append(path, "aph \"G\" {\n a -> b\n c [x=1]");
+            Assert.assertTrue(follower.poll());
+            Assert.assertEquals("\"G\"", graph.getId());
+            Assert.assertEquals("[a, b]", graph.getNodes().keySet().toString());
+            Assert.assertSame(graph, follower.getGraph());
+
+            append(path, " [y=2]\n c -> a /* open");
+            Assert.assertTrue(follower.poll());
+            Assert.assertEquals("2", graph.getNode("c").getAttribute("y"));
+            Assert.assertNull(graph.getEdge("c-a"));
+
+            // a ';' ends a statement right away, a multi-byte char split across writes
+            byte[] label = " comment */; d [label=\"\u00e9\"]; e".getBytes(StandardCharsets.UTF_8);
+            int split = new String(label, StandardCharsets.ISO_8859_1).indexOf('\u00c3') + 1;
+            append(path, Arrays.copyOf(label, split));
+            follower.poll();
+            Assert.assertNotNull(graph.getEdge("c-a"));
+            Assert.assertNull(graph.getNode("d"));
+            append(path, Arrays.copyOfRange(label, split, label.length));
+            Assert.assertTrue(follower.poll());
+            Assert.assertEquals("\u00e9", graph.getNode("d").getAttribute("label"));
+            Assert.assertNull(graph.getNode("e"));
+
+            append(path, "\n}\n");
+            Assert.assertTrue(follower.poll());
+            Assert.assertTrue(follower.isComplete());
+            ParserTest.assertSameGraph(parse(new String(Files.readAllBytes(path), StandardCharsets.UTF_8)), graph);
+            append(path, "more");
+            Assert.assertFalse(follower.poll());
+        }
+    }
+
+    @Test
+    public void testErrors() throws Exception {
+        Path path = folder.newFile("broken.dg").toPath();
+        append(path, "digraph {\n a -> b\n  c -> -> d\n e\n");
+        String expected = null;
+        try {
+            parse("digraph {\n a -> b\n  c -> -> d\n e\n}");
+        } catch (GraphParserException e) {
+            expected = e.getMessage();
+        }
+        Assert.assertNotNull(expected);
+        try {
+            new GraphFollower(path).close();
+            Assert.fail();
+        } catch (GraphParserException e) {
+            Assert.assertEquals(expected, e.getMessage());
+        }
+
+        Path shrinking = folder.newFile("shrinking.dg").toPath();
+        append(shrinking, "digraph { a b ");
+        try (GraphFollower follower = new GraphFollower(shrinking)) {
+            Assert.assertNotNull(follower.getGraph().getNode("a"));
+            append(shrinking, "c -> -> d e");
+            try {
+                follower.poll();
+                Assert.fail();
+            } catch (GraphParserException expectedFailure) {
+            }
+            try {
+                follower.poll();
+                Assert.fail();
+            } catch (GraphParserException expectedFailure) {
+            }
+            Files.write(shrinking, "digraph {".getBytes(StandardCharsets.UTF_8));
+            try {
+                follower.poll();
+                Assert.fail();
+            } catch (IOException expectedFailure) {
+            }
+        }
+    }
+
+    @Test
+    public void testLimits() throws Exception {
+        // each poll parses a few statements, the limits apply to the whole file
+        GraphParserOptions options = new GraphParserOptions();
+        options.setMaxNodes(10);
+        Path nodes = folder.newFile("nodes.dg").toPath();
+        append(nodes, "digraph {\n");
+        try (GraphFollower follower = new GraphFollower(nodes, options)) {
+            for (int i = 0; i < 10; i += 2) {
+                append(nodes, " n" + i + " -> n" + (i + 1) + ";\n");
+                Assert.assertTrue(follower.poll());
+            }
+            append(nodes, " n10;\n");
+            assertLimit(GraphParserLimitException.Limit.NODES, follower);
+            append(nodes, "}\n");
+            assertLimit(GraphParserLimitException.Limit.NODES, follower);
+        }
+
+        options = new GraphParserOptions();
+        options.setMaxEdges(5);
+        Path edges = folder.newFile("edges.dg").toPath();
+        append(edges, "digraph {\n a -> {b c};\n");
+        try (GraphFollower follower = new GraphFollower(edges, options)) {
+            append(edges, " a -> b -> c;\n");
+            Assert.assertTrue(follower.poll());
+            append(edges, " c -> a -> b;\n");
+            assertLimit(GraphParserLimitException.Limit.EDGES, follower);
+        }
+
+        options = new GraphParserOptions();
+        options.setMaxInputBytes(40);
+        Path input = folder.newFile("input.dg").toPath();
+        append(input, "digraph {\n a -> b;\n");
+        try (GraphFollower follower = new GraphFollower(input, options)) {
+            append(input, " c -> d;\n");
+            Assert.assertTrue(follower.poll());
+            append(input, " e -> f;\n e -> g;\n");
+            assertLimit(GraphParserLimitException.Limit.INPUT_BYTES, follower);
+            Assert.assertNull(follower.getGraph().getNode("e"));
+        }
+    }
+
+    private static void assertLimit(GraphParserLimitException.Limit limit, GraphFollower follower) throws IOException {
+        try {
+            follower.poll();
+            Assert.fail();
+        } catch (GraphParserLimitException e) {
+            Assert.assertEquals(limit, e.getLimit());
+        }
+    }
+
+    @Test
+    public void testRandomWrites() throws Exception {
+        for (long seed = 0; seed < 3; seed++) {
+            String text = BenchmarkSupport.generateGraph(300, seed) + " /* trailing */";
+            byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+            Path path = folder.newFile("random" + seed + ".dg").toPath();
+            Random random = new Random(seed);
+            try (GraphFollower follower = new GraphFollower(path)) {
+                int written = 0;
+                while (written < bytes.length) {
+                    int length = Math.min(bytes.length - written, 1 + random.nextInt(random.nextBoolean() ? 8 : 400));
+                    append(path, Arrays.copyOfRange(bytes, written, written + length));
+                    written += length;
+                    follower.poll();
+                    // nothing is read after the closing brace
+                    if (!follower.isComplete()) Assert.assertEquals(written, follower.getOffset());
+                }
+                Assert.assertTrue(follower.isComplete());
+                ParserTest.assertSameGraph(parse(text), follower.getGraph());
+            }
+        }
+    }
+
+    @Test
+    public void testBundles() throws Exception {
+        String text = "digraph { x -> y {a b c} -> {d e f} [w=1] a -> d [w=2] }";
+        Path path = folder.newFile("bundles.dg").toPath();
+        GraphParserOptions options = new GraphParserOptions();
+        options.setMinBundleEdges(4);
+        try (GraphFollower follower = new GraphFollower(path, options)) {
+            for (String part : text.split("(?<=\\])")) {
+                append(path, part);
+                follower.poll();
+            }
+            Assert.assertTrue(follower.isComplete());
+            DiGraph graph = follower.getGraph();
+            Assert.assertTrue(graph instanceof BundledDiGraph);
+            Assert.assertEquals(1, ((BundledDiGraph) graph).bundles());
+            ParserTest.assertSameGraph(parse(text), graph);
+        }
+    }
+
+    @Test
+    public void testColumnarAttributes() throws Exception {
+        String text = "digraph { a [w=1 x=2.5] b [w=3 label=\"B\"] a -> b [w=4] b [x=007] }";
+        Path path = folder.newFile("columns.dg").toPath();
+        GraphParserOptions options = new GraphParserOptions();
+        options.setColumnarAttributes(true);
+        try (GraphFollower follower = new GraphFollower(path, options)) {
+            for (int i = 0; i < text.length(); i += 5) {
+                append(path, text.substring(i, Math.min(text.length(), i + 5)));
+                follower.poll();
+            }
+            Assert.assertTrue(follower.isComplete());
+            DiGraph graph = follower.getGraph();
+            DiGraph expected = parse(text, options);
+            Assert.assertEquals(AttributeColumns.Type.LONG, graph.getNodeColumns().column("w").getType());
+            Assert.assertEquals(AttributeColumns.Type.OBJECT, graph.getNodeColumns().column("x").getType());
+            Assert.assertEquals(4, graph.getEdgeColumns().column("w").getLong(0));
+            for (DiGraphNode node : expected.getNodes().values()) {
+                Assert.assertEquals(node.getAttributes(), graph.getNode(node.getId()).getAttributes());
+            }
+            Assert.assertEquals(expected.getEdge("a-b").getAttributes(), graph.getEdge("a-b").getAttributes());
+        }
+    }
+
+    @Test
+    public void testEscapedQuotes() throws Exception {
+        String text = "digraph \"g\\\"h\" { a -> \"x\\\"y z\" [label=\"say \\\"hi\\\"\"] \"\\\"\" -> b }";
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        for (int step : new int[]{1, 4}) {
+            Path path = folder.newFile("quotes" + step + ".dg").toPath();
+            try (GraphFollower follower = new GraphFollower(path)) {
+                for (int written = 0; written < bytes.length; written += step) {
+                    append(path, Arrays.copyOfRange(bytes, written, Math.min(bytes.length, written + step)));
+                    follower.poll();
+                }
+                Assert.assertTrue(follower.isComplete());
+                ParserTest.assertSameGraph(parse(text), follower.getGraph());
+                Assert.assertEquals(parse(text).getId(), follower.getGraph().getId());
+            }
+        }
+    }
+
+    @Test(timeout = 60_000)
+    public void testGrowingStatement() throws Exception {
+        // one edge chain written in small pieces, no statement ends before the closing brace
+        StringBuilder sb = new StringBuilder("digraph { n0");
+        for (int i = 1; i < 20_000; i++) {
+            sb.append(" -> n").append(i);
+        }
+        String text = sb.append(" [w=1] }").toString();
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        Path path = folder.newFile("chain.dg").toPath();
+        try (GraphFollower follower = new GraphFollower(path)) {
+            for (int written = 0; written < bytes.length; written += 16) {
+                append(path, Arrays.copyOfRange(bytes, written, Math.min(bytes.length, written + 16)));
+                follower.poll();
+                Assert.assertTrue(follower.isComplete() || follower.getGraph().getEdges().isEmpty());
+            }
+            Assert.assertTrue(follower.isComplete());
+            ParserTest.assertSameGraph(parse(text), follower.getGraph());
+        }
+    }
+
+    @Test
+    public void testResumedSplits() {
+        String text = BenchmarkSupport.generateGraph(200, 4) + " /* trailing */";
+        Random random = new Random(4);
+        int from = text.indexOf('{') + 1;
+        StatementSplitter previous = null;
+        int resumes = 0;
+        for (int end = from; end <= text.length(); end += 1 + random.nextInt(6)) {
+            ANTLRInputStream input = new ANTLRInputStream(text.substring(from, end));
+            StatementSplitter expected = StatementSplitter.splitAppended(input, false);
+            StatementSplitter resumed = previous != null ? StatementSplitter.resumeAppended(input, previous) : null;
+            if (resumed != null) {
+                resumes++;
+                Assert.assertEquals(expected.chunks(), resumed.chunks());
+                Assert.assertEquals(expected.start(0), resumed.start(0));
+                Assert.assertEquals(expected.closed(), resumed.closed());
+                if (expected.chunks() > 0) Assert.assertEquals(expected.end(0), resumed.end(0));
+            }
+            if (expected.chunks() > 0) {
+                // the follower drops the complete statements and scans the rest from its start
+                from += expected.end(0);
+                previous = null;
+            } else {
+                previous = resumed != null ? resumed : expected;
+            }
+        }
+        Assert.assertTrue(resumes > 100);
+    }
+}
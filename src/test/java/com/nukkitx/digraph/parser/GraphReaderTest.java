@@ -0,0 +1,153 @@
+package com.nukkitx.digraph.parser;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Checks that {@link GraphReader} produces the events {@link GraphParser} reports to a {@link GraphEventHandler}.
+ */
+public class GraphReaderTest {
+    private static final String[] FRAGMENTS = {
+            "a", "b", "\"c d\"", "<<i>e</i>>", "1", "-2.5", "->", "--", "{", "}", "[", "]", "=", ",", ";", ":",
+            "subgraph", "s", "graph", "node", "edge", "k=v", "[x=1]", "{ a b }", "a -> b", "\"q\\\"r\""
+    };
+
+    @Test
+    public void testResources() throws Exception {
+        for (String fname : ParserTest.RESOURCES) {
+            String text = ParserTest.readResource(fname);
+            Assert.assertEquals(fname, GraphEventHandlerTest.record(text), read(text));
+        }
+    }
+
+    @Test
+    public void testGenerated() {
+        String text = BenchmarkSupport.generateGraph(2000, 7);
+        Assert.assertEquals(GraphEventHandlerTest.record(text), read(text));
+    }
+
+    @Test
+    public void testAccessors() throws Exception {
+        String text = "digraph g { a [label=\"A\" w=1]; a -> b [k=v]; x = y }";
+        try (GraphReader reader = new GraphReader(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)))) {
+            Assert.assertEquals(GraphReader.EventType.START_GRAPH, reader.next());
+            Assert.assertEquals("g", reader.graphId());
+            Assert.assertEquals(GraphReader.EventType.NODE, reader.next());
+            Assert.assertEquals("a", reader.nodeId());
+            Assert.assertEquals(2, reader.attributeCount());
+            Assert.assertEquals("label", reader.attributeKey(0));
+            Assert.assertEquals("A", reader.attribute(0));
+            Assert.assertEquals("1", reader.attribute("w"));
+            Assert.assertEquals(GraphReader.EventType.NODE, reader.next());
+            Assert.assertEquals(0, reader.attributeCount());
+            Assert.assertEquals(GraphReader.EventType.NODE, reader.next());
+            Assert.assertEquals("b", reader.nodeId());
+            Assert.assertEquals(GraphReader.EventType.EDGE, reader.next());
+            Assert.assertEquals("a", reader.sourceId());
+            Assert.assertEquals("b", reader.targetId());
+            Assert.assertEquals("v", reader.attribute("k"));
+            Assert.assertNull(reader.nodeId());
+            Assert.assertEquals(GraphReader.EventType.ATTRIBUTE, reader.next());
+            Assert.assertEquals("x", reader.attributeKey(0));
+            Assert.assertEquals("y", reader.attribute(0));
+            Assert.assertEquals(GraphReader.EventType.END_GRAPH, reader.next());
+            Assert.assertEquals(GraphReader.EventType.END_DOCUMENT, reader.next());
+            Assert.assertEquals(GraphReader.EventType.END_DOCUMENT, reader.next());
+        }
+    }
+
+    @Test
+    public void testNodeAttributesInSubgraph() {
+        String text = "digraph { { a [x=1] b [y=2] } c [z=3] }";
+        Assert.assertEquals(GraphEventHandlerTest.record(text), read(text));
+    }
+
+    @Test
+    public void testDeepOperands() {
+        // every operand holds the ids of the operands nested in it
+        int depth = 200;
+        StringBuilder sb = new StringBuilder("digraph { x -> ");
+        for (int i = 0; i < depth; i++) {
+            sb.append("{ n").append(i).append(" n0 -> ");
+        }
+        sb.append('z');
+        for (int i = 0; i < depth; i++) {
+            sb.append(" } -> y").append(i % 3);
+        }
+        String text = sb.append(" }").toString();
+        GraphParserOptions options = new GraphParserOptions();
+        options.setParseMode(ParseMode.ITERATIVE);
+        Assert.assertEquals(GraphEventHandlerTest.record(text, options), read(text));
+    }
+
+    @Test(expected = GraphParserException.class)
+    public void testError() {
+        read("digraph { a -> }");
+    }
+
+    @Test
+    public void testRandomStatements() {
+        Random random = new Random(3);
+        for (int n = 0; n < 5000; n++) {
+            StringBuilder sb = new StringBuilder("digraph {");
+            int length = random.nextInt(12);
+            for (int i = 0; i < length; i++) {
+                sb.append(' ').append(FRAGMENTS[random.nextInt(FRAGMENTS.length)]);
+            }
+            String text = sb.append(" }").toString();
+
+            List<String> expected;
+            try {
+                expected = GraphEventHandlerTest.record(text);
+            } catch (GraphParserException e) {
+                expected = null;
+            }
+            List<String> actual;
+            try {
+                actual = read(text);
+            } catch (GraphParserException e) {
+                actual = null;
+            }
+            Assert.assertEquals(text, expected, actual);
+        }
+    }
+
+    static List<String> read(String text) {
+        List<String> events = new ArrayList<>();
+        GraphReader reader = new GraphReader(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)));
+        for (; ; ) {
+            GraphReader.EventType type = reader.next();
+            switch (type) {
+                case START_GRAPH:
+                    events.add("startGraph " + reader.graphId());
+                    break;
+                case END_GRAPH:
+                    events.add("endGraph");
+                    break;
+                case ENTER_SUBGRAPH:
+                    events.add("enterSubgraph " + reader.graphId());
+                    break;
+                case EXIT_SUBGRAPH:
+                    events.add("exitSubgraph");
+                    break;
+                case NODE:
+                    events.add("node " + reader.nodeId() + " " + reader.attributes());
+                    break;
+                case EDGE:
+                    events.add("edge " + reader.sourceId() + " " + reader.targetId() + " " + reader.attributes());
+                    break;
+                case ATTRIBUTE:
+                    events.add("attribute " + reader.attributeKey(0) + "=" + reader.attribute(0));
+                    break;
+                default:
+                    return events;
+            }
+        }
+    }
+}
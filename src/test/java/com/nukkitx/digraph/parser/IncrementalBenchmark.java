@@ -0,0 +1,61 @@
+package com.nukkitx.digraph.parser;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static com.nukkitx.digraph.parser.BenchmarkSupport.*;
+
+/**
+ * Latency of single keystrokes on a large document, {@link GraphDocument#applyEdits} against parsing the whole
+ * text again. Usage: {@code IncrementalBenchmark [statements] [edits]}
+ */
+public class IncrementalBenchmark {
+    public static void main(String[] args) throws Exception {
+        int statements = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int edits = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        String text = generateGraph(statements, 42);
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        log("input: " + statements + " statements, " + text.length() + " chars");
+
+        log(String.format("%-28s %10.1f ms", "full parse", bestMillis(2, 3, () -> GraphParser.parse(bytes, 0, bytes.length))));
+        log(String.format("%-28s %10.1f ms", "new GraphDocument", bestMillis(1, 3, () -> new GraphDocument(text))));
+
+        GraphDocument document = new GraphDocument(text);
+        Random random = new Random(1);
+        // typing into an attribute value, into a node id (a new node in the middle), a new statement at the end
+        report("edit attribute value", document, edits, () -> {
+            String current = document.getText();
+            int offset = current.indexOf("weight=", random.nextInt(current.length() / 2)) + 7;
+            return TextEdit.insert(offset, "1");
+        });
+        report("edit node id", document, edits, () -> {
+            String current = document.getText();
+            int offset = current.indexOf(" n", random.nextInt(current.length() / 2)) + 2;
+            return TextEdit.insert(offset, "x");
+        });
+        report("append statement", document, edits, () -> {
+            int end = document.getText().lastIndexOf('}');
+            return TextEdit.insert(end, " n" + random.nextInt(statements) + " -> n" + random.nextInt(statements) + "\n");
+        });
+    }
+
+    private interface EditSource {
+        TextEdit next();
+    }
+
+    private static void report(String name, GraphDocument document, int edits, EditSource source) {
+        List<Long> micros = new ArrayList<>(edits);
+        for (int i = 0; i < edits; i++) {
+            List<TextEdit> edit = Collections.singletonList(source.next());
+            long start = System.nanoTime();
+            document.applyEdits(edit);
+            micros.add((System.nanoTime() - start) / 1000);
+        }
+        Collections.sort(micros);
+        log(String.format("%-28s p50 %8d us  p90 %8d us  max %8d us", name, micros.get(edits / 2),
+                micros.get(edits * 9 / 10), micros.get(edits - 1)));
+    }
+}
@@ -0,0 +1,79 @@
+package com.nukkitx.digraph.parser;
+
+import com.nukkitx.digraph.DiGraph;
+import com.nukkitx.digraph.DiGraphEdge;
+import com.nukkitx.digraph.DiGraphNode;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.Callable;
+
+import static com.nukkitx.digraph.parser.BenchmarkSupport.*;
+
+/**
+ * Parsing with attribute values decoded up front against {@link GraphParserOptions#setLazyAttributes lazy}
+ * values, for a consumer that reads one or two attributes of every element: the generated graph, and one whose
+ * statements carry eight attributes with quoted values. Retained sizes include the input the lazy values read
+ * from. Usage: {@code LazyAttributeBenchmark [statements]}
+ */
+public class LazyAttributeBenchmark {
+    public static void main(String[] args) throws Exception {
+        int statements = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        run("generated", generateGraph(statements, 42).getBytes(StandardCharsets.UTF_8));
+        run("wide", wideGraph(statements).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void run(String name, byte[] input) throws Exception {
+        log(name + ": " + input.length / 1024 + " KiB");
+        for (ParseMode mode : ParseMode.values()) {
+            for (boolean lazy : new boolean[]{false, true}) {
+                GraphParserOptions options = new GraphParserOptions();
+                options.setParseMode(mode);
+                options.setLexer(GraphParserOptions.Lexer.SCANNER);
+                options.setLazyAttributes(lazy);
+                run(mode + (lazy ? " lazy" : " eager"), () -> read(GraphParser.parse(input, 0, input.length, options)));
+            }
+        }
+    }
+
+    /*
+     * what a typical consumer looks at, the label of every node and the weight of every edge
+     */
+    private static DiGraph read(DiGraph graph) {
+        for (DiGraphNode node : graph.getNodes().values()) {
+            node.getAttribute("label");
+        }
+        for (DiGraphEdge edge : graph.getEdges().values()) {
+            edge.getAttribute("weight");
+        }
+        return graph;
+    }
+
+    /*
+     * node and edge statements with eight attributes each, half of them quoted
+     */
+    private static String wideGraph(int statements) {
+        Random random = new Random(42);
+        int nodes = Math.max(16, statements / 2);
+        StringBuilder sb = new StringBuilder(statements * 160);
+        sb.append("digraph wide {\n");
+        for (int i = 0; i < statements; i++) {
+            sb.append(" n").append(random.nextInt(nodes));
+            if (random.nextBoolean()) sb.append(" -> n").append(random.nextInt(nodes));
+            sb.append(" [label=\"Element ").append(i).append("\" weight=").append(random.nextInt(100))
+                    .append(" color=c").append(random.nextInt(8)).append(" style=solid")
+                    .append(" tooltip=\"say \\\"").append(i).append("\\\"\" penwidth=").append(random.nextInt(4))
+                    .append(" URL=\"http://example.com/").append(i).append("\" group=\"g").append(i % 16).append("\"]\n");
+        }
+        sb.append("}\n");
+        return sb.toString();
+    }
+
+    private static void run(String name, Callable<?> task) throws Exception {
+        double millis = bestMillis(2, 5, task);
+        long allocated = allocatedBytes(task);
+        long retained = retainedBytes(task);
+        log(String.format("%-18s %10.1f ms %10d MiB allocated %10d MiB retained", name, millis,
+                allocated / (1024 * 1024), retained / (1024 * 1024)));
+    }
+}
@@ -0,0 +1,45 @@
+package com.nukkitx.digraph.parser;
+
+import com.nukkitx.digraph.parser.antlr.DOTLexer;
+import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.Token;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import static com.nukkitx.digraph.parser.BenchmarkSupport.*;
+
+/**
+ * Tokenizes a generated graph with {@link DOTLexer} and {@link DOTScanner}, then parses it with both lexers.
+ * Usage: {@code LexerBenchmark [statements]}
+ */
+public class LexerBenchmark {
+    public static void main(String[] args) throws Exception {
+        int statements = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        String text = generateGraph(statements, 42);
+        byte[] input = text.getBytes(StandardCharsets.UTF_8);
+        log("input: " + statements + " statements, " + input.length / 1024 + " KiB");
+
+        double lexer = bestMillis(3, 5, () -> {
+            DOTLexer l = new DOTLexer(new ANTLRInputStream(text));
+            int n = 0;
+            while (l.nextToken().getType() != Token.EOF) n++;
+            return n;
+        });
+        double scanner = bestMillis(3, 5, () -> {
+            DOTScanner s = new DOTScanner(new ANTLRInputStream(text));
+            int n = 0;
+            while (s.next() != Token.EOF) n++;
+            return n;
+        });
+        log(String.format("tokenize  DOTLexer %8.1f ms   DOTScanner %8.1f ms", lexer, scanner));
+
+        GraphParserOptions options = new GraphParserOptions();
+        options.setParseMode(ParseMode.SINGLE_PASS);
+        for (GraphParserOptions.Lexer type : GraphParserOptions.Lexer.values()) {
+            options.setLexer(type);
+            double millis = bestMillis(2, 5, () -> GraphParser.parse(new ByteArrayInputStream(input), options));
+            log(String.format("parse     %-8s %8.1f ms", type, millis));
+        }
+    }
+}
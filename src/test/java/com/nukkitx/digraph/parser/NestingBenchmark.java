@@ -0,0 +1,74 @@
+package com.nukkitx.digraph.parser;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.Callable;
+
+import static com.nukkitx.digraph.parser.BenchmarkSupport.*;
+
+/**
+ * Parsing subgraphs: the same number of statements spread over subgraphs nested {@code depth} deep, and wide
+ * clusters of a growing number of statements inside two levels of subgraphs. The time per statement should not
+ * grow with depth or cluster size. Usage: {@code NestingBenchmark [statements]}
+ */
+public class NestingBenchmark {
+    public static void main(String[] args) throws Exception {
+        int statements = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        for (int depth : new int[]{1, 16, 64, 256}) {
+            run("deep " + depth, deepGraph(statements, depth));
+        }
+        for (int width : new int[]{statements / 4, statements, statements * 4}) {
+            run("wide " + width, wideGraph(width));
+        }
+    }
+
+    private static void run(String name, String text) throws Exception {
+        byte[] input = text.getBytes(StandardCharsets.UTF_8);
+        for (ParseMode mode : ParseMode.values()) {
+            GraphParserOptions options = new GraphParserOptions();
+            options.setParseMode(mode);
+            options.setLexer(GraphParserOptions.Lexer.SCANNER);
+            Callable<?> task = () -> GraphParser.parse(input, 0, input.length, options);
+            double millis = bestMillis(1, 3, task);
+            long allocated = allocatedBytes(task);
+            log(String.format("%-12s %-12s %10.1f ms %10d MiB allocated", name, mode, millis, allocated / (1024 * 1024)));
+        }
+    }
+
+    /*
+     * a chain of nested subgraphs, each level holding its share of node and edge statements
+     */
+    private static String deepGraph(int statements, int depth) {
+        Random random = new Random(42);
+        int nodes = Math.max(16, statements / 2);
+        StringBuilder sb = new StringBuilder(statements * 24);
+        sb.append("digraph deep {\n");
+        for (int level = 0; level < depth; level++) {
+            sb.append("subgraph s").append(level).append(" {\n");
+            statements(sb, random, nodes, statements / depth);
+        }
+        for (int level = 0; level < depth; level++) {
+            sb.append("}\n");
+        }
+        return sb.append("}\n").toString();
+    }
+
+    /*
+     * one cluster of {@code statements} statements two subgraphs down
+     */
+    private static String wideGraph(int statements) {
+        Random random = new Random(42);
+        StringBuilder sb = new StringBuilder(statements * 24);
+        sb.append("digraph wide {\nsubgraph cluster_outer {\nsubgraph cluster_inner {\n");
+        statements(sb, random, Math.max(16, statements / 2), statements);
+        return sb.append("}\n}\n}\n").toString();
+    }
+
+    private static void statements(StringBuilder sb, Random random, int nodes, int count) {
+        for (int i = 0; i < count; i++) {
+            sb.append(" n").append(random.nextInt(nodes));
+            if (random.nextBoolean()) sb.append(" -> n").append(random.nextInt(nodes));
+            sb.append("\n");
+        }
+    }
+}
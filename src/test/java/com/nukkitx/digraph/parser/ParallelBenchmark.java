@@ -0,0 +1,39 @@
+package com.nukkitx.digraph.parser;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ForkJoinPool;
+
+import static com.nukkitx.digraph.parser.BenchmarkSupport.*;
+
+/**
+ * Compares the sequential parse of one large graph with parallel parses on pools of growing size.
+ * Usage: {@code ParallelBenchmark [statements]}
+ */
+public class ParallelBenchmark {
+    public static void main(String[] args) throws Exception {
+        int statements = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        byte[] input = generateGraph(statements, 42).getBytes(StandardCharsets.UTF_8);
+        log("input: " + statements + " statements, " + input.length / 1024 + " KiB, "
+                + Runtime.getRuntime().availableProcessors() + " processors");
+
+        for (ParseMode mode : ParseMode.values()) {
+            GraphParserOptions options = new GraphParserOptions();
+            options.setParseMode(mode);
+            options.setLexer(GraphParserOptions.Lexer.SCANNER);
+            report(mode + " sequential", input, options);
+        }
+        for (int threads = 1; threads <= Math.max(4, Runtime.getRuntime().availableProcessors()); threads *= 2) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            GraphParserOptions options = new GraphParserOptions();
+            options.setLexer(GraphParserOptions.Lexer.SCANNER);
+            options.setForkJoinPool(pool);
+            report("parallel " + threads, input, options);
+            pool.shutdown();
+        }
+    }
+
+    private static void report(String name, byte[] input, GraphParserOptions options) throws Exception {
+        double millis = bestMillis(2, 5, () -> GraphParser.parse(input, 0, input.length, options));
+        log(String.format("%-24s %10.1f ms %8.1f MB/s", name, millis, input.length / 1e3 / millis));
+    }
+}
@@ -0,0 +1,150 @@
+package com.nukkitx.digraph.parser;
+
+import com.nukkitx.digraph.DiGraph;
+import org.antlr.v4.runtime.ANTLRInputStream;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Checks that parsing the statements of a graph in parallel chunks builds the graph the tree walk builds.
+ */
+public class ParallelParseTest {
+    private static final ForkJoinPool POOL = new ForkJoinPool(4);
+
+    private static final String[] FRAGMENTS = {
+            "a", "b", "\"c;d\"", "<<i>;</i>>", "1", "-2.5", "->", "--", "{", "}", "[", "]", "=", ",", ";", ":",
+            "subgraph", "s", "graph", "node", "edge", "k=v", "[x=1]", "[x=2 y=3]", "{ a b }", "a -> b",
+            "\"q\\\";r\"", "/* ; } */", "// }\n", "# {\n"
+    };
+
+    @AfterClass
+    public static void shutdown() {
+        POOL.shutdown();
+    }
+
+    @Test
+    public void testSplit() {
+        String text = "digraph \"g;{\" { a [k=\"v;}\"] b -> c /* ; */ subgraph s { d e } f = g; h; <<b>}</b>> }";
+        StatementSplitter split = StatementSplitter.split(new ANTLRInputStream(text), 1);
+        Assert.assertEquals("\"g;{\"", split.graphId());
+        List<String> chunks = new ArrayList<>();
+        for (int i = 0; i < split.chunks(); i++) {
+            chunks.add(text.substring(split.start(i), split.end(i)).trim());
+        }
+        Assert.assertEquals("[a [k=\"v;}\"], b -> c /* ; */, subgraph s { d e }, f = g;, h;, <<b>}</b>>]",
+                chunks.toString());
+
+        Assert.assertNull(StatementSplitter.split(new ANTLRInputStream("digraph { a -> b"), 1));
+        Assert.assertNull(StatementSplitter.split(new ANTLRInputStream("digraph { a \"b }"), 1));
+        Assert.assertNull(StatementSplitter.split(new ANTLRInputStream("node { a }"), 1));
+    }
+
+    @Test
+    public void testResources() throws Exception {
+        for (String fname : ParserTest.RESOURCES) {
+            Assert.assertTrue(fname, assertParallel(ParserTest.readResource(fname)));
+        }
+    }
+
+    @Test
+    public void testGenerated() {
+        String text = BenchmarkSupport.generateGraph(5000, 11);
+        DiGraph graph = GraphParser.parseParallel(new ANTLRInputStream(text), options(), 4096);
+        Assert.assertNotNull(graph);
+        ParserTest.assertSameGraph(GraphParser.parse(new ByteArrayInputStream(bytes(text))), graph);
+
+        // through the public API, the generated graph is large enough to be split
+        text = BenchmarkSupport.generateGraph(20000, 12);
+        byte[] input = bytes(text);
+        DiGraph expected = GraphParser.parse(input, 0, input.length);
+        for (GraphParserOptions.Lexer lexer : GraphParserOptions.Lexer.values()) {
+            GraphParserOptions options = options();
+            options.setLexer(lexer);
+            ParserTest.assertSameGraph(expected, GraphParser.parse(input, 0, input.length, options));
+            ParserTest.assertSameGraph(expected, GraphParser.parse(ByteBuffer.wrap(input), options));
+        }
+    }
+
+    @Test
+    public void testRepeatedElements() {
+        // attributes of repeated nodes and edges are merged in input order across chunks
+        StringBuilder sb = new StringBuilder("digraph {");
+        for (int i = 0; i < 300; i++) {
+            sb.append(" n").append(i % 7).append(" [k").append(i % 13).append('=').append(i).append(']');
+            sb.append(" n").append(i % 5).append(" -> n").append(i % 3).append(" [w=").append(i).append(']');
+        }
+        Assert.assertTrue(assertParallel(sb.append(" }").toString()));
+    }
+
+    @Test
+    public void testRandomStatements() {
+        Random random = new Random(5);
+        int parallel = 0;
+        for (int n = 0; n < 3000; n++) {
+            StringBuilder sb = new StringBuilder("digraph {");
+            int length = random.nextInt(16);
+            for (int i = 0; i < length; i++) {
+                sb.append(' ').append(FRAGMENTS[random.nextInt(FRAGMENTS.length)]);
+            }
+            if (assertParallel(sb.append(" }").toString())) parallel++;
+        }
+        Assert.assertTrue(parallel > 0);
+    }
+
+    @Test
+    public void testError() {
+        byte[] input = bytes(BenchmarkSupport.generateGraph(20000, 13).replace("n17 ", "n17 -> ]"));
+        String expected = null;
+        try {
+            GraphParser.parse(input, 0, input.length);
+        } catch (GraphParserException e) {
+            expected = e.getMessage();
+        }
+        Assert.assertNotNull(expected);
+        try {
+            GraphParser.parse(input, 0, input.length, options());
+            Assert.fail();
+        } catch (GraphParserException e) {
+            Assert.assertEquals(expected, e.getMessage());
+        }
+    }
+
+    /*
+     * Parses text in chunks as small as possible and compares with the tree walk, errors have to match as well.
+     * Returns whether the text was split.
+     */
+    private static boolean assertParallel(String text) {
+        DiGraph expected;
+        try {
+            expected = GraphParser.parse(new ByteArrayInputStream(bytes(text)), ParseMode.TREE);
+        } catch (GraphParserException e) {
+            expected = null;
+        }
+        DiGraph actual = GraphParser.parseParallel(new ANTLRInputStream(text), options(), 1);
+        if (expected == null) {
+            Assert.assertNull(text, actual);
+        } else if (actual != null) {
+            ParserTest.assertSameGraph(expected, actual);
+        }
+        return actual != null;
+    }
+
+    private static GraphParserOptions options() {
+        GraphParserOptions options = new GraphParserOptions();
+        options.setForkJoinPool(POOL);
+        return options;
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,63 @@
+package com.nukkitx.digraph.parser;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static com.nukkitx.digraph.parser.BenchmarkSupport.*;
+
+/**
+ * Compares a sequential {@code GraphParser.parse(Path)} loop over many small files with {@link GraphParser#parseAll}.
+ * Usage: {@code ParseAllBenchmark [files] [statements per file]}
+ */
+public class ParseAllBenchmark {
+    public static void main(String[] args) throws Exception {
+        int files = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int statements = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        Path dir = Files.createTempDirectory("parse-all");
+        List<Path> paths = new ArrayList<>(files);
+        for (int i = 0; i < files; i++) {
+            Path path = dir.resolve("g" + i + ".dg");
+            Files.write(path, generateGraph(statements, i).getBytes(StandardCharsets.UTF_8));
+            paths.add(path);
+        }
+        int processors = Runtime.getRuntime().availableProcessors();
+        log("input: " + files + " files of " + statements + " statements, " + processors + " processors");
+
+        try {
+            report("sequential loop", files, () -> {
+                for (Path path : paths) {
+                    GraphParser.parse(path);
+                }
+                return null;
+            });
+            report("parseAll default", files, () -> drain(GraphParser.parseAll(paths)));
+            ExecutorService pool = Executors.newFixedThreadPool(processors);
+            report("parseAll " + processors + " threads", files, () -> drain(GraphParser.parseAll(paths, pool)));
+            pool.shutdown();
+        } finally {
+            for (Path path : paths) {
+                Files.delete(path);
+            }
+            Files.delete(dir);
+        }
+    }
+
+    private static Object drain(Iterator<ParseResult> results) {
+        while (results.hasNext()) {
+            results.next().getGraph();
+        }
+        return null;
+    }
+
+    private static void report(String name, int files, Callable<?> task) throws Exception {
+        double millis = bestMillis(2, 5, task);
+        log(String.format("%-24s %10.1f ms %10.0f files/s", name, millis, files * 1000 / millis));
+    }
+}
@@ -0,0 +1,128 @@
+package com.nukkitx.digraph.parser;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class ParseAllTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testParseAll() throws Exception {
+        List<Path> paths = new ArrayList<>();
+        for (String fname : ParserTest.RESOURCES) {
+            paths.add(Paths.get(fname));
+        }
+        File broken = folder.newFile("broken.dg");
+        Files.write(broken.toPath(), "digraph { a -> }".getBytes(StandardCharsets.UTF_8));
+        paths.add(broken.toPath());
+        paths.add(folder.getRoot().toPath().resolve("missing.dg"));
+
+        assertResults(paths, GraphParser.parseAll(paths));
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            assertResults(paths, GraphParser.parseAll(paths, executor));
+        } finally {
+            executor.shutdown();
+        }
+        assertResults(paths, GraphParser.parseAll(paths, Runnable::run));
+    }
+
+    @Test(timeout = 30_000)
+    public void testErrors() throws Exception {
+        List<Path> paths = new ArrayList<>();
+        for (String id : new String[]{"runtime", "overflow", "fatal"}) {
+            File file = folder.newFile(id + ".dg");
+            Files.write(file.toPath(), ("digraph { " + id + " }").getBytes(StandardCharsets.UTF_8));
+            paths.add(file.toPath());
+        }
+        GraphFilter filter = new GraphFilter();
+        filter.setNodePredicate(id -> {
+            if (id.equals("runtime")) throw new IllegalStateException(id);
+            if (id.equals("overflow")) throw new StackOverflowError(id);
+            if (id.equals("fatal")) throw new LinkageError(id);
+            return true;
+        });
+        GraphParserOptions options = new GraphParserOptions();
+        options.setFilter(filter);
+        Executor executor = task -> {
+            Thread thread = new Thread(task);
+            thread.setUncaughtExceptionHandler((t, e) -> {
+            });
+            thread.start();
+        };
+
+        // exceptions and stack overflows fail their file
+        Iterator<ParseResult> results = GraphParser.parseAll(paths.subList(0, 2), executor, options);
+        for (int i = 0; i < 2; i++) {
+            ParseResult result = results.next();
+            Assert.assertFalse(result.isSuccess());
+            Throwable cause = result.getException().getCause();
+            Assert.assertTrue(cause instanceof IllegalStateException || cause instanceof StackOverflowError);
+        }
+
+        // other errors end the batch
+        results = GraphParser.parseAll(paths, executor, options);
+        try {
+            while (results.hasNext()) {
+                ParseResult result = results.next();
+                Assert.assertFalse(result.getPath().toString().endsWith("fatal.dg"));
+            }
+            Assert.fail();
+        } catch (LinkageError expected) {
+            Assert.assertEquals("fatal", expected.getMessage());
+        }
+        try {
+            results.next();
+            Assert.fail();
+        } catch (LinkageError expected) {
+        }
+    }
+
+    private static void assertResults(List<Path> paths, Iterator<ParseResult> results) throws Exception {
+        Map<Path, ParseResult> byPath = new HashMap<>();
+        while (results.hasNext()) {
+            ParseResult result = results.next();
+            Assert.assertNull(byPath.put(result.getPath(), result));
+        }
+        Assert.assertEquals(paths.size(), byPath.size());
+        try {
+            results.next();
+            Assert.fail();
+        } catch (NoSuchElementException expected) {
+        }
+
+        for (int i = 0; i < ParserTest.RESOURCES.length; i++) {
+            ParseResult result = byPath.get(paths.get(i));
+            Assert.assertTrue(result.isSuccess());
+            ParserTest.assertSameGraph(GraphParser.parse(paths.get(i)), result.getGraph());
+        }
+        for (int i = ParserTest.RESOURCES.length; i < paths.size(); i++) {
+            ParseResult result = byPath.get(paths.get(i));
+            Assert.assertFalse(result.isSuccess());
+            Assert.assertNotNull(result.getException());
+            try {
+                result.getGraph();
+                Assert.fail();
+            } catch (GraphParserException expected) {
+            }
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.nukkitx.digraph.parser;
+
+import com.nukkitx.digraph.parser.GraphParserLimitException.Limit;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+
+public class ParserLimitsTest {
+    private static GraphParserOptions options(Consumer<GraphParserOptions> limits) {
+        GraphParserOptions options = new GraphParserOptions();
+        limits.accept(options);
+        return options;
+    }
+
+    /*
+     * Parses text in both modes, from bytes and as a stream of events, and expects the limit each time
+     */
+    private static void assertExceeds(Limit limit, String text, GraphParserOptions options) {
+        byte[] input = text.getBytes(StandardCharsets.UTF_8);
+        for (ParseMode mode : ParseMode.values()) {
+            options.setParseMode(mode);
+            assertExceeds(limit, () -> GraphParser.parse(input, 0, input.length, options));
+        }
+        assertExceeds(limit, () -> GraphParser.parse(new ByteArrayInputStream(input), new DiGraphBuilder(), options));
+    }
+
+    private static void assertExceeds(Limit limit, Runnable parse) {
+        try {
+            parse.run();
+            Assert.fail("no " + limit);
+        } catch (GraphParserLimitException e) {
+            Assert.assertEquals(e.getMessage(), limit, e.getLimit());
+        }
+    }
+
+    private static String fanOut(int size) {
+        StringBuilder sb = new StringBuilder("digraph { {");
+        for (int i = 0; i < size; i++) {
+            sb.append(" a").append(i);
+        }
+        sb.append(" } -> {");
+        for (int i = 0; i < size; i++) {
+            sb.append(" b").append(i);
+        }
+        return sb.append(" } }").toString();
+    }
+
+    @Test
+    public void testWithinLimits() throws Exception {
+        GraphParserOptions options = options(o -> {
+            o.setMaxInputBytes(1 << 20);
+            o.setMaxNodes(100);
+            o.setMaxEdges(100);
+            o.setMaxNestingDepth(4);
+            o.setMaxStringLength(100);
+            o.setTimeoutMillis(60_000);
+        });
+        for (String fname : ParserTest.RESOURCES) {
+            for (ParseMode mode : ParseMode.values()) {
+                options.setParseMode(mode);
+                ParserTest.assertSameGraph(GraphParser.parse(Paths.get(fname)), GraphParser.parse(Paths.get(fname), options));
+            }
+        }
+    }
+
+    @Test
+    public void testEdges() {
+        // fails before the 25 million edges are made
+        long start = System.nanoTime();
+        assertExceeds(Limit.EDGES, fanOut(5000), options(o -> o.setMaxEdges(1_000_000)));
+        Assert.assertTrue((System.nanoTime() - start) / 1_000_000 < 20_000);
+
+        assertExceeds(Limit.EDGES, "digraph { a -> b -> c -> d }", options(o -> o.setMaxEdges(2)));
+        assertExceeds(Limit.EDGES, "digraph { a -> b a -> b a -> b }", options(o -> o.setMaxEdges(2)));
+    }
+
+    @Test
+    public void testNodes() {
+        assertExceeds(Limit.NODES, "digraph { a b a -> c }", options(o -> o.setMaxNodes(2)));
+        byte[] input = "digraph { a b a -> b b }".getBytes(StandardCharsets.UTF_8);
+        Assert.assertEquals(2, GraphParser.parse(input, 0, input.length, options(o -> o.setMaxNodes(2))).getNodes().size());
+    }
+
+    @Test
+    public void testNesting() {
+        assertExceeds(Limit.NESTING_DEPTH, "digraph { a -> { b -> { c -> { d } } } }", options(o -> o.setMaxNestingDepth(2)));
+        assertExceeds(Limit.NESTING_DEPTH, "digraph { subgraph s { subgraph t { x } } }", options(o -> o.setMaxNestingDepth(1)));
+    }
+
+    @Test
+    public void testStrings() {
+        GraphParserOptions options = options(o -> o.setMaxStringLength(8));
+        assertExceeds(Limit.STRING_LENGTH, "digraph { a [label=\"123456789\"] }", options);
+        assertExceeds(Limit.STRING_LENGTH, "digraph { abcdefghi }", options);
+        assertExceeds(Limit.STRING_LENGTH, "digraph { a [w=1234567890] }", options);
+    }
+
+    @Test
+    public void testInputBytes() {
+        String text = "digraph { a -> b }";
+        GraphParserOptions options = options(o -> o.setMaxInputBytes(text.length() - 1));
+        assertExceeds(Limit.INPUT_BYTES, text, options);
+        assertExceeds(Limit.INPUT_BYTES, () -> GraphParser.parse(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)), options));
+        GraphParser parser = new GraphParser(options);
+        assertExceeds(Limit.INPUT_BYTES, () -> parser.setInputStream(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8))));
+    }
+
+    @Test
+    public void testTimeout() {
+        GraphParserOptions options = options(o -> o.setTimeoutMillis(1));
+        String text = BenchmarkSupport.generateGraph(20_000, 1);
+        assertExceeds(Limit.TIME, text, options);
+    }
+
+    @Test
+    public void testParallel() {
+        byte[] input = BenchmarkSupport.generateGraph(20_000, 1).getBytes(StandardCharsets.UTF_8);
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            long edges = GraphParser.parse(input, 0, input.length).getEdges().size();
+            GraphParserOptions options = options(o -> o.setForkJoinPool(pool));
+            // every chunk is below the limit, all of them together are not
+            options.setMaxEdges(edges / 2);
+            assertExceeds(Limit.EDGES, () -> GraphParser.parse(input, 0, input.length, options));
+            options.setMaxEdges(Long.MAX_VALUE);
+            options.setMaxNodes(100);
+            assertExceeds(Limit.NODES, () -> GraphParser.parse(input, 0, input.length, options));
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -34,6 +34,7 @@ package com.nukkitx.digraph.parser;
 import com.nukkitx.digraph.DiGraph;
 import com.nukkitx.digraph.DiGraphEdge;
 import com.nukkitx.digraph.DiGraphNode;
+import com.nukkitx.digraph.LazyAttribute;
 import com.nukkitx.digraph.parser.antlr.DOTBaseListener;
 import com.nukkitx.digraph.parser.antlr.DOTLexer;
 import com.nukkitx.digraph.parser.antlr.DOTParser;
@@ -45,10 +46,34 @@ import org.antlr.v4.runtime.tree.ParseTreeWalker;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
 import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 public class ParserTest {
+    static final String[] RESOURCES = {
+            "src/test/resources/test1.dg",
+            "src/test/resources/test2.dg",
+            "src/test/resources/test3.dg",
+            "src/test/resources/test4.dg"
+    };
+
+    static String readResource(String fname) throws IOException {
+        return new String(Files.readAllBytes(Paths.get(fname)), StandardCharsets.UTF_8);
+    }
+
     public static void log(Object o) {
         System.out.println(o);
     }
@@ -137,6 +162,220 @@ public class ParserTest {
         }
     }
 
+    @Test
+    public void testSinglePassParser() throws Exception {
+        log("--- testSinglePassParser ---");
+
+        for (String fname : RESOURCES) {
+            log("--- " + fname);
+            DiGraph expected;
+            try (FileInputStream stream = new FileInputStream(fname)) {
+                expected = GraphParser.parse(stream, ParseMode.TREE);
+            }
+            try (FileInputStream stream = new FileInputStream(fname)) {
+                assertSameGraph(expected, GraphParser.parse(stream, ParseMode.SINGLE_PASS));
+            }
+        }
+    }
+
+    @Test
+    public void testNestedSubgraphEdges() {
+        String text = "digraph { subgraph s { x { a { b -> c } } -> { d subgraph { e d } } -> f } { a x } -> { x } }";
+        for (ParseMode mode : ParseMode.values()) {
+            DiGraph graph = GraphParser.parse(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)), mode);
+            Assert.assertEquals("[a-d, a-e, a-x, b-c, b-d, b-e, c-d, c-e, d-f, e-f, x-x]",
+                    graph.getEdges().keySet().toString());
+        }
+    }
+
+    @Test(expected = GraphParserException.class)
+    public void testSinglePassParserError() {
+        GraphParser.parse(new ByteArrayInputStream("digraph { a -> }".getBytes(StandardCharsets.UTF_8)),
+                ParseMode.SINGLE_PASS);
+    }
+
+    @Test
+    public void testTwoStagePrediction() throws Exception {
+        for (String fname : RESOURCES) {
+            DiGraph expected;
+            try (FileInputStream stream = new FileInputStream(fname)) {
+                expected = GraphParser.parse(stream);
+            }
+            for (ParseMode mode : ParseMode.values()) {
+                GraphParserOptions options = new GraphParserOptions();
+                options.setParseMode(mode);
+                options.setPrediction(GraphParserOptions.Prediction.TWO_STAGE);
+                try (FileInputStream stream = new FileInputStream(fname)) {
+                    assertSameGraph(expected, GraphParser.parse(stream, options));
+                }
+            }
+        }
+
+        // the error comes from the full LL stage
+        GraphParserOptions options = new GraphParserOptions();
+        options.setPrediction(GraphParserOptions.Prediction.TWO_STAGE);
+        byte[] input = "digraph { a -> }".getBytes(StandardCharsets.UTF_8);
+        try {
+            GraphParser.parse(input, 0, input.length, options);
+            Assert.fail();
+        } catch (GraphParserException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().startsWith("at line 1:15"));
+        }
+    }
+
+    @Test
+    public void testLazyAttributes() throws Exception {
+        GraphParserOptions options = new GraphParserOptions();
+        options.setLazyAttributes(true);
+        for (String fname : RESOURCES) {
+            DiGraph expected = GraphParser.parse(Paths.get(fname));
+            for (ParseMode mode : ParseMode.values()) {
+                options.setParseMode(mode);
+                assertSameGraph(expected, GraphParser.parse(Paths.get(fname), options));
+                try (FileInputStream stream = new FileInputStream(fname)) {
+                    assertSameGraph(expected, GraphParser.parse(stream, options));
+                }
+            }
+        }
+
+        // kept as spans until read, then unquoted and unescaped
+        byte[] input = "digraph { a [label=\"say \\\"hi\\\"\", w=1.5] a -> b [w=2] }".getBytes(StandardCharsets.UTF_8);
+        for (ParseMode mode : ParseMode.values()) {
+            options.setParseMode(mode);
+            DiGraph graph = GraphParser.parse(input, 0, input.length, options);
+            DiGraphNode a = graph.getNode("a");
+            Assert.assertTrue(a.getAttributes().get("label") instanceof LazyAttribute);
+            Assert.assertEquals("say \"hi\"", a.getAttribute("label"));
+            Assert.assertEquals("1.5", a.getAttribute("w"));
+            Assert.assertEquals("2", graph.getEdge("a-b").getAttribute("w"));
+        }
+
+        // chunks of a parallel parse keep their spans too
+        byte[] large = BenchmarkSupport.generateGraph(20000, 1).getBytes(StandardCharsets.UTF_8);
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            options.setForkJoinPool(pool);
+            DiGraph graph = GraphParser.parse(large, 0, large.length, options);
+            assertSameGraph(GraphParser.parse(large, 0, large.length), graph);
+            Object value = null;
+            for (DiGraphEdge edge : graph.getEdges().values()) {
+                if (!edge.getAttributes().isEmpty()) value = edge.getAttributes().values().iterator().next();
+            }
+            Assert.assertTrue(value instanceof LazyAttribute);
+        } finally {
+            pool.shutdown();
+        }
+
+        // files are read, not mapped, later writes do not show
+        Path path = Files.createTempFile("lazy", ".dg");
+        try {
+            options.setForkJoinPool(null);
+            Files.write(path, "digraph { a [w=1] }".getBytes(StandardCharsets.UTF_8));
+            DiGraph graph = GraphParser.parse(path, options);
+            Files.write(path, "digraph { a [w=2] }".getBytes(StandardCharsets.UTF_8));
+            Assert.assertEquals("1", graph.getNode("a").getAttribute("w"));
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    @Test
+    public void testReusedParser() throws Exception {
+        for (ParseMode mode : ParseMode.values()) {
+            for (GraphParserOptions.Prediction prediction : GraphParserOptions.Prediction.values()) {
+                GraphParserOptions options = new GraphParserOptions();
+                options.setParseMode(mode);
+                options.setPrediction(prediction);
+                GraphParser parser = new GraphParser(options);
+                for (int round = 0; round < 2; round++) {
+                    for (GraphParserOptions.Lexer lexer : GraphParserOptions.Lexer.values()) {
+                        options.setLexer(lexer);
+                        for (String fname : RESOURCES) {
+                            DiGraph expected;
+                            try (FileInputStream stream = new FileInputStream(fname)) {
+                                expected = GraphParser.parse(stream);
+                            }
+                            try (FileInputStream stream = new FileInputStream(fname)) {
+                                parser.setInputStream(stream);
+                            }
+                            assertSameGraph(expected, parser.parse());
+
+                            // an error does not leave state behind for the next input
+                            parser.setInput(ByteBuffer.wrap("digraph { a -> }".getBytes(StandardCharsets.UTF_8)));
+                            try {
+                                parser.parse();
+                                Assert.fail();
+                            } catch (GraphParserException e) {
+                                Assert.assertTrue(e.getMessage(), e.getMessage().startsWith("at line 1:15"));
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        GraphParser parser = new GraphParser();
+        parser.setInput(ByteBuffer.wrap("digraph { \u00e9 }".getBytes(StandardCharsets.UTF_8)));
+        parser.reset();
+        try {
+            parser.parse();
+            Assert.fail();
+        } catch (IllegalStateException expected) {
+        }
+        parser.setInputStream(new ByteArrayInputStream("digraph { \u00e9 }".getBytes(StandardCharsets.UTF_8)));
+        Assert.assertNotNull(parser.parse().getNode("\u00e9"));
+    }
+
+    @Test
+    public void testStripedDfaCache() throws Exception {
+        GraphParserOptions options = new GraphParserOptions();
+        options.setDfaCache(GraphParserOptions.DfaCache.STRIPED);
+        List<DiGraph> expected = new ArrayList<>();
+        for (String fname : RESOURCES) {
+            expected.add(GraphParser.parse(Paths.get(fname)));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<List<DiGraph>>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(executor.submit(() -> {
+                    List<DiGraph> graphs = new ArrayList<>();
+                    for (String fname : RESOURCES) {
+                        graphs.add(GraphParser.parse(Paths.get(fname), options));
+                    }
+                    return graphs;
+                }));
+            }
+            for (Future<List<DiGraph>> future : futures) {
+                List<DiGraph> graphs = future.get();
+                for (int i = 0; i < expected.size(); i++) {
+                    assertSameGraph(expected.get(i), graphs.get(i));
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        // a reused parser goes back to the shared DFAs
+        GraphParser parser = new GraphParser(options);
+        parser.setInput(ByteBuffer.wrap("digraph { a -> b }".getBytes(StandardCharsets.UTF_8)));
+        parser.parse();
+        options.setDfaCache(GraphParserOptions.DfaCache.SHARED);
+        parser.setInput(ByteBuffer.wrap("digraph { a -> b }".getBytes(StandardCharsets.UTF_8)));
+        Assert.assertEquals(1, parser.parse().getEdges().size());
+    }
+
+    static void assertSameGraph(DiGraph expected, DiGraph actual) {
+        Assert.assertEquals(expected.getId(), actual.getId());
+        Assert.assertEquals(expected.getNodes().toString(), actual.getNodes().toString());
+        Assert.assertEquals(expected.getEdges().toString(), actual.getEdges().toString());
+        for (DiGraphEdge edge : actual.getEdges().values()) {
+            Assert.assertSame(actual.getNode(edge.getNode1().getId()), edge.getNode1());
+            Assert.assertSame(actual.getNode(edge.getNode2().getId()), edge.getNode2());
+        }
+    }
+
     @Test
     public void testAntlrParser() throws Exception {
         log("--- testAntlrParser ---");
@@ -0,0 +1,29 @@
+package com.nukkitx.digraph.parser;
+
+import java.nio.charset.StandardCharsets;
+
+import static com.nukkitx.digraph.parser.BenchmarkSupport.*;
+
+/**
+ * Compares full LL prediction with the two-stage SLL/LL strategy on a generated graph.
+ * Usage: {@code PredictionBenchmark [statements]}
+ */
+public class PredictionBenchmark {
+    public static void main(String[] args) throws Exception {
+        int statements = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        byte[] input = generateGraph(statements, 42).getBytes(StandardCharsets.UTF_8);
+        log("input: " + statements + " statements, " + input.length / 1024 + " KiB");
+
+        for (ParseMode mode : ParseMode.values()) {
+            for (GraphParserOptions.Prediction prediction : GraphParserOptions.Prediction.values()) {
+                GraphParserOptions options = new GraphParserOptions();
+                options.setParseMode(mode);
+                options.setLexer(GraphParserOptions.Lexer.SCANNER);
+                options.setPrediction(prediction);
+                double millis = bestMillis(2, 5, () -> GraphParser.parse(input, 0, input.length, options));
+                log(String.format("%-12s %-10s %10.1f ms %8.1f MB/s", mode, prediction, millis,
+                        input.length / 1e3 / millis));
+            }
+        }
+    }
+}
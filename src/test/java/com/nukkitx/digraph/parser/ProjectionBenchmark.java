@@ -0,0 +1,40 @@
+package com.nukkitx.digraph.parser;
+
+import com.nukkitx.digraph.DiGraph;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static com.nukkitx.digraph.parser.BenchmarkSupport.*;
+
+/**
+ * Full parses against parses with a {@link GraphFilter} that keeps 1% of the nodes (and the edges between them) and
+ * only the {@code weight} and {@code label} attributes. Usage: {@code ProjectionBenchmark [statements]}
+ */
+public class ProjectionBenchmark {
+    public static void main(String[] args) throws Exception {
+        int statements = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        byte[] input = generateGraph(statements, 42).getBytes(StandardCharsets.UTF_8);
+        GraphFilter filter = new GraphFilter();
+        filter.setNodePredicate(id -> id.hashCode() % 100 == 0);
+        filter.setAttributeKeys(Arrays.asList("weight", "label"));
+        log("input: " + input.length / 1024 + " KiB");
+
+        for (ParseMode mode : ParseMode.values()) {
+            for (GraphFilter f : new GraphFilter[]{null, filter}) {
+                GraphParserOptions options = new GraphParserOptions();
+                options.setParseMode(mode);
+                options.setLexer(GraphParserOptions.Lexer.SCANNER);
+                options.setFilter(f);
+                DiGraph graph = GraphParser.parse(input, 0, input.length, options);
+                String name = mode + (f == null ? " full" : " 1%");
+                double millis = bestMillis(1, 3, () -> GraphParser.parse(input, 0, input.length, options));
+                long allocated = allocatedBytes(() -> GraphParser.parse(input, 0, input.length, options));
+                long retained = retainedBytes(() -> GraphParser.parse(input, 0, input.length, options));
+                log(String.format("%-18s %8d nodes %8d edges %10.1f ms %8d MiB allocated %8d MiB retained", name,
+                        graph.getNodes().size(), graph.getEdges().size(), millis, allocated / (1024 * 1024),
+                        retained / (1024 * 1024)));
+            }
+        }
+    }
+}
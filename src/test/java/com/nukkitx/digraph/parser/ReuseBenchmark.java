@@ -0,0 +1,55 @@
+package com.nukkitx.digraph.parser;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Callable;
+
+import static com.nukkitx.digraph.parser.BenchmarkSupport.*;
+
+/**
+ * Bytes allocated and time per parse of a small graph, static {@code GraphParser.parse} calls against one reused
+ * {@link GraphParser} instance. Usage: {@code ReuseBenchmark [statements]}
+ */
+public class ReuseBenchmark {
+    private static final int PARSES = 5_000;
+
+    public static void main(String[] args) throws Exception {
+        int statements = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        byte[] input = generateGraph(statements, 42).getBytes(StandardCharsets.UTF_8);
+        log("input: " + statements + " statements, " + input.length + " bytes");
+
+        for (ParseMode mode : ParseMode.values()) {
+            for (GraphParserOptions.Lexer lexer : GraphParserOptions.Lexer.values()) {
+                GraphParserOptions options = new GraphParserOptions();
+                options.setParseMode(mode);
+                options.setLexer(lexer);
+                String name = mode + " " + lexer;
+
+                report(name + " static stream", () -> GraphParser.parse(new ByteArrayInputStream(input), options));
+                report(name + " static bytes", () -> GraphParser.parse(input, 0, input.length, options));
+                GraphParser parser = new GraphParser(options);
+                report(name + " reused stream", () -> {
+                    parser.setInputStream(new ByteArrayInputStream(input));
+                    return parser.parse();
+                });
+                report(name + " reused bytes", () -> {
+                    parser.setInput(ByteBuffer.wrap(input));
+                    return parser.parse();
+                });
+            }
+        }
+    }
+
+    private static void report(String name, Callable<?> parse) throws Exception {
+        Callable<?> loop = () -> {
+            for (int i = 0; i < PARSES; i++) {
+                parse.call();
+            }
+            return null;
+        };
+        double millis = bestMillis(2, 3, loop);
+        long bytes = allocatedBytes(loop);
+        log(String.format("%-36s %8.2f us %10d bytes/parse", name, millis * 1000 / PARSES, bytes / PARSES));
+    }
+}
@@ -0,0 +1,24 @@
+package com.nukkitx.digraph.parser;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import static com.nukkitx.digraph.parser.BenchmarkSupport.*;
+
+/**
+ * Compares {@link ParseMode#TREE} with {@link ParseMode#SINGLE_PASS} on a generated graph.
+ * Usage: {@code SinglePassBenchmark [statements]}, run with a fixed heap (e.g. -Xms2g -Xmx2g) for stable peaks.
+ */
+public class SinglePassBenchmark {
+    public static void main(String[] args) throws Exception {
+        int statements = args.length > 0 ? Integer.parseInt(args[0]) : 500_000;
+        byte[] input = generateGraph(statements, 42).getBytes(StandardCharsets.UTF_8);
+        log("input: " + statements + " statements, " + input.length / 1024 + " KiB");
+
+        for (ParseMode mode : ParseMode.values()) {
+            long peak = peakHeapBytes(() -> GraphParser.parse(new ByteArrayInputStream(input), mode));
+            double millis = bestMillis(2, 5, () -> GraphParser.parse(new ByteArrayInputStream(input), mode));
+            log(String.format("%-12s %10.1f ms %10d MiB peak heap", mode, millis, peak / (1024 * 1024)));
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.nukkitx.digraph.parser;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import static com.nukkitx.digraph.parser.BenchmarkSupport.*;
+
+/**
+ * Startup over a directory of DOT files: parsing every file against loading the snapshots that
+ * {@link GraphParserOptions#setSnapshots} keeps next to them. The first round of each starts with empty DFA
+ * caches, like after a restart. Usage: {@code SnapshotBenchmark [files] [statements per file]}
+ */
+public class SnapshotBenchmark {
+    public static void main(String[] args) throws Exception {
+        int files = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int statements = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        Path dir = Files.createTempDirectory("snapshots");
+        List<Path> paths = new ArrayList<>(files);
+        long bytes = 0;
+        for (int i = 0; i < files; i++) {
+            Path path = dir.resolve("g" + i + ".dg");
+            byte[] text = generateGraph(statements, i).getBytes(StandardCharsets.UTF_8);
+            Files.write(path, text);
+            paths.add(path);
+            bytes += text.length;
+        }
+        log("input: " + files + " files of " + statements + " statements, " + bytes + " bytes");
+
+        GraphParserOptions snapshots = new GraphParserOptions();
+        snapshots.setSnapshots(true);
+        try {
+            // the snapshot load runs first, so neither side profits from DFAs the other one filled
+            GraphParserOptions writer = new GraphParserOptions();
+            writer.setSnapshots(true);
+            long snapshotBytes = 0;
+            for (Path path : paths) {
+                GraphParser.parse(path, writer);
+                snapshotBytes += Files.size(GraphSnapshot.pathFor(path));
+            }
+            GraphParser.clearDfaCache();
+            log("snapshots: " + snapshotBytes + " bytes");
+
+            report("snapshot load", () -> {
+                for (Path path : paths) {
+                    GraphParser.parse(path, snapshots);
+                }
+                return null;
+            });
+            report("parse", () -> {
+                for (Path path : paths) {
+                    GraphParser.parse(path);
+                }
+                return null;
+            });
+        } finally {
+            for (Path path : paths) {
+                Files.deleteIfExists(GraphSnapshot.pathFor(path));
+                Files.delete(path);
+            }
+            Files.delete(dir);
+        }
+    }
+
+    private static void report(String name, Callable<?> task) throws Exception {
+        long start = System.nanoTime();
+        task.call();
+        double cold = (System.nanoTime() - start) / 1e6;
+        log(String.format("%-16s first %10.1f ms  best %10.1f ms", name, cold, bestMillis(1, 3, task)));
+    }
+}
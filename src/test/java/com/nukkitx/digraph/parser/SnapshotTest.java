@@ -0,0 +1,176 @@
+package com.nukkitx.digraph.parser;
+
+import com.nukkitx.digraph.DiGraph;
+import com.nukkitx.digraph.LazyAttribute;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+public class SnapshotTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static GraphParserOptions snapshots() {
+        GraphParserOptions options = new GraphParserOptions();
+        options.setSnapshots(true);
+        return options;
+    }
+
+    private static long parserWork() {
+        DfaCacheStats stats = GraphParser.getDfaCacheStats();
+        return stats.getHits() + stats.getMisses();
+    }
+
+    @Test
+    public void testSnapshots() throws Exception {
+        String[] texts = new String[ParserTest.RESOURCES.length + 1];
+        for (int i = 0; i < ParserTest.RESOURCES.length; i++) {
+            texts[i] = new String(Files.readAllBytes(Paths.get(ParserTest.RESOURCES[i])), StandardCharsets.UTF_8);
+        }
+        texts[texts.length - 1] = BenchmarkSupport.generateGraph(2000, 1);
+
+        for (int i = 0; i < texts.length; i++) {
+            Path path = folder.getRoot().toPath().resolve("g" + i + ".dg");
+            Files.write(path, texts[i].getBytes(StandardCharsets.UTF_8));
+            DiGraph expected = GraphParser.parse(path);
+            Path snapshot = GraphSnapshot.pathFor(path);
+
+            ParserTest.assertSameGraph(expected, GraphParser.parse(path, snapshots()));
+            Assert.assertTrue(Files.exists(snapshot));
+
+            // loaded without running the parser, attribute order included
+            long work = parserWork();
+            DiGraph loaded = GraphParser.parse(path, snapshots());
+            Assert.assertEquals(work, parserWork());
+            ParserTest.assertSameGraph(expected, loaded);
+            loaded.getNode(loaded.getNodes().keySet().iterator().next()).setAttribute("new", "value");
+        }
+    }
+
+    @Test
+    public void testStaleSnapshots() throws Exception {
+        Path path = folder.getRoot().toPath().resolve("g.dg");
+        Path snapshot = GraphSnapshot.pathFor(path);
+        Files.write(path, "digraph { a -> b [w=1] }".getBytes(StandardCharsets.UTF_8));
+        FileTime time = Files.getLastModifiedTime(path);
+        GraphParser.parse(path, snapshots());
+
+        // same size and modification time, other content
+        Files.write(path, "digraph { a -> c [w=1] }".getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(path, time);
+        Assert.assertNotNull(GraphParser.parse(path, snapshots()).getEdge("a-c"));
+
+        // damaged snapshots are parsed and written again
+        byte[] bytes = Files.readAllBytes(snapshot);
+        Files.write(snapshot, Arrays.copyOf(bytes, bytes.length - 3));
+        Assert.assertNotNull(GraphParser.parse(path, snapshots()).getEdge("a-c"));
+        Assert.assertArrayEquals(bytes, Files.readAllBytes(snapshot));
+        byte[] damaged = bytes.clone();
+        damaged[damaged.length - 8] ^= 0x55;
+        Files.write(snapshot, damaged);
+        Assert.assertEquals("1", GraphParser.parse(path, snapshots()).getEdge("a-c").getAttribute("w"));
+        Assert.assertArrayEquals(bytes, Files.readAllBytes(snapshot));
+
+        // a file that does not parse leaves no snapshot
+        Files.delete(snapshot);
+        Files.write(path, "digraph { a -> }".getBytes(StandardCharsets.UTF_8));
+        try {
+            GraphParser.parse(path, snapshots());
+            Assert.fail();
+        } catch (GraphParserException expected) {
+        }
+        Assert.assertFalse(Files.exists(snapshot));
+    }
+
+    @Test
+    public void testLimits() throws Exception {
+        Path path = folder.getRoot().toPath().resolve("g.dg");
+        Files.write(path, BenchmarkSupport.generateGraph(2000, 1).getBytes(StandardCharsets.UTF_8));
+        GraphParser.parse(path, snapshots());
+        Assert.assertTrue(Files.exists(GraphSnapshot.pathFor(path)));
+
+        GraphParserOptions options = snapshots();
+        options.setMaxEdges(10);
+        try {
+            GraphParser.parse(path, options);
+            Assert.fail();
+        } catch (GraphParserLimitException e) {
+            Assert.assertEquals(GraphParserLimitException.Limit.EDGES, e.getLimit());
+        }
+        options = snapshots();
+        options.setMaxNodes(10);
+        try {
+            GraphParser.parse(path, options);
+            Assert.fail();
+        } catch (GraphParserLimitException e) {
+            Assert.assertEquals(GraphParserLimitException.Limit.NODES, e.getLimit());
+        }
+    }
+
+    @Test
+    public void testBundles() throws Exception {
+        StringBuilder sb = new StringBuilder("digraph { {");
+        for (int i = 0; i < 50; i++) sb.append(" s").append(i);
+        sb.append(" } -> {");
+        for (int i = 0; i < 50; i++) sb.append(" t").append(i);
+        sb.append(" } }");
+        Path path = folder.getRoot().toPath().resolve("g.dg");
+        Files.write(path, sb.toString().getBytes(StandardCharsets.UTF_8));
+        GraphParserOptions options = snapshots();
+        options.setMinBundleEdges(16);
+
+        DiGraph first = GraphParser.parse(path, options);
+        DiGraph second = GraphParser.parse(path, options);
+        Assert.assertTrue(first instanceof BundledDiGraph);
+        Assert.assertTrue(second instanceof BundledDiGraph);
+        Assert.assertEquals(2500, second.getEdges().size());
+        Assert.assertFalse(Files.exists(GraphSnapshot.pathFor(path)));
+    }
+
+    @Test
+    public void testSymbolsAndLazyAttributes() throws Exception {
+        Path path = folder.getRoot().toPath().resolve("g.dg");
+        Files.write(path, "digraph { a -> b [w=1] }".getBytes(StandardCharsets.UTF_8));
+        GraphParser.parse(path, snapshots());
+        Assert.assertTrue(Files.exists(GraphSnapshot.pathFor(path)));
+
+        SymbolTable symbols = new SymbolTable();
+        GraphParserOptions options = snapshots();
+        options.setSymbolTable(symbols);
+        DiGraph graph = GraphParser.parse(path, options);
+        String id = graph.getNodes().keySet().iterator().next();
+        Assert.assertSame(symbols.intern(new String(id)), id);
+        Assert.assertSame(symbols.intern("1"), graph.getEdge("a-b").getAttributes().get("w"));
+
+        options = snapshots();
+        options.setLazyAttributes(true);
+        graph = GraphParser.parse(path, options);
+        Assert.assertTrue(graph.getEdge("a-b").getAttributes().get("w") instanceof LazyAttribute);
+    }
+
+    @Test
+    public void testTableBits() {
+        // grown by single puts and presized by putAll, the table sizes differ
+        Map<String, Object> grown = new HashMap<>();
+        for (int i = 0; i < 100; i++) {
+            grown.put("key" + i, "v");
+            for (Map<String, Object> map : Arrays.asList(grown, new HashMap<>(grown))) {
+                Map<String, Object> copy = new HashMap<>(1 << GraphSnapshot.tableBits(map));
+                for (Map.Entry<String, Object> entry : map.entrySet()) {
+                    copy.put(entry.getKey(), entry.getValue());
+                }
+                Assert.assertEquals(map.toString(), copy.toString());
+            }
+        }
+    }
+}
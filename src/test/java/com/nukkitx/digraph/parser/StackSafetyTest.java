@@ -0,0 +1,167 @@
+package com.nukkitx.digraph.parser;
+
+import com.nukkitx.digraph.DiGraph;
+import org.antlr.v4.runtime.ANTLRInputStream;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+public class StackSafetyTest {
+    private static final String[] STATEMENTS = {
+            "digraph { a -> b -> { c d } [k=v] }",
+            "digraph { {a b} -> c; { d } e -> {f} }",
+            "digraph { subgraph s { a; { b } } -> { c -> d } [k=v] }",
+            "digraph { { { a } -> c } { x } }",
+            "digraph { a -> { { b -> c } } -> { d { e -> f } } }",
+            "strict graph g { a:p -- b:q:n [w=1][x=2, y=3]; graph [r=1]; node [s=2] edge [t=3] k = v }",
+            "digraph { a [l=\"x\"]; {a} -> b [z=1]; subgraph { c } subgraph t { d } -> e }"
+    };
+    // edge statements in the first operand of an edge statement
+    private static final String[] OPERAND_STATEMENTS = {
+            "digraph { subgraph s { a -> { b } } -> { c -> d } [k=v] }",
+            "digraph { { { a -> b } -> c } { x } }"
+    };
+
+    private static GraphParserOptions options(ParseMode mode) {
+        GraphParserOptions options = new GraphParserOptions();
+        options.setParseMode(mode);
+        return options;
+    }
+
+    private static DiGraph parse(String text, ParseMode mode) throws GraphParserException {
+        byte[] input = text.getBytes(StandardCharsets.UTF_8);
+        return GraphParser.parse(input, 0, input.length, options(mode));
+    }
+
+    /*
+     * "digraph { n0 -> n1 -> ... -> n<hops> }"
+     */
+    private static String chain(int hops) {
+        StringBuilder sb = new StringBuilder("digraph {\n n0");
+        for (int i = 1; i <= hops; i++) sb.append(" -> n").append(i);
+        return sb.append("\n}\n").toString();
+    }
+
+    /*
+     * "{ n0 -> m0; { n1 -> m1; ... } } -> z" nested depth deep, the outermost subgraph turns out to be an edge operand
+     */
+    private static String nested(int depth) {
+        StringBuilder sb = new StringBuilder("digraph {\n");
+        for (int i = 0; i < depth; i++) sb.append(i % 2 == 0 ? "{" : "subgraph s" + i + " {").append(" n").append(i).append(" -> m").append(i).append(";\n");
+        for (int i = 0; i < depth; i++) sb.append('}');
+        return sb.append(" -> z\n}\n").toString();
+    }
+
+    @Test
+    public void testLongChain() throws Exception {
+        for (ParseMode mode : ParseMode.values()) {
+            int hops = mode == ParseMode.TREE ? 100_000 : 1_000_000;
+            DiGraph graph = parse(chain(hops), mode);
+            Assert.assertEquals(hops + 1, graph.getNodes().size());
+            Assert.assertEquals(hops, graph.getEdges().size());
+            Assert.assertNotNull(graph.getEdge("n" + (hops - 1) + "-n" + hops));
+        }
+    }
+
+    @Test
+    public void testDeepNesting() throws Exception {
+        int depth = 100_000;
+        DiGraph graph = parse(nested(depth), ParseMode.ITERATIVE);
+        Assert.assertEquals(2 * depth + 1, graph.getNodes().size());
+        Assert.assertEquals(3 * depth, graph.getEdges().size());
+        Assert.assertNotNull(graph.getEdge("n" + (depth - 1) + "-m" + (depth - 1)));
+        Assert.assertNotNull(graph.getEdge("m" + (depth - 1) + "-z"));
+
+        GraphParserOptions options = options(ParseMode.ITERATIVE);
+        options.setMaxNestingDepth(1000);
+        byte[] input = nested(depth).getBytes(StandardCharsets.UTF_8);
+        try {
+            GraphParser.parse(input, 0, input.length, options);
+            Assert.fail();
+        } catch (GraphParserLimitException e) {
+            Assert.assertEquals(GraphParserLimitException.Limit.NESTING_DEPTH, e.getLimit());
+        }
+    }
+
+    @Test
+    public void testSameGraphs() throws Exception {
+        for (GraphParserOptions.Lexer lexer : GraphParserOptions.Lexer.values()) {
+            GraphParserOptions options = options(ParseMode.ITERATIVE);
+            options.setLexer(lexer);
+            for (String fname : ParserTest.RESOURCES) {
+                ParserTest.assertSameGraph(GraphParser.parse(Paths.get(fname)), GraphParser.parse(Paths.get(fname), options));
+            }
+        }
+        for (String text : new String[]{nested(50), chain(50)}) {
+            ParserTest.assertSameGraph(parse(text, ParseMode.TREE), parse(text, ParseMode.ITERATIVE));
+        }
+        for (String text : STATEMENTS) {
+            ParserTest.assertSameGraph(parse(text, ParseMode.TREE), parse(text, ParseMode.ITERATIVE));
+            Assert.assertEquals(GraphEventHandlerTest.record(text, options(ParseMode.SINGLE_PASS)),
+                    GraphEventHandlerTest.record(text, options(ParseMode.ITERATIVE)));
+        }
+        for (String text : OPERAND_STATEMENTS) {
+            ParserTest.assertSameGraph(parse(text, ParseMode.TREE), parse(text, ParseMode.ITERATIVE));
+        }
+    }
+
+    @Test
+    public void testOperandEdgeOrder() {
+        // the inner edge is reported when its statement ends, the parser cannot know yet that the subgraph is an
+        // edge operand; the edges still come in the same order
+        Assert.assertEquals(Arrays.asList(
+                "startGraph null",
+                "enterSubgraph s",
+                "node a {}",
+                "enterSubgraph null",
+                "node b {}",
+                "exitSubgraph",
+                "edge a b {}",
+                "exitSubgraph",
+                "node c {}",
+                "edge a c {k=v}",
+                "edge b c {k=v}",
+                "endGraph"), GraphEventHandlerTest.record("digraph { subgraph s { a -> { b } } -> c [k=v] }", options(ParseMode.ITERATIVE)));
+    }
+
+    @Test
+    public void testParallel() throws Exception {
+        StringBuilder sb = new StringBuilder("digraph {\n");
+        for (int i = 0; i < 200; i++) {
+            String statement = i % 2 == 0 ? STATEMENTS[i % 5] : OPERAND_STATEMENTS[i % 4 / 2];
+            sb.append(statement, 10, statement.length() - 1).append('\n');
+            sb.append(nested(20), 10, nested(20).length() - 3).append('\n');
+        }
+        String text = sb.append("}\n").toString();
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            GraphParserOptions options = options(ParseMode.ITERATIVE);
+            options.setForkJoinPool(pool);
+            DiGraph actual = GraphParser.parseParallel(new ANTLRInputStream(text), options, 4096);
+            Assert.assertNotNull(actual);
+            ParserTest.assertSameGraph(parse(text, ParseMode.TREE), actual);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testSyntaxErrors() {
+        String[] texts = {"digraph { a -> }", "digraph { {a} ", "digraph { a [b=] }", "graph { a:b: }", "digraph { ; }",
+                "digraph { a -> b [c] -> d }", "digraph { subgraph s }", "{ a }"};
+        for (String text : texts) {
+            for (ParseMode mode : new ParseMode[]{ParseMode.TREE, ParseMode.ITERATIVE}) {
+                try {
+                    parse(text, mode);
+                    Assert.fail(mode + " " + text);
+                } catch (GraphParserException e) {
+                    Assert.assertTrue(e.getMessage(), e.getMessage().startsWith("at line 1:"));
+                }
+            }
+        }
+    }
+}
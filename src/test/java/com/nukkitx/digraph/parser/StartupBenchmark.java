@@ -0,0 +1,106 @@
+package com.nukkitx.digraph.parser;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static com.nukkitx.digraph.parser.BenchmarkSupport.*;
+
+/**
+ * Latency of the first parses after JVM start, with and without {@link GraphParser#warmUp()}. Every run starts
+ * fresh JVMs; the distribution is over runs, per range of parse numbers.
+ * Usage: {@code StartupBenchmark [jvms] [parses]}
+ */
+public class StartupBenchmark {
+    private static final int[][] RANGES = {{0, 1}, {1, 10}, {10, 100}, {100, Integer.MAX_VALUE}};
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("child")) {
+            child(Boolean.parseBoolean(args[1]), Integer.parseInt(args[2]));
+            return;
+        }
+        int jvms = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        int parses = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+        log("graphs of 20 statements, " + jvms + " JVMs per variant, " + parses + " parses each");
+
+        for (boolean warmUp : new boolean[]{false, true}) {
+            List<List<Long>> latencies = new ArrayList<>();
+            List<Long> warmUpTimes = new ArrayList<>();
+            for (int i = 0; i < parses; i++) {
+                latencies.add(new ArrayList<>());
+            }
+            for (int jvm = 0; jvm < jvms; jvm++) {
+                List<Long> values = runChild(warmUp, parses);
+                if (warmUp) warmUpTimes.add(values.remove(0));
+                for (int i = 0; i < parses; i++) {
+                    latencies.get(i).add(values.get(i));
+                }
+            }
+            log(warmUp ? "warmUp() first" : "cold");
+            if (warmUp) log(String.format("  warmUp()          p50 %8d us", percentile(warmUpTimes, 50)));
+            for (int[] range : RANGES) {
+                List<Long> values = new ArrayList<>();
+                for (int i = range[0]; i < Math.min(range[1], parses); i++) {
+                    values.addAll(latencies.get(i));
+                }
+                if (values.isEmpty()) continue;
+                String name = range[1] - range[0] == 1 ? "parse " + (range[0] + 1)
+                        : "parses " + (range[0] + 1) + "-" + Math.min(range[1], parses);
+                log(String.format("  %-17s p50 %8d us  p90 %8d us  max %8d us", name,
+                        percentile(values, 50), percentile(values, 90), percentile(values, 100)));
+            }
+        }
+    }
+
+    private static List<Long> runChild(boolean warmUp, int parses) throws Exception {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        Process process = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                StartupBenchmark.class.getName(), "child", String.valueOf(warmUp), String.valueOf(parses))
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+        List<Long> values = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.US_ASCII))) {
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                values.add(Long.parseLong(line));
+            }
+        }
+        if (process.waitFor() != 0) throw new IllegalStateException("child JVM failed");
+        return values;
+    }
+
+    /*
+     * Prints the warm-up time, if any, then the latency of every parse in microseconds
+     */
+    private static void child(boolean warmUp, int parses) {
+        List<byte[]> inputs = new ArrayList<>(parses);
+        for (int i = 0; i < parses; i++) {
+            inputs.add(generateGraph(20, i).getBytes(StandardCharsets.UTF_8));
+        }
+        if (warmUp) {
+            long start = System.nanoTime();
+            GraphParser.warmUp();
+            System.out.println((System.nanoTime() - start) / 1000);
+        }
+        long[] latencies = new long[parses];
+        for (int i = 0; i < parses; i++) {
+            byte[] input = inputs.get(i);
+            long start = System.nanoTime();
+            GraphParser.parse(input, 0, input.length);
+            latencies[i] = (System.nanoTime() - start) / 1000;
+        }
+        for (long latency : latencies) {
+            System.out.println(latency);
+        }
+    }
+
+    private static long percentile(List<Long> values, int percentile) {
+        List<Long> sorted = new ArrayList<>(values);
+        Collections.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.size()) - 1;
+        return sorted.get(Math.max(0, index));
+    }
+}
@@ -0,0 +1,64 @@
+package com.nukkitx.digraph.parser;
+
+import com.nukkitx.digraph.DiGraph;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.nukkitx.digraph.parser.BenchmarkSupport.*;
+
+/**
+ * Retained heap of parsed graphs without and with a {@link SymbolTable}, per million nodes: one graph, and a batch of
+ * graphs over the same node ids parsed with one shared table. Usage: {@code SymbolTableBenchmark [statements] [graphs]}
+ */
+public class SymbolTableBenchmark {
+    public static void main(String[] args) throws Exception {
+        int statements = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        int graphs = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        List<byte[]> inputs = new ArrayList<>(graphs);
+        for (int i = 0; i < graphs; i++) {
+            inputs.add(generateGraph(statements, i).getBytes(StandardCharsets.UTF_8));
+        }
+        long nodes = 0;
+        for (byte[] input : inputs) {
+            nodes += GraphParser.parse(input, 0, input.length).getNodes().size();
+        }
+        log("input: " + graphs + " graphs of " + statements + " statements, " + nodes + " nodes");
+
+        for (ParseMode mode : ParseMode.values()) {
+            report(mode + " one graph", inputs.subList(0, 1), mode, false);
+            report(mode + " one graph, table", inputs.subList(0, 1), mode, true);
+            report(mode + " batch", inputs, mode, false);
+            report(mode + " batch, table", inputs, mode, true);
+        }
+    }
+
+    private static void report(String name, List<byte[]> inputs, ParseMode mode, boolean symbols) throws Exception {
+        GraphParserOptions options = new GraphParserOptions();
+        options.setParseMode(mode);
+        long[] nodes = new long[1];
+        long retained = retainedBytes(() -> {
+            options.setSymbolTable(symbols ? new SymbolTable() : null);
+            List<DiGraph> graphs = new ArrayList<>(inputs.size());
+            for (byte[] input : inputs) {
+                graphs.add(GraphParser.parse(input, 0, input.length, options));
+            }
+            nodes[0] = 0;
+            for (DiGraph graph : graphs) {
+                nodes[0] += graph.getNodes().size();
+            }
+            options.setSymbolTable(null); // only the strings the graphs use stay
+            return graphs;
+        });
+        double millis = bestMillis(1, 3, () -> {
+            options.setSymbolTable(symbols ? new SymbolTable() : null);
+            for (byte[] input : inputs) {
+                GraphParser.parse(input, 0, input.length, options);
+            }
+            return null;
+        });
+        log(String.format("%-30s %10.1f ms %8d MiB retained %8d MiB per million nodes", name, millis,
+                retained / (1024 * 1024), retained * 1_000_000 / nodes[0] / (1024 * 1024)));
+    }
+}
@@ -0,0 +1,67 @@
+package com.nukkitx.digraph.parser;
+
+import com.nukkitx.digraph.DiGraph;
+import com.nukkitx.digraph.DiGraphNode;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+
+public class SymbolTableTest {
+    private static String key(DiGraphNode node, String key) {
+        for (String k : node.getAttributes().keySet()) {
+            if (k.equals(key)) return k;
+        }
+        return null;
+    }
+
+    @Test
+    public void testSharedStrings() throws Exception {
+        byte[] input = "digraph { a [label=\"A\", shape=box, w=1] a -> b [w=1] }".getBytes(StandardCharsets.UTF_8);
+        for (ParseMode mode : ParseMode.values()) {
+            GraphParserOptions options = new GraphParserOptions();
+            options.setParseMode(mode);
+            options.setSymbolTable(new SymbolTable());
+            DiGraph first = GraphParser.parse(input, 0, input.length, options);
+            DiGraph second = GraphParser.parse(input, 0, input.length, options);
+            ParserTest.assertSameGraph(GraphParser.parse(input, 0, input.length), second);
+
+            DiGraphNode a1 = first.getNode("a");
+            DiGraphNode a2 = second.getNode("a");
+            Assert.assertSame(a1.getId(), a2.getId());
+            Assert.assertSame(key(a1, "label"), key(a2, "label"));
+            Assert.assertSame(a1.getAttribute("shape"), a2.getAttribute("shape"));
+            Assert.assertSame(a1.getAttribute("w"), second.getEdge("a-b").getAttribute("w"));
+            // quoted values are left alone
+            Assert.assertNotSame(a1.getAttribute("label"), a2.getAttribute("label"));
+        }
+    }
+
+    @Test
+    public void testSameGraphs() throws Exception {
+        for (String fname : ParserTest.RESOURCES) {
+            DiGraph expected = GraphParser.parse(Paths.get(fname));
+            for (ParseMode mode : ParseMode.values()) {
+                GraphParserOptions options = new GraphParserOptions();
+                options.setParseMode(mode);
+                options.setSymbolTable(new SymbolTable());
+                ParserTest.assertSameGraph(expected, GraphParser.parse(Paths.get(fname), options));
+            }
+        }
+    }
+
+    @Test
+    public void testFullTable() {
+        SymbolTable symbols = new SymbolTable(2);
+        String a = symbols.intern(new String("a"));
+        Assert.assertSame(a, symbols.intern(new String("a")));
+        symbols.intern("b");
+        String c = new String("c");
+        Assert.assertSame(c, symbols.intern(c));
+        Assert.assertNotSame(symbols.intern(new String("c")), c);
+        Assert.assertEquals(2, symbols.size());
+        symbols.clear();
+        Assert.assertEquals(0, symbols.size());
+    }
+}
@@ -0,0 +1,109 @@
+package com.nukkitx.digraph.parser;
+
+import com.nukkitx.digraph.DiGraph;
+import org.antlr.v4.runtime.dfa.DFA;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+
+public class WarmUpTest {
+
+    @Test
+    public void testWarmUpCoversCommonInput() {
+        GraphParser.warmUp();
+        int states = liveStateCount();
+        Assert.assertTrue(states > 0);
+
+        for (String fname : ParserTest.RESOURCES) {
+            GraphParser.parse(Paths.get(fname));
+        }
+        byte[] input = BenchmarkSupport.generateGraph(2000, 5).getBytes(StandardCharsets.UTF_8);
+        GraphParser.parse(input, 0, input.length);
+        Assert.assertEquals(states, liveStateCount());
+    }
+
+    @Test
+    public void testSnapshotRestore() {
+        GraphParser.warmUp();
+        DfaSnapshot snapshot = GraphParser.snapshotDfa();
+        int states = snapshot.getStateCount();
+        Assert.assertEquals(liveStateCount(), states);
+
+        byte[] input = "digraph { a:b:c -- d:e [f] [g=h,]; node [] }".getBytes(StandardCharsets.UTF_8);
+        DiGraph expected = GraphParser.parse(input, 0, input.length);
+        for (int i = 0; i < 2; i++) {
+            DFA before = PredictionCache.SHARED.parserDfa[0];
+            GraphParser.restoreDfa(snapshot);
+            // every restore installs fresh copies, parses never write into the snapshot
+            Assert.assertNotSame(before, PredictionCache.SHARED.parserDfa[0]);
+            Assert.assertEquals(states, liveStateCount());
+            ParserTest.assertSameGraph(expected, GraphParser.parse(input, 0, input.length));
+            for (String fname : ParserTest.RESOURCES) {
+                GraphParser.parse(Paths.get(fname));
+            }
+        }
+        Assert.assertEquals(states, snapshot.getStateCount());
+    }
+
+    @Test
+    public void testCacheStats() {
+        GraphParser.warmUp();
+        DfaCacheStats before = GraphParser.getDfaCacheStats();
+        Assert.assertTrue(before.getStates() >= liveStateCount());
+
+        byte[] input = BenchmarkSupport.generateGraph(200, 3).getBytes(StandardCharsets.UTF_8);
+        GraphParser.parse(input, 0, input.length);
+        DfaCacheStats after = GraphParser.getDfaCacheStats();
+        // the corpus has all the states, but not a lexer edge for every character
+        Assert.assertTrue(after.getHits() - before.getHits() > 100 * (after.getMisses() - before.getMisses()));
+        Assert.assertTrue(after.getHitRate() > 0);
+    }
+
+    @Test
+    public void testClear() {
+        GraphParser.warmUp();
+        long clears = GraphParser.getDfaCacheStats().getClears();
+        GraphParser.clearDfaCache();
+        DfaCacheStats stats = GraphParser.getDfaCacheStats();
+        Assert.assertEquals(0, stats.getStates());
+        Assert.assertEquals(0, stats.getContexts());
+        Assert.assertEquals(0, stats.getStripes());
+        Assert.assertEquals(clears + 1, stats.getClears());
+
+        byte[] input = "digraph { a -> b [k=v] }".getBytes(StandardCharsets.UTF_8);
+        Assert.assertEquals(1, GraphParser.parse(input, 0, input.length).getEdges().size());
+        Assert.assertTrue(liveStateCount() > 0);
+        Assert.assertTrue(GraphParser.getDfaCacheStats().getMisses() > stats.getMisses());
+        GraphParser.warmUp();
+    }
+
+    @Test
+    public void testStateLimit() {
+        GraphParser.clearDfaCache();
+        long clears = GraphParser.getDfaCacheStats().getClears();
+        GraphParser.setDfaStateLimit(20);
+        try {
+            for (String fname : ParserTest.RESOURCES) {
+                GraphParser.parse(Paths.get(fname));
+            }
+            Assert.assertTrue(GraphParser.getDfaCacheStats().getClears() > clears);
+            Assert.assertTrue(liveStateCount() <= 20);
+
+            // a warm cache under the limit is left alone
+            GraphParser.setDfaStateLimit(10_000);
+            GraphParser.warmUp();
+            clears = GraphParser.getDfaCacheStats().getClears();
+            GraphParser.parse(Paths.get(ParserTest.RESOURCES[0]));
+            Assert.assertEquals(clears, GraphParser.getDfaCacheStats().getClears());
+        } finally {
+            GraphParser.setDfaStateLimit(0);
+            GraphParser.warmUp();
+        }
+    }
+
+    private static int liveStateCount() {
+        return DfaSnapshot.stateCount(PredictionCache.SHARED.lexerDfa) + DfaSnapshot.stateCount(PredictionCache.SHARED.parserDfa);
+    }
+}